@@ -2,6 +2,7 @@ plugins {
     alias(libs.plugins.hivemq.extension)
     alias(libs.plugins.defaults)
     alias(libs.plugins.license)
+    alias(libs.plugins.jmh)
 }
 
 group = "com.hivemq.extensions"
@@ -49,6 +50,10 @@ testing {
     }
 }
 
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+}
+
 license {
     header = rootDir.resolve("HEADER")
     mapping("java", "SLASHSTAR_STYLE")
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extensions.log.mqtt.message.format.FieldProjectionBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of the binary capture for PUBLISH packets of 1000 clients on one thread, the target is 500k events per
+ * second.
+ *
+ * @since 1.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventLogBenchmark {
+
+    private final @NotNull PublishPacket publishPacket = new FieldProjectionBenchmark.BenchmarkPublishPacket();
+    private final @NotNull String @NotNull [] clientIds = new String[1000];
+    private @NotNull Path directory;
+    private @NotNull EventLog eventLog;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        for (int i = 0; i < clientIds.length; i++) {
+            clientIds[i] = "client-" + i;
+        }
+        directory = Files.createTempDirectory("event-log-benchmark");
+        eventLog = EventLog.open(directory, 64 * 1024 * 1024, 4);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        eventLog.close();
+        try (final Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void publish() {
+        final String clientId = clientIds[next];
+        next = (next + 1) % clientIds.length;
+        eventLog.logPublish(clientId, publishPacket, true, false);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.general.Qos;
+import com.hivemq.extension.sdk.api.packets.general.UserProperties;
+import com.hivemq.extension.sdk.api.packets.general.UserProperty;
+import com.hivemq.extension.sdk.api.packets.publish.PayloadFormatIndicator;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Rendering cost of a PUBLISH log line depending on the number of selected fields.
+ *
+ * @since 1.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldProjectionBenchmark {
+
+    @Param({
+            "topic",
+            "topic,qos,retain",
+            "topic,qos,retain,payloadSize,userProperties",
+            "topic,qos,retain,dup,packetId,payload,payloadSize,messageExpiry,correlationData,responseTopic," +
+                    "contentType,payloadFormatIndicator,subscriptionIdentifiers,userProperties"})
+    public @NotNull String fields = "topic";
+
+    private @NotNull Template<PublishPacket> template;
+    private final @NotNull PublishPacket publishPacket = new BenchmarkPublishPacket();
+
+    @Setup
+    public void setup() {
+        final FieldProjection<PublishPacket> compiled = FieldProjection.compile(PacketFields.PUBLISH, fields);
+        assert compiled != null;
+        template = Template.compile(BuiltInTemplates.prefix("PUBLISH", true) + "${fields}",
+                PacketFields.PUBLISH,
+                Map.of("fields", compiled));
+    }
+
+    @Benchmark
+    public @NotNull String render() {
+        return template.render("client-1", publishPacket);
+    }
+
+    public static class BenchmarkPublishPacket implements PublishPacket, UserProperties {
+
+        private final @NotNull ByteBuffer payload =
+                ByteBuffer.wrap("{\"temperature\":21.5,\"unit\":\"C\"}".getBytes(UTF_8)).asReadOnlyBuffer();
+        private final @NotNull ByteBuffer correlationData =
+                ByteBuffer.wrap("correlation".getBytes(UTF_8)).asReadOnlyBuffer();
+        private final @NotNull List<UserProperty> userProperties =
+                List.of(new BenchmarkUserProperty("name0", "value0"), new BenchmarkUserProperty("name1", "value1"));
+
+        @Override
+        public boolean getDupFlag() {
+            return false;
+        }
+
+        @Override
+        public @NotNull Qos getQos() {
+            return Qos.AT_LEAST_ONCE;
+        }
+
+        @Override
+        public boolean getRetain() {
+            return false;
+        }
+
+        @Override
+        public @NotNull String getTopic() {
+            return "plant/line-1/sensor/temperature";
+        }
+
+        @Override
+        public int getPacketId() {
+            return 42;
+        }
+
+        @Override
+        public @NotNull Optional<PayloadFormatIndicator> getPayloadFormatIndicator() {
+            return Optional.of(PayloadFormatIndicator.UTF_8);
+        }
+
+        @Override
+        public @NotNull Optional<Long> getMessageExpiryInterval() {
+            return Optional.of(3600L);
+        }
+
+        @Override
+        public @NotNull Optional<String> getResponseTopic() {
+            return Optional.of("plant/line-1/response");
+        }
+
+        @Override
+        public @NotNull Optional<ByteBuffer> getCorrelationData() {
+            return Optional.of(correlationData);
+        }
+
+        @Override
+        public @NotNull List<Integer> getSubscriptionIdentifiers() {
+            return List.of(1, 2);
+        }
+
+        @Override
+        public @NotNull Optional<String> getContentType() {
+            return Optional.of("application/json");
+        }
+
+        @Override
+        public @NotNull Optional<ByteBuffer> getPayload() {
+            return Optional.of(payload);
+        }
+
+        @Override
+        public @NotNull UserProperties getUserProperties() {
+            return this;
+        }
+
+        @Override
+        public @NotNull Optional<String> getFirst(final @NotNull String name) {
+            return Optional.empty();
+        }
+
+        @Override
+        public @NotNull List<String> getAllForName(final @NotNull String name) {
+            return List.of();
+        }
+
+        @Override
+        public @NotNull List<UserProperty> asList() {
+            return userProperties;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return false;
+        }
+    }
+
+    private static class BenchmarkUserProperty implements UserProperty {
+
+        private final @NotNull String name;
+        private final @NotNull String value;
+
+        BenchmarkUserProperty(final @NotNull String name, final @NotNull String value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public @NotNull String getName() {
+            return name;
+        }
+
+        @Override
+        public @NotNull String getValue() {
+            return value;
+        }
+    }
+}
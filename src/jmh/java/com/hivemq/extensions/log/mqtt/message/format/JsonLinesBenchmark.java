@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering cost of a PUBLISH event as JSON line compared to the built-in text log line and to a text template with
+ * the fields of the compact JSON line.
+ *
+ * @since 1.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonLinesBenchmark {
+
+    @Param({"false", "true"})
+    public boolean verbose;
+
+    private final @NotNull PublishPacket publishPacket = new FieldProjectionBenchmark.BenchmarkPublishPacket();
+    private final @NotNull Template<PublishPacket> template = Template.compile(
+            "${ts} node-1 in PUBLISH ${clientId} ${topic} ${qos} ${retain} ${packetId} ${payload} ${userProperties}",
+            PacketFields.PUBLISH);
+    private final @NotNull JsonLinesFormat jsonLines =
+            new JsonLinesFormat("node-1", MqttMessageLogConfig.PAYLOAD_ENCODING_UTF8);
+
+    @Benchmark
+    public @NotNull String text() {
+        return BuiltInTemplates.PUBLISH_RECEIVED.get(verbose).render("client-1", publishPacket);
+    }
+
+    @Benchmark
+    public @NotNull String textTemplate() {
+        return template.render("client-1", publishPacket);
+    }
+
+    @Benchmark
+    public @NotNull String jsonLines() {
+        return jsonLines.publishLine("client-1", publishPacket, true, verbose);
+    }
+}
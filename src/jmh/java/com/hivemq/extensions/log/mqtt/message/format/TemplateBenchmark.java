@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering cost of the built-in PUBLISH log lines and of a custom template.
+ *
+ * @since 1.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+
+    private final @NotNull Template<PublishPacket> custom =
+            Template.compile("${ts} IN PUB ${clientId} ${topic} q${qos} ${payload}", PacketFields.PUBLISH);
+    private final @NotNull PublishPacket publishPacket = new FieldProjectionBenchmark.BenchmarkPublishPacket();
+
+    @Benchmark
+    public @NotNull String builtInCompact() {
+        return BuiltInTemplates.PUBLISH_RECEIVED.get(false).render("client-1", publishPacket);
+    }
+
+    @Benchmark
+    public @NotNull String builtInVerbose() {
+        return BuiltInTemplates.PUBLISH_RECEIVED.get(true).render("client-1", publishPacket);
+    }
+
+    @Benchmark
+    public @NotNull String customTemplate() {
+        return custom.render("client-1", publishPacket);
+    }
+}
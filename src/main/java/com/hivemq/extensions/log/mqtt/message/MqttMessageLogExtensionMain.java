@@ -17,6 +17,7 @@ package com.hivemq.extensions.log.mqtt.message;
 
 import com.hivemq.extension.sdk.api.ExtensionMain;
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.client.parameter.ServerInformation;
 import com.hivemq.extension.sdk.api.parameter.ExtensionStartInput;
 import com.hivemq.extension.sdk.api.parameter.ExtensionStartOutput;
@@ -25,13 +26,27 @@ import com.hivemq.extension.sdk.api.parameter.ExtensionStopOutput;
 import com.hivemq.extension.sdk.api.services.Services;
 import com.hivemq.extension.sdk.api.services.admin.LicenseEdition;
 import com.hivemq.extension.sdk.api.services.intializer.ClientInitializer;
+import com.hivemq.extensions.log.mqtt.message.aggregate.Aggregations;
+import com.hivemq.extensions.log.mqtt.message.capture.EventLog;
+import com.hivemq.extensions.log.mqtt.message.capture.FsyncPolicy;
 import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
 import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfigReader;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import com.hivemq.extensions.log.mqtt.message.initializer.ClientInitializerImpl;
 import com.hivemq.extensions.log.mqtt.message.initializer.ClientInitializerImpl4_2;
+import com.hivemq.extensions.log.mqtt.message.jfr.JfrMessageLogFormat;
+import com.hivemq.extensions.log.mqtt.message.pcap.PcapngCapture;
+import com.hivemq.extensions.log.mqtt.message.sink.ClientFileSink;
+import com.hivemq.extensions.log.mqtt.message.sink.FileSink;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+import com.hivemq.extensions.log.mqtt.message.sink.RollingPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
 /**
  * @author Florian Limpöck
  * @since 1.0.0
@@ -40,6 +55,13 @@ public class MqttMessageLogExtensionMain implements ExtensionMain {
 
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(MqttMessageLogExtensionMain.class);
 
+    private @Nullable EventLog eventLog;
+    private @Nullable FileSink fileSink;
+    private @Nullable ClientFileSink clientFileSink;
+    private @Nullable PcapngCapture pcapngCapture;
+    private @NotNull LineSink sink = LineSink.MESSAGE_LOG;
+    private @NotNull Aggregations aggregations = Aggregations.none();
+
     @Override
     public void extensionStart(
             final @NotNull ExtensionStartInput extensionStartInput,
@@ -64,12 +86,34 @@ public class MqttMessageLogExtensionMain implements ExtensionMain {
                 return;
             }
 
+            final MessageLogFormat outputFormat =
+                    createMessageLogFormat(extensionStartInput.getExtensionInformation().getExtensionHomeFolder(),
+                            config);
+            // summarized and repeated events are not written, jfr-events still emits them
+            final boolean lineFormat = MqttMessageLogConfig.FORMAT_TEXT.equals(config.getFormat()) ||
+                    MqttMessageLogConfig.FORMAT_JSONL.equals(config.getFormat());
+            final boolean enterprise4_2 = isEnterprise4_2(extensionStartInput.getServerInformation());
+            // the lines about connections go where the packets are logged, the capture formats have no lines
+            aggregations = Aggregations.create(config,
+                    Services.metricRegistry(),
+                    !enterprise4_2,
+                    lineFormat ? sink : LineSink.MESSAGE_LOG);
+            final MessageLogFormat decoratedFormat =
+                    aggregations.decorate(config, outputFormat, lineFormat ? sink : null);
+            final MessageLogFormat messageLogFormat =
+                    config.isJfrEvents() && !(outputFormat instanceof JfrMessageLogFormat) ?
+                            new JfrMessageLogFormat(decoratedFormat) : decoratedFormat;
             final ClientInitializer initializer =
-                    getClientInitializerForEdition(extensionStartInput.getServerInformation(), config);
+                    getClientInitializerForEdition(enterprise4_2,
+                            config,
+                            messageLogFormat,
+                            sink,
+                            aggregations);
 
             Services.initializerRegistry().setClientInitializer(initializer);
 
         } catch (final Exception e) {
+            closeOutputs();
             extensionStartOutput.preventExtensionStartup(extensionStartInput.getExtensionInformation().getName() +
                     " cannot be started");
             LOG.error(extensionStartInput.getExtensionInformation().getName() +
@@ -81,19 +125,138 @@ public class MqttMessageLogExtensionMain implements ExtensionMain {
     public void extensionStop(
             final @NotNull ExtensionStopInput extensionStopInput,
             final @NotNull ExtensionStopOutput extensionStopOutput) {
+        closeOutputs();
     }
 
-    private @NotNull ClientInitializer getClientInitializerForEdition(
-            final @NotNull ServerInformation serverInformation, final @NotNull MqttMessageLogConfig config) {
-        final LicenseEdition edition = Services.adminService().getLicenseInformation().getEdition();
-        final String version = serverInformation.getVersion();
+    private void closeOutputs() {
+        final EventLog eventLog = this.eventLog;
+        if (eventLog != null) {
+            eventLog.close();
+            this.eventLog = null;
+        }
+        final FileSink fileSink = this.fileSink;
+        if (fileSink != null) {
+            fileSink.close();
+            this.fileSink = null;
+        }
+        final ClientFileSink clientFileSink = this.clientFileSink;
+        if (clientFileSink != null) {
+            clientFileSink.close();
+            this.clientFileSink = null;
+        }
+        final PcapngCapture pcapngCapture = this.pcapngCapture;
+        if (pcapngCapture != null) {
+            pcapngCapture.close();
+            this.pcapngCapture = null;
+        }
+        sink = LineSink.MESSAGE_LOG;
+        aggregations.close();
+        aggregations = Aggregations.none();
+    }
+
+    private @NotNull MessageLogFormat createMessageLogFormat(
+            final @NotNull File extensionHomeFolder, final @NotNull MqttMessageLogConfig config) throws IOException {
+        final String format = config.getFormat();
+        if (MqttMessageLogConfig.FORMAT_JFR.equals(format)) {
+            LOG.info("HiveMQ MQTT Message Log Extension: Emitting packets as Java Flight Recorder events only");
+            return new JfrMessageLogFormat(null);
+        }
+        if (MqttMessageLogConfig.FORMAT_PCAPNG.equals(format)) {
+            final Path file = extensionHomeFolder.toPath()
+                    .resolve(config.getCaptureDir())
+                    .resolve(PcapngCapture.FILE_NAME);
+            final PcapngCapture pcapngCapture = PcapngCapture.open(file, config.getPcapngQueueSize());
+            LOG.info("HiveMQ MQTT Message Log Extension: Capturing packets in pcapng format to {}", file);
+            this.pcapngCapture = pcapngCapture;
+            // the capture learns about lost connections like a sink
+            sink = pcapngCapture;
+            return pcapngCapture;
+        }
+        if (!MqttMessageLogConfig.FORMAT_BINARY.equals(format)) {
+            // JSON lines carry their own timestamp, text lines get the timestamp the log pattern would add
+            sink = createSink(extensionHomeFolder, config, MqttMessageLogConfig.FORMAT_TEXT.equals(format));
+            return MessageLogFormat.create(config, sink);
+        }
+        final Path captureDir = extensionHomeFolder.toPath().resolve(config.getCaptureDir());
+        final FsyncPolicy fsyncPolicy = createFsyncPolicy(config);
+        final EventLog eventLog = EventLog.open(captureDir,
+                config.getCaptureSegmentSize(),
+                config.getCaptureMaxSegments(),
+                fsyncPolicy);
+        LOG.info("HiveMQ MQTT Message Log Extension: Capturing packets in binary format to {}, fsync {}",
+                captureDir,
+                fsyncPolicy);
+        this.eventLog = eventLog;
+        return eventLog;
+    }
+
+    private @NotNull LineSink createSink(
+            final @NotNull File extensionHomeFolder,
+            final @NotNull MqttMessageLogConfig config,
+            final boolean timestamps) throws IOException {
+        final Path fileDir = extensionHomeFolder.toPath().resolve(config.getFileDir());
+        switch (config.getSink()) {
+            case MqttMessageLogConfig.SINK_FILE:
+                final RollingPolicy rollingPolicy = new RollingPolicy(config.getFileRotateSize(),
+                        config.getFileRotateInterval() * 1000L,
+                        config.getFileMaxTotalSize(),
+                        config.getFileMaxAge() * 1000L,
+                        config.isFileCompress());
+                final FileSink fileSink = FileSink.open(fileDir,
+                        config.getFileName(),
+                        rollingPolicy,
+                        timestamps,
+                        config.getFileFlushInterval());
+                LOG.info("HiveMQ MQTT Message Log Extension: Writing packets to {}, {}",
+                        fileSink.getFile(),
+                        rollingPolicy);
+                this.fileSink = fileSink;
+                return fileSink;
+            case MqttMessageLogConfig.SINK_CLIENT_FILES:
+                final ClientFileSink clientFileSink = ClientFileSink.open(fileDir,
+                        timestamps,
+                        config.getClientFilesMaxOpen(),
+                        config.getFileFlushInterval(),
+                        config.getClientFilesIdleTimeout() * 1000L);
+                LOG.info("HiveMQ MQTT Message Log Extension: Writing packets of every client to its own file in {}, " +
+                        "at most {} open files", fileDir, config.getClientFilesMaxOpen());
+                this.clientFileSink = clientFileSink;
+                return clientFileSink;
+            default:
+                return LineSink.MESSAGE_LOG;
+        }
+    }
+
+    private static @NotNull FsyncPolicy createFsyncPolicy(final @NotNull MqttMessageLogConfig config) {
+        switch (config.getCaptureFsync()) {
+            case MqttMessageLogConfig.FSYNC_INTERVAL:
+                return FsyncPolicy.everyMillis(config.getCaptureFsyncInterval());
+            case MqttMessageLogConfig.FSYNC_RECORDS:
+                return FsyncPolicy.everyRecords(config.getCaptureFsyncRecords());
+            default:
+                return FsyncPolicy.NEVER;
+        }
+    }
 
-        if (LicenseEdition.COMMUNITY.equals(edition)) {
-            return new ClientInitializerImpl(config);
-        } else if (version.startsWith("4.2")) {
-            return new ClientInitializerImpl4_2(config);
+    private @NotNull ClientInitializer getClientInitializerForEdition(
+            final boolean enterprise4_2,
+            final @NotNull MqttMessageLogConfig config,
+            final @NotNull MessageLogFormat messageLogFormat,
+            final @NotNull LineSink sink,
+            final @NotNull Aggregations aggregations) {
+        if (enterprise4_2) {
+            return new ClientInitializerImpl4_2(config, messageLogFormat, sink, aggregations);
         } else {
-            return new ClientInitializerImpl(config);
+            return new ClientInitializerImpl(config, messageLogFormat, sink, aggregations);
         }
     }
+
+    /**
+     * @return whether the broker is a HiveMQ 4.2 Enterprise Version, which only supports the PUBLISH and SUBSCRIBE
+     *         interceptors.
+     */
+    private static boolean isEnterprise4_2(final @NotNull ServerInformation serverInformation) {
+        final LicenseEdition edition = Services.adminService().getLicenseInformation().getEdition();
+        return !LicenseEdition.COMMUNITY.equals(edition) && serverInformation.getVersion().startsWith("4.2");
+    }
 }
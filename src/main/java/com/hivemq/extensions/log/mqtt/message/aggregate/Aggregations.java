@@ -0,0 +1,262 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.codahale.metrics.MetricRegistry;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+
+/**
+ * The aggregations that are enabled in the configuration, they are fed by the interceptors and report periodically
+ * to the message log. An aggregation that is not enabled is {@code null}.
+ *
+ * @since 1.2.0
+ */
+public class Aggregations implements Closeable {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(Aggregations.class);
+
+    private final @Nullable HeavyHitters heavyHitters;
+    private final @Nullable TopicTree topicTree;
+    private final @Nullable EventSummary eventSummary;
+    private final @Nullable SessionSummaries sessionSummaries;
+    private final @Nullable ConnectionChurn connectionChurn;
+    private final @Nullable ConnectionLostSummary connectionLostSummary;
+    private final @Nullable KeepAliveHealth keepAliveHealth;
+    private final @NotNull ReportScheduler reportScheduler;
+    /**
+     * The distinct topics per connection and window above which a warning is logged, 0 if disabled.
+     */
+    private final int topicCardinalityThreshold;
+    private final long topicCardinalityWindowMillis;
+
+    Aggregations(
+            final @Nullable HeavyHitters heavyHitters,
+            final @Nullable TopicTree topicTree,
+            final @Nullable EventSummary eventSummary,
+            final @Nullable SessionSummaries sessionSummaries,
+            final @Nullable ConnectionChurn connectionChurn,
+            final @Nullable ConnectionLostSummary connectionLostSummary,
+            final @Nullable KeepAliveHealth keepAliveHealth,
+            final @NotNull ReportScheduler reportScheduler,
+            final int topicCardinalityThreshold,
+            final long topicCardinalityWindowMillis) {
+        this.heavyHitters = heavyHitters;
+        this.topicTree = topicTree;
+        this.eventSummary = eventSummary;
+        this.sessionSummaries = sessionSummaries;
+        this.connectionChurn = connectionChurn;
+        this.connectionLostSummary = connectionLostSummary;
+        this.keepAliveHealth = keepAliveHealth;
+        this.reportScheduler = reportScheduler;
+        this.topicCardinalityThreshold = topicCardinalityThreshold;
+        this.topicCardinalityWindowMillis = topicCardinalityWindowMillis;
+    }
+
+    /**
+     * Creates the enabled aggregations and schedules their reports.
+     *
+     * @param allPacketInterceptors whether the HiveMQ version supports interceptors for all packet types, the
+     *                              aggregations that need them are disabled otherwise.
+     * @param lineSink              where the lines about single connections and their summaries are written, the
+     *                              same sink as the logged packets.
+     */
+    public static @NotNull Aggregations create(
+            final @NotNull MqttMessageLogConfig config,
+            final @NotNull MetricRegistry metricRegistry,
+            final boolean allPacketInterceptors,
+            final @NotNull LineSink lineSink) {
+        // the thread of the scheduler is only started with the first report
+        final ReportScheduler reportScheduler = new ReportScheduler();
+        HeavyHitters heavyHitters = null;
+        if (config.isHeavyHitters()) {
+            heavyHitters = new HeavyHitters(config.getHeavyHittersTop(), LineSink.MESSAGE_LOG);
+            reportScheduler.schedule(heavyHitters::report, config.getHeavyHittersInterval() * 1000L);
+        }
+        TopicTree topicTree = null;
+        if (config.isTopicTree()) {
+            topicTree = new TopicTree(config.getTopicTreeDepth(), config.getTopicTreeNodes(), LineSink.MESSAGE_LOG);
+            reportScheduler.schedule(topicTree::report, config.getTopicTreeInterval() * 1000L);
+        }
+        final EventSummary eventSummary = EventSummary.create(config, LineSink.MESSAGE_LOG);
+        if (eventSummary != null) {
+            reportScheduler.schedule(eventSummary::report, config.getSummaryInterval() * 1000L);
+        }
+        SessionSummaries sessionSummaries = null;
+        if (config.isSessionSummary()) {
+            if (allPacketInterceptors) {
+                sessionSummaries = new SessionSummaries(config.getClientRegex(),
+                        lineSink,
+                        MqttMessageLogConfig.FORMAT_JSONL.equals(config.getFormat()));
+            } else {
+                LOG.warn("HiveMQ MQTT Message Log Extension: Session summaries are not supported by this HiveMQ " +
+                        "version, session-summary is ignored");
+            }
+        }
+        ConnectionChurn connectionChurn = null;
+        if (config.isReconnectStorm()) {
+            connectionChurn = new ConnectionChurn(config.getReconnectStormThreshold(),
+                    config.getReconnectStormWindow() * 1000L,
+                    config.getReconnectStormMaxClients(),
+                    metricRegistry.meter(ConnectionChurn.CONNECTS_METRIC),
+                    lineSink);
+            reportScheduler.schedule(connectionChurn::report, config.getReconnectStormWindow() * 1000L);
+        }
+        ConnectionLostSummary connectionLostSummary = null;
+        if (config.isConnectionLost()) {
+            connectionLostSummary = new ConnectionLostSummary(config.getClientRegex(),
+                    config.getConnectionLostMaxLines(),
+                    config.getSummaryPrefixDelimiters(),
+                    lineSink,
+                    MqttMessageLogConfig.FORMAT_JSONL.equals(config.getFormat()));
+            reportScheduler.schedule(connectionLostSummary::report, config.getConnectionLostInterval() * 1000L);
+        }
+        KeepAliveHealth keepAliveHealth = null;
+        if (config.isKeepAliveHealth()) {
+            if (allPacketInterceptors) {
+                keepAliveHealth = new KeepAliveHealth(config.getKeepAliveLatePercent(),
+                        config.getKeepAliveEarlyPercent(),
+                        metricRegistry.histogram(KeepAliveHealth.JITTER_METRIC),
+                        lineSink,
+                        MqttMessageLogConfig.FORMAT_JSONL.equals(config.getFormat()));
+            } else {
+                LOG.warn("HiveMQ MQTT Message Log Extension: The keep alive check is not supported by this HiveMQ " +
+                        "version, keep-alive-health is ignored");
+            }
+        }
+        return new Aggregations(heavyHitters,
+                topicTree,
+                eventSummary,
+                sessionSummaries,
+                connectionChurn,
+                connectionLostSummary,
+                keepAliveHealth,
+                reportScheduler,
+                config.isTopicCardinality() ? config.getTopicCardinalityThreshold() : 0,
+                config.getTopicCardinalityWindow() * 1000L);
+    }
+
+    /**
+     * @return aggregations of which none is enabled.
+     */
+    public static @NotNull Aggregations none() {
+        return new Aggregations(null, null, null, null, null, null, null, new ReportScheduler(), 0, 0);
+    }
+
+    /**
+     * @return whether any aggregation needs the inbound PUBLISH messages, also if they are not logged.
+     */
+    public boolean isPublishReceivedAggregated() {
+        return heavyHitters != null || topicTree != null || topicCardinalityThreshold > 0;
+    }
+
+    /**
+     * Adds the enabled aggregations of the logged events to the output format: the events in summary mode are
+     * counted instead of passed on and, for line formats, consecutive identical events are collapsed.
+     *
+     * @param lineSink the sink of the text and JSON lines formats or {@code null} for the other formats.
+     */
+    public @NotNull MessageLogFormat decorate(
+            final @NotNull MqttMessageLogConfig config,
+            final @NotNull MessageLogFormat format,
+            final @Nullable LineSink lineSink) {
+        MessageLogFormat decorated = format;
+        if (config.isSuppressDuplicates()) {
+            if (lineSink == null) {
+                LOG.warn("HiveMQ MQTT Message Log Extension: Duplicates are only suppressed for the {} and {} formats",
+                        MqttMessageLogConfig.FORMAT_TEXT,
+                        MqttMessageLogConfig.FORMAT_JSONL);
+            } else {
+                final DuplicateSuppressingMessageLogFormat duplicateSuppression =
+                        new DuplicateSuppressingMessageLogFormat(format,
+                                lineSink,
+                                MqttMessageLogConfig.FORMAT_JSONL.equals(config.getFormat()),
+                                config.getSuppressDuplicatesMaxClients());
+                reportScheduler.schedule(duplicateSuppression::flush,
+                        config.getSuppressDuplicatesInterval() * 1000L);
+                decorated = duplicateSuppression;
+            }
+        }
+        return eventSummary == null ? decorated : new SummaryMessageLogFormat(decorated, eventSummary);
+    }
+
+    public @Nullable HeavyHitters getHeavyHitters() {
+        return heavyHitters;
+    }
+
+    public @Nullable TopicTree getTopicTree() {
+        return topicTree;
+    }
+
+    /**
+     * @return the session summaries or {@code null} if they are disabled.
+     */
+    public @Nullable SessionSummaries getSessionSummaries() {
+        return sessionSummaries;
+    }
+
+    /**
+     * @return the reconnect detection or {@code null} if it is disabled.
+     */
+    public @Nullable ConnectionChurn getConnectionChurn() {
+        return connectionChurn;
+    }
+
+    /**
+     * @return the logging and summary of lost connections or {@code null} if it is disabled.
+     */
+    public @Nullable ConnectionLostSummary getConnectionLostSummary() {
+        return connectionLostSummary;
+    }
+
+    /**
+     * @return the keep alive check or {@code null} if it is disabled.
+     */
+    public @Nullable KeepAliveHealth getKeepAliveHealth() {
+        return keepAliveHealth;
+    }
+
+    /**
+     * @return whether any aggregation needs the connects and disconnects of the lifecycle listener.
+     */
+    public boolean isLifecycleAggregated() {
+        return sessionSummaries != null || connectionChurn != null || connectionLostSummary != null ||
+                keepAliveHealth != null;
+    }
+
+    /**
+     * @return the distinct topic estimation for a new connection or {@code null} if it is disabled.
+     */
+    public @Nullable TopicCardinality newTopicCardinality() {
+        if (topicCardinalityThreshold <= 0) {
+            return null;
+        }
+        return new TopicCardinality(topicCardinalityThreshold, topicCardinalityWindowMillis);
+    }
+
+    @Override
+    public void close() {
+        reportScheduler.close();
+    }
+}
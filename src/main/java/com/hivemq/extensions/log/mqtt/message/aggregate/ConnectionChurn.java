@@ -0,0 +1,259 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.codahale.metrics.Meter;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detects clients that reconnect over and over again ({@code reconnect-storm}) and summarizes failed
+ * authentications per client.
+ * <p>
+ * The connects of a client are counted in a sliding window that is approximated by the counts of the current and the
+ * previous fixed window, weighted by the part of the previous window that is still inside the sliding window. When
+ * the count exceeds the threshold, one warning with the rate and the last disconnect reasons is logged per client
+ * and window.
+ * <p>
+ * At most {@code maxClients} clients are tracked, clients without connects and disconnects for two windows are
+ * removed by {@link #report()}, which also writes the failed authentications of the last window. The connects of all
+ * clients are additionally counted in the metric {@link #CONNECTS_METRIC}, whose rates are connects per second.
+ *
+ * @since 1.2.0
+ */
+public class ConnectionChurn {
+
+    public static final @NotNull String CONNECTS_METRIC = "com.hivemq.extensions.mqtt-message-log.connects";
+    static final int REASONS = 3;
+    static final int REPORTED_CLIENTS = 10;
+
+    private final int threshold;
+    private final long windowNanos;
+    private final int maxClients;
+    private final @NotNull Meter connects;
+    private final @NotNull LineSink sink;
+    private final @NotNull ConcurrentHashMap<String, ClientChurn> clients = new ConcurrentHashMap<>();
+    /**
+     * The failed authentications of clients that are not tracked because of {@code maxClients}.
+     */
+    private final @NotNull LongAdder untrackedAuthenticationFailures = new LongAdder();
+
+    /**
+     * @param threshold    the connects per window above which a client is reported.
+     * @param windowMillis the length of the sliding window.
+     * @param sink         where the reconnecting clients and the failed authentications are written.
+     */
+    ConnectionChurn(
+            final int threshold,
+            final long windowMillis,
+            final int maxClients,
+            final @NotNull Meter connects,
+            final @NotNull LineSink sink) {
+        this.threshold = threshold;
+        this.windowNanos = windowMillis * 1_000_000;
+        this.maxClients = maxClients;
+        this.connects = connects;
+        this.sink = sink;
+    }
+
+    /**
+     * @return whether the client exceeded the threshold with this connect, that is at most once per window.
+     */
+    public boolean connected(final @NotNull String clientId) {
+        return connected(clientId, System.nanoTime());
+    }
+
+    boolean connected(final @NotNull String clientId, final long nanoTime) {
+        connects.mark();
+        final ClientChurn client = client(clientId, nanoTime);
+        if (client == null) {
+            return false;
+        }
+        final double count;
+        final String reasons;
+        synchronized (client) {
+            client.advance(nanoTime, windowNanos);
+            client.current++;
+            count = client.count(nanoTime, windowNanos);
+            if (client.warned || count <= threshold) {
+                return false;
+            }
+            client.warned = true;
+            reasons = client.reasons();
+        }
+        final long windowSeconds = windowNanos / 1_000_000_000;
+        sink.writeLine(clientId,
+                "Client '" + clientId + "' connected " + Math.round(count) + " times within " + windowSeconds +
+                        " s (" + String.format(Locale.ROOT, "%.2f", count / Math.max(1, windowSeconds)) +
+                        " per second), last disconnect reasons: " + reasons);
+        return true;
+    }
+
+    /**
+     * @param reason why the connection ended, e.g. {@code connection lost}.
+     */
+    public void disconnected(final @NotNull String clientId, final @NotNull String reason) {
+        disconnected(clientId, reason, System.nanoTime());
+    }
+
+    void disconnected(final @NotNull String clientId, final @NotNull String reason, final long nanoTime) {
+        final ClientChurn client = clients.get(clientId);
+        if (client != null) {
+            synchronized (client) {
+                client.reasons[client.nextReason] = reason;
+                client.nextReason = (client.nextReason + 1) % REASONS;
+                client.lastEvent = nanoTime;
+            }
+        }
+    }
+
+    public void authenticationFailed(final @NotNull String clientId) {
+        final ClientChurn client = client(clientId, System.nanoTime());
+        if (client == null) {
+            untrackedAuthenticationFailures.increment();
+            return;
+        }
+        synchronized (client) {
+            client.authenticationFailures++;
+        }
+    }
+
+    private @Nullable ClientChurn client(final @NotNull String clientId, final long nanoTime) {
+        ClientChurn client = clients.get(clientId);
+        if (client == null) {
+            // the map is only bounded approximately, concurrent connects of new clients may exceed it slightly
+            if (clients.size() >= maxClients) {
+                return null;
+            }
+            final ClientChurn created = new ClientChurn(nanoTime);
+            client = clients.putIfAbsent(clientId, created);
+            if (client == null) {
+                client = created;
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Writes the failed authentications since the last report and removes the clients that were idle for two
+     * windows.
+     */
+    public void report() {
+        report(System.nanoTime());
+    }
+
+    void report(final long nanoTime) {
+        final List<Map.Entry<String, Long>> failures = new ArrayList<>();
+        long total = untrackedAuthenticationFailures.sumThenReset();
+        final Iterator<Map.Entry<String, ClientChurn>> iterator = clients.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, ClientChurn> entry = iterator.next();
+            final ClientChurn client = entry.getValue();
+            final long clientFailures;
+            synchronized (client) {
+                clientFailures = client.authenticationFailures;
+                client.authenticationFailures = 0;
+                if (nanoTime - client.lastEvent >= 2 * windowNanos) {
+                    iterator.remove();
+                }
+            }
+            if (clientFailures > 0) {
+                failures.add(Map.entry(entry.getKey(), clientFailures));
+                total += clientFailures;
+            }
+        }
+        if (total == 0) {
+            return;
+        }
+        failures.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        final StringBuilder builder = new StringBuilder("Failed authentications of the last ").append(
+                windowNanos / 1_000_000_000).append(" s: ").append(total);
+        for (int i = 0; i < failures.size() && i < REPORTED_CLIENTS; i++) {
+            builder.append(i == 0 ? ", by client: '" : ", '")
+                    .append(failures.get(i).getKey())
+                    .append("' ")
+                    .append(failures.get(i).getValue());
+        }
+        if (failures.size() > REPORTED_CLIENTS) {
+            builder.append(" and ").append(failures.size() - REPORTED_CLIENTS).append(" more clients");
+        }
+        sink.writeLine(builder.toString());
+    }
+
+    int size() {
+        return clients.size();
+    }
+
+    /**
+     * The connects, last disconnect reasons and failed authentications of one client, guarded by its monitor.
+     */
+    private static class ClientChurn {
+
+        private final @Nullable String @NotNull [] reasons = new String[REASONS];
+        private int nextReason;
+        private long windowStart;
+        private int current;
+        private int previous;
+        private boolean warned;
+        private long authenticationFailures;
+        private long lastEvent;
+
+        ClientChurn(final long nanoTime) {
+            windowStart = nanoTime;
+            lastEvent = nanoTime;
+        }
+
+        void advance(final long nanoTime, final long windowNanos) {
+            lastEvent = nanoTime;
+            final long elapsed = nanoTime - windowStart;
+            if (elapsed < windowNanos) {
+                return;
+            }
+            previous = elapsed < 2 * windowNanos ? current : 0;
+            current = 0;
+            windowStart = nanoTime - elapsed % windowNanos;
+            warned = false;
+        }
+
+        /**
+         * @return the connects in the sliding window that ends now.
+         */
+        double count(final long nanoTime, final long windowNanos) {
+            final double previousPart = 1 - (double) (nanoTime - windowStart) / windowNanos;
+            return current + previous * previousPart;
+        }
+
+        @NotNull String reasons() {
+            final StringBuilder builder = new StringBuilder();
+            for (int i = REASONS; i > 0; i--) {
+                final String reason = reasons[(nextReason + i - 1) % REASONS];
+                if (reason != null) {
+                    builder.append(builder.length() == 0 ? "'" : ", '").append(reason).append('\'');
+                }
+            }
+            return builder.length() == 0 ? "none" : builder.toString();
+        }
+    }
+}
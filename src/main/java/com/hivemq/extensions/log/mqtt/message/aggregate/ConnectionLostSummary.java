@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extensions.log.mqtt.message.format.JsonWriter;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+import com.hivemq.extensions.log.mqtt.message.util.IsoTimestamp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Logs the connections that were lost without a DISCONNECT packet ({@code connection-lost}) and counts them per
+ * listener and client prefix.
+ * <p>
+ * At most {@code maxLines} lost connections are logged individually per interval, the others are only counted, so a
+ * mass drop, e.g. of all clients behind one cell tower, shows up as one summary line at the end of the interval. The
+ * counts are kept per thread like in {@link EventSummary}, every thread counts at most
+ * {@link EventSummary#MAX_PREFIXES} combinations of listener and prefix, further combinations are counted as
+ * {@link EventSummary#OTHER_PREFIX}.
+ *
+ * @since 1.2.0
+ */
+public class ConnectionLostSummary {
+
+    static final @NotNull String UNKNOWN_LISTENER = "(unknown)";
+
+    private static final @NotNull ThreadLocal<IsoTimestamp> TIMESTAMPS = ThreadLocal.withInitial(IsoTimestamp::new);
+
+    private final @NotNull String clientRegex;
+    private final int maxLines;
+    private final @NotNull String prefixDelimiters;
+    private final @NotNull LineSink sink;
+    private final boolean json;
+    private final @NotNull AtomicInteger remainingLines;
+    private final @NotNull ThreadStripes<Map<String, long[]>> stripes = new ThreadStripes<>(HashMap::new);
+    private long intervalStart = System.nanoTime();
+
+    /**
+     * @param clientRegex      only lost connections of matching clients are logged individually, all are counted.
+     * @param maxLines         the maximum number of individually logged lost connections per interval.
+     * @param prefixDelimiters the characters that end the client prefix.
+     * @param sink             where the lost connections and the summaries are written.
+     * @param json             whether the lost connections are written as JSON lines.
+     */
+    ConnectionLostSummary(
+            final @NotNull String clientRegex,
+            final int maxLines,
+            final @NotNull String prefixDelimiters,
+            final @NotNull LineSink sink,
+            final boolean json) {
+        this.clientRegex = clientRegex;
+        this.maxLines = maxLines;
+        this.prefixDelimiters = prefixDelimiters;
+        this.sink = sink;
+        this.json = json;
+        remainingLines = new AtomicInteger(maxLines);
+    }
+
+    /**
+     * Called by the lifecycle listener, which runs on the extension executor and not on the event loop.
+     *
+     * @param listener the name of the listener the client was connected to or {@code null} if unknown.
+     */
+    public void connectionLost(final @NotNull String clientId, final @Nullable String listener) {
+        final String listenerName = listener == null ? UNKNOWN_LISTENER : listener;
+        final String key = listenerName + '\u0000' + EventSummary.prefix(clientId, prefixDelimiters);
+        final ThreadStripes.Stripe<Map<String, long[]>> stripe = stripes.stripe();
+        final Map<String, long[]> counts = stripe.enter();
+        try {
+            long[] count = counts.get(key);
+            if (count == null) {
+                count = counts.computeIfAbsent(counts.size() < EventSummary.MAX_PREFIXES ? key :
+                        listenerName + '\u0000' + EventSummary.OTHER_PREFIX, ignored -> new long[1]);
+            }
+            count[0]++;
+        } finally {
+            stripe.exit();
+        }
+        if ((clientRegex.isEmpty() || clientId.matches(clientRegex)) && remainingLines.get() > 0 &&
+                remainingLines.getAndDecrement() > 0) {
+            sink.writeLine(clientId, line(clientId, listenerName));
+        }
+    }
+
+    private @NotNull String line(final @NotNull String clientId, final @NotNull String listener) {
+        if (json) {
+            final JsonWriter writer = new JsonWriter(new StringBuilder(128));
+            writer.beginObject()
+                    .name("timestamp")
+                    .plainValue(TIMESTAMPS.get().format(System.currentTimeMillis()))
+                    .name("event")
+                    .value("connection-lost")
+                    .name("clientId")
+                    .value(clientId)
+                    .name("listener")
+                    .value(listener)
+                    .endObject();
+            return writer.getBuilder().toString();
+        }
+        return "Lost connection to client '" + clientId + "' on listener '" + listener + "'";
+    }
+
+    /**
+     * Writes the lost connections per listener and client prefix since the last report and starts the next interval.
+     * Nothing is written if no connection was lost.
+     */
+    public void report() {
+        final List<Map<String, long[]>> collected = stripes.collect();
+        final long now = System.nanoTime();
+        final double seconds = (now - intervalStart) / 1_000_000_000.0;
+        intervalStart = now;
+        final int logged = maxLines - Math.max(0, remainingLines.getAndSet(maxLines));
+
+        final Map<String, long[]> merged = new HashMap<>();
+        long total = 0;
+        for (final Map<String, long[]> counts : collected) {
+            for (final Map.Entry<String, long[]> entry : counts.entrySet()) {
+                merged.computeIfAbsent(entry.getKey(), key -> new long[1])[0] += entry.getValue()[0];
+                total += entry.getValue()[0];
+            }
+        }
+        if (total == 0) {
+            return;
+        }
+        final List<Map.Entry<String, long[]>> ranked = new ArrayList<>(merged.entrySet());
+        ranked.sort((entry1, entry2) -> {
+            final int compared = Long.compare(entry2.getValue()[0], entry1.getValue()[0]);
+            return compared != 0 ? compared : entry1.getKey().compareTo(entry2.getKey());
+        });
+        final StringBuilder builder = new StringBuilder(String.format(Locale.ROOT,
+                "Lost connections of the last %.0f s: %d (%.1f/s), %d not logged individually," +
+                        " per listener and client prefix:", seconds, total, total / seconds, total - logged));
+        for (int i = 0; i < Math.min(EventSummary.REPORTED_PREFIXES, ranked.size()); i++) {
+            final String key = ranked.get(i).getKey();
+            final int separator = key.indexOf('\u0000');
+            builder.append(i == 0 ? " '" : ", '")
+                    .append(key, 0, separator)
+                    .append("' '")
+                    .append(key, separator + 1, key.length())
+                    .append("' ")
+                    .append(ranked.get(i).getValue()[0]);
+        }
+        if (ranked.size() > EventSummary.REPORTED_PREFIXES) {
+            builder.append(" and ").append(ranked.size() - EventSummary.REPORTED_PREFIXES).append(" more");
+        }
+        sink.writeLine(builder.toString());
+    }
+}
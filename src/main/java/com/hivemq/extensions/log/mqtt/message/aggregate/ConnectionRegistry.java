@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.parameter.ClientBasedInput;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands per-connection state from the interceptors of a connection to the lifecycle listener, which has no access to
+ * the interceptors.
+ * <p>
+ * The state is registered under an id that is stored in the connection attribute store, so a client that takes over
+ * the session of its previous connection never gets the state of the other connection. The map is only accessed when
+ * a connection starts or ends, never per packet.
+ *
+ * @param <T> the type of the state.
+ * @since 1.2.0
+ */
+class ConnectionRegistry<T> {
+
+    private final @NotNull String attribute;
+    private final @NotNull AtomicLong ids = new AtomicLong();
+    private final @NotNull ConcurrentHashMap<Long, T> connections = new ConcurrentHashMap<>();
+
+    /**
+     * @param attribute the key of the id in the connection attribute store.
+     */
+    ConnectionRegistry(final @NotNull String attribute) {
+        this.attribute = attribute;
+    }
+
+    void register(final @NotNull ClientBasedInput input, final @NotNull T state) {
+        final long id = ids.incrementAndGet();
+        connections.put(id, state);
+        input.getConnectionInformation()
+                .getConnectionAttributeStore()
+                .put(attribute, ByteBuffer.allocate(Long.BYTES).putLong(0, id));
+    }
+
+    /**
+     * @return the state of the ended connection or {@code null} if none was registered.
+     */
+    @Nullable T remove(final @NotNull ClientBasedInput input) {
+        final Optional<ByteBuffer> id =
+                input.getConnectionInformation().getConnectionAttributeStore().remove(attribute);
+        return id.map(buffer -> connections.remove(buffer.getLong(0))).orElse(null);
+    }
+
+    int size() {
+        return connections.size();
+    }
+}
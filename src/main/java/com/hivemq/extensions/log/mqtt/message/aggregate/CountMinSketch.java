@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+/**
+ * A count-min sketch of messages and bytes per key with a fixed memory footprint regardless of the number of keys.
+ * The estimates are never lower than the true counts and exceed them by at most {@code e / width} of the total with
+ * probability {@code 1 - e^-depth}.
+ * <p>
+ * Not thread-safe, a sketch is updated by one thread and read after the updates, see {@link ThreadStripes}.
+ *
+ * @since 1.2.0
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final long @NotNull [] messages;
+    private final long @NotNull [] bytes;
+    private long totalMessages;
+    private long totalBytes;
+
+    /**
+     * @param width the counters per row, rounded up to a power of two.
+     */
+    public CountMinSketch(final int depth, final int width) {
+        final int rowSize = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.depth = depth;
+        this.mask = rowSize - 1;
+        messages = new long[depth * rowSize];
+        bytes = new long[depth * rowSize];
+    }
+
+    /**
+     * @param hash the hash of the key, see {@link com.hivemq.extensions.log.mqtt.message.util.Hashing}.
+     */
+    public void add(final long hash, final long byteCount) {
+        // double hashing derives the row indices from two halves of the hash
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32) | 1;
+        for (int row = 0; row < depth; row++) {
+            final int index = row * (mask + 1) + ((h1 + row * h2) & mask);
+            messages[index]++;
+            bytes[index] += byteCount;
+        }
+        totalMessages++;
+        totalBytes += byteCount;
+    }
+
+    public long estimateMessages(final long hash) {
+        return estimate(messages, hash);
+    }
+
+    public long estimateBytes(final long hash) {
+        return estimate(bytes, hash);
+    }
+
+    private long estimate(final long @NotNull [] counters, final long hash) {
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * (mask + 1) + ((h1 + row * h2) & mask)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Adds the counts of a sketch with the same dimensions.
+     */
+    public void merge(final @NotNull CountMinSketch other) {
+        if (other.messages.length != messages.length || other.depth != depth) {
+            throw new IllegalArgumentException("Sketches with different dimensions can not be merged");
+        }
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] += other.messages[i];
+            bytes[i] += other.bytes[i];
+        }
+        totalMessages += other.totalMessages;
+        totalBytes += other.totalBytes;
+    }
+
+    public long getTotalMessages() {
+        return totalMessages;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
+import com.hivemq.extension.sdk.api.interceptor.connack.parameter.ConnackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingresp.parameter.PingRespOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.suback.parameter.SubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsuback.parameter.UnsubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.parameter.UnsubscribeInboundInput;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.puback.PubackPacket;
+import com.hivemq.extension.sdk.api.packets.pubcomp.PubcompPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.pubrec.PubrecPacket;
+import com.hivemq.extension.sdk.api.packets.pubrel.PubrelPacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.Subscription;
+import com.hivemq.extensions.log.mqtt.message.aggregate.EventSummary.Event;
+import com.hivemq.extensions.log.mqtt.message.format.JsonWriter;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+import com.hivemq.extensions.log.mqtt.message.util.Hashing;
+import com.hivemq.extensions.log.mqtt.message.util.IsoTimestamp;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logs only the first of consecutive identical events of a client and collapses the following ones into a line like
+ * {@code Received PUBLISH from client 'sensor-1' repeated 499 times over 60000 ms}.
+ * <p>
+ * Events are identical if they have the same packet type and direction and the same topic, payload and reason codes,
+ * compared by a 64 bit fingerprint. The repetitions are written before the next different event of the same type of
+ * the client and by {@link #flush()}, which the reporter thread calls periodically. The state is one fingerprint and
+ * counter per client and event type, for at most {@code maxClients} clients. While all of them are remembered, the
+ * events of further clients are logged without suppression until the next flush evicts the least recently active
+ * clients.
+ *
+ * @since 1.2.0
+ */
+public class DuplicateSuppressingMessageLogFormat implements MessageLogFormat {
+
+    private static final int EVENTS = Event.values().length;
+    private static final @NotNull ThreadLocal<IsoTimestamp> TIMESTAMPS = ThreadLocal.withInitial(IsoTimestamp::new);
+
+    private final @NotNull MessageLogFormat delegate;
+    private final @NotNull LineSink sink;
+    private final boolean json;
+    private final int maxClients;
+    private final @NotNull Map<String, ClientState> clients = new ConcurrentHashMap<>();
+    private long lastFlush = System.nanoTime();
+
+    /**
+     * @param delegate   the format the first of identical events is passed on to.
+     * @param sink       where the repetitions are written.
+     * @param json       whether the repetitions are written as JSON lines.
+     * @param maxClients the maximum number of clients whose last events are remembered.
+     */
+    public DuplicateSuppressingMessageLogFormat(
+            final @NotNull MessageLogFormat delegate,
+            final @NotNull LineSink sink,
+            final boolean json,
+            final int maxClients) {
+        this.delegate = delegate;
+        this.sink = sink;
+        this.json = json;
+        this.maxClients = maxClients;
+    }
+
+    /**
+     * @return whether the event repeats the previous event of the same type of the client and must not be logged.
+     */
+    private boolean isRepetition(final @NotNull String clientId, final @NotNull Event event, final long fingerprint) {
+        while (true) {
+            ClientState client = clients.get(clientId);
+            if (client == null) {
+                if (clients.size() >= maxClients) {
+                    // the next flush makes room, evicting here would stall the interceptor thread
+                    return false;
+                }
+                client = clients.computeIfAbsent(clientId, ClientState::new);
+            }
+            final long now = System.nanoTime();
+            synchronized (client) {
+                if (client.evicted) {
+                    // evicted by a concurrent flush after the lookup, its repetitions were already written
+                    continue;
+                }
+                return isRepetition(client, event, fingerprint, now);
+            }
+        }
+    }
+
+    private boolean isRepetition(
+            final @NotNull ClientState client, final @NotNull Event event, final long fingerprint, final long now) {
+        client.lastEvent = now;
+        final int index = event.ordinal();
+        if (client.logged[index] && client.fingerprints[index] == fingerprint) {
+            client.repetitions[index]++;
+            client.lastRepetition[index] = now;
+            return true;
+        }
+        if (client.repetitions[index] > 0) {
+            writeRepetitions(client, event);
+        }
+        client.logged[index] = true;
+        client.fingerprints[index] = fingerprint;
+        client.since[index] = now;
+        return false;
+    }
+
+    /**
+     * Writes the pending repetitions of all clients and forgets the clients without events since the last flush. If
+     * all {@code maxClients} clients are still remembered, the least recently active ones are forgotten until a
+     * quarter of the capacity is free again.
+     */
+    public synchronized void flush() {
+        final long lastFlush = this.lastFlush;
+        this.lastFlush = System.nanoTime();
+        final List<ClientState> active = new ArrayList<>(clients.size());
+        for (final ClientState client : clients.values()) {
+            synchronized (client) {
+                writeRepetitions(client);
+                if (client.lastEvent - lastFlush < 0) {
+                    evict(client);
+                } else {
+                    client.lastEventAtFlush = client.lastEvent;
+                    active.add(client);
+                }
+            }
+        }
+        if (active.size() < maxClients) {
+            return;
+        }
+        active.sort((client1, client2) -> Long.signum(client1.lastEventAtFlush - client2.lastEventAtFlush));
+        final int excess = active.size() - maxClients * 3 / 4;
+        for (int i = 0; i < excess; i++) {
+            final ClientState client = active.get(i);
+            synchronized (client) {
+                // repetitions counted since the first pass are written as well
+                writeRepetitions(client);
+                evict(client);
+            }
+        }
+    }
+
+    /**
+     * Must be called while holding the monitor of the client.
+     */
+    private void evict(final @NotNull ClientState client) {
+        client.evicted = true;
+        clients.remove(client.clientId, client);
+    }
+
+    private void writeRepetitions(final @NotNull ClientState client) {
+        for (final Event event : Event.values()) {
+            if (client.repetitions[event.ordinal()] > 0) {
+                writeRepetitions(client, event);
+            }
+        }
+    }
+
+    private void writeRepetitions(final @NotNull ClientState client, final @NotNull Event event) {
+        final int index = event.ordinal();
+        final long count = client.repetitions[index];
+        final long millis = (client.lastRepetition[index] - client.since[index]) / 1_000_000;
+        client.repetitions[index] = 0;
+        // further repetitions are counted from the last one that was written
+        client.since[index] = client.lastRepetition[index];
+        if (json) {
+            final JsonWriter writer = new JsonWriter(new StringBuilder(128));
+            writer.beginObject()
+                    .name("timestamp")
+                    .plainValue(TIMESTAMPS.get().format(System.currentTimeMillis()))
+                    .name("direction")
+                    .value(event.isInbound() ? "in" : "out")
+                    .name("packetType")
+                    .value(event.getPacketType())
+                    .name("clientId")
+                    .value(client.clientId)
+                    .name("repeated")
+                    .value(count)
+                    .name("durationMs")
+                    .value(millis)
+                    .endObject();
+            sink.writeLine(client.clientId, writer.getBuilder().toString());
+        } else {
+            sink.writeLine(client.clientId,
+                    (event.isInbound() ? "Received " : "Sent ") + event.getPacketType() +
+                            (event.isInbound() ? " from client '" : " to client '") + client.clientId + "' repeated " +
+                            count + " times over " + millis + " ms");
+        }
+    }
+
+    private static long combine(final long hash, final long value) {
+        return Hashing.mix(hash * 31 + value);
+    }
+
+    private static long hash(final @Nullable ByteBuffer buffer) {
+        return buffer == null ? 0 : Hashing.hash64(buffer);
+    }
+
+    @Override
+    public void logPublish(
+            final @NotNull String clientId,
+            final @NotNull PublishPacket publishPacket,
+            final boolean inbound,
+            final boolean verbose) {
+        final long fingerprint = combine(Hashing.hash64(publishPacket.getTopic()),
+                hash(publishPacket.getPayload().orElse(null)));
+        if (!isRepetition(clientId, inbound ? Event.PUBLISH_RECEIVED : Event.PUBLISH_SEND, fingerprint)) {
+            delegate.logPublish(clientId, publishPacket, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logConnect(final @NotNull ConnectPacket connectPacket, final boolean verbose) {
+        if (!isRepetition(connectPacket.getClientId(), Event.CONNECT_RECEIVED, 0)) {
+            delegate.logConnect(connectPacket, verbose);
+        }
+    }
+
+    @Override
+    public void logConnack(final @NotNull ConnackOutboundInput connackOutboundInput, final boolean verbose) {
+        if (!isRepetition(connackOutboundInput.getClientInformation().getClientId(),
+                Event.CONNACK_SEND,
+                connackOutboundInput.getConnackPacket().getReasonCode().ordinal())) {
+            delegate.logConnack(connackOutboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logDisconnect(
+            final @NotNull DisconnectPacket disconnectPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        if (!isRepetition(clientId,
+                inbound ? Event.DISCONNECT_RECEIVED : Event.DISCONNECT_SEND,
+                disconnectPacket.getReasonCode().ordinal())) {
+            delegate.logDisconnect(disconnectPacket, clientId, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logDisconnectEvent(
+            final @NotNull DisconnectEventInput disconnectEventInput,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean authenticationFailed,
+            final boolean verbose) {
+        if (!isRepetition(clientId,
+                inbound ? Event.DISCONNECT_RECEIVED : Event.DISCONNECT_SEND,
+                disconnectEventInput.getReasonCode().map(Enum::ordinal).orElse(-1))) {
+            delegate.logDisconnectEvent(disconnectEventInput, clientId, inbound, authenticationFailed, verbose);
+        }
+    }
+
+    @Override
+    public void logSubscribe(final @NotNull SubscribeInboundInput subscribeInboundInput, final boolean verbose) {
+        long fingerprint = 0;
+        for (final Subscription subscription : subscribeInboundInput.getSubscribePacket().getSubscriptions()) {
+            fingerprint = combine(fingerprint, Hashing.hash64(subscription.getTopicFilter()));
+        }
+        if (!isRepetition(subscribeInboundInput.getClientInformation().getClientId(),
+                Event.SUBSCRIBE_RECEIVED,
+                fingerprint)) {
+            delegate.logSubscribe(subscribeInboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logSuback(final @NotNull SubackOutboundInput subackOutboundInput, final boolean verbose) {
+        if (!isRepetition(subackOutboundInput.getClientInformation().getClientId(),
+                Event.SUBACK_SEND,
+                subackOutboundInput.getSubackPacket().getReasonCodes().hashCode())) {
+            delegate.logSuback(subackOutboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logUnsubscribe(final @NotNull UnsubscribeInboundInput unsubscribeInboundInput, final boolean verbose) {
+        long fingerprint = 0;
+        for (final String topicFilter : unsubscribeInboundInput.getUnsubscribePacket().getTopicFilters()) {
+            fingerprint = combine(fingerprint, Hashing.hash64(topicFilter));
+        }
+        if (!isRepetition(unsubscribeInboundInput.getClientInformation().getClientId(),
+                Event.UNSUBSCRIBE_RECEIVED,
+                fingerprint)) {
+            delegate.logUnsubscribe(unsubscribeInboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logUnsuback(final @NotNull UnsubackOutboundInput unsubackOutboundInput, final boolean verbose) {
+        if (!isRepetition(unsubackOutboundInput.getClientInformation().getClientId(),
+                Event.UNSUBACK_SEND,
+                unsubackOutboundInput.getUnsubackPacket().getReasonCodes().hashCode())) {
+            delegate.logUnsuback(unsubackOutboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logPingreq(final @NotNull PingReqInboundInput pingReqInboundInput) {
+        if (!isRepetition(pingReqInboundInput.getClientInformation().getClientId(), Event.PINGREQ_RECEIVED, 0)) {
+            delegate.logPingreq(pingReqInboundInput);
+        }
+    }
+
+    @Override
+    public void logPingresp(final @NotNull PingRespOutboundInput pingRespOutboundInput) {
+        if (!isRepetition(pingRespOutboundInput.getClientInformation().getClientId(), Event.PINGRESP_SEND, 0)) {
+            delegate.logPingresp(pingRespOutboundInput);
+        }
+    }
+
+    @Override
+    public void logPuback(
+            final @NotNull PubackPacket pubackPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        if (!isRepetition(clientId,
+                inbound ? Event.PUBACK_RECEIVED : Event.PUBACK_SEND,
+                pubackPacket.getReasonCode().ordinal())) {
+            delegate.logPuback(pubackPacket, clientId, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logPubrec(
+            final @NotNull PubrecPacket pubrecPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        if (!isRepetition(clientId,
+                inbound ? Event.PUBREC_RECEIVED : Event.PUBREC_SEND,
+                pubrecPacket.getReasonCode().ordinal())) {
+            delegate.logPubrec(pubrecPacket, clientId, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logPubrel(
+            final @NotNull PubrelPacket pubrelPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        if (!isRepetition(clientId,
+                inbound ? Event.PUBREL_RECEIVED : Event.PUBREL_SEND,
+                pubrelPacket.getReasonCode().ordinal())) {
+            delegate.logPubrel(pubrelPacket, clientId, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logPubcomp(
+            final @NotNull PubcompPacket pubcompPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        if (!isRepetition(clientId,
+                inbound ? Event.PUBCOMP_RECEIVED : Event.PUBCOMP_SEND,
+                pubcompPacket.getReasonCode().ordinal())) {
+            delegate.logPubcomp(pubcompPacket, clientId, inbound, verbose);
+        }
+    }
+
+    int getClients() {
+        return clients.size();
+    }
+
+    /**
+     * The last events of one client, guarded by its monitor.
+     */
+    private static class ClientState {
+
+        final @NotNull String clientId;
+        final boolean @NotNull [] logged = new boolean[EVENTS];
+        final long @NotNull [] fingerprints = new long[EVENTS];
+        final long @NotNull [] repetitions = new long[EVENTS];
+        /**
+         * When the event was logged or its repetitions were last written.
+         */
+        final long @NotNull [] since = new long[EVENTS];
+        final long @NotNull [] lastRepetition = new long[EVENTS];
+        long lastEvent;
+        /**
+         * The last event as seen by the current flush, only accessed by the flushing thread.
+         */
+        long lastEventAtFlush;
+        /**
+         * Whether the client was removed from the map, events must then be counted in a new state.
+         */
+        boolean evicted;
+
+        ClientState(final @NotNull String clientId) {
+            this.clientId = clientId;
+        }
+    }
+}
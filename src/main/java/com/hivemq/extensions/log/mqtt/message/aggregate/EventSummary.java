@@ -0,0 +1,266 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts the events of the packet types in summary mode instead of logging them, globally and per client prefix,
+ * and periodically reports the counts and rates.
+ * <p>
+ * The client prefix is the clientId up to the first prefix delimiter, e.g. {@code sensor} for {@code sensor-0042}.
+ * Every thread counts into its own counters, at most {@link #MAX_PREFIXES} prefixes per thread and interval, further
+ * prefixes are counted as {@link #OTHER_PREFIX}.
+ *
+ * @since 1.2.0
+ */
+public class EventSummary {
+
+    static final int MAX_PREFIXES = 1000;
+    static final int REPORTED_PREFIXES = 20;
+    static final @NotNull String OTHER_PREFIX = "(other)";
+
+    /**
+     * The events that can be summarized, each with the property that enables it and whose name with the suffix
+     * {@code -mode} selects the summary mode.
+     */
+    public enum Event {
+        CONNECT_RECEIVED("CONNECT", true, "client-connect"),
+        CONNACK_SEND("CONNACK", false, "connack-send"),
+        DISCONNECT_RECEIVED("DISCONNECT", true, "client-disconnect"),
+        DISCONNECT_SEND("DISCONNECT", false, "client-disconnect"),
+        PUBLISH_RECEIVED("PUBLISH", true, "publish-received"),
+        PUBLISH_SEND("PUBLISH", false, "publish-send"),
+        SUBSCRIBE_RECEIVED("SUBSCRIBE", true, "subscribe-received"),
+        SUBACK_SEND("SUBACK", false, "suback-send"),
+        UNSUBSCRIBE_RECEIVED("UNSUBSCRIBE", true, "unsubscribe-received"),
+        UNSUBACK_SEND("UNSUBACK", false, "unsuback-send"),
+        PINGREQ_RECEIVED("PINGREQ", true, "ping-request-received"),
+        PINGRESP_SEND("PINGRESP", false, "ping-response-send"),
+        PUBACK_RECEIVED("PUBACK", true, "puback-received"),
+        PUBACK_SEND("PUBACK", false, "puback-send"),
+        PUBREC_RECEIVED("PUBREC", true, "pubrec-received"),
+        PUBREC_SEND("PUBREC", false, "pubrec-send"),
+        PUBREL_RECEIVED("PUBREL", true, "pubrel-received"),
+        PUBREL_SEND("PUBREL", false, "pubrel-send"),
+        PUBCOMP_RECEIVED("PUBCOMP", true, "pubcomp-received"),
+        PUBCOMP_SEND("PUBCOMP", false, "pubcomp-send");
+
+        private static final @NotNull Event @NotNull [] VALUES = values();
+
+        private final @NotNull String packetType;
+        private final boolean inbound;
+        private final @NotNull String property;
+
+        Event(final @NotNull String packetType, final boolean inbound, final @NotNull String property) {
+            this.packetType = packetType;
+            this.inbound = inbound;
+            this.property = property;
+        }
+
+        public @NotNull String getPacketType() {
+            return packetType;
+        }
+
+        public boolean isInbound() {
+            return inbound;
+        }
+
+        /**
+         * @return the packet type and direction, e.g. {@code PINGREQ in}.
+         */
+        public @NotNull String getLabel() {
+            return packetType + (inbound ? " in" : " out");
+        }
+
+        /**
+         * @return the property that enables the event, e.g. {@code ping-request-received}.
+         */
+        public @NotNull String getProperty() {
+            return property;
+        }
+    }
+
+    private final boolean @NotNull [] summarized = new boolean[Event.VALUES.length];
+    private final @NotNull String prefixDelimiters;
+    private final @NotNull LineSink sink;
+    private final @NotNull ThreadStripes<Counts> stripes = new ThreadStripes<>(Counts::new);
+    private long intervalStart = System.nanoTime();
+
+    /**
+     * @param events           the events that are counted instead of logged.
+     * @param prefixDelimiters the characters that end the client prefix.
+     * @param sink             where the reports are written.
+     */
+    public EventSummary(
+            final @NotNull Set<Event> events,
+            final @NotNull String prefixDelimiters,
+            final @NotNull LineSink sink) {
+        for (final Event event : events) {
+            summarized[event.ordinal()] = true;
+        }
+        this.prefixDelimiters = prefixDelimiters;
+        this.sink = sink;
+    }
+
+    /**
+     * @return the summary of the events in summary mode or {@code null} if all events are logged individually.
+     */
+    public static @Nullable EventSummary create(
+            final @NotNull MqttMessageLogConfig config, final @NotNull LineSink sink) {
+        final Set<Event> events = EnumSet.noneOf(Event.class);
+        for (final Event event : Event.VALUES) {
+            if (config.isSummaryMode(event.getProperty())) {
+                events.add(event);
+            }
+        }
+        return events.isEmpty() ? null : new EventSummary(events, config.getSummaryPrefixDelimiters(), sink);
+    }
+
+    public boolean isSummarized(final @NotNull Event event) {
+        return summarized[event.ordinal()];
+    }
+
+    /**
+     * Counts an event instead of logging it, called by the interceptors.
+     */
+    public void count(final @NotNull Event event, final @NotNull String clientId) {
+        final String prefix = prefix(clientId);
+        final ThreadStripes.Stripe<Counts> stripe = stripes.stripe();
+        final Counts counts = stripe.enter();
+        try {
+            counts.totals[event.ordinal()]++;
+            long[] prefixCounts = counts.prefixes.get(prefix);
+            if (prefixCounts == null) {
+                final String key = counts.prefixes.size() < MAX_PREFIXES ? prefix : OTHER_PREFIX;
+                prefixCounts = counts.prefixes.computeIfAbsent(key, ignored -> new long[Event.VALUES.length]);
+            }
+            prefixCounts[event.ordinal()]++;
+        } finally {
+            stripe.exit();
+        }
+    }
+
+    private @NotNull String prefix(final @NotNull String clientId) {
+        return prefix(clientId, prefixDelimiters);
+    }
+
+    /**
+     * @return the client ID up to the first of the delimiters or the whole client ID if it contains none.
+     */
+    static @NotNull String prefix(final @NotNull String clientId, final @NotNull String prefixDelimiters) {
+        for (int i = 0; i < clientId.length(); i++) {
+            if (prefixDelimiters.indexOf(clientId.charAt(i)) >= 0) {
+                return clientId.substring(0, i);
+            }
+        }
+        return clientId;
+    }
+
+    /**
+     * Reports the counts since the last report and starts the next interval. Nothing is reported if no event was
+     * counted.
+     */
+    public void report() {
+        final List<Counts> collected = stripes.collect();
+        final long now = System.nanoTime();
+        final double seconds = (now - intervalStart) / 1_000_000_000.0;
+        intervalStart = now;
+
+        final long[] totals = new long[Event.VALUES.length];
+        final Map<String, long[]> prefixes = new HashMap<>();
+        long total = 0;
+        for (final Counts counts : collected) {
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += counts.totals[i];
+                total += counts.totals[i];
+            }
+            counts.prefixes.forEach((prefix, prefixCounts) -> {
+                final long[] merged = prefixes.computeIfAbsent(prefix, key -> new long[Event.VALUES.length]);
+                for (int i = 0; i < merged.length; i++) {
+                    merged[i] += prefixCounts[i];
+                }
+            });
+        }
+        if (total == 0) {
+            return;
+        }
+
+        final StringBuilder builder =
+                new StringBuilder(String.format(Locale.ROOT, "Summary of the last %.0f s:", seconds));
+        for (final Event event : Event.VALUES) {
+            if (summarized[event.ordinal()]) {
+                builder.append(builder.charAt(builder.length() - 1) == ':' ? " " : ", ")
+                        .append(event.getLabel())
+                        .append(' ')
+                        .append(totals[event.ordinal()])
+                        .append(String.format(Locale.ROOT, " (%.1f/s)", totals[event.ordinal()] / seconds));
+            }
+        }
+        sink.writeLine(builder.toString());
+
+        for (final Event event : Event.VALUES) {
+            final int index = event.ordinal();
+            if (totals[index] > 0) {
+                sink.writeLine(prefixLine(event, prefixes));
+            }
+        }
+    }
+
+    private static @NotNull String prefixLine(final @NotNull Event event, final @NotNull Map<String, long[]> prefixes) {
+        final int index = event.ordinal();
+        final List<Map.Entry<String, long[]>> ranked = new ArrayList<>();
+        for (final Map.Entry<String, long[]> entry : prefixes.entrySet()) {
+            if (entry.getValue()[index] > 0) {
+                ranked.add(entry);
+            }
+        }
+        ranked.sort((entry1, entry2) -> Long.compare(entry2.getValue()[index], entry1.getValue()[index]));
+        final StringBuilder builder =
+                new StringBuilder("Summary of ").append(event.getLabel()).append(" per client prefix:");
+        for (int i = 0; i < Math.min(REPORTED_PREFIXES, ranked.size()); i++) {
+            final Map.Entry<String, long[]> entry = ranked.get(i);
+            builder.append(i == 0 ? " '" : ", '")
+                    .append(entry.getKey())
+                    .append("' ")
+                    .append(entry.getValue()[index]);
+        }
+        if (ranked.size() > REPORTED_PREFIXES) {
+            builder.append(" and ").append(ranked.size() - REPORTED_PREFIXES).append(" more prefixes");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The counts of one thread in one interval.
+     */
+    private static class Counts {
+
+        final long @NotNull [] totals = new long[Event.VALUES.length];
+        final @NotNull Map<String, long[]> prefixes = new HashMap<>();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+import com.hivemq.extensions.log.mqtt.message.util.Hashing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Finds the clients and topics with the most PUBLISH messages and bytes per interval.
+ * <p>
+ * Every thread counts into its own count-min sketches for clientIds and topics and keeps its own top-K candidates,
+ * so the interceptors update them without locks and the memory is fixed regardless of the number of clients and
+ * topics. At the end of an interval the sketches of all threads are merged, the candidates of all threads are
+ * estimated against the merged sketches and the top entries are reported. The counts are estimates that may be
+ * slightly too high, never too low.
+ *
+ * @since 1.2.0
+ */
+public class HeavyHitters {
+
+    static final int SKETCH_DEPTH = 4;
+    static final int SKETCH_WIDTH = 1024;
+    /**
+     * Every thread tracks more candidates than are reported, so keys that are heavy overall but not in one thread
+     * still make it into the merge.
+     */
+    static final int CANDIDATE_FACTOR = 4;
+
+    private final int top;
+    private final @NotNull LineSink sink;
+    private final @NotNull ThreadStripes<Interval> stripes;
+    private long intervalStart = System.nanoTime();
+
+    /**
+     * @param top  the number of clients and topics that are reported per ranking.
+     * @param sink where the reports are written.
+     */
+    public HeavyHitters(final int top, final @NotNull LineSink sink) {
+        this.top = top;
+        this.sink = sink;
+        stripes = new ThreadStripes<>(() -> new Interval(top * CANDIDATE_FACTOR));
+    }
+
+    /**
+     * Counts a PUBLISH message, called by the interceptors.
+     */
+    public void add(final @NotNull String clientId, final @NotNull String topic, final int payloadSize) {
+        final ThreadStripes.Stripe<Interval> stripe = stripes.stripe();
+        final Interval interval = stripe.enter();
+        try {
+            interval.add(clientId, topic, payloadSize);
+        } finally {
+            stripe.exit();
+        }
+    }
+
+    /**
+     * Reports the heavy hitters since the last report and starts the next interval. Nothing is reported if no
+     * message was counted.
+     */
+    public void report() {
+        final List<Interval> intervals = stripes.collect();
+        final long now = System.nanoTime();
+        final double seconds = (now - intervalStart) / 1_000_000_000.0;
+        intervalStart = now;
+
+        final CountMinSketch clients = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+        final CountMinSketch topics = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+        for (final Interval interval : intervals) {
+            clients.merge(interval.clients);
+            topics.merge(interval.topics);
+        }
+        if (clients.getTotalMessages() == 0) {
+            return;
+        }
+        sink.writeLine(String.format(Locale.ROOT,
+                "Heavy hitters of the last %.0f s: %d PUBLISH messages, %d bytes",
+                seconds,
+                clients.getTotalMessages(),
+                clients.getTotalBytes()));
+        sink.writeLine(ranking("clients by messages", intervals, interval -> interval.clientsByMessages, clients));
+        sink.writeLine(ranking("clients by bytes", intervals, interval -> interval.clientsByBytes, clients));
+        sink.writeLine(ranking("topics by messages", intervals, interval -> interval.topicsByMessages, topics));
+        sink.writeLine(ranking("topics by bytes", intervals, interval -> interval.topicsByBytes, topics));
+    }
+
+    private @NotNull String ranking(
+            final @NotNull String name,
+            final @NotNull List<Interval> intervals,
+            final @NotNull Function<Interval, TopK> topK,
+            final @NotNull CountMinSketch sketch) {
+        final Map<String, Long> candidates = new HashMap<>();
+        for (final Interval interval : intervals) {
+            final TopK candidatesOfThread = topK.apply(interval);
+            for (int i = 0; i < candidatesOfThread.size(); i++) {
+                candidates.put(candidatesOfThread.getKey(i), candidatesOfThread.getHash(i));
+            }
+        }
+        final ToLongFunction<Map.Entry<String, Long>> order = name.endsWith("bytes") ?
+                entry -> sketch.estimateBytes(entry.getValue()) : entry -> sketch.estimateMessages(entry.getValue());
+        final List<Map.Entry<String, Long>> ranked = new ArrayList<>(candidates.entrySet());
+        ranked.sort(Comparator.comparingLong(order).reversed().thenComparing(Map.Entry::getKey));
+
+        final StringBuilder builder = new StringBuilder("Top ").append(name).append(':');
+        for (int i = 0; i < Math.min(top, ranked.size()); i++) {
+            final Map.Entry<String, Long> entry = ranked.get(i);
+            builder.append(i == 0 ? " '" : ", '")
+                    .append(entry.getKey())
+                    .append("' ")
+                    .append(sketch.estimateMessages(entry.getValue()))
+                    .append(" messages ")
+                    .append(sketch.estimateBytes(entry.getValue()))
+                    .append(" bytes");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The counts of one thread in one interval.
+     */
+    static class Interval {
+
+        final @NotNull CountMinSketch clients = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+        final @NotNull CountMinSketch topics = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+        final @NotNull TopK clientsByMessages;
+        final @NotNull TopK clientsByBytes;
+        final @NotNull TopK topicsByMessages;
+        final @NotNull TopK topicsByBytes;
+
+        Interval(final int candidates) {
+            clientsByMessages = new TopK(candidates);
+            clientsByBytes = new TopK(candidates);
+            topicsByMessages = new TopK(candidates);
+            topicsByBytes = new TopK(candidates);
+        }
+
+        void add(final @NotNull String clientId, final @NotNull String topic, final int payloadSize) {
+            final long clientHash = Hashing.hash64(clientId);
+            clients.add(clientHash, payloadSize);
+            clientsByMessages.offer(clientId, clientHash, clients.estimateMessages(clientHash));
+            clientsByBytes.offer(clientId, clientHash, clients.estimateBytes(clientHash));
+            final long topicHash = Hashing.hash64(topic);
+            topics.add(topicHash, payloadSize);
+            topicsByMessages.offer(topic, topicHash, topics.estimateMessages(topicHash));
+            topicsByBytes.offer(topic, topicHash, topics.estimateBytes(topicHash));
+        }
+    }
+}
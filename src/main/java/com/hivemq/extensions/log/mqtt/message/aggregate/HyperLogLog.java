@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Estimates the number of distinct keys in 256 one-byte registers, with a standard error of about 6.5%.
+ * <p>
+ * The sum of the register values is kept up to date on every change, so an estimate costs a division instead of a
+ * pass over the registers. Not thread-safe.
+ *
+ * @since 1.2.0
+ */
+public class HyperLogLog {
+
+    static final int PRECISION = 8;
+    static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte @NotNull [] registers = new byte[REGISTERS];
+    /**
+     * The sum of {@code 2^-register} over all registers.
+     */
+    private double sum = REGISTERS;
+    private int zeros = REGISTERS;
+
+    /**
+     * @param hash the hash of the key, see {@link com.hivemq.extensions.log.mqtt.message.util.Hashing}.
+     * @return whether a register changed, only then the estimate can have changed.
+     */
+    public boolean add(final long hash) {
+        final int index = (int) (hash >>> (64 - PRECISION));
+        // the bit below the remaining hash bits limits the rank if they are all zero
+        final int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        final int register = registers[index];
+        if (rank <= register) {
+            return false;
+        }
+        if (register == 0) {
+            zeros--;
+        }
+        sum += Math.scalb(1.0, -rank) - Math.scalb(1.0, -register);
+        registers[index] = (byte) rank;
+        return true;
+    }
+
+    public long estimate() {
+        final double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            // linear counting is more accurate for small cardinalities
+            return Math.round(REGISTERS * Math.log((double) REGISTERS / zeros));
+        }
+        return Math.round(estimate);
+    }
+
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+        sum = REGISTERS;
+        zeros = REGISTERS;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.codahale.metrics.Histogram;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.events.client.parameters.ConnectionStartInput;
+import com.hivemq.extension.sdk.api.parameter.ClientBasedInput;
+import com.hivemq.extensions.log.mqtt.message.format.JsonWriter;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+import com.hivemq.extensions.log.mqtt.message.util.IsoTimestamp;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Checks the PINGREQ timing of the connections against the keep alive of their CONNECT packet
+ * ({@code keep-alive-health}) and only logs anomalies: pings that arrive later than the keep alive, pings that arrive
+ * far earlier than needed and connections that ended after the client was silent for longer than the keep alive.
+ * <p>
+ * A client only has to send a PINGREQ if it sent no other packet within the keep alive, so the interval of a ping is
+ * measured from the last packet the client sent. The deviation of every interval from the keep alive in milliseconds
+ * is recorded in the histogram {@link #JITTER_METRIC}.
+ *
+ * @since 1.2.0
+ */
+public class KeepAliveHealth {
+
+    public static final @NotNull String JITTER_METRIC = "com.hivemq.extensions.mqtt-message-log.keep-alive.jitter";
+    static final @NotNull String KEEP_ALIVE_ATTRIBUTE = "com.hivemq.extensions.mqtt-message-log.keep-alive";
+    static final @NotNull String CONNECTION_ATTRIBUTE = "com.hivemq.extensions.mqtt-message-log.keep-alive-connection";
+
+    private static final @NotNull ThreadLocal<IsoTimestamp> TIMESTAMPS = ThreadLocal.withInitial(IsoTimestamp::new);
+
+    private final int latePercent;
+    private final int earlyPercent;
+    private final @NotNull Histogram jitter;
+    private final @NotNull LineSink sink;
+    private final boolean json;
+    private final @NotNull ConnectionRegistry<Connection> connections = new ConnectionRegistry<>(CONNECTION_ATTRIBUTE);
+
+    /**
+     * @param latePercent  the percentage of the keep alive above which a ping is late.
+     * @param earlyPercent the percentage of the keep alive below which a ping is early.
+     * @param sink         where the anomalies are written.
+     * @param json         whether the anomalies are written as JSON lines.
+     */
+    KeepAliveHealth(
+            final int latePercent,
+            final int earlyPercent,
+            final @NotNull Histogram jitter,
+            final @NotNull LineSink sink,
+            final boolean json) {
+        this.latePercent = latePercent;
+        this.earlyPercent = earlyPercent;
+        this.jitter = jitter;
+        this.sink = sink;
+        this.json = json;
+    }
+
+    /**
+     * Remembers the keep alive of the CONNECT packet until the connection is initialized.
+     */
+    public void connectionStarted(final @NotNull ConnectionStartInput input) {
+        final int keepAlive = input.getConnectPacket().getKeepAlive();
+        input.getConnectionInformation()
+                .getConnectionAttributeStore()
+                .put(KEEP_ALIVE_ATTRIBUTE, ByteBuffer.allocate(Integer.BYTES).putInt(0, keepAlive));
+    }
+
+    /**
+     * @return the keep alive state of the new connection or {@code null} if the client disabled keep alive.
+     */
+    public @Nullable Connection connected(final @NotNull ClientBasedInput input) {
+        final Optional<ByteBuffer> keepAlive =
+                input.getConnectionInformation().getConnectionAttributeStore().remove(KEEP_ALIVE_ATTRIBUTE);
+        if (keepAlive.isEmpty() || keepAlive.get().getInt(0) == 0) {
+            return null;
+        }
+        final Connection connection = new Connection(keepAlive.get().getInt(0) * 1000, System.nanoTime());
+        connections.register(input, connection);
+        return connection;
+    }
+
+    /**
+     * Called for every PINGREQ of the connection.
+     */
+    public void pingReceived(final @NotNull String clientId, final @NotNull Connection connection) {
+        pingReceived(clientId, connection, System.nanoTime());
+    }
+
+    void pingReceived(final @NotNull String clientId, final @NotNull Connection connection, final long nanoTime) {
+        final long intervalMillis = (nanoTime - connection.lastReceived) / 1_000_000;
+        connection.lastReceived = nanoTime;
+        final int keepAliveMillis = connection.keepAliveMillis;
+        jitter.update(intervalMillis - keepAliveMillis);
+        if (intervalMillis * 100 > (long) keepAliveMillis * latePercent) {
+            sink.writeLine(clientId, anomaly(clientId, "late", intervalMillis, keepAliveMillis, null));
+        } else if (intervalMillis * 100 < (long) keepAliveMillis * earlyPercent && !connection.earlyReported) {
+            // a client that pings too often does so with every ping, it is reported once per connection
+            connection.earlyReported = true;
+            sink.writeLine(clientId, anomaly(clientId, "early", intervalMillis, keepAliveMillis, null));
+        }
+    }
+
+    /**
+     * Reports missing pings if the client was silent for longer than the keep alive before the connection ended.
+     *
+     * @param reason why the connection ended.
+     */
+    public void disconnected(final @NotNull ClientBasedInput input, final @NotNull String reason) {
+        disconnected(input, reason, System.nanoTime());
+    }
+
+    void disconnected(final @NotNull ClientBasedInput input, final @NotNull String reason, final long nanoTime) {
+        final Connection connection = connections.remove(input);
+        if (connection == null) {
+            return;
+        }
+        final long silentMillis = (nanoTime - connection.lastReceived) / 1_000_000;
+        if (silentMillis * 100 > (long) connection.keepAliveMillis * latePercent) {
+            final String clientId = input.getClientInformation().getClientId();
+            sink.writeLine(clientId, anomaly(clientId, "missing", silentMillis, connection.keepAliveMillis, reason));
+        }
+    }
+
+    private @NotNull String anomaly(
+            final @NotNull String clientId,
+            final @NotNull String anomaly,
+            final long millis,
+            final int keepAliveMillis,
+            final @Nullable String reason) {
+        if (json) {
+            final JsonWriter writer = new JsonWriter(new StringBuilder(160));
+            writer.beginObject()
+                    .name("timestamp")
+                    .plainValue(TIMESTAMPS.get().format(System.currentTimeMillis()))
+                    .name("event")
+                    .value("keep-alive")
+                    .name("clientId")
+                    .value(clientId)
+                    .name("anomaly")
+                    .value(anomaly)
+                    .name("intervalMs")
+                    .value(millis)
+                    .name("keepAliveMs")
+                    .value(keepAliveMillis);
+            if (reason != null) {
+                writer.name("disconnect").value(reason);
+            }
+            return writer.endObject().getBuilder().toString();
+        }
+        if (reason != null) {
+            return "Missing PINGREQ from client '" + clientId + "' before '" + reason + "': no packet for " + millis +
+                    " ms, Keep Alive: '" + keepAliveMillis / 1000 + "'";
+        }
+        return "Received " + anomaly + " PINGREQ from client '" + clientId + "': " + millis +
+                " ms after the last packet, Keep Alive: '" + keepAliveMillis / 1000 + "'";
+    }
+
+    int size() {
+        return connections.size();
+    }
+
+    /**
+     * The keep alive state of one connection.
+     */
+    public static class Connection {
+
+        private final int keepAliveMillis;
+        /**
+         * Written by the interceptors of the connection and read by the lifecycle listener when it ends.
+         */
+        private volatile long lastReceived;
+        private boolean earlyReported;
+
+        Connection(final int keepAliveMillis, final long nanoTime) {
+            this.keepAliveMillis = keepAliveMillis;
+            lastReceived = nanoTime;
+        }
+
+        /**
+         * Called for every packet the client sends except PINGREQ.
+         */
+        public void received(final long nanoTime) {
+            lastReceived = nanoTime;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the periodic reports of all aggregations on one daemon thread, so merging and logging never happens on the
+ * threads of the broker that call the interceptors.
+ *
+ * @since 1.2.0
+ */
+public class ReportScheduler implements Closeable {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(ReportScheduler.class);
+
+    private final @NotNull ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "mqtt-message-log-reporter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Runs the report every {@code intervalMillis}, the first time after one interval.
+     */
+    public void schedule(final @NotNull Runnable report, final long intervalMillis) {
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                report.run();
+            } catch (final RuntimeException e) {
+                // a failed report must not cancel the following ones
+                LOG.warn("HiveMQ MQTT Message Log Extension: Report failed", e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
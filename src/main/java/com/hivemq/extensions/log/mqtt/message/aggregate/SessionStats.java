@@ -0,0 +1,210 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extensions.log.mqtt.message.aggregate.EventSummary.Event;
+import com.hivemq.extensions.log.mqtt.message.format.JsonWriter;
+import com.hivemq.extensions.log.mqtt.message.util.IsoTimestamp;
+
+/**
+ * The counters of one connection that are written as one summary line when the connection ends: packets per type
+ * and direction, PUBLISH payload bytes and QoS levels, the maximum number of unacknowledged QoS 1 and 2 messages and
+ * the subscriptions.
+ * <p>
+ * Every connection has its own instance, which is only updated by the interceptors of the connection. HiveMQ calls
+ * them for one connection at a time, so the counters are plain fields.
+ *
+ * @since 1.2.0
+ */
+public class SessionStats {
+
+    private static final @NotNull Event @NotNull [] EVENTS = Event.values();
+    private static final @NotNull ThreadLocal<IsoTimestamp> TIMESTAMPS = ThreadLocal.withInitial(IsoTimestamp::new);
+
+    private final @NotNull String clientId;
+    private final long startNanos;
+    private final long @NotNull [] packets = new long[EVENTS.length];
+    private final long @NotNull [] qosIn = new long[3];
+    private final long @NotNull [] qosOut = new long[3];
+    private long bytesIn;
+    private long bytesOut;
+    private int inFlightIn;
+    private int inFlightOut;
+    private int maxInFlightIn;
+    private int maxInFlightOut;
+    private long subscriptions;
+    private long unsubscriptions;
+
+    SessionStats(final @NotNull String clientId, final long startNanos) {
+        this.clientId = clientId;
+        this.startNanos = startNanos;
+    }
+
+    public @NotNull String getClientId() {
+        return clientId;
+    }
+
+    public void packet(final @NotNull Event event) {
+        packets[event.ordinal()]++;
+    }
+
+    /**
+     * @param inbound      whether the client sent the PUBLISH.
+     * @param qos          the QoS level 0, 1 or 2.
+     * @param payloadBytes the size of the payload.
+     */
+    public void publish(final boolean inbound, final int qos, final int payloadBytes) {
+        if (inbound) {
+            packets[Event.PUBLISH_RECEIVED.ordinal()]++;
+            qosIn[qos]++;
+            bytesIn += payloadBytes;
+            if (qos > 0 && ++inFlightIn > maxInFlightIn) {
+                maxInFlightIn = inFlightIn;
+            }
+        } else {
+            packets[Event.PUBLISH_SEND.ordinal()]++;
+            qosOut[qos]++;
+            bytesOut += payloadBytes;
+            if (qos > 0 && ++inFlightOut > maxInFlightOut) {
+                maxInFlightOut = inFlightOut;
+            }
+        }
+    }
+
+    /**
+     * Ends the QoS 1 or 2 flow of a PUBLISH, i.e. a PUBACK, a PUBCOMP or a PUBREC with an error reason code.
+     *
+     * @param inbound whether the client sent the acknowledgement, so it acknowledges a PUBLISH sent to the client.
+     */
+    public void acknowledged(final boolean inbound) {
+        // acknowledgements of messages of a previous connection are not counted as in flight
+        if (inbound) {
+            inFlightOut = Math.max(0, inFlightOut - 1);
+        } else {
+            inFlightIn = Math.max(0, inFlightIn - 1);
+        }
+    }
+
+    public void subscribed(final int topicFilters) {
+        packets[Event.SUBSCRIBE_RECEIVED.ordinal()]++;
+        subscriptions += topicFilters;
+    }
+
+    public void unsubscribed(final int topicFilters) {
+        packets[Event.UNSUBSCRIBE_RECEIVED.ordinal()]++;
+        unsubscriptions += topicFilters;
+    }
+
+    /**
+     * @param reason    why the connection ended, e.g. {@code client DISCONNECT NORMAL_DISCONNECTION}.
+     * @param nowNanos  the {@link System#nanoTime()} of the end of the connection.
+     * @param json      whether the summary is formatted as JSON line.
+     */
+    public @NotNull String summary(final @NotNull String reason, final long nowNanos, final boolean json) {
+        final long durationMillis = (nowNanos - startNanos) / 1_000_000;
+        if (json) {
+            final JsonWriter writer = new JsonWriter(new StringBuilder(256));
+            writer.beginObject()
+                    .name("timestamp")
+                    .plainValue(TIMESTAMPS.get().format(System.currentTimeMillis()))
+                    .name("event")
+                    .value("session")
+                    .name("clientId")
+                    .value(clientId)
+                    .name("durationMs")
+                    .value(durationMillis)
+                    .name("disconnect")
+                    .value(reason);
+            packets(writer.name("packetsIn"), true);
+            packets(writer.name("packetsOut"), false);
+            writer.name("bytesIn").value(bytesIn).name("bytesOut").value(bytesOut);
+            qos(writer.name("qosIn"), qosIn);
+            qos(writer.name("qosOut"), qosOut);
+            writer.name("maxInFlightIn")
+                    .value(maxInFlightIn)
+                    .name("maxInFlightOut")
+                    .value(maxInFlightOut)
+                    .name("subscriptions")
+                    .value(subscriptions)
+                    .name("unsubscriptions")
+                    .value(unsubscriptions)
+                    .endObject();
+            return writer.getBuilder().toString();
+        }
+        final StringBuilder builder = new StringBuilder(256);
+        builder.append("Session of client '")
+                .append(clientId)
+                .append("' ended after ")
+                .append(durationMillis)
+                .append(" ms: Disconnect: '")
+                .append(reason)
+                .append("', Packets In: '");
+        packets(builder, true);
+        builder.append("', Packets Out: '");
+        packets(builder, false);
+        builder.append("', Bytes In: '")
+                .append(bytesIn)
+                .append("', Bytes Out: '")
+                .append(bytesOut)
+                .append("', QoS In: '");
+        qos(builder, qosIn);
+        builder.append("', QoS Out: '");
+        qos(builder, qosOut);
+        return builder.append("', Max In-Flight In: '")
+                .append(maxInFlightIn)
+                .append("', Max In-Flight Out: '")
+                .append(maxInFlightOut)
+                .append("', Subscriptions: '")
+                .append(subscriptions)
+                .append("', Unsubscriptions: '")
+                .append(unsubscriptions)
+                .append('\'')
+                .toString();
+    }
+
+    private void packets(final @NotNull StringBuilder builder, final boolean inbound) {
+        final int start = builder.length();
+        for (final Event event : EVENTS) {
+            final long count = packets[event.ordinal()];
+            if (count > 0 && event.isInbound() == inbound) {
+                if (builder.length() > start) {
+                    builder.append(", ");
+                }
+                builder.append(event.getPacketType()).append(' ').append(count);
+            }
+        }
+    }
+
+    private void packets(final @NotNull JsonWriter writer, final boolean inbound) {
+        writer.beginObject();
+        for (final Event event : EVENTS) {
+            final long count = packets[event.ordinal()];
+            if (count > 0 && event.isInbound() == inbound) {
+                writer.name(event.getPacketType()).value(count);
+            }
+        }
+        writer.endObject();
+    }
+
+    private static void qos(final @NotNull StringBuilder builder, final long @NotNull [] counts) {
+        builder.append("0: ").append(counts[0]).append(", 1: ").append(counts[1]).append(", 2: ").append(counts[2]);
+    }
+
+    private static void qos(final @NotNull JsonWriter writer, final long @NotNull [] counts) {
+        writer.beginArray().value(counts[0]).value(counts[1]).value(counts[2]).endArray();
+    }
+}
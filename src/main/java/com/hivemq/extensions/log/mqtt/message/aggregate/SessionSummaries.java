@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.parameter.ClientBasedInput;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+
+/**
+ * Hands the {@link SessionStats} of a connection from its interceptors to the lifecycle listener, which writes the
+ * summary when the connection ends ({@code session-summary}).
+ *
+ * @since 1.2.0
+ */
+public class SessionSummaries {
+
+    static final @NotNull String ATTRIBUTE = "com.hivemq.extensions.mqtt-message-log.session";
+
+    private final @NotNull String clientRegex;
+    private final @NotNull LineSink sink;
+    private final boolean json;
+    private final @NotNull ConnectionRegistry<SessionStats> sessions = new ConnectionRegistry<>(ATTRIBUTE);
+
+    /**
+     * @param clientRegex only the sessions of matching clients are summarized, all if empty.
+     * @param json        whether the summaries are written as JSON lines.
+     */
+    SessionSummaries(final @NotNull String clientRegex, final @NotNull LineSink sink, final boolean json) {
+        this.clientRegex = clientRegex;
+        this.sink = sink;
+        this.json = json;
+    }
+
+    /**
+     * @return the statistics of the new connection or {@code null} if the client is not summarized.
+     */
+    public @Nullable SessionStats connected(final @NotNull ClientBasedInput input) {
+        final String clientId = input.getClientInformation().getClientId();
+        if (!clientRegex.isEmpty() && !clientId.matches(clientRegex)) {
+            return null;
+        }
+        final SessionStats stats = new SessionStats(clientId, System.nanoTime());
+        sessions.register(input, stats);
+        return stats;
+    }
+
+    /**
+     * Writes the summary of the ended connection, if it was summarized.
+     *
+     * @param reason why the connection ended.
+     */
+    public void disconnected(final @NotNull ClientBasedInput input, final @NotNull String reason) {
+        final SessionStats stats = sessions.remove(input);
+        if (stats != null) {
+            sink.writeLine(stats.getClientId(), stats.summary(reason, System.nanoTime(), json));
+        }
+    }
+
+    /**
+     * @return the number of connections whose summary is not written yet.
+     */
+    int size() {
+        return sessions.size();
+    }
+}
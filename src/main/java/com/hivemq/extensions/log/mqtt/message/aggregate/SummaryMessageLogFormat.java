@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
+import com.hivemq.extension.sdk.api.interceptor.connack.parameter.ConnackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingresp.parameter.PingRespOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.suback.parameter.SubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsuback.parameter.UnsubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.parameter.UnsubscribeInboundInput;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.puback.PubackPacket;
+import com.hivemq.extension.sdk.api.packets.pubcomp.PubcompPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.pubrec.PubrecPacket;
+import com.hivemq.extension.sdk.api.packets.pubrel.PubrelPacket;
+import com.hivemq.extensions.log.mqtt.message.aggregate.EventSummary.Event;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
+
+/**
+ * Counts the packets of the events in summary mode in an {@link EventSummary} and passes the packets of all other
+ * events on to the output format.
+ *
+ * @since 1.2.0
+ */
+public class SummaryMessageLogFormat implements MessageLogFormat {
+
+    private final @NotNull MessageLogFormat delegate;
+    private final @NotNull EventSummary summary;
+
+    public SummaryMessageLogFormat(final @NotNull MessageLogFormat delegate, final @NotNull EventSummary summary) {
+        this.delegate = delegate;
+        this.summary = summary;
+    }
+
+    /**
+     * @return whether the event was counted, otherwise it must be passed on.
+     */
+    private boolean summarize(final @NotNull Event event, final @NotNull String clientId) {
+        if (!summary.isSummarized(event)) {
+            return false;
+        }
+        summary.count(event, clientId);
+        return true;
+    }
+
+    @Override
+    public void logPublish(
+            final @NotNull String clientId,
+            final @NotNull PublishPacket publishPacket,
+            final boolean inbound,
+            final boolean verbose) {
+        if (!summarize(inbound ? Event.PUBLISH_RECEIVED : Event.PUBLISH_SEND, clientId)) {
+            delegate.logPublish(clientId, publishPacket, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logConnect(final @NotNull ConnectPacket connectPacket, final boolean verbose) {
+        if (!summarize(Event.CONNECT_RECEIVED, connectPacket.getClientId())) {
+            delegate.logConnect(connectPacket, verbose);
+        }
+    }
+
+    @Override
+    public void logConnack(final @NotNull ConnackOutboundInput connackOutboundInput, final boolean verbose) {
+        if (!summarize(Event.CONNACK_SEND, connackOutboundInput.getClientInformation().getClientId())) {
+            delegate.logConnack(connackOutboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logDisconnect(
+            final @NotNull DisconnectPacket disconnectPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        if (!summarize(inbound ? Event.DISCONNECT_RECEIVED : Event.DISCONNECT_SEND, clientId)) {
+            delegate.logDisconnect(disconnectPacket, clientId, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logDisconnectEvent(
+            final @NotNull DisconnectEventInput disconnectEventInput,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean authenticationFailed,
+            final boolean verbose) {
+        if (!summarize(inbound ? Event.DISCONNECT_RECEIVED : Event.DISCONNECT_SEND, clientId)) {
+            delegate.logDisconnectEvent(disconnectEventInput, clientId, inbound, authenticationFailed, verbose);
+        }
+    }
+
+    @Override
+    public void logSubscribe(final @NotNull SubscribeInboundInput subscribeInboundInput, final boolean verbose) {
+        if (!summarize(Event.SUBSCRIBE_RECEIVED, subscribeInboundInput.getClientInformation().getClientId())) {
+            delegate.logSubscribe(subscribeInboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logSuback(final @NotNull SubackOutboundInput subackOutboundInput, final boolean verbose) {
+        if (!summarize(Event.SUBACK_SEND, subackOutboundInput.getClientInformation().getClientId())) {
+            delegate.logSuback(subackOutboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logUnsubscribe(final @NotNull UnsubscribeInboundInput unsubscribeInboundInput, final boolean verbose) {
+        if (!summarize(Event.UNSUBSCRIBE_RECEIVED, unsubscribeInboundInput.getClientInformation().getClientId())) {
+            delegate.logUnsubscribe(unsubscribeInboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logUnsuback(final @NotNull UnsubackOutboundInput unsubackOutboundInput, final boolean verbose) {
+        if (!summarize(Event.UNSUBACK_SEND, unsubackOutboundInput.getClientInformation().getClientId())) {
+            delegate.logUnsuback(unsubackOutboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logPingreq(final @NotNull PingReqInboundInput pingReqInboundInput) {
+        if (!summarize(Event.PINGREQ_RECEIVED, pingReqInboundInput.getClientInformation().getClientId())) {
+            delegate.logPingreq(pingReqInboundInput);
+        }
+    }
+
+    @Override
+    public void logPingresp(final @NotNull PingRespOutboundInput pingRespOutboundInput) {
+        if (!summarize(Event.PINGRESP_SEND, pingRespOutboundInput.getClientInformation().getClientId())) {
+            delegate.logPingresp(pingRespOutboundInput);
+        }
+    }
+
+    @Override
+    public void logPuback(
+            final @NotNull PubackPacket pubackPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        if (!summarize(inbound ? Event.PUBACK_RECEIVED : Event.PUBACK_SEND, clientId)) {
+            delegate.logPuback(pubackPacket, clientId, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logPubrec(
+            final @NotNull PubrecPacket pubrecPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        if (!summarize(inbound ? Event.PUBREC_RECEIVED : Event.PUBREC_SEND, clientId)) {
+            delegate.logPubrec(pubrecPacket, clientId, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logPubrel(
+            final @NotNull PubrelPacket pubrelPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        if (!summarize(inbound ? Event.PUBREL_RECEIVED : Event.PUBREL_SEND, clientId)) {
+            delegate.logPubrel(pubrelPacket, clientId, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logPubcomp(
+            final @NotNull PubcompPacket pubcompPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        if (!summarize(inbound ? Event.PUBCOMP_RECEIVED : Event.PUBCOMP_SEND, clientId)) {
+            delegate.logPubcomp(pubcompPacket, clientId, inbound, verbose);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Per-thread state of an aggregation, e.g. counters, that is updated without locks by the thread that owns it and
+ * collected by the reporter at the end of every interval.
+ * <p>
+ * Every thread gets its own stripe that holds the state of the current interval. The owner brackets every update
+ * with {@link Stripe#enter()} and {@link Stripe#exit()}, {@link #collect()} replaces the state of all stripes and
+ * waits until no owner still updates a replaced state, so it can be read safely afterwards.
+ *
+ * @param <S> the type of the state.
+ * @since 1.2.0
+ */
+public class ThreadStripes<S> {
+
+    private final @NotNull Supplier<S> factory;
+    private final @NotNull List<Stripe<S>> stripes = new CopyOnWriteArrayList<>();
+    private final @NotNull ThreadLocal<Stripe<S>> threadStripe;
+
+    public ThreadStripes(final @NotNull Supplier<S> factory) {
+        this.factory = factory;
+        threadStripe = ThreadLocal.withInitial(() -> {
+            final Stripe<S> stripe = new Stripe<>(factory.get());
+            stripes.add(stripe);
+            return stripe;
+        });
+    }
+
+    /**
+     * @return the stripe of the calling thread.
+     */
+    public @NotNull Stripe<S> stripe() {
+        return threadStripe.get();
+    }
+
+    /**
+     * Replaces the state of all stripes with new state.
+     *
+     * @return the replaced state of all stripes, no longer updated by their owners.
+     */
+    public @NotNull List<S> collect() {
+        final List<S> collected = new ArrayList<>(stripes.size());
+        for (final Stripe<S> stripe : stripes) {
+            final S state = stripe.state;
+            stripe.state = factory.get();
+            // an owner that entered before the swap may still update the replaced state
+            while (stripe.updating) {
+                Thread.onSpinWait();
+            }
+            collected.add(state);
+        }
+        return collected;
+    }
+
+    /**
+     * The state of one thread.
+     *
+     * @param <S> the type of the state.
+     */
+    public static class Stripe<S> {
+
+        private volatile @NotNull S state;
+        private volatile boolean updating;
+
+        Stripe(final @NotNull S state) {
+            this.state = state;
+        }
+
+        /**
+         * @return the current state, it may be updated until {@link #exit()}.
+         */
+        public @NotNull S enter() {
+            // the flag is set before the state is read, so a collector that swapped the state sees the flag
+            updating = true;
+            return state;
+        }
+
+        public void exit() {
+            updating = false;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * The keys with the highest counts seen so far, at most {@code capacity} of them. A key that is offered with a higher
+ * count than the smallest candidate replaces it, so the heavy hitters of a stream stay candidates while the memory
+ * is fixed. The candidates are kept in arrays and found by their hash, offering a key does not allocate.
+ * <p>
+ * Not thread-safe, see {@link ThreadStripes}.
+ *
+ * @since 1.2.0
+ */
+public class TopK {
+
+    private final @Nullable String @NotNull [] keys;
+    private final long @NotNull [] hashes;
+    private final long @NotNull [] counts;
+    private int size;
+    private int min = -1;
+
+    public TopK(final int capacity) {
+        keys = new String[capacity];
+        hashes = new long[capacity];
+        counts = new long[capacity];
+    }
+
+    /**
+     * @param count the current count of the key, e.g. the estimate of a {@link CountMinSketch}.
+     */
+    public void offer(final @NotNull String key, final long hash, final long count) {
+        for (int i = 0; i < size; i++) {
+            if (hashes[i] == hash && key.equals(keys[i])) {
+                counts[i] = count;
+                if (i == min) {
+                    min = -1;
+                }
+                return;
+            }
+        }
+        if (size < keys.length) {
+            set(size++, key, hash, count);
+            min = -1;
+            return;
+        }
+        if (min < 0) {
+            min = 0;
+            for (int i = 1; i < size; i++) {
+                if (counts[i] < counts[min]) {
+                    min = i;
+                }
+            }
+        }
+        if (count > counts[min]) {
+            set(min, key, hash, count);
+            min = -1;
+        }
+    }
+
+    private void set(final int index, final @NotNull String key, final long hash, final long count) {
+        keys[index] = key;
+        hashes[index] = hash;
+        counts[index] = count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public @NotNull String getKey(final int index) {
+        final String key = keys[index];
+        assert key != null;
+        return key;
+    }
+
+    public long getHash(final int index) {
+        return hashes[index];
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extensions.log.mqtt.message.util.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Estimates the number of distinct topics one connection publishes to per window and warns once per window when it
+ * exceeds a threshold, e.g. for a device that publishes every message to a new topic.
+ * <p>
+ * Every connection has its own instance in its PUBLISH interceptor, which HiveMQ calls for one connection at a time,
+ * so it needs no synchronization and is released together with the interceptor when the client disconnects.
+ *
+ * @since 1.2.0
+ */
+public class TopicCardinality {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(TopicCardinality.class);
+
+    private final int threshold;
+    private final long windowNanos;
+    private final @NotNull HyperLogLog topics = new HyperLogLog();
+    private long windowStart;
+    private boolean exceeded;
+
+    TopicCardinality(final int threshold, final long windowMillis) {
+        this(threshold, windowMillis, System.nanoTime());
+    }
+
+    TopicCardinality(final int threshold, final long windowMillis, final long nanoTime) {
+        this.threshold = threshold;
+        this.windowNanos = windowMillis * 1_000_000;
+        windowStart = nanoTime;
+    }
+
+    /**
+     * @return whether the threshold was exceeded by this topic, that is at most once per window.
+     */
+    public boolean add(final @NotNull String clientId, final @NotNull String topic) {
+        return add(clientId, topic, System.nanoTime());
+    }
+
+    boolean add(final @NotNull String clientId, final @NotNull String topic, final long nanoTime) {
+        if (nanoTime - windowStart >= windowNanos) {
+            topics.clear();
+            windowStart = nanoTime;
+            exceeded = false;
+        }
+        if (!topics.add(Hashing.hash64(topic)) || exceeded || topics.estimate() <= threshold) {
+            return false;
+        }
+        exceeded = true;
+        LOG.warn("HiveMQ MQTT Message Log Extension: Client '{}' published to more than {} distinct topics " +
+                "within {} s, last topic '{}'", clientId, threshold, windowNanos / 1_000_000_000, topic);
+        return true;
+    }
+
+    public long estimate() {
+        return topics.estimate();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the PUBLISH messages and bytes per topic level, e.g. {@code plant}, {@code plant/line-1} and
+ * {@code plant/line-1/temperature}, and periodically reports the tree of the subtrees with the most traffic.
+ * <p>
+ * The tree is a trie of concurrent maps with striped counters, so the interceptors of all connections update it
+ * without a global lock. Memory is bounded by the maximum depth, deeper levels are counted in their ancestor at the
+ * maximum depth, and by the node budget: once it is used up, new levels are collapsed into a {@code +} node of their
+ * parent. Nodes without messages in an interval are removed by the report, which frees budget for new branches.
+ *
+ * @since 1.2.0
+ */
+public class TopicTree {
+
+    static final @NotNull String COLLAPSED = "+";
+    /**
+     * Subtrees with a smaller share of the messages of an interval are counted but not reported.
+     */
+    static final int MIN_SHARE_PERCENT = 1;
+
+    private final int maxDepth;
+    private final int maxNodes;
+    private final @NotNull LineSink sink;
+    private final @NotNull Node root = new Node(false);
+    private final @NotNull AtomicInteger nodes = new AtomicInteger();
+    private long intervalStart = System.nanoTime();
+
+    /**
+     * @param maxDepth the maximum number of topic levels that are counted separately.
+     * @param maxNodes the maximum number of nodes, not counting the collapsed nodes.
+     * @param sink     where the reports are written.
+     */
+    public TopicTree(final int maxDepth, final int maxNodes, final @NotNull LineSink sink) {
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+        this.sink = sink;
+    }
+
+    /**
+     * Counts a PUBLISH message on every level of its topic, called by the interceptors.
+     */
+    public void add(final @NotNull String topic, final int payloadSize) {
+        Node node = root;
+        node.count(payloadSize);
+        int start = 0;
+        for (int depth = 0; depth < maxDepth; depth++) {
+            final int end = topic.indexOf('/', start);
+            node = child(node, end < 0 ? topic.substring(start) : topic.substring(start, end));
+            node.count(payloadSize);
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+    }
+
+    private @NotNull Node child(final @NotNull Node parent, final @NotNull String level) {
+        final Node child = parent.children.get(level);
+        if (child != null) {
+            return child;
+        }
+        if (nodes.incrementAndGet() <= maxNodes) {
+            final Node created = new Node(true);
+            final Node existing = parent.children.putIfAbsent(level, created);
+            if (existing == null) {
+                return created;
+            }
+            nodes.decrementAndGet();
+            return existing;
+        }
+        nodes.decrementAndGet();
+        // a topic level can not be a wildcard, so the collapsed node never clashes with a real level
+        return parent.children.computeIfAbsent(COLLAPSED, key -> new Node(false));
+    }
+
+    /**
+     * Reports the tree since the last report, removes the nodes without messages and starts the next interval.
+     * Nothing is reported if no message was counted.
+     */
+    public void report() {
+        final long now = System.nanoTime();
+        final double seconds = (now - intervalStart) / 1_000_000_000.0;
+        intervalStart = now;
+        final long messages = root.messages.sumThenReset();
+        final long bytes = root.bytes.sumThenReset();
+        if (messages > 0) {
+            sink.writeLine(String.format(Locale.ROOT,
+                    "Topic tree of the last %.0f s: %d PUBLISH messages, %d bytes",
+                    seconds,
+                    messages,
+                    bytes));
+        }
+        report(root, "", 0, messages);
+    }
+
+    private void report(final @NotNull Node node, final @NotNull String path, final int depth, final long total) {
+        final List<Snapshot> snapshots = new ArrayList<>(node.children.size());
+        for (final Map.Entry<String, Node> entry : node.children.entrySet()) {
+            final Node child = entry.getValue();
+            final long messages = child.messages.sumThenReset();
+            final long bytes = child.bytes.sumThenReset();
+            if (messages == 0) {
+                // a cold branch, a message that is counted concurrently to its removal is lost
+                if (node.children.remove(entry.getKey(), child)) {
+                    nodes.addAndGet(-child.countNodes());
+                }
+            } else {
+                snapshots.add(new Snapshot(entry.getKey(), child, messages, bytes));
+            }
+        }
+        snapshots.sort((snapshot1, snapshot2) -> Long.compare(snapshot2.messages, snapshot1.messages));
+        for (final Snapshot snapshot : snapshots) {
+            final String childPath = depth == 0 ? snapshot.level : path + '/' + snapshot.level;
+            if (snapshot.messages * 100 >= total * MIN_SHARE_PERCENT) {
+                sink.writeLine("  ".repeat(depth + 1) + childPath + ' ' + snapshot.messages + " messages " +
+                        snapshot.bytes + " bytes");
+            }
+            // the descendants are visited in any case to start their next interval
+            report(snapshot.node, childPath, depth + 1, total);
+        }
+    }
+
+    int getNodes() {
+        return nodes.get();
+    }
+
+    private static class Node {
+
+        final @NotNull Map<String, Node> children = new ConcurrentHashMap<>(4);
+        final @NotNull LongAdder messages = new LongAdder();
+        final @NotNull LongAdder bytes = new LongAdder();
+        /**
+         * Whether the node counts against the node budget, collapsed nodes do not.
+         */
+        final boolean budgeted;
+
+        Node(final boolean budgeted) {
+            this.budgeted = budgeted;
+        }
+
+        void count(final int payloadSize) {
+            messages.increment();
+            bytes.add(payloadSize);
+        }
+
+        int countNodes() {
+            int count = budgeted ? 1 : 0;
+            for (final Node child : children.values()) {
+                count += child.countNodes();
+            }
+            return count;
+        }
+    }
+
+    private static class Snapshot {
+
+        final @NotNull String level;
+        final @NotNull Node node;
+        final long messages;
+        final long bytes;
+
+        Snapshot(final @NotNull String level, final @NotNull Node node, final long messages, final long bytes) {
+            this.level = level;
+            this.node = node;
+            this.messages = messages;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,448 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extensions.log.mqtt.message.filter.TopicFilter;
+import com.hivemq.extensions.log.mqtt.message.format.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Command line tool that decodes capture segments and prints the events matching a query, either as the compact log
+ * lines of the text format or as JSON lines.
+ * <pre>
+ * CaptureQuery [--from &lt;instant&gt;] [--to &lt;instant&gt;] [--client &lt;clientId&gt;] [--topic &lt;filter&gt;]
+ *              [--type &lt;packet&gt;[,&lt;packet&gt;...]] [--json] &lt;directory or segment&gt;...
+ * </pre>
+ * Segments are decoded in parallel, the output keeps the order of the segments and of the events within them. The
+ * rendered events are handed to the writing thread in chunks through a bounded queue per segment, so the memory used
+ * does not depend on the size of the segments. For
+ * segments with a {@link SegmentIndex} only the blocks that can contain matching events are decoded, the time range,
+ * the clientId and a topic filter without wildcards narrow down the blocks.
+ *
+ * @since 1.2.0
+ */
+public class CaptureQuery {
+
+    private static final int EXIT_USAGE = 2;
+    private static final int EXIT_ERROR = 1;
+    /**
+     * The number of characters after which the rendered events are handed to the writing thread.
+     */
+    static final int CHUNK_SIZE = 64 * 1024;
+    private static final int CHUNKS_PER_SEGMENT = 4;
+
+    private long from = Long.MIN_VALUE;
+    private long to = Long.MAX_VALUE;
+    private @Nullable String clientId;
+    private @Nullable String topic;
+    private @Nullable TopicFilter topicFilter;
+    private @Nullable boolean[] types;
+    private boolean json;
+
+    public static void main(final @NotNull String @NotNull [] args) {
+        final CaptureQuery query = new CaptureQuery();
+        final List<Path> inputs = new ArrayList<>();
+        try {
+            query.parse(List.of(args), inputs);
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: CaptureQuery [--from <instant>] [--to <instant>] [--client <clientId>]" +
+                    " [--topic <filter>] [--type <packet>[,<packet>...]] [--json] <directory or segment>...");
+            System.exit(EXIT_USAGE);
+            return;
+        }
+        try (final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, UTF_8), 1 << 16)) {
+            query.run(inputs, out);
+        } catch (final IOException | UncheckedIOException e) {
+            System.err.println("Could not read capture: " + e.getMessage());
+            System.exit(EXIT_ERROR);
+        }
+    }
+
+    /**
+     * Parses the options into this query and adds the positional arguments to the inputs.
+     *
+     * @throws IllegalArgumentException if an option is unknown, misses its value or has an invalid value.
+     */
+    void parse(final @NotNull List<String> args, final @NotNull List<Path> inputs) {
+        for (int i = 0; i < args.size(); i++) {
+            final String arg = args.get(i);
+            switch (arg) {
+                case "--from":
+                    from = parseInstant(arg, value(args, ++i, arg));
+                    break;
+                case "--to":
+                    to = parseInstant(arg, value(args, ++i, arg));
+                    break;
+                case "--client":
+                    clientId = value(args, ++i, arg);
+                    break;
+                case "--topic":
+                    topic = value(args, ++i, arg);
+                    topicFilter = new TopicFilter(topic);
+                    break;
+                case "--type":
+                    types = parseTypes(value(args, ++i, arg));
+                    break;
+                case "--json":
+                    json = true;
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option '" + arg + "'");
+                    }
+                    inputs.add(Paths.get(arg));
+            }
+        }
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("No capture directory or segment given");
+        }
+    }
+
+    private static @NotNull String value(final @NotNull List<String> args, final int i, final @NotNull String option) {
+        if (i >= args.size()) {
+            throw new IllegalArgumentException("Missing value for option '" + option + "'");
+        }
+        return args.get(i);
+    }
+
+    private static long parseInstant(final @NotNull String option, final @NotNull String value) {
+        try {
+            return Instant.parse(value).toEpochMilli();
+        } catch (final DateTimeParseException e) {
+            throw new IllegalArgumentException(
+                    "Invalid value '" + value + "' for option '" + option + "', expected an ISO-8601 instant");
+        }
+    }
+
+    private static boolean @NotNull [] parseTypes(final @NotNull String value) {
+        final boolean[] types = new boolean[EventLogFormat.PUBCOMP_SEND + 1];
+        for (final String name : value.split(",")) {
+            final String packetName = name.trim().toUpperCase(Locale.ROOT);
+            boolean known = false;
+            for (byte type = EventLogFormat.CONNECT; type < types.length; type++) {
+                if (EventLogFormat.packetName(type).equals(packetName)) {
+                    types[type] = true;
+                    known = true;
+                }
+            }
+            if (!known) {
+                throw new IllegalArgumentException("Unknown packet type '" + name.trim() + "'");
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Writes all matching events of the inputs to the writer.
+     *
+     * @param inputs capture directories or single segment files.
+     */
+    void run(final @NotNull List<Path> inputs, final @NotNull Writer out) throws IOException {
+        final List<Path> segments = listSegments(inputs);
+        final int threads = Math.max(1, Math.min(segments.size(), Runtime.getRuntime().availableProcessors()));
+        // the tasks are started in the order of the segments, so the segment that is written is always decoded
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "mqtt-message-log-capture-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final int window = threads * 2;
+        final ArrayDeque<SegmentOutput> pending = new ArrayDeque<>(window);
+        try {
+            int next = 0;
+            while (next < segments.size() || !pending.isEmpty()) {
+                while (next < segments.size() && pending.size() < window) {
+                    final SegmentOutput output = new SegmentOutput(segments.get(next++));
+                    executor.execute(() -> query(output));
+                    pending.add(output);
+                }
+                final SegmentOutput head = pending.poll();
+                if (head != null) {
+                    head.writeTo(out);
+                }
+            }
+            out.flush();
+        } finally {
+            // stops the decoding of the remaining segments if writing failed
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param inputs capture directories or single segment files.
+     * @return the segments of the inputs, the segments of a directory ordered by their sequence.
+     */
+    static @NotNull List<Path> listSegments(final @NotNull List<Path> inputs) throws IOException {
+        final List<Path> segments = new ArrayList<>();
+        for (final Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                segments.addAll(listSegments(input));
+            } else {
+                segments.add(input);
+            }
+        }
+        return segments;
+    }
+
+    private static @NotNull List<Path> listSegments(final @NotNull Path directory) throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> EventLogFormat.segmentSequence(file.getFileName().toString()) >= 0)
+                    .sorted(Comparator.comparingLong(file -> EventLogFormat.segmentSequence(file.getFileName()
+                            .toString())))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Decodes one segment and hands its matching events, one per line, to the output.
+     */
+    void query(final @NotNull SegmentOutput output) {
+        final Path segment = output.segment;
+        try {
+            try {
+                final SegmentReader reader = SegmentReader.open(segment);
+                if (reader.getBaseTime() <= to) {
+                    scan(segment, reader, output);
+                }
+                output.end(null);
+            } catch (final IOException | RuntimeException e) {
+                output.end(new IOException(segment + ": " + e.getMessage(), e));
+            }
+        } catch (final InterruptedException e) {
+            // the writing thread stopped
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void scan(
+            final @NotNull Path segment,
+            final @NotNull SegmentReader reader,
+            final @NotNull SegmentOutput output) throws InterruptedException {
+        final SegmentIndex index = readIndex(segment);
+        if (index == null) {
+            scan(reader, Integer.MAX_VALUE, true, output);
+        } else {
+            reader.loadDictionaries(index);
+            final boolean[] blocks = selectBlocks(index);
+            for (int block = 0; block < blocks.length; block++) {
+                if (blocks[block]) {
+                    reader.seek(index.getBlockOffset(block), index.getBlockTimeBase(block));
+                    final int end = block + 1 < blocks.length ? index.getBlockOffset(block + 1) : Integer.MAX_VALUE;
+                    scan(reader, end, false, output);
+                }
+            }
+        }
+        if (reader.getCorruptRecords() > 0) {
+            System.err.println("Skipped " + reader.getCorruptRecords() + " corrupt records in " + segment);
+        }
+    }
+
+    /**
+     * @return the index of the segment or {@code null} if the segment has no readable index, e.g. because it was not
+     *         rolled yet.
+     */
+    private static @Nullable SegmentIndex readIndex(final @NotNull Path segment) {
+        final Path path = SegmentIndex.indexPath(segment);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            return SegmentIndex.open(path);
+        } catch (final IOException e) {
+            System.err.println("Ignoring capture index: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return for every block of the index whether it can contain matching events.
+     */
+    boolean @NotNull [] selectBlocks(final @NotNull SegmentIndex index) {
+        final boolean[] selected = new boolean[index.getBlockCount()];
+        for (int block = 0; block < selected.length; block++) {
+            selected[block] = index.getBlockMaxTime(block) >= from && index.getBlockMinTime(block) <= to;
+        }
+        if (clientId != null) {
+            retain(selected, index.getClientBlocks(clientId));
+        }
+        if (topic != null && topic.indexOf('+') < 0 && topic.indexOf('#') < 0) {
+            // without wildcards the filter only matches the equal topic
+            retain(selected, index.getTopicBlocks(topic));
+        }
+        return selected;
+    }
+
+    private static void retain(final boolean @NotNull [] selected, final int @NotNull [] blocks) {
+        final boolean[] contained = new boolean[selected.length];
+        for (final int block : blocks) {
+            contained[block] = true;
+        }
+        for (int block = 0; block < selected.length; block++) {
+            selected[block] &= contained[block];
+        }
+    }
+
+    /**
+     * Renders the matching events until the end position is reached.
+     *
+     * @param ordered whether the events are read from the start of the segment, so the scan can stop at the first
+     *                event after the time range.
+     */
+    private void scan(
+            final @NotNull SegmentReader reader,
+            final int end,
+            final boolean ordered,
+            final @NotNull SegmentOutput output) throws InterruptedException {
+        final StringBuilder builder = output.builder;
+        final JsonWriter jsonWriter = json ? new JsonWriter(builder) : null;
+        CapturedEvent event;
+        while (reader.getPosition() < end && (event = reader.next()) != null) {
+            if (ordered && event.time > to) {
+                break;
+            }
+            if (!matches(event)) {
+                continue;
+            }
+            if (jsonWriter != null) {
+                CapturedEventFormatter.appendJson(jsonWriter, event);
+                jsonWriter.endLine();
+            } else {
+                CapturedEventFormatter.appendText(builder, event);
+                builder.append('\n');
+            }
+            if (builder.length() >= CHUNK_SIZE) {
+                output.handOver();
+            }
+        }
+    }
+
+    boolean matches(final @NotNull CapturedEvent event) {
+        if (event.time < from || event.time > to) {
+            return false;
+        }
+        if (types != null && !types[event.type]) {
+            return false;
+        }
+        if (clientId != null && !clientId.equals(event.clientId)) {
+            return false;
+        }
+        if (topicFilter != null) {
+            if (event.topic != null) {
+                return topicFilter.matches(event.topic);
+            }
+            for (final String topic : event.topics) {
+                if (topicFilter.matches(topic)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The rendered events of one segment on their way from the decoding thread to the writing thread.
+     */
+    static class SegmentOutput {
+
+        /**
+         * Marks the end of the segment, the chunks that are handed over are never empty.
+         */
+        private static final @NotNull String END = "";
+
+        private final @NotNull Path segment;
+        private final @NotNull BlockingQueue<String> chunks = new ArrayBlockingQueue<>(CHUNKS_PER_SEGMENT);
+        /**
+         * Only used by the decoding thread.
+         */
+        private final @NotNull StringBuilder builder = new StringBuilder();
+        private volatile @Nullable IOException failure;
+
+        SegmentOutput(final @NotNull Path segment) {
+            this.segment = segment;
+        }
+
+        /**
+         * Hands the rendered events to the writing thread, waits while it has not written the previous chunks.
+         */
+        private void handOver() throws InterruptedException {
+            if (builder.length() > 0) {
+                chunks.put(builder.toString());
+                builder.setLength(0);
+            }
+        }
+
+        /**
+         * Hands over the remaining events and marks the end of the segment.
+         *
+         * @param failure why the segment could not be decoded or {@code null}.
+         */
+        private void end(final @Nullable IOException failure) throws InterruptedException {
+            if (failure == null) {
+                handOver();
+            }
+            this.failure = failure;
+            chunks.put(END);
+        }
+
+        /**
+         * Writes the chunks of the segment until its end.
+         *
+         * @throws IOException if writing fails or the segment could not be decoded.
+         */
+        void writeTo(final @NotNull Writer out) throws IOException {
+            try {
+                String chunk;
+                while (!(chunk = chunks.take()).isEmpty()) {
+                    out.write(chunk);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while decoding segments", e);
+            }
+            final IOException failure = this.failure;
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Command line tool that re-publishes the PUBLISH packets received from clients in capture segments to a broker, to
+ * reproduce the load pattern of an incident.
+ * <pre>
+ * CaptureReplay [--broker &lt;host&gt;[:&lt;port&gt;]] [--speed &lt;factor&gt;] [--clients &lt;connections&gt;]
+ *               [--max-inflight &lt;packets&gt;] [--from &lt;instant&gt;] [--to &lt;instant&gt;]
+ *               [--client &lt;clientId&gt;] [--topic &lt;filter&gt;] &lt;directory or segment&gt;...
+ * </pre>
+ * The messages keep their topic, QoS, retain flag and payload and are published at their original offsets from the
+ * first message divided by the speed-up factor, a factor of {@code 0} publishes as fast as possible. The captured
+ * clients are distributed over the replay connections by their clientId, so the messages of a client are published
+ * in their original order by one connection. At the end the achieved rate is reported next to the original rate.
+ *
+ * @since 1.2.0
+ */
+public class CaptureReplay {
+
+    private static final int EXIT_USAGE = 2;
+    private static final int EXIT_ERROR = 1;
+    private static final int QUEUE_SIZE = 1024;
+
+    private final @NotNull CaptureQuery query = new CaptureQuery();
+    private @NotNull String host = "localhost";
+    private int port = 1883;
+    private double speed = 1;
+    private int clients = 4;
+    private int maxInflight = 64;
+
+    public static void main(final @NotNull String @NotNull [] args) {
+        final CaptureReplay replay = new CaptureReplay();
+        final List<Path> inputs = new ArrayList<>();
+        try {
+            replay.parse(List.of(args), inputs);
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: CaptureReplay [--broker <host>[:<port>]] [--speed <factor>]" +
+                    " [--clients <connections>] [--max-inflight <packets>] [--from <instant>] [--to <instant>]" +
+                    " [--client <clientId>] [--topic <filter>] <directory or segment>...");
+            System.exit(EXIT_USAGE);
+            return;
+        }
+        try {
+            System.out.println(replay.run(inputs));
+        } catch (final IOException e) {
+            System.err.println("Could not replay capture: " + e.getMessage());
+            System.exit(EXIT_ERROR);
+        }
+    }
+
+    /**
+     * Parses the replay options, the remaining options are the filters of {@link CaptureQuery}.
+     *
+     * @throws IllegalArgumentException if an option is unknown, misses its value or has an invalid value.
+     */
+    void parse(final @NotNull List<String> args, final @NotNull List<Path> inputs) {
+        final List<String> queryArgs = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++) {
+            final String arg = args.get(i);
+            switch (arg) {
+                case "--broker":
+                    parseBroker(value(args, ++i, arg));
+                    break;
+                case "--speed":
+                    speed = parseNumber(arg, value(args, ++i, arg));
+                    break;
+                case "--clients":
+                    clients = parsePositive(arg, value(args, ++i, arg));
+                    break;
+                case "--max-inflight":
+                    maxInflight = Math.min(parsePositive(arg, value(args, ++i, arg)), 0xFFFF);
+                    break;
+                case "--type":
+                case "--json":
+                    throw new IllegalArgumentException("Option '" + arg + "' is not supported by the replay");
+                default:
+                    queryArgs.add(arg);
+            }
+        }
+        query.parse(queryArgs, inputs);
+    }
+
+    private void parseBroker(final @NotNull String value) {
+        final int colon = value.lastIndexOf(':');
+        if (colon < 0) {
+            host = value;
+            return;
+        }
+        host = value.substring(0, colon);
+        port = parsePositive("--broker", value.substring(colon + 1));
+    }
+
+    private static @NotNull String value(final @NotNull List<String> args, final int i, final @NotNull String option) {
+        if (i >= args.size()) {
+            throw new IllegalArgumentException("Missing value for option '" + option + "'");
+        }
+        return args.get(i);
+    }
+
+    private static double parseNumber(final @NotNull String option, final @NotNull String value) {
+        try {
+            final double number = Double.parseDouble(value);
+            if (number >= 0 && !Double.isInfinite(number)) {
+                return number;
+            }
+        } catch (final NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Invalid value '" + value + "' for option '" + option +
+                "', expected a number >= 0");
+    }
+
+    private static int parsePositive(final @NotNull String option, final @NotNull String value) {
+        try {
+            final int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (final NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Invalid value '" + value + "' for option '" + option +
+                "', expected a positive integer");
+    }
+
+    /**
+     * Replays the matching PUBLISH packets of the inputs and waits until all of them are acknowledged.
+     *
+     * @param inputs capture directories or single segment files.
+     * @throws IOException if a segment can not be read or a connection to the broker fails.
+     */
+    @NotNull Report run(final @NotNull List<Path> inputs) throws IOException {
+        final List<Path> segments = CaptureQuery.listSegments(inputs);
+        final Publisher[] publishers = new Publisher[clients];
+        try {
+            for (int i = 0; i < publishers.length; i++) {
+                publishers[i] = new Publisher(new ReplayConnection(host,
+                        port,
+                        "mqtt-message-log-replay-" + i,
+                        maxInflight));
+            }
+        } catch (final IOException e) {
+            stop(publishers);
+            throw e;
+        }
+        final Set<String> clientIds = new HashSet<>();
+        long messages = 0;
+        long firstTime = -1;
+        long lastTime = -1;
+        long startNanos = System.nanoTime();
+        try {
+            for (final Path segment : segments) {
+                final SegmentReader reader = SegmentReader.open(segment);
+                CapturedEvent event;
+                while ((event = reader.next()) != null) {
+                    if (event.type != EventLogFormat.PUBLISH_RECEIVED || !query.matches(event)) {
+                        continue;
+                    }
+                    if (firstTime < 0) {
+                        firstTime = event.time;
+                        startNanos = System.nanoTime();
+                    }
+                    final long dueNanos =
+                            speed == 0 ? 0 : startNanos + (long) ((event.time - firstTime) * 1_000_000 / speed);
+                    publishers[Math.floorMod(event.clientId.hashCode(), publishers.length)].submit(new Message(
+                            event,
+                            dueNanos));
+                    clientIds.add(event.clientId);
+                    messages++;
+                    lastTime = Math.max(lastTime, event.time);
+                }
+                if (reader.getCorruptRecords() > 0) {
+                    System.err.println("Skipped " + reader.getCorruptRecords() + " corrupt records in " + segment);
+                }
+            }
+            for (final Publisher publisher : publishers) {
+                publisher.submit(Message.END);
+            }
+            long maxLagNanos = 0;
+            for (final Publisher publisher : publishers) {
+                maxLagNanos = Math.max(maxLagNanos, publisher.finish());
+            }
+            return new Report(messages,
+                    clientIds.size(),
+                    firstTime < 0 ? 0 : lastTime - firstTime,
+                    System.nanoTime() - startNanos,
+                    speed,
+                    maxLagNanos);
+        } finally {
+            stop(publishers);
+        }
+    }
+
+    private static void stop(final @Nullable Publisher @NotNull [] publishers) {
+        for (final Publisher publisher : publishers) {
+            if (publisher != null) {
+                publisher.stop();
+            }
+        }
+    }
+
+    private static class Message {
+
+        static final @NotNull Message END = new Message("", new byte[0], 0, false, 0);
+
+        final @NotNull String topic;
+        final byte @NotNull [] payload;
+        final int qos;
+        final boolean retain;
+        final long dueNanos;
+
+        Message(final @NotNull CapturedEvent event, final long dueNanos) {
+            this(event.topic == null ? "" : event.topic,
+                    bytes(event.payload),
+                    event.flags & EventLogFormat.PUBLISH_QOS_MASK,
+                    (event.flags & EventLogFormat.PUBLISH_RETAIN) != 0,
+                    dueNanos);
+        }
+
+        Message(
+                final @NotNull String topic,
+                final byte @NotNull [] payload,
+                final int qos,
+                final boolean retain,
+                final long dueNanos) {
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.retain = retain;
+            this.dueNanos = dueNanos;
+        }
+
+        private static byte @NotNull [] bytes(final @Nullable ByteBuffer payload) {
+            if (payload == null) {
+                return new byte[0];
+            }
+            final byte[] bytes = new byte[payload.remaining()];
+            payload.duplicate().get(bytes);
+            return bytes;
+        }
+    }
+
+    /**
+     * Publishes the messages of its clients on its own thread and connection, each message not before its due time.
+     */
+    private static class Publisher {
+
+        private final @NotNull ReplayConnection connection;
+        private final @NotNull BlockingQueue<Message> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private final @NotNull Thread thread;
+        private volatile @Nullable IOException failure;
+        private volatile boolean stopped;
+        private long maxLagNanos;
+
+        Publisher(final @NotNull ReplayConnection connection) {
+            this.connection = connection;
+            thread = new Thread(this::run, "mqtt-message-log-replay-publisher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void submit(final @NotNull Message message) throws IOException {
+            try {
+                while (!queue.offer(message, 100, TimeUnit.MILLISECONDS)) {
+                    checkFailure();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while replaying", e);
+            }
+            checkFailure();
+        }
+
+        /**
+         * Waits until all submitted messages are published and acknowledged.
+         *
+         * @return the maximum delay of a message after its due time in nanoseconds.
+         */
+        long finish() throws IOException {
+            try {
+                thread.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while replaying", e);
+            }
+            checkFailure();
+            connection.close();
+            return maxLagNanos;
+        }
+
+        void stop() {
+            stopped = true;
+            thread.interrupt();
+            try {
+                connection.close();
+            } catch (final IOException ignored) {
+                // the replay already failed or finished
+            }
+        }
+
+        private void checkFailure() throws IOException {
+            final IOException failure = this.failure;
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        private void run() {
+            try {
+                while (!stopped) {
+                    Message message = queue.poll();
+                    if (message == null) {
+                        connection.flush();
+                        message = queue.take();
+                    }
+                    if (message == Message.END) {
+                        connection.flush();
+                        return;
+                    }
+                    long delay = message.dueNanos - System.nanoTime();
+                    if (delay > 0) {
+                        connection.flush();
+                        while (delay > 0 && !stopped) {
+                            LockSupport.parkNanos(delay);
+                            delay = message.dueNanos - System.nanoTime();
+                        }
+                    } else if (message.dueNanos != 0) {
+                        maxLagNanos = Math.max(maxLagNanos, -delay);
+                    }
+                    connection.publish(message.topic, message.payload, message.qos, message.retain);
+                }
+            } catch (final IOException e) {
+                failure = e;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The achieved rate of a replay compared to the original rate.
+     */
+    static class Report {
+
+        final long messages;
+        final int clients;
+        final long originalMillis;
+        final long elapsedNanos;
+        final double speed;
+        final long maxLagNanos;
+
+        Report(
+                final long messages,
+                final int clients,
+                final long originalMillis,
+                final long elapsedNanos,
+                final double speed,
+                final long maxLagNanos) {
+            this.messages = messages;
+            this.clients = clients;
+            this.originalMillis = originalMillis;
+            this.elapsedNanos = elapsedNanos;
+            this.speed = speed;
+            this.maxLagNanos = maxLagNanos;
+        }
+
+        /**
+         * @return the messages per second of the capture.
+         */
+        double getOriginalRate() {
+            return rate(messages, originalMillis / 1000.0);
+        }
+
+        /**
+         * @return the messages per second of the replay.
+         */
+        double getAchievedRate() {
+            return rate(messages, elapsedNanos / 1_000_000_000.0);
+        }
+
+        private static double rate(final long messages, final double seconds) {
+            return seconds > 0 ? messages / seconds : 0;
+        }
+
+        @Override
+        public @NotNull String toString() {
+            final StringBuilder builder = new StringBuilder();
+            builder.append(String.format(Locale.ROOT,
+                    "Replayed %d PUBLISH packets of %d clients in %.3f s, original duration %.3f s%n",
+                    messages,
+                    clients,
+                    elapsedNanos / 1_000_000_000.0,
+                    originalMillis / 1000.0));
+            if (speed == 0) {
+                builder.append(String.format(Locale.ROOT,
+                        "Achieved rate %.1f msg/s, original rate %.1f msg/s, unpaced",
+                        getAchievedRate(),
+                        getOriginalRate()));
+            } else {
+                builder.append(String.format(Locale.ROOT,
+                        "Achieved rate %.1f msg/s, original rate %.1f msg/s, target rate %.1f msg/s (speed %s)%n",
+                        getAchievedRate(),
+                        getOriginalRate(),
+                        getOriginalRate() * speed,
+                        speed));
+                builder.append(String.format(Locale.ROOT,
+                        "Maximum lag behind the original timing %.3f ms",
+                        maxLagNanos / 1_000_000.0));
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A packet decoded from a capture segment. Which fields are set depends on the record type, see
+ * {@link EventLogFormat}.
+ *
+ * @since 1.2.0
+ */
+public class CapturedEvent {
+
+    private static final byte @NotNull [] NO_CODES = new byte[0];
+    private static final @NotNull String @NotNull [] NO_TOPICS = new String[0];
+
+    final byte type;
+    final long time;
+    final @NotNull String clientId;
+    @Nullable String topic;
+    int flags;
+    int packetId;
+    @Nullable ByteBuffer payload;
+    int reasonCode;
+    byte @NotNull [] codes = NO_CODES;
+    @NotNull String @NotNull [] topics = NO_TOPICS;
+    int mqttVersion;
+    int keepAlive;
+    long sessionExpiry;
+
+    CapturedEvent(final byte type, final long time, final @NotNull String clientId) {
+        this.type = type;
+        this.time = time;
+        this.clientId = clientId;
+    }
+
+    /**
+     * @return the record type, one of the event types of {@link EventLogFormat}.
+     */
+    public byte getType() {
+        return type;
+    }
+
+    /**
+     * @return the time of the event in milliseconds since the epoch.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public @NotNull String getClientId() {
+        return clientId;
+    }
+
+    /**
+     * @return the topic of a PUBLISH or {@code null} for other packets.
+     */
+    public @Nullable String getTopic() {
+        return topic;
+    }
+
+    /**
+     * @return the topic filters of a SUBSCRIBE or UNSUBSCRIBE.
+     */
+    public @NotNull String @NotNull [] getTopics() {
+        return topics;
+    }
+
+    /**
+     * @return the flags of a PUBLISH, CONNECT or CONNACK.
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    public int getPacketId() {
+        return packetId;
+    }
+
+    /**
+     * @return a read-only view of the payload of a PUBLISH, backed by the segment, or {@code null} for other packets.
+     */
+    public @Nullable ByteBuffer getPayload() {
+        return payload == null ? null : payload.duplicate();
+    }
+
+    /**
+     * @return the reason code ordinal of a CONNACK, DISCONNECT, PUBACK, PUBREC, PUBREL or PUBCOMP.
+     */
+    public int getReasonCode() {
+        return reasonCode;
+    }
+
+    /**
+     * @return the QoS of the topic filters of a SUBSCRIBE or the reason code ordinals of a SUBACK or UNSUBACK.
+     */
+    public byte @NotNull [] getCodes() {
+        return codes;
+    }
+
+    public int getMqttVersion() {
+        return mqttVersion;
+    }
+
+    public int getKeepAlive() {
+        return keepAlive;
+    }
+
+    public long getSessionExpiry() {
+        return sessionExpiry;
+    }
+
+    /**
+     * @return {@code true} if the packet was received from the client.
+     */
+    public boolean isInbound() {
+        return EventLogFormat.isInbound(type);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.connect.ConnackReasonCode;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectReasonCode;
+import com.hivemq.extension.sdk.api.packets.general.MqttVersion;
+import com.hivemq.extension.sdk.api.packets.pubcomp.PubcompReasonCode;
+import com.hivemq.extension.sdk.api.packets.publish.AckReasonCode;
+import com.hivemq.extension.sdk.api.packets.pubrel.PubrelReasonCode;
+import com.hivemq.extension.sdk.api.packets.subscribe.SubackReasonCode;
+import com.hivemq.extension.sdk.api.packets.unsuback.UnsubackReasonCode;
+import com.hivemq.extensions.log.mqtt.message.format.JsonWriter;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Renders captured events either as the compact lines of the text format or as JSON objects.
+ *
+ * @since 1.2.0
+ */
+public final class CapturedEventFormatter {
+
+    private static final @NotNull Enum<?> @NotNull [] MQTT_VERSIONS = MqttVersion.values();
+    private static final @NotNull Enum<?> @NotNull [] CONNACK_CODES = ConnackReasonCode.values();
+    private static final @NotNull Enum<?> @NotNull [] DISCONNECT_CODES = DisconnectReasonCode.values();
+    private static final @NotNull Enum<?> @NotNull [] ACK_CODES = AckReasonCode.values();
+    private static final @NotNull Enum<?> @NotNull [] PUBREL_CODES = PubrelReasonCode.values();
+    private static final @NotNull Enum<?> @NotNull [] PUBCOMP_CODES = PubcompReasonCode.values();
+    private static final @NotNull Enum<?> @NotNull [] SUBACK_CODES = SubackReasonCode.values();
+    private static final @NotNull Enum<?> @NotNull [] UNSUBACK_CODES = UnsubackReasonCode.values();
+
+    private CapturedEventFormatter() {
+    }
+
+    /**
+     * Appends the time of the event and the compact line the text format logs for the packet.
+     */
+    public static void appendText(final @NotNull StringBuilder builder, final @NotNull CapturedEvent event) {
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(event.time), builder);
+        builder.append(' ');
+        final boolean inbound = event.isInbound();
+        switch (event.type) {
+            case EventLogFormat.PINGREQ:
+                builder.append("Received PING REQUEST from client '").append(event.clientId).append('\'');
+                return;
+            case EventLogFormat.PINGRESP:
+                builder.append("Sent PING RESPONSE to client '").append(event.clientId).append('\'');
+                return;
+            case EventLogFormat.PUBLISH_RECEIVED:
+            case EventLogFormat.PUBLISH_SEND:
+                builder.append(inbound ? "Received PUBLISH from client '" : "Sent PUBLISH to client '")
+                        .append(event.clientId)
+                        .append(inbound ? "' for topic '" : "' on topic '")
+                        .append(event.topic)
+                        .append("': Payload: '")
+                        .append(payloadString(event))
+                        .append("', QoS: '")
+                        .append(event.flags & EventLogFormat.PUBLISH_QOS_MASK)
+                        .append("', Retained: '")
+                        .append((event.flags & EventLogFormat.PUBLISH_RETAIN) != 0)
+                        .append('\'');
+                return;
+            default:
+        }
+        builder.append(inbound ? "Received " : "Sent ")
+                .append(EventLogFormat.packetName(event.type))
+                .append(inbound ? " from client '" : " to client '")
+                .append(event.clientId)
+                .append("': ");
+        switch (event.type) {
+            case EventLogFormat.CONNECT:
+                builder.append("Protocol version: '")
+                        .append(name(MQTT_VERSIONS, event.mqttVersion))
+                        .append("', Clean Start: '")
+                        .append((event.flags & EventLogFormat.CONNECT_CLEAN_START) != 0)
+                        .append("', Session Expiry Interval: '")
+                        .append(event.sessionExpiry)
+                        .append('\'');
+                break;
+            case EventLogFormat.CONNACK:
+                builder.append("Reason Code: '")
+                        .append(name(CONNACK_CODES, event.reasonCode))
+                        .append("', Session Present: '")
+                        .append((event.flags & EventLogFormat.CONNACK_SESSION_PRESENT) != 0)
+                        .append('\'');
+                break;
+            case EventLogFormat.SUBSCRIBE:
+                builder.append("Topics: {");
+                for (int i = 0; i < event.topics.length; i++) {
+                    builder.append(i == 0 ? " [Topic: '" : ", [Topic: '")
+                            .append(event.topics[i])
+                            .append("', QoS: '")
+                            .append(event.codes[i])
+                            .append("']");
+                }
+                builder.append(" }");
+                break;
+            case EventLogFormat.UNSUBSCRIBE:
+                builder.append("Topics: {");
+                for (int i = 0; i < event.topics.length; i++) {
+                    builder.append(i == 0 ? " [Topic: '" : ", [Topic: '").append(event.topics[i]).append("']");
+                }
+                builder.append(" }");
+                break;
+            case EventLogFormat.SUBACK:
+            case EventLogFormat.UNSUBACK:
+                builder.append(event.type == EventLogFormat.SUBACK ? "Suback" : "Unsuback").append(" Reason Codes: {");
+                for (int i = 0; i < event.codes.length; i++) {
+                    builder.append(i == 0 ? " [Reason Code: '" : ", [Reason Code: '")
+                            .append(name(reasonCodes(event.type), event.codes[i]))
+                            .append("']");
+                }
+                builder.append(" }");
+                break;
+            default:
+                builder.append("Reason Code: '").append(name(reasonCodes(event.type), event.reasonCode)).append('\'');
+        }
+    }
+
+    /**
+     * Appends the event as one JSON object.
+     */
+    public static void appendJson(final @NotNull JsonWriter writer, final @NotNull CapturedEvent event) {
+        final StringBuilder timestamp = new StringBuilder(24);
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(event.time), timestamp);
+        writer.beginObject()
+                .name("timestamp")
+                .value(timestamp)
+                .name("direction")
+                .value(event.isInbound() ? "in" : "out")
+                .name("packetType")
+                .value(EventLogFormat.packetName(event.type))
+                .name("clientId")
+                .value(event.clientId);
+        switch (event.type) {
+            case EventLogFormat.PINGREQ:
+            case EventLogFormat.PINGRESP:
+                break;
+            case EventLogFormat.PUBLISH_RECEIVED:
+            case EventLogFormat.PUBLISH_SEND:
+                writer.name("topic")
+                        .value(event.topic)
+                        .name("qos")
+                        .value(event.flags & EventLogFormat.PUBLISH_QOS_MASK)
+                        .name("retain")
+                        .value((event.flags & EventLogFormat.PUBLISH_RETAIN) != 0)
+                        .name("dup")
+                        .value((event.flags & EventLogFormat.PUBLISH_DUP) != 0)
+                        .name("packetId")
+                        .value(event.packetId)
+                        .name("payload")
+                        .value(payloadString(event));
+                if ((event.flags & EventLogFormat.PUBLISH_TRUNCATED) != 0) {
+                    writer.name("truncated").value(true);
+                }
+                break;
+            case EventLogFormat.CONNECT:
+                writer.name("protocolVersion")
+                        .value(name(MQTT_VERSIONS, event.mqttVersion))
+                        .name("cleanStart")
+                        .value((event.flags & EventLogFormat.CONNECT_CLEAN_START) != 0)
+                        .name("keepAlive")
+                        .value(event.keepAlive)
+                        .name("sessionExpiry")
+                        .value(event.sessionExpiry);
+                break;
+            case EventLogFormat.CONNACK:
+                writer.name("reasonCode")
+                        .value(name(CONNACK_CODES, event.reasonCode))
+                        .name("sessionPresent")
+                        .value((event.flags & EventLogFormat.CONNACK_SESSION_PRESENT) != 0);
+                break;
+            case EventLogFormat.SUBSCRIBE:
+                writer.name("packetId").value(event.packetId).name("subscriptions").beginArray();
+                for (int i = 0; i < event.topics.length; i++) {
+                    writer.beginObject()
+                            .name("topic")
+                            .value(event.topics[i])
+                            .name("qos")
+                            .value(event.codes[i])
+                            .endObject();
+                }
+                writer.endArray();
+                break;
+            case EventLogFormat.UNSUBSCRIBE:
+                writer.name("packetId").value(event.packetId).name("topics").beginArray();
+                for (final String topic : event.topics) {
+                    writer.value(topic);
+                }
+                writer.endArray();
+                break;
+            case EventLogFormat.SUBACK:
+            case EventLogFormat.UNSUBACK:
+                writer.name("packetId").value(event.packetId).name("reasonCodes").beginArray();
+                for (final byte code : event.codes) {
+                    writer.value(name(reasonCodes(event.type), code));
+                }
+                writer.endArray();
+                break;
+            default:
+                writer.name("packetId")
+                        .value(event.packetId)
+                        .name("reasonCode")
+                        .value(name(reasonCodes(event.type), event.reasonCode));
+        }
+        writer.endObject();
+    }
+
+    private static @NotNull String payloadString(final @NotNull CapturedEvent event) {
+        final ByteBuffer payload = event.getPayload();
+        return payload == null ? "" : UTF_8.decode(payload).toString();
+    }
+
+    private static @NotNull Enum<?> @NotNull [] reasonCodes(final byte type) {
+        switch (type) {
+            case EventLogFormat.DISCONNECT_RECEIVED:
+            case EventLogFormat.DISCONNECT_SEND:
+                return DISCONNECT_CODES;
+            case EventLogFormat.SUBACK:
+                return SUBACK_CODES;
+            case EventLogFormat.UNSUBACK:
+                return UNSUBACK_CODES;
+            case EventLogFormat.PUBREL_RECEIVED:
+            case EventLogFormat.PUBREL_SEND:
+                return PUBREL_CODES;
+            case EventLogFormat.PUBCOMP_RECEIVED:
+            case EventLogFormat.PUBCOMP_SEND:
+                return PUBCOMP_CODES;
+            default:
+                return ACK_CODES;
+        }
+    }
+
+    /**
+     * @return the name of the enum constant with the ordinal or the ordinal if it is unknown to this SDK version.
+     */
+    private static @NotNull String name(final @NotNull Enum<?> @NotNull [] values, final int ordinal) {
+        return ordinal >= 0 && ordinal < values.length ? values[ordinal].name() : Integer.toString(ordinal);
+    }
+}
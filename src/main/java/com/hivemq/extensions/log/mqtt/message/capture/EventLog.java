@@ -0,0 +1,490 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.interceptor.connack.parameter.ConnackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingresp.parameter.PingRespOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.suback.parameter.SubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsuback.parameter.UnsubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.parameter.UnsubscribeInboundInput;
+import com.hivemq.extension.sdk.api.packets.connack.ConnackPacket;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.puback.PubackPacket;
+import com.hivemq.extension.sdk.api.packets.pubcomp.PubcompPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.pubrec.PubrecPacket;
+import com.hivemq.extension.sdk.api.packets.pubrel.PubrelPacket;
+import com.hivemq.extension.sdk.api.packets.suback.SubackPacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.Subscription;
+import com.hivemq.extension.sdk.api.packets.unsuback.UnsubackPacket;
+import com.hivemq.extension.sdk.api.packets.unsubscribe.UnsubscribePacket;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes every logged packet as a compact binary record into memory-mapped rolling segments, see
+ * {@link EventLogFormat} for the layout. Nothing is logged via SLF4J and the verbose decision has no effect, the
+ * records always contain the fields of the layout.
+ *
+ * @since 1.2.0
+ */
+public class EventLog implements MessageLogFormat, Closeable {
+
+    /**
+     * Upper bound of the record type, the time delta and the client id reference.
+     */
+    private static final int EVENT_HEADER_SIZE = 1 + EventLogFormat.MAX_VARLONG_SIZE + EventLogFormat.MAX_VARINT_SIZE;
+
+    private final @NotNull SegmentWriter segments;
+    private final @NotNull Map<String, Integer> clientIds = new HashMap<>();
+    private final @NotNull Map<String, Integer> topics = new HashMap<>();
+    private long lastTime;
+    private boolean closed;
+
+    EventLog(final @NotNull SegmentWriter segments) throws IOException {
+        this.segments = segments;
+        if (segments.isResumed()) {
+            recover();
+        }
+    }
+
+    /**
+     * Opens the event log without forcing the frames to disk before a segment is finished.
+     *
+     * @param segmentSize the size of a segment file in bytes.
+     * @param maxSegments the number of segments that are kept, older segments are deleted.
+     */
+    public static @NotNull EventLog open(final @NotNull Path directory, final int segmentSize, final int maxSegments)
+            throws IOException {
+        return open(directory, segmentSize, maxSegments, FsyncPolicy.NEVER);
+    }
+
+    /**
+     * @param segmentSize the size of a segment file in bytes.
+     * @param maxSegments the number of segments that are kept, older segments are deleted.
+     * @param fsyncPolicy when the written frames are forced to disk.
+     */
+    public static @NotNull EventLog open(
+            final @NotNull Path directory,
+            final int segmentSize,
+            final int maxSegments,
+            final @NotNull FsyncPolicy fsyncPolicy) throws IOException {
+        return new EventLog(new SegmentWriter(directory, segmentSize, maxSegments, fsyncPolicy));
+    }
+
+    /**
+     * Restores the dictionaries, the index and the time of the last event of a continued segment, so that the next
+     * frames can be appended.
+     */
+    private void recover() throws IOException {
+        final ByteBuffer buffer = segments.buffer().duplicate();
+        buffer.flip();
+        final SegmentReader reader = new SegmentReader(segments.path(), buffer);
+        final SegmentIndexWriter index = segments.index();
+        lastTime = segments.baseTime();
+        int offset = reader.getPosition();
+        CapturedEvent event;
+        while ((event = reader.next()) != null) {
+            index.event(offset, lastTime);
+            lookup(clientIds, EventLogFormat.DICTIONARY_CLIENT, event.clientId);
+            if (event.topic != null) {
+                lookup(topics, EventLogFormat.DICTIONARY_TOPIC, event.topic);
+            }
+            for (final String topic : event.topics) {
+                lookup(topics, EventLogFormat.DICTIONARY_TOPIC, topic);
+            }
+            index.time(event.time);
+            lastTime = event.time;
+            offset = reader.getPosition();
+        }
+    }
+
+    @Override
+    public synchronized void logPublish(
+            final @NotNull String clientId,
+            final @NotNull PublishPacket publishPacket,
+            final boolean inbound,
+            final boolean verbose) {
+        final String topic = publishPacket.getTopic();
+        final ByteBuffer payload = publishPacket.getPayload().orElse(null);
+        final int fixedSize = EVENT_HEADER_SIZE + dictionarySize(clientId) + dictionarySize(topic) +
+                EventLogFormat.MAX_VARINT_SIZE + 1 + 2 * EventLogFormat.MAX_VARINT_SIZE;
+        int flags = publishPacket.getQos().getQosNumber();
+        if (publishPacket.getRetain()) {
+            flags |= EventLogFormat.PUBLISH_RETAIN;
+        }
+        if (publishPacket.getDupFlag()) {
+            flags |= EventLogFormat.PUBLISH_DUP;
+        }
+        int payloadLength = payload == null ? 0 : payload.remaining();
+        if (fixedSize + payloadLength > segments.maxRecordSize()) {
+            payloadLength = Math.max(0, segments.maxRecordSize() - fixedSize);
+            flags |= EventLogFormat.PUBLISH_TRUNCATED;
+        }
+        if (!ensureCapacity(fixedSize + payloadLength)) {
+            return;
+        }
+        final ByteBuffer buffer = segments.buffer();
+        final int client = reference(buffer, clientIds, EventLogFormat.DICTIONARY_CLIENT, clientId);
+        final int topicId = reference(buffer, topics, EventLogFormat.DICTIONARY_TOPIC, topic);
+        header(buffer, inbound ? EventLogFormat.PUBLISH_RECEIVED : EventLogFormat.PUBLISH_SEND, client);
+        EventLogFormat.putVarint(buffer, topicId);
+        buffer.put((byte) flags);
+        EventLogFormat.putVarint(buffer, publishPacket.getPacketId());
+        EventLogFormat.putVarint(buffer, payloadLength);
+        if (payload != null && payloadLength > 0) {
+            final ByteBuffer slice = payload.duplicate();
+            slice.limit(slice.position() + payloadLength);
+            buffer.put(slice);
+        }
+        segments.commitFrame(lastTime);
+    }
+
+    @Override
+    public synchronized void logConnect(final @NotNull ConnectPacket connectPacket, final boolean verbose) {
+        final String clientId = connectPacket.getClientId();
+        if (!ensureCapacity(EVENT_HEADER_SIZE + dictionarySize(clientId) + 2 + EventLogFormat.MAX_VARINT_SIZE +
+                EventLogFormat.MAX_VARLONG_SIZE)) {
+            return;
+        }
+        int flags = 0;
+        if (connectPacket.getCleanStart()) {
+            flags |= EventLogFormat.CONNECT_CLEAN_START;
+        }
+        if (connectPacket.getUserName().isPresent()) {
+            flags |= EventLogFormat.CONNECT_USERNAME;
+        }
+        if (connectPacket.getPassword().isPresent()) {
+            flags |= EventLogFormat.CONNECT_PASSWORD;
+        }
+        if (connectPacket.getWillPublish().isPresent()) {
+            flags |= EventLogFormat.CONNECT_WILL;
+        }
+        final ByteBuffer buffer = segments.buffer();
+        final int client = reference(buffer, clientIds, EventLogFormat.DICTIONARY_CLIENT, clientId);
+        header(buffer, EventLogFormat.CONNECT, client);
+        buffer.put((byte) connectPacket.getMqttVersion().ordinal());
+        buffer.put((byte) flags);
+        EventLogFormat.putVarint(buffer, connectPacket.getKeepAlive());
+        EventLogFormat.putVarlong(buffer, connectPacket.getSessionExpiryInterval());
+        segments.commitFrame(lastTime);
+    }
+
+    @Override
+    public synchronized void logConnack(
+            final @NotNull ConnackOutboundInput connackOutboundInput, final boolean verbose) {
+        final String clientId = connackOutboundInput.getClientInformation().getClientId();
+        final ConnackPacket connackPacket = connackOutboundInput.getConnackPacket();
+        if (!ensureCapacity(EVENT_HEADER_SIZE + dictionarySize(clientId) + 2)) {
+            return;
+        }
+        final ByteBuffer buffer = segments.buffer();
+        final int client = reference(buffer, clientIds, EventLogFormat.DICTIONARY_CLIENT, clientId);
+        header(buffer, EventLogFormat.CONNACK, client);
+        buffer.put((byte) connackPacket.getReasonCode().ordinal());
+        buffer.put((byte) (connackPacket.getSessionPresent() ? EventLogFormat.CONNACK_SESSION_PRESENT : 0));
+        segments.commitFrame(lastTime);
+    }
+
+    @Override
+    public synchronized void logDisconnect(
+            final @NotNull DisconnectPacket disconnectPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        if (!ensureCapacity(EVENT_HEADER_SIZE + dictionarySize(clientId) + 1)) {
+            return;
+        }
+        final ByteBuffer buffer = segments.buffer();
+        final int client = reference(buffer, clientIds, EventLogFormat.DICTIONARY_CLIENT, clientId);
+        header(buffer, inbound ? EventLogFormat.DISCONNECT_RECEIVED : EventLogFormat.DISCONNECT_SEND, client);
+        buffer.put((byte) disconnectPacket.getReasonCode().ordinal());
+        segments.commitFrame(lastTime);
+    }
+
+    @Override
+    public synchronized void logSubscribe(
+            final @NotNull SubscribeInboundInput subscribeInboundInput, final boolean verbose) {
+        final String clientId = subscribeInboundInput.getClientInformation().getClientId();
+        final List<Subscription> subscriptions = subscribeInboundInput.getSubscribePacket().getSubscriptions();
+        int size = EVENT_HEADER_SIZE + dictionarySize(clientId) + 2 * EventLogFormat.MAX_VARINT_SIZE;
+        for (final Subscription subscription : subscriptions) {
+            size += dictionarySize(subscription.getTopicFilter()) + EventLogFormat.MAX_VARINT_SIZE + 1;
+        }
+        if (!ensureCapacity(size)) {
+            return;
+        }
+        final ByteBuffer buffer = segments.buffer();
+        final int client = reference(buffer, clientIds, EventLogFormat.DICTIONARY_CLIENT, clientId);
+        final int[] topicIds = new int[subscriptions.size()];
+        for (int i = 0; i < topicIds.length; i++) {
+            topicIds[i] = reference(buffer,
+                    topics,
+                    EventLogFormat.DICTIONARY_TOPIC,
+                    subscriptions.get(i).getTopicFilter());
+        }
+        header(buffer, EventLogFormat.SUBSCRIBE, client);
+        EventLogFormat.putVarint(buffer, subscribeInboundInput.getSubscribePacket().getPacketId());
+        EventLogFormat.putVarint(buffer, topicIds.length);
+        for (int i = 0; i < topicIds.length; i++) {
+            EventLogFormat.putVarint(buffer, topicIds[i]);
+            buffer.put((byte) subscriptions.get(i).getQos().getQosNumber());
+        }
+        segments.commitFrame(lastTime);
+    }
+
+    @Override
+    public synchronized void logSuback(final @NotNull SubackOutboundInput subackOutboundInput, final boolean verbose) {
+        final SubackPacket subackPacket = subackOutboundInput.getSubackPacket();
+        logReasonCodes(EventLogFormat.SUBACK,
+                subackOutboundInput.getClientInformation().getClientId(),
+                subackPacket.getPacketIdentifier(),
+                subackPacket.getReasonCodes());
+    }
+
+    @Override
+    public synchronized void logUnsubscribe(
+            final @NotNull UnsubscribeInboundInput unsubscribeInboundInput, final boolean verbose) {
+        final String clientId = unsubscribeInboundInput.getClientInformation().getClientId();
+        final UnsubscribePacket unsubscribePacket = unsubscribeInboundInput.getUnsubscribePacket();
+        final List<String> topicFilters = unsubscribePacket.getTopicFilters();
+        int size = EVENT_HEADER_SIZE + dictionarySize(clientId) + 2 * EventLogFormat.MAX_VARINT_SIZE;
+        for (final String topicFilter : topicFilters) {
+            size += dictionarySize(topicFilter) + EventLogFormat.MAX_VARINT_SIZE;
+        }
+        if (!ensureCapacity(size)) {
+            return;
+        }
+        final ByteBuffer buffer = segments.buffer();
+        final int client = reference(buffer, clientIds, EventLogFormat.DICTIONARY_CLIENT, clientId);
+        final int[] topicIds = new int[topicFilters.size()];
+        for (int i = 0; i < topicIds.length; i++) {
+            topicIds[i] = reference(buffer, topics, EventLogFormat.DICTIONARY_TOPIC, topicFilters.get(i));
+        }
+        header(buffer, EventLogFormat.UNSUBSCRIBE, client);
+        EventLogFormat.putVarint(buffer, unsubscribePacket.getPacketIdentifier());
+        EventLogFormat.putVarint(buffer, topicIds.length);
+        for (final int topicId : topicIds) {
+            EventLogFormat.putVarint(buffer, topicId);
+        }
+        segments.commitFrame(lastTime);
+    }
+
+    @Override
+    public synchronized void logUnsuback(
+            final @NotNull UnsubackOutboundInput unsubackOutboundInput, final boolean verbose) {
+        final UnsubackPacket unsubackPacket = unsubackOutboundInput.getUnsubackPacket();
+        logReasonCodes(EventLogFormat.UNSUBACK,
+                unsubackOutboundInput.getClientInformation().getClientId(),
+                unsubackPacket.getPacketIdentifier(),
+                unsubackPacket.getReasonCodes());
+    }
+
+    @Override
+    public synchronized void logPingreq(final @NotNull PingReqInboundInput pingReqInboundInput) {
+        logEmpty(EventLogFormat.PINGREQ, pingReqInboundInput.getClientInformation().getClientId());
+    }
+
+    @Override
+    public synchronized void logPingresp(final @NotNull PingRespOutboundInput pingRespOutboundInput) {
+        logEmpty(EventLogFormat.PINGRESP, pingRespOutboundInput.getClientInformation().getClientId());
+    }
+
+    @Override
+    public synchronized void logPuback(
+            final @NotNull PubackPacket pubackPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        logAck(inbound ? EventLogFormat.PUBACK_RECEIVED : EventLogFormat.PUBACK_SEND,
+                clientId,
+                pubackPacket.getPacketIdentifier(),
+                pubackPacket.getReasonCode());
+    }
+
+    @Override
+    public synchronized void logPubrec(
+            final @NotNull PubrecPacket pubrecPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        logAck(inbound ? EventLogFormat.PUBREC_RECEIVED : EventLogFormat.PUBREC_SEND,
+                clientId,
+                pubrecPacket.getPacketIdentifier(),
+                pubrecPacket.getReasonCode());
+    }
+
+    @Override
+    public synchronized void logPubrel(
+            final @NotNull PubrelPacket pubrelPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        logAck(inbound ? EventLogFormat.PUBREL_RECEIVED : EventLogFormat.PUBREL_SEND,
+                clientId,
+                pubrelPacket.getPacketIdentifier(),
+                pubrelPacket.getReasonCode());
+    }
+
+    @Override
+    public synchronized void logPubcomp(
+            final @NotNull PubcompPacket pubcompPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        logAck(inbound ? EventLogFormat.PUBCOMP_RECEIVED : EventLogFormat.PUBCOMP_SEND,
+                clientId,
+                pubcompPacket.getPacketIdentifier(),
+                pubcompPacket.getReasonCode());
+    }
+
+    /**
+     * Flushes the current segment to disk, afterwards all packets are ignored.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        segments.close();
+    }
+
+    private void logEmpty(final byte type, final @NotNull String clientId) {
+        if (!ensureCapacity(EVENT_HEADER_SIZE + dictionarySize(clientId))) {
+            return;
+        }
+        final ByteBuffer buffer = segments.buffer();
+        header(buffer, type, reference(buffer, clientIds, EventLogFormat.DICTIONARY_CLIENT, clientId));
+        segments.commitFrame(lastTime);
+    }
+
+    private void logAck(
+            final byte type, final @NotNull String clientId, final int packetId, final @NotNull Enum<?> reasonCode) {
+        if (!ensureCapacity(EVENT_HEADER_SIZE + dictionarySize(clientId) + EventLogFormat.MAX_VARINT_SIZE + 1)) {
+            return;
+        }
+        final ByteBuffer buffer = segments.buffer();
+        header(buffer, type, reference(buffer, clientIds, EventLogFormat.DICTIONARY_CLIENT, clientId));
+        EventLogFormat.putVarint(buffer, packetId);
+        buffer.put((byte) reasonCode.ordinal());
+        segments.commitFrame(lastTime);
+    }
+
+    private void logReasonCodes(
+            final byte type,
+            final @NotNull String clientId,
+            final int packetId,
+            final @NotNull List<? extends Enum<?>> reasonCodes) {
+        if (!ensureCapacity(EVENT_HEADER_SIZE + dictionarySize(clientId) + 2 * EventLogFormat.MAX_VARINT_SIZE +
+                reasonCodes.size())) {
+            return;
+        }
+        final ByteBuffer buffer = segments.buffer();
+        header(buffer, type, reference(buffer, clientIds, EventLogFormat.DICTIONARY_CLIENT, clientId));
+        EventLogFormat.putVarint(buffer, packetId);
+        EventLogFormat.putVarint(buffer, reasonCodes.size());
+        for (final Enum<?> reasonCode : reasonCodes) {
+            buffer.put((byte) reasonCode.ordinal());
+        }
+        segments.commitFrame(lastTime);
+    }
+
+    /**
+     * @return {@code false} if the log is closed and the record must not be written.
+     */
+    private boolean ensureCapacity(final int size) {
+        if (closed) {
+            return false;
+        }
+        if (size > segments.maxRecordSize()) {
+            throw new IllegalStateException("Record of " + size + " bytes does not fit into a capture segment");
+        }
+        if (segments.beginFrame(size)) {
+            // every segment has its own dictionaries, so it can be decoded on its own
+            clientIds.clear();
+            topics.clear();
+            lastTime = segments.baseTime();
+        }
+        segments.index().event(segments.frameStart(), lastTime);
+        return true;
+    }
+
+    private void header(final @NotNull ByteBuffer buffer, final byte type, final int client) {
+        final long now = System.currentTimeMillis();
+        buffer.put(type);
+        EventLogFormat.putZigzag(buffer, now - lastTime);
+        EventLogFormat.putVarint(buffer, client);
+        lastTime = now;
+        segments.index().time(now);
+    }
+
+    /**
+     * @return the dictionary id of the string, a dictionary record is written if the string is new in the segment.
+     */
+    private int reference(
+            final @NotNull ByteBuffer buffer,
+            final @NotNull Map<String, Integer> dictionary,
+            final byte type,
+            final @NotNull String value) {
+        final int size = dictionary.size();
+        final int id = lookup(dictionary, type, value);
+        if (id < size) {
+            return id;
+        }
+        final byte[] bytes = value.getBytes(UTF_8);
+        buffer.put(type);
+        EventLogFormat.putVarint(buffer, id);
+        EventLogFormat.putVarint(buffer, bytes.length);
+        buffer.put(bytes);
+        return id;
+    }
+
+    /**
+     * @return the dictionary id of the string, the string is added to the dictionary if it is new in the segment.
+     */
+    private int lookup(
+            final @NotNull Map<String, Integer> dictionary, final byte type, final @NotNull String value) {
+        final SegmentIndexWriter index = segments.index();
+        final Integer existing = dictionary.get(value);
+        if (existing != null) {
+            index.reference(type, existing);
+            return existing;
+        }
+        final int id = dictionary.size();
+        dictionary.put(value, id);
+        index.define(type, value);
+        index.reference(type, id);
+        return id;
+    }
+
+    /**
+     * @return the upper bound of the dictionary record of the string, assuming it is new in the segment.
+     */
+    private static int dictionarySize(final @NotNull String value) {
+        return 1 + 2 * EventLogFormat.MAX_VARINT_SIZE + 3 * value.length();
+    }
+}
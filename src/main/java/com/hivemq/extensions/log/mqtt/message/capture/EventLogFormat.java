@@ -0,0 +1,311 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.zip.CRC32C;
+
+/**
+ * The layout of the binary capture segments.
+ * <p>
+ * A segment starts with a fixed size header followed by frames. A frame holds one event together with the dictionary
+ * records it introduces and is protected by the CRC32C of its content, so a torn or corrupt frame is detected and can
+ * be skipped as a whole. A frame length of {@code 0} marks the end of the written frames, the rest of the segment is
+ * zero filled.
+ * <pre>
+ * header:     magic (int) | version (short) | reserved (short) | base time millis (long) | sequence (long) | reserved
+ * frame:      content length (int) | CRC32C of the content (int) | dictionary records | event
+ * dictionary: type | id (varint) | length (varint) | UTF-8 bytes
+ * event:      type | time delta millis (zigzag varint) | client id (varint) | body
+ * </pre>
+ * ClientIds and topics are dictionary encoded per segment: the first time a string is used in a segment a dictionary
+ * record assigns the next id to it, so every segment can be decoded on its own. The time delta is relative to the
+ * previous event of the segment, the first event is relative to the base time of the header. Reason codes and MQTT
+ * versions are written as the ordinal of their enum.
+ * <p>
+ * Event bodies:
+ * <pre>
+ * CONNECT:                 MQTT version (byte) | flags (byte) | keep alive (varint) | session expiry (varlong)
+ * CONNACK:                 reason code (byte) | flags (byte)
+ * DISCONNECT:              reason code (byte)
+ * PUBLISH:                 topic id (varint) | flags (byte) | packet id (varint) | length (varint) | payload bytes
+ * SUBSCRIBE:               packet id (varint) | count (varint) | count * (topic id (varint) | qos (byte))
+ * SUBACK, UNSUBACK:        packet id (varint) | count (varint) | count * reason code (byte)
+ * UNSUBSCRIBE:             packet id (varint) | count (varint) | count * topic id (varint)
+ * PUBACK, PUBREC, PUBREL,
+ * PUBCOMP:                 packet id (varint) | reason code (byte)
+ * PINGREQ, PINGRESP:       -
+ * </pre>
+ * <p>
+ * When a segment is rolled, a sparse index {@code events-<sequence>.mqidx} is written next to it. The index divides
+ * the segment into blocks of about {@link #INDEX_BLOCK_SIZE} bytes that start at a frame. A reader that has
+ * the dictionaries of the index can start decoding at any block, the posting lists tell which blocks contain events of
+ * a clientId or topic.
+ * <pre>
+ * header:   magic (int) | version (short) | reserved (short) | sequence (long)
+ * blocks:   count (varint) | count * (offset (varint) | time base (varlong) | min time (varlong) | max time (varlong))
+ * clients:  count (varint) | count * (length (varint) | UTF-8 bytes), in dictionary id order
+ * topics:   count (varint) | count * (length (varint) | UTF-8 bytes), in dictionary id order
+ * postings: count (varint) | count * (kind (byte) | hash (int) | length (varint) | length * block delta (varint))
+ * </pre>
+ * The time base of a block is the time the first time delta of the block is relative to. The postings are sorted by
+ * kind ({@link #DICTIONARY_CLIENT} or {@link #DICTIONARY_TOPIC}) and {@link String#hashCode() hash}, strings with the
+ * same hash share one posting list.
+ *
+ * @since 1.2.0
+ */
+public final class EventLogFormat {
+
+    public static final int MAGIC = 0x4D514C47; // MQLG
+    public static final short VERSION = 2;
+    public static final int HEADER_SIZE = 32;
+    public static final int FRAME_HEADER_SIZE = 8;
+    /**
+     * The size of the frame length that marks the end of the written frames.
+     */
+    public static final int END_MARKER_SIZE = 4;
+    public static final @NotNull String SEGMENT_PREFIX = "events-";
+    public static final @NotNull String SEGMENT_SUFFIX = ".mqlog";
+    public static final @NotNull String INDEX_SUFFIX = ".mqidx";
+
+    public static final int INDEX_MAGIC = 0x4D514C49; // MQLI
+    public static final short INDEX_VERSION = 1;
+    public static final int INDEX_HEADER_SIZE = 16;
+    public static final int INDEX_BLOCK_SIZE = 64 * 1024;
+
+    public static final byte DICTIONARY_CLIENT = 1;
+    public static final byte DICTIONARY_TOPIC = 2;
+
+    public static final byte CONNECT = 16;
+    public static final byte CONNACK = 17;
+    public static final byte DISCONNECT_RECEIVED = 18;
+    public static final byte DISCONNECT_SEND = 19;
+    public static final byte PUBLISH_RECEIVED = 20;
+    public static final byte PUBLISH_SEND = 21;
+    public static final byte SUBSCRIBE = 22;
+    public static final byte SUBACK = 23;
+    public static final byte UNSUBSCRIBE = 24;
+    public static final byte UNSUBACK = 25;
+    public static final byte PINGREQ = 26;
+    public static final byte PINGRESP = 27;
+    public static final byte PUBACK_RECEIVED = 28;
+    public static final byte PUBACK_SEND = 29;
+    public static final byte PUBREC_RECEIVED = 30;
+    public static final byte PUBREC_SEND = 31;
+    public static final byte PUBREL_RECEIVED = 32;
+    public static final byte PUBREL_SEND = 33;
+    public static final byte PUBCOMP_RECEIVED = 34;
+    public static final byte PUBCOMP_SEND = 35;
+
+    /**
+     * PUBLISH flags, the QoS is stored in the two lowest bits.
+     */
+    public static final int PUBLISH_QOS_MASK = 0b11;
+    public static final int PUBLISH_RETAIN = 1 << 2;
+    public static final int PUBLISH_DUP = 1 << 3;
+    public static final int PUBLISH_TRUNCATED = 1 << 4;
+
+    public static final int CONNECT_CLEAN_START = 1;
+    public static final int CONNECT_USERNAME = 1 << 1;
+    public static final int CONNECT_PASSWORD = 1 << 2;
+    public static final int CONNECT_WILL = 1 << 3;
+
+    public static final int CONNACK_SESSION_PRESENT = 1;
+
+    /**
+     * The maximum number of bytes of a varint, a varlong takes up to 10 bytes.
+     */
+    static final int MAX_VARINT_SIZE = 5;
+    static final int MAX_VARLONG_SIZE = 10;
+
+    private EventLogFormat() {
+    }
+
+    public static @NotNull String segmentFileName(final long sequence) {
+        return SEGMENT_PREFIX + String.format(Locale.ROOT, "%020d", sequence) + SEGMENT_SUFFIX;
+    }
+
+    public static @NotNull String indexFileName(final long sequence) {
+        return SEGMENT_PREFIX + String.format(Locale.ROOT, "%020d", sequence) + INDEX_SUFFIX;
+    }
+
+    /**
+     * @return the sequence of the segment file or {@code -1} if the file name is not a segment file name.
+     */
+    public static long segmentSequence(final @NotNull String fileName) {
+        if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(),
+                    fileName.length() - SEGMENT_SUFFIX.length()));
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Validates the frame at the position.
+     *
+     * @return the content length of the frame, {@code 0} if the position is at the end of the written frames or
+     *         {@code -1} if the frame is torn or corrupt.
+     */
+    static int frameLength(final @NotNull ByteBuffer buffer, final int position, final @NotNull CRC32C crc) {
+        final int limit = buffer.limit();
+        if (limit - position < FRAME_HEADER_SIZE) {
+            return limit - position < END_MARKER_SIZE || buffer.getInt(position) == 0 ? 0 : -1;
+        }
+        final int length = buffer.getInt(position);
+        if (length == 0) {
+            return 0;
+        }
+        if (length < 0 || length > limit - position - FRAME_HEADER_SIZE) {
+            return -1;
+        }
+        return crc(buffer, position + FRAME_HEADER_SIZE, length, crc) == buffer.getInt(position + 4) ? length : -1;
+    }
+
+    /**
+     * @return the CRC32C of the bytes, the position and limit of the buffer are restored.
+     */
+    static int crc(final @NotNull ByteBuffer buffer, final int offset, final int length, final @NotNull CRC32C crc) {
+        final int position = buffer.position();
+        final int limit = buffer.limit();
+        buffer.limit(offset + length).position(offset);
+        crc.reset();
+        crc.update(buffer);
+        buffer.limit(limit).position(position);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @return the MQTT packet name of an event type, e.g. {@code PUBLISH}.
+     * @throws IllegalArgumentException if the type is not an event type.
+     */
+    public static @NotNull String packetName(final byte type) {
+        switch (type) {
+            case CONNECT:
+                return "CONNECT";
+            case CONNACK:
+                return "CONNACK";
+            case DISCONNECT_RECEIVED:
+            case DISCONNECT_SEND:
+                return "DISCONNECT";
+            case PUBLISH_RECEIVED:
+            case PUBLISH_SEND:
+                return "PUBLISH";
+            case SUBSCRIBE:
+                return "SUBSCRIBE";
+            case SUBACK:
+                return "SUBACK";
+            case UNSUBSCRIBE:
+                return "UNSUBSCRIBE";
+            case UNSUBACK:
+                return "UNSUBACK";
+            case PINGREQ:
+                return "PINGREQ";
+            case PINGRESP:
+                return "PINGRESP";
+            case PUBACK_RECEIVED:
+            case PUBACK_SEND:
+                return "PUBACK";
+            case PUBREC_RECEIVED:
+            case PUBREC_SEND:
+                return "PUBREC";
+            case PUBREL_RECEIVED:
+            case PUBREL_SEND:
+                return "PUBREL";
+            case PUBCOMP_RECEIVED:
+            case PUBCOMP_SEND:
+                return "PUBCOMP";
+            default:
+                throw new IllegalArgumentException("Unknown record type " + type);
+        }
+    }
+
+    /**
+     * @return {@code true} if the event type is a packet received from the client.
+     */
+    public static boolean isInbound(final byte type) {
+        switch (type) {
+            case CONNECT:
+            case DISCONNECT_RECEIVED:
+            case PUBLISH_RECEIVED:
+            case SUBSCRIBE:
+            case UNSUBSCRIBE:
+            case PINGREQ:
+            case PUBACK_RECEIVED:
+            case PUBREC_RECEIVED:
+            case PUBREL_RECEIVED:
+            case PUBCOMP_RECEIVED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static void putVarint(final @NotNull ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static void putVarlong(final @NotNull ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static void putZigzag(final @NotNull ByteBuffer buffer, final long value) {
+        putVarlong(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    public static int getVarint(final @NotNull ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint at position " + buffer.position());
+    }
+
+    public static long getVarlong(final @NotNull ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            final byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varlong at position " + buffer.position());
+    }
+
+    public static long getZigzag(final @NotNull ByteBuffer buffer) {
+        final long value = getVarlong(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+/**
+ * When the written frames of the current segment are forced to disk. Frames that are not forced yet survive a crash of
+ * the broker process, as they are in the page cache, but not a crash of the operating system or a power loss.
+ * <p>
+ * The frames are forced on the thread that writes a frame (group commit), a segment is always forced when it is
+ * finished.
+ *
+ * @since 1.2.0
+ */
+public final class FsyncPolicy {
+
+    public static final @NotNull FsyncPolicy NEVER = new FsyncPolicy(0, 0);
+
+    private final long intervalMillis;
+    private final int records;
+
+    private FsyncPolicy(final long intervalMillis, final int records) {
+        this.intervalMillis = intervalMillis;
+        this.records = records;
+    }
+
+    /**
+     * @return a policy that forces the frames when the last force is at least the interval ago.
+     */
+    public static @NotNull FsyncPolicy everyMillis(final long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("The fsync interval must be positive");
+        }
+        return new FsyncPolicy(intervalMillis, 0);
+    }
+
+    /**
+     * @return a policy that forces the frames after the given number of records.
+     */
+    public static @NotNull FsyncPolicy everyRecords(final int records) {
+        if (records <= 0) {
+            throw new IllegalArgumentException("The fsync record count must be positive");
+        }
+        return new FsyncPolicy(0, records);
+    }
+
+    /**
+     * @param unsynced the number of frames written since the last force.
+     * @param sinceSync the milliseconds since the last force.
+     */
+    boolean shouldSync(final int unsynced, final long sinceSync) {
+        return (records > 0 && unsynced >= records) || (intervalMillis > 0 && sinceSync >= intervalMillis);
+    }
+
+    @Override
+    public @NotNull String toString() {
+        if (records > 0) {
+            return "every " + records + " records";
+        }
+        return intervalMillis > 0 ? "every " + intervalMillis + " ms" : "never";
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A minimal MQTT 3.1.1 publisher connection of the {@link CaptureReplay}. QoS 1 and 2 flows are acknowledged by a
+ * reader thread, at most {@code maxInflight} of them are in flight at the same time. Publishing is done by one thread.
+ *
+ * @since 1.2.0
+ */
+class ReplayConnection implements Closeable {
+
+    private static final int CONNECT = 0x10;
+    private static final int CONNACK = 0x20;
+    private static final int PUBLISH = 0x30;
+    private static final int PUBACK = 0x40;
+    private static final int PUBREC = 0x50;
+    private static final int PUBREL = 0x62;
+    private static final int PUBCOMP = 0x70;
+    private static final int DISCONNECT = 0xE0;
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+    private final @NotNull Socket socket;
+    private final @NotNull OutputStream out;
+    private final @NotNull DataInputStream in;
+    private final int maxInflight;
+    private final @NotNull Semaphore inflight;
+    private final @NotNull Thread reader;
+    private int nextPacketId;
+    private volatile boolean closing;
+    private volatile @Nullable IOException failure;
+
+    /**
+     * Connects with a clean session and waits for the CONNACK.
+     *
+     * @throws IOException if the connection fails or the broker refuses it.
+     */
+    ReplayConnection(
+            final @NotNull String host,
+            final int port,
+            final @NotNull String clientId,
+            final int maxInflight) throws IOException {
+        this.maxInflight = maxInflight;
+        inflight = new Semaphore(maxInflight);
+        socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final byte[] clientIdBytes = clientId.getBytes(UTF_8);
+            out.write(CONNECT);
+            writeRemainingLength(10 + 2 + clientIdBytes.length);
+            writeString("MQTT".getBytes(UTF_8));
+            // protocol level 4, clean session, keep alive disabled
+            out.write(new byte[]{4, 0x02, 0, 0});
+            writeString(clientIdBytes);
+            out.flush();
+            final int type = in.readUnsignedByte();
+            final int length = readRemainingLength();
+            if (type != CONNACK || length != 2) {
+                throw new IOException("Expected CONNACK but received packet type " + (type >> 4));
+            }
+            in.readUnsignedByte();
+            final int returnCode = in.readUnsignedByte();
+            if (returnCode != 0) {
+                throw new IOException("Broker refused the connection of '" + clientId + "', return code " +
+                        returnCode);
+            }
+        } catch (final IOException e) {
+            socket.close();
+            throw e;
+        }
+        reader = new Thread(this::read, "mqtt-message-log-replay-reader-" + clientId);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Publishes a message, for QoS 1 and 2 waits until a packet identifier is available. If all are in flight, the
+     * buffered messages are flushed first, the broker cannot acknowledge messages that it did not receive.
+     *
+     * @throws IOException if the connection failed.
+     */
+    void publish(
+            final @NotNull String topic,
+            final byte @NotNull [] payload,
+            final int qos,
+            final boolean retain) throws IOException {
+        if (qos > 0 && !inflight.tryAcquire()) {
+            flush();
+            try {
+                while (!inflight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    checkFailure();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for acknowledgements", e);
+            }
+        }
+        checkFailure();
+        final byte[] topicBytes = topic.getBytes(UTF_8);
+        synchronized (out) {
+            out.write(PUBLISH | (qos << 1) | (retain ? 1 : 0));
+            writeRemainingLength(2 + topicBytes.length + (qos > 0 ? 2 : 0) + payload.length);
+            writeString(topicBytes);
+            if (qos > 0) {
+                nextPacketId = nextPacketId % 0xFFFF + 1;
+                writeShort(nextPacketId);
+            }
+            out.write(payload);
+        }
+    }
+
+    void flush() throws IOException {
+        synchronized (out) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Waits for the outstanding acknowledgements, then disconnects. Closing again has no effect.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closing) {
+            return;
+        }
+        try {
+            flush();
+            if (failure == null) {
+                inflight.tryAcquire(maxInflight, CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            closing = true;
+            synchronized (out) {
+                out.write(new byte[]{(byte) DISCONNECT, 0});
+                out.flush();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closing = true;
+            socket.close();
+            try {
+                reader.join(CLOSE_TIMEOUT_MILLIS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        final IOException failure = this.failure;
+        if (failure != null) {
+            throw new IOException("Connection to the broker failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    private void read() {
+        try {
+            while (true) {
+                final int type = in.readUnsignedByte();
+                final int length = readRemainingLength();
+                switch (type) {
+                    case PUBACK:
+                    case PUBCOMP:
+                        skip(length);
+                        inflight.release();
+                        break;
+                    case PUBREC:
+                        final int packetId = in.readUnsignedShort();
+                        skip(length - 2);
+                        synchronized (out) {
+                            out.write(PUBREL);
+                            out.write(2);
+                            writeShort(packetId);
+                            out.flush();
+                        }
+                        break;
+                    default:
+                        skip(length);
+                }
+            }
+        } catch (final EOFException e) {
+            if (!closing) {
+                failure = new IOException("Broker closed the connection");
+            }
+        } catch (final IOException e) {
+            if (!closing) {
+                failure = e;
+            }
+        }
+    }
+
+    private void skip(final int length) throws IOException {
+        int skipped = 0;
+        while (skipped < length) {
+            skipped += in.skipBytes(length - skipped);
+            if (skipped < length) {
+                in.readByte();
+                skipped++;
+            }
+        }
+    }
+
+    private void writeString(final byte @NotNull [] bytes) throws IOException {
+        writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeShort(final int value) throws IOException {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private void writeRemainingLength(final int length) throws IOException {
+        int value = length;
+        do {
+            final int digit = value & 0x7F;
+            value >>>= 7;
+            out.write(value > 0 ? digit | 0x80 : digit);
+        } while (value > 0);
+    }
+
+    private int readRemainingLength() throws IOException {
+        int length = 0;
+        int shift = 0;
+        int digit;
+        do {
+            digit = in.readUnsignedByte();
+            length |= (digit & 0x7F) << shift;
+            shift += 7;
+        } while ((digit & 0x80) != 0 && shift < 28);
+        return length;
+    }
+}
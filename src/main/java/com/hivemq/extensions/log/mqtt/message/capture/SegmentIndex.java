@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The sparse index of a rolled capture segment, see {@link EventLogFormat} for the layout.
+ *
+ * @since 1.2.0
+ */
+public class SegmentIndex {
+
+    private static final int @NotNull [] NO_BLOCKS = new int[0];
+
+    private final long sequence;
+    private final int @NotNull [] blockOffsets;
+    private final long @NotNull [] timeBases;
+    private final long @NotNull [] minTimes;
+    private final long @NotNull [] maxTimes;
+    private final @NotNull List<String> clientIds;
+    private final @NotNull List<String> topics;
+    private final long @NotNull [] postingKeys;
+    private final int @NotNull [] @NotNull [] postings;
+
+    private SegmentIndex(final @NotNull ByteBuffer buffer) {
+        buffer.getInt();
+        buffer.getShort();
+        buffer.getShort();
+        sequence = buffer.getLong();
+        final int blockCount = EventLogFormat.getVarint(buffer);
+        blockOffsets = new int[blockCount];
+        timeBases = new long[blockCount];
+        minTimes = new long[blockCount];
+        maxTimes = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            blockOffsets[i] = EventLogFormat.getVarint(buffer);
+            timeBases[i] = EventLogFormat.getVarlong(buffer);
+            minTimes[i] = EventLogFormat.getVarlong(buffer);
+            maxTimes[i] = EventLogFormat.getVarlong(buffer);
+        }
+        clientIds = getStrings(buffer);
+        topics = getStrings(buffer);
+        final int postingCount = EventLogFormat.getVarint(buffer);
+        postingKeys = new long[postingCount];
+        postings = new int[postingCount][];
+        for (int i = 0; i < postingCount; i++) {
+            final byte kind = buffer.get();
+            postingKeys[i] = ((long) kind << 32) | (buffer.getInt() & 0xFFFF_FFFFL);
+            final int[] blocks = new int[EventLogFormat.getVarint(buffer)];
+            int block = 0;
+            for (int j = 0; j < blocks.length; j++) {
+                block += EventLogFormat.getVarint(buffer);
+                blocks[j] = block;
+            }
+            postings[i] = blocks;
+        }
+    }
+
+    /**
+     * @throws IOException if the file can not be read or is not a valid capture index.
+     */
+    public static @NotNull SegmentIndex open(final @NotNull Path path) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() < EventLogFormat.INDEX_HEADER_SIZE ||
+                buffer.getInt(0) != EventLogFormat.INDEX_MAGIC) {
+            throw new IOException(path + " is not a capture index");
+        }
+        final short version = buffer.getShort(4);
+        if (version != EventLogFormat.INDEX_VERSION) {
+            throw new IOException(path + " has the unsupported version " + version);
+        }
+        try {
+            return new SegmentIndex(buffer);
+        } catch (final RuntimeException e) {
+            throw new IOException("Malformed capture index " + path, e);
+        }
+    }
+
+    /**
+     * @return the path of the index of a segment file, the index might not exist.
+     */
+    public static @NotNull Path indexPath(final @NotNull Path segment) {
+        return segment.resolveSibling(EventLogFormat.indexFileName(EventLogFormat.segmentSequence(segment.getFileName()
+                .toString())));
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    /**
+     * @return the position of the first record of the block in the segment.
+     */
+    public int getBlockOffset(final int block) {
+        return blockOffsets[block];
+    }
+
+    /**
+     * @return the time the first time delta of the block is relative to.
+     */
+    public long getBlockTimeBase(final int block) {
+        return timeBases[block];
+    }
+
+    public long getBlockMinTime(final int block) {
+        return minTimes[block];
+    }
+
+    public long getBlockMaxTime(final int block) {
+        return maxTimes[block];
+    }
+
+    /**
+     * @return the client dictionary of the segment, the list index is the dictionary id.
+     */
+    public @NotNull List<String> getClientIds() {
+        return clientIds;
+    }
+
+    /**
+     * @return the topic dictionary of the segment, the list index is the dictionary id.
+     */
+    public @NotNull List<String> getTopics() {
+        return topics;
+    }
+
+    /**
+     * @return the ascending blocks that may contain events of the client, other clients with the same hash are
+     *         included.
+     */
+    public int @NotNull [] getClientBlocks(final @NotNull String clientId) {
+        return blocks(SegmentIndexWriter.postingsKey(EventLogFormat.DICTIONARY_CLIENT, clientId));
+    }
+
+    /**
+     * @return the ascending blocks that may contain PUBLISH packets with the topic or SUBSCRIBE and UNSUBSCRIBE packets
+     *         with the topic filter, other topics with the same hash are included.
+     */
+    public int @NotNull [] getTopicBlocks(final @NotNull String topic) {
+        return blocks(SegmentIndexWriter.postingsKey(EventLogFormat.DICTIONARY_TOPIC, topic));
+    }
+
+    private int @NotNull [] blocks(final long key) {
+        final int i = Arrays.binarySearch(postingKeys, key);
+        return i < 0 ? NO_BLOCKS : postings[i];
+    }
+
+    private static @NotNull List<String> getStrings(final @NotNull ByteBuffer buffer) {
+        final int count = EventLogFormat.getVarint(buffer);
+        final List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final byte[] bytes = new byte[EventLogFormat.getVarint(buffer)];
+            buffer.get(bytes);
+            values.add(new String(bytes, UTF_8));
+        }
+        return Collections.unmodifiableList(values);
+    }
+}
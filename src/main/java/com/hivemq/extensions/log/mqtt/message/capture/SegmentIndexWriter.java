@@ -0,0 +1,284 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Collects the sparse index of the current segment while its records are written, see {@link EventLogFormat} for the
+ * layout. Recording an event only updates a few array slots: the first reference of a dictionary entry in a block is
+ * appended to one sequential array, the posting lists are built from it when the index file is written at the roll of
+ * the segment.
+ * <p>
+ * Not thread safe, {@link EventLog} serializes the access. A new writer is used for every segment, the finished one
+ * is written by the housekeeping thread of the {@link SegmentWriter}.
+ *
+ * @since 1.2.0
+ */
+class SegmentIndexWriter {
+
+    private int blockCount;
+    private int @NotNull [] blockOffsets = new int[16];
+    private long @NotNull [] timeBases = new long[16];
+    private long @NotNull [] minTimes = new long[16];
+    private long @NotNull [] maxTimes = new long[16];
+
+    private final @NotNull List<String> clientIds = new ArrayList<>();
+    private final @NotNull List<String> topics = new ArrayList<>();
+    private int @NotNull [] clientLastBlocks = new int[64];
+    private int @NotNull [] topicLastBlocks = new int[64];
+
+    /**
+     * The referenced dictionary entries in block order, client ids as is and topic ids as their complement.
+     */
+    private int referenceCount;
+    private int @NotNull [] references = new int[1024];
+    private int @NotNull [] referenceBlocks = new int[1024];
+
+    /**
+     * Marks the start of an event record, a new block is started if the current block is full.
+     *
+     * @param offset   the position of the first record of the event, including its dictionary records.
+     * @param timeBase the time the time delta of the event is relative to.
+     */
+    void event(final int offset, final long timeBase) {
+        if (blockCount > 0 && offset - blockOffsets[blockCount - 1] < EventLogFormat.INDEX_BLOCK_SIZE) {
+            return;
+        }
+        if (blockCount == blockOffsets.length) {
+            final int capacity = blockCount * 2;
+            blockOffsets = Arrays.copyOf(blockOffsets, capacity);
+            timeBases = Arrays.copyOf(timeBases, capacity);
+            minTimes = Arrays.copyOf(minTimes, capacity);
+            maxTimes = Arrays.copyOf(maxTimes, capacity);
+        }
+        blockOffsets[blockCount] = offset;
+        timeBases[blockCount] = timeBase;
+        minTimes[blockCount] = Long.MAX_VALUE;
+        maxTimes[blockCount] = Long.MIN_VALUE;
+        blockCount++;
+    }
+
+    /**
+     * Records the time of the current event.
+     */
+    void time(final long time) {
+        final int block = blockCount - 1;
+        if (time < minTimes[block]) {
+            minTimes[block] = time;
+        }
+        if (time > maxTimes[block]) {
+            maxTimes[block] = time;
+        }
+    }
+
+    /**
+     * Records a new dictionary entry, the ids are assigned in the order of the calls.
+     */
+    void define(final byte kind, final @NotNull String value) {
+        if (kind == EventLogFormat.DICTIONARY_CLIENT) {
+            clientIds.add(value);
+            clientLastBlocks = ensureSize(clientLastBlocks, clientIds.size());
+        } else {
+            topics.add(value);
+            topicLastBlocks = ensureSize(topicLastBlocks, topics.size());
+        }
+    }
+
+    /**
+     * Records that the current event references the dictionary entry.
+     */
+    void reference(final byte kind, final int id) {
+        final int block = blockCount - 1;
+        final int[] lastBlocks = kind == EventLogFormat.DICTIONARY_CLIENT ? clientLastBlocks : topicLastBlocks;
+        if (lastBlocks[id] == block) {
+            return;
+        }
+        lastBlocks[id] = block;
+        if (referenceCount == references.length) {
+            references = Arrays.copyOf(references, referenceCount * 2);
+            referenceBlocks = Arrays.copyOf(referenceBlocks, referenceCount * 2);
+        }
+        references[referenceCount] = kind == EventLogFormat.DICTIONARY_CLIENT ? id : ~id;
+        referenceBlocks[referenceCount] = block;
+        referenceCount++;
+    }
+
+    boolean isEmpty() {
+        return blockCount == 0;
+    }
+
+    void write(final @NotNull Path path, final long sequence) throws IOException {
+        final int[][] clientBlocks = new int[clientIds.size()][];
+        final int[][] topicBlocks = new int[topics.size()][];
+        collectPostings(clientBlocks, topicBlocks);
+        final Map<Long, int[]> postings = new TreeMap<>();
+        merge(postings, EventLogFormat.DICTIONARY_CLIENT, clientIds, clientBlocks);
+        merge(postings, EventLogFormat.DICTIONARY_TOPIC, topics, topicBlocks);
+
+        int size = EventLogFormat.INDEX_HEADER_SIZE + 4 * EventLogFormat.MAX_VARINT_SIZE +
+                blockCount * (EventLogFormat.MAX_VARINT_SIZE + 3 * EventLogFormat.MAX_VARLONG_SIZE);
+        for (final String value : clientIds) {
+            size += EventLogFormat.MAX_VARINT_SIZE + 3 * value.length();
+        }
+        for (final String value : topics) {
+            size += EventLogFormat.MAX_VARINT_SIZE + 3 * value.length();
+        }
+        for (final int[] blocks : postings.values()) {
+            size += 5 + EventLogFormat.MAX_VARINT_SIZE * (blocks.length + 1);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(EventLogFormat.INDEX_MAGIC);
+        buffer.putShort(EventLogFormat.INDEX_VERSION);
+        buffer.putShort((short) 0);
+        buffer.putLong(sequence);
+        EventLogFormat.putVarint(buffer, blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            EventLogFormat.putVarint(buffer, blockOffsets[i]);
+            EventLogFormat.putVarlong(buffer, timeBases[i]);
+            EventLogFormat.putVarlong(buffer, minTimes[i]);
+            EventLogFormat.putVarlong(buffer, maxTimes[i]);
+        }
+        putStrings(buffer, clientIds);
+        putStrings(buffer, topics);
+        EventLogFormat.putVarint(buffer, postings.size());
+        for (final Map.Entry<Long, int[]> entry : postings.entrySet()) {
+            final long key = entry.getKey();
+            final int[] blocks = entry.getValue();
+            buffer.put((byte) (key >>> 32));
+            buffer.putInt((int) key);
+            EventLogFormat.putVarint(buffer, blocks.length);
+            int previous = 0;
+            for (final int block : blocks) {
+                EventLogFormat.putVarint(buffer, block - previous);
+                previous = block;
+            }
+        }
+        buffer.flip();
+        try (final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Groups the recorded references by dictionary entry, the blocks of every entry stay in ascending order.
+     */
+    private void collectPostings(
+            final int @NotNull [] @NotNull [] clientBlocks, final int @NotNull [] @NotNull [] topicBlocks) {
+        final int[] clientCounts = new int[clientBlocks.length];
+        final int[] topicCounts = new int[topicBlocks.length];
+        for (int i = 0; i < referenceCount; i++) {
+            final int reference = references[i];
+            if (reference >= 0) {
+                clientCounts[reference]++;
+            } else {
+                topicCounts[~reference]++;
+            }
+        }
+        for (int id = 0; id < clientBlocks.length; id++) {
+            clientBlocks[id] = new int[clientCounts[id]];
+            clientCounts[id] = 0;
+        }
+        for (int id = 0; id < topicBlocks.length; id++) {
+            topicBlocks[id] = new int[topicCounts[id]];
+            topicCounts[id] = 0;
+        }
+        for (int i = 0; i < referenceCount; i++) {
+            final int reference = references[i];
+            if (reference >= 0) {
+                clientBlocks[reference][clientCounts[reference]++] = referenceBlocks[i];
+            } else {
+                topicBlocks[~reference][topicCounts[~reference]++] = referenceBlocks[i];
+            }
+        }
+    }
+
+    /**
+     * @return the key the postings are sorted by, the kind in the high and the hash in the low 32 bits.
+     */
+    static long postingsKey(final byte kind, final @NotNull String value) {
+        return ((long) kind << 32) | (value.hashCode() & 0xFFFF_FFFFL);
+    }
+
+    private static void merge(
+            final @NotNull Map<Long, int[]> postings,
+            final byte kind,
+            final @NotNull List<String> values,
+            final int @NotNull [] @NotNull [] blocks) {
+        for (int i = 0; i < values.size(); i++) {
+            final long key = postingsKey(kind, values.get(i));
+            final int[] existing = postings.get(key);
+            postings.put(key, existing == null ? blocks[i] : union(existing, blocks[i]));
+        }
+    }
+
+    /**
+     * @return the ascending blocks contained in either of the ascending arrays.
+     */
+    private static int @NotNull [] union(final int @NotNull [] first, final int @NotNull [] second) {
+        final int[] union = new int[first.length + second.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length || j < second.length) {
+            final int block;
+            if (j == second.length || (i < first.length && first[i] < second[j])) {
+                block = first[i++];
+            } else if (i == first.length || second[j] < first[i]) {
+                block = second[j++];
+            } else {
+                block = first[i++];
+                j++;
+            }
+            union[size++] = block;
+        }
+        return Arrays.copyOf(union, size);
+    }
+
+    private static int @NotNull [] ensureSize(final int @NotNull [] lastBlocks, final int size) {
+        final int[] result = size > lastBlocks.length ? Arrays.copyOf(lastBlocks, lastBlocks.length * 2) : lastBlocks;
+        result[size - 1] = -1;
+        return result;
+    }
+
+    private static void putStrings(final @NotNull ByteBuffer buffer, final @NotNull List<String> values) {
+        EventLogFormat.putVarint(buffer, values.size());
+        for (final String value : values) {
+            final byte[] bytes = value.getBytes(UTF_8);
+            EventLogFormat.putVarint(buffer, bytes.length);
+            buffer.put(bytes);
+        }
+    }
+}
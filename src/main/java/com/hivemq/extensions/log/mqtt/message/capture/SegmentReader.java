@@ -0,0 +1,299 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Decodes the events of one capture segment. The segment is memory-mapped and read sequentially, payloads are views
+ * of the mapping and are not copied. Frames with an invalid CRC are skipped, the times of the following events are
+ * shifted by the time deltas of the skipped frames. With the dictionaries of the {@link SegmentIndex} of the segment,
+ * decoding can start at any block of the index.
+ *
+ * @since 1.2.0
+ */
+public class SegmentReader {
+
+    private final @NotNull Path path;
+    private final @NotNull ByteBuffer buffer;
+    private final long baseTime;
+    private final long sequence;
+    private final @NotNull List<String> clientIds = new ArrayList<>();
+    private final @NotNull List<String> topics = new ArrayList<>();
+    private final @NotNull CRC32C crc = new CRC32C();
+    private long lastTime;
+    private int corruptRecords;
+
+    SegmentReader(final @NotNull Path path, final @NotNull ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.remaining() < EventLogFormat.HEADER_SIZE || buffer.getInt() != EventLogFormat.MAGIC) {
+            throw new IOException(path + " is not a capture segment");
+        }
+        final short version = buffer.getShort();
+        if (version != EventLogFormat.VERSION) {
+            throw new IOException(path + " has the unsupported version " + version);
+        }
+        buffer.getShort();
+        baseTime = buffer.getLong();
+        sequence = buffer.getLong();
+        buffer.position(EventLogFormat.HEADER_SIZE);
+        lastTime = baseTime;
+    }
+
+    /**
+     * @throws IOException if the file can not be read or is not a capture segment.
+     */
+    public static @NotNull SegmentReader open(final @NotNull Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SegmentReader(path, buffer);
+        }
+    }
+
+    public @NotNull Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the time the segment was started in milliseconds since the epoch.
+     */
+    public long getBaseTime() {
+        return baseTime;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the position of the next record in the segment.
+     */
+    public int getPosition() {
+        return buffer.position();
+    }
+
+    /**
+     * Loads the dictionaries of the segment from its index, so decoding can start at a block instead of the first
+     * record.
+     */
+    public void loadDictionaries(final @NotNull SegmentIndex index) {
+        if (index.getSequence() != sequence) {
+            throw new IllegalArgumentException("The index of segment " + index.getSequence() +
+                    " does not belong to segment " + sequence);
+        }
+        clientIds.clear();
+        clientIds.addAll(index.getClientIds());
+        topics.clear();
+        topics.addAll(index.getTopics());
+    }
+
+    /**
+     * Continues decoding at a block of the index, the dictionaries have to be loaded before.
+     *
+     * @see #loadDictionaries(SegmentIndex)
+     */
+    public void seek(final int offset, final long timeBase) {
+        buffer.position(offset);
+        lastTime = timeBase;
+    }
+
+    /**
+     * @return the number of frames that were skipped so far because they are corrupt.
+     */
+    public int getCorruptRecords() {
+        return corruptRecords;
+    }
+
+    /**
+     * Corrupt frames are skipped. If the length of a corrupt frame can not be trusted, the rest of the segment is
+     * skipped.
+     *
+     * @return the next event or {@code null} if the end of the written frames is reached.
+     */
+    public @Nullable CapturedEvent next() {
+        while (true) {
+            final int position = buffer.position();
+            final int length = EventLogFormat.frameLength(buffer, position, crc);
+            if (length == 0) {
+                return null;
+            }
+            if (length < 0) {
+                corruptRecords++;
+                final int remaining = buffer.limit() - position - EventLogFormat.FRAME_HEADER_SIZE;
+                final int claimed = remaining < 0 ? -1 : buffer.getInt(position);
+                if (claimed <= 0 || claimed > remaining) {
+                    buffer.position(buffer.limit());
+                    return null;
+                }
+                buffer.position(position + EventLogFormat.FRAME_HEADER_SIZE + claimed);
+                continue;
+            }
+            final int end = position + EventLogFormat.FRAME_HEADER_SIZE + length;
+            final long time = lastTime;
+            buffer.position(position + EventLogFormat.FRAME_HEADER_SIZE);
+            try {
+                final CapturedEvent event = readFrame(end);
+                if (buffer.position() == end) {
+                    return event;
+                }
+            } catch (final RuntimeException e) {
+                // malformed content despite a valid CRC, e.g. a reference to a dictionary entry of a skipped frame
+            }
+            corruptRecords++;
+            lastTime = time;
+            buffer.position(end);
+        }
+    }
+
+    private @NotNull CapturedEvent readFrame(final int end) {
+        while (buffer.position() < end) {
+            final byte type = buffer.get();
+            switch (type) {
+                case EventLogFormat.DICTIONARY_CLIENT:
+                    readDictionary(clientIds);
+                    break;
+                case EventLogFormat.DICTIONARY_TOPIC:
+                    readDictionary(topics);
+                    break;
+                default:
+                    return readEvent(type);
+            }
+        }
+        throw new IllegalStateException("Frame without event");
+    }
+
+    private void readDictionary(final @NotNull List<String> dictionary) {
+        final int id = EventLogFormat.getVarint(buffer);
+        final String value = readString();
+        // entries of skipped frames are missing
+        while (dictionary.size() < id) {
+            dictionary.add(null);
+        }
+        if (id == dictionary.size()) {
+            dictionary.add(value);
+        } else if (dictionary.get(id) == null) {
+            dictionary.set(id, value);
+        } else if (!dictionary.get(id).equals(value)) {
+            // entries below the size were loaded from the index
+            throw new IllegalStateException("Unexpected dictionary id " + id);
+        }
+    }
+
+    private static @NotNull String entry(final @NotNull List<String> dictionary, final int id) {
+        final String value = dictionary.get(id);
+        if (value == null) {
+            throw new IllegalStateException("Unknown dictionary id " + id);
+        }
+        return value;
+    }
+
+    private @NotNull CapturedEvent readEvent(final byte type) {
+        final long time = lastTime + EventLogFormat.getZigzag(buffer);
+        lastTime = time;
+        final CapturedEvent event = new CapturedEvent(type, time, entry(clientIds, EventLogFormat.getVarint(buffer)));
+        switch (type) {
+            case EventLogFormat.CONNECT:
+                event.mqttVersion = buffer.get();
+                event.flags = buffer.get();
+                event.keepAlive = EventLogFormat.getVarint(buffer);
+                event.sessionExpiry = EventLogFormat.getVarlong(buffer);
+                break;
+            case EventLogFormat.CONNACK:
+                event.reasonCode = buffer.get();
+                event.flags = buffer.get();
+                break;
+            case EventLogFormat.DISCONNECT_RECEIVED:
+            case EventLogFormat.DISCONNECT_SEND:
+                event.reasonCode = buffer.get();
+                break;
+            case EventLogFormat.PUBLISH_RECEIVED:
+            case EventLogFormat.PUBLISH_SEND:
+                event.topic = entry(topics, EventLogFormat.getVarint(buffer));
+                event.flags = buffer.get();
+                event.packetId = EventLogFormat.getVarint(buffer);
+                final int length = EventLogFormat.getVarint(buffer);
+                final ByteBuffer payload = buffer.slice();
+                payload.limit(length);
+                event.payload = payload.asReadOnlyBuffer();
+                buffer.position(buffer.position() + length);
+                break;
+            case EventLogFormat.SUBSCRIBE: {
+                event.packetId = EventLogFormat.getVarint(buffer);
+                final int count = EventLogFormat.getVarint(buffer);
+                event.topics = new String[count];
+                event.codes = new byte[count];
+                for (int i = 0; i < count; i++) {
+                    event.topics[i] = entry(topics, EventLogFormat.getVarint(buffer));
+                    event.codes[i] = buffer.get();
+                }
+                break;
+            }
+            case EventLogFormat.SUBACK:
+            case EventLogFormat.UNSUBACK: {
+                event.packetId = EventLogFormat.getVarint(buffer);
+                event.codes = new byte[EventLogFormat.getVarint(buffer)];
+                buffer.get(event.codes);
+                break;
+            }
+            case EventLogFormat.UNSUBSCRIBE: {
+                event.packetId = EventLogFormat.getVarint(buffer);
+                event.topics = new String[EventLogFormat.getVarint(buffer)];
+                for (int i = 0; i < event.topics.length; i++) {
+                    event.topics[i] = entry(topics, EventLogFormat.getVarint(buffer));
+                }
+                break;
+            }
+            case EventLogFormat.PINGREQ:
+            case EventLogFormat.PINGRESP:
+                break;
+            case EventLogFormat.PUBACK_RECEIVED:
+            case EventLogFormat.PUBACK_SEND:
+            case EventLogFormat.PUBREC_RECEIVED:
+            case EventLogFormat.PUBREC_SEND:
+            case EventLogFormat.PUBREL_RECEIVED:
+            case EventLogFormat.PUBREL_SEND:
+            case EventLogFormat.PUBCOMP_RECEIVED:
+            case EventLogFormat.PUBCOMP_SEND:
+                event.packetId = EventLogFormat.getVarint(buffer);
+                event.reasonCode = buffer.get();
+                break;
+            default:
+                throw new IllegalStateException("Unknown record type " + type);
+        }
+        return event;
+    }
+
+    private @NotNull String readString() {
+        final int length = EventLogFormat.getVarint(buffer);
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
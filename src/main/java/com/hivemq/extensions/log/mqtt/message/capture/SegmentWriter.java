@@ -0,0 +1,415 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes frames into memory-mapped segment files of a fixed size. When a frame does not fit into the remaining space
+ * of the current segment, the next segment is started and the oldest segments are deleted so that at most the
+ * configured number of segments is kept. The sparse index of a segment is written when the segment is finished.
+ * <p>
+ * The writing thread only switches the mapping at a roll: the next segment is created and mapped in advance as a
+ * spare file, which is renamed when it is taken. The finished segment and its index are handed to a housekeeping
+ * thread, which forces the segment, writes the index and deletes the oldest segments. It also owns the list of the
+ * kept segments.
+ * <p>
+ * The last segment of a previous run is continued: a torn or corrupt tail, e.g. of a crash, is truncated and the next
+ * frame is appended after the last valid frame.
+ * <p>
+ * Not thread safe, {@link EventLog} serializes the access.
+ *
+ * @since 1.2.0
+ */
+class SegmentWriter implements Closeable {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(SegmentWriter.class);
+
+    static final int MIN_SEGMENT_SIZE = 64 * 1024;
+    /**
+     * The pre-created next segment, its name is not a segment file name so readers ignore it.
+     */
+    static final @NotNull String SPARE_FILE_NAME = EventLogFormat.SEGMENT_PREFIX + "spare" +
+            EventLogFormat.SEGMENT_SUFFIX;
+
+    private final @NotNull Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final @NotNull FsyncPolicy fsyncPolicy;
+    private final @NotNull Deque<Path> segments = new ArrayDeque<>();
+    private final @NotNull CRC32C crc = new CRC32C();
+    private final @NotNull ExecutorService housekeeping;
+
+    private @Nullable Future<MappedByteBuffer> spare;
+    private @NotNull SegmentIndexWriter index = new SegmentIndexWriter();
+    private @Nullable MappedByteBuffer buffer;
+    private long sequence;
+    private long baseTime;
+    private int frameStart;
+    private int unsynced;
+    private long lastSync;
+
+    SegmentWriter(
+            final @NotNull Path directory,
+            final int segmentSize,
+            final int maxSegments,
+            final @NotNull FsyncPolicy fsyncPolicy) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Capture segment size " + segmentSize + " is smaller than " +
+                    MIN_SEGMENT_SIZE + " bytes");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.fsyncPolicy = fsyncPolicy;
+        Files.createDirectories(directory);
+        sequence = existingSegments();
+        resume();
+        housekeeping = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "mqtt-message-log-capture-housekeeping");
+            thread.setDaemon(true);
+            return thread;
+        });
+        spare = housekeeping.submit(this::createSpare);
+    }
+
+    /**
+     * Collects the segments of a previous run, the new segments continue their sequence.
+     *
+     * @return the highest existing sequence.
+     */
+    private long existingSegments() throws IOException {
+        final List<Path> existing = new ArrayList<>();
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (final Path path : stream) {
+                if (EventLogFormat.segmentSequence(path.getFileName().toString()) >= 0) {
+                    existing.add(path);
+                }
+            }
+        }
+        existing.sort(Comparator.comparingLong(path -> EventLogFormat.segmentSequence(path.getFileName().toString())));
+        segments.addAll(existing);
+        return existing.isEmpty() ? 0 :
+                EventLogFormat.segmentSequence(existing.get(existing.size() - 1).getFileName().toString());
+    }
+
+    /**
+     * Maps the last segment of a previous run if it has the current version and size and truncates the frames after
+     * the last valid frame.
+     */
+    private void resume() throws IOException {
+        final Path last = segments.peekLast();
+        if (last == null || Files.size(last) != segmentSize) {
+            return;
+        }
+        final MappedByteBuffer mapped;
+        try (final FileChannel channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        if (mapped.getInt(0) != EventLogFormat.MAGIC || mapped.getShort(4) != EventLogFormat.VERSION) {
+            return;
+        }
+        int position = EventLogFormat.HEADER_SIZE;
+        int length;
+        while ((length = EventLogFormat.frameLength(mapped, position, crc)) > 0) {
+            position += EventLogFormat.FRAME_HEADER_SIZE + length;
+        }
+        if (length < 0) {
+            final int end = truncate(mapped, position);
+            LOG.warn("HiveMQ MQTT Message Log Extension: Truncated {} bytes of torn or corrupt frames at the end of " +
+                    "capture segment {}", end - position, last);
+        }
+        // the index is written again when the continued segment is finished
+        Files.deleteIfExists(last.resolveSibling(EventLogFormat.indexFileName(sequence)));
+        baseTime = mapped.getLong(8);
+        mapped.position(position);
+        buffer = mapped;
+        lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Zero fills the segment from the position to the last non-zero byte.
+     *
+     * @return the end of the zero filled range.
+     */
+    private static int truncate(final @NotNull MappedByteBuffer buffer, final int position) {
+        int end = buffer.limit();
+        while (end - Long.BYTES >= position && buffer.getLong(end - Long.BYTES) == 0) {
+            end -= Long.BYTES;
+        }
+        while (end > position && buffer.get(end - 1) == 0) {
+            end--;
+        }
+        for (int i = position; i < end; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.force();
+        return end;
+    }
+
+    /**
+     * @return the maximum size of the content of a frame, a frame has to fit into an empty segment.
+     */
+    int maxRecordSize() {
+        return segmentSize - EventLogFormat.HEADER_SIZE - EventLogFormat.FRAME_HEADER_SIZE -
+                EventLogFormat.END_MARKER_SIZE;
+    }
+
+    /**
+     * @return {@code true} if a segment of a previous run is continued and has to be read to restore the state of the
+     *         writer, the buffer is positioned at the end of its valid frames.
+     */
+    boolean isResumed() {
+        return buffer != null;
+    }
+
+    /**
+     * Starts a frame that has room for the given number of content bytes, the room for the end marker is always left.
+     *
+     * @return {@code true} if a new segment was started.
+     */
+    boolean beginFrame(final int size) {
+        MappedByteBuffer current = buffer;
+        boolean rolled = false;
+        if (current == null ||
+                current.remaining() < EventLogFormat.FRAME_HEADER_SIZE + size + EventLogFormat.END_MARKER_SIZE) {
+            roll();
+            current = buffer();
+            rolled = true;
+        }
+        frameStart = current.position();
+        current.position(frameStart + EventLogFormat.FRAME_HEADER_SIZE);
+        return rolled;
+    }
+
+    /**
+     * Writes the length and CRC of the current frame and forces the segment if required by the fsync policy.
+     *
+     * @param now the time of the event of the frame.
+     */
+    void commitFrame(final long now) {
+        final MappedByteBuffer current = buffer();
+        final int contentStart = frameStart + EventLogFormat.FRAME_HEADER_SIZE;
+        final int length = current.position() - contentStart;
+        current.putInt(frameStart + 4, EventLogFormat.crc(current, contentStart, length, crc));
+        current.putInt(frameStart, length);
+        unsynced++;
+        if (fsyncPolicy.shouldSync(unsynced, now - lastSync)) {
+            current.force();
+            unsynced = 0;
+            lastSync = now;
+        }
+    }
+
+    /**
+     * @return the start of the current frame.
+     */
+    int frameStart() {
+        return frameStart;
+    }
+
+    /**
+     * @return the buffer of the current segment, positioned at the end of the written records.
+     */
+    @NotNull MappedByteBuffer buffer() {
+        assert buffer != null;
+        return buffer;
+    }
+
+    /**
+     * @return the path of the current segment.
+     */
+    @NotNull Path path() {
+        return directory.resolve(EventLogFormat.segmentFileName(sequence));
+    }
+
+    /**
+     * @return the index of the current segment.
+     */
+    @NotNull SegmentIndexWriter index() {
+        return index;
+    }
+
+    /**
+     * @return the base time of the current segment.
+     */
+    long baseTime() {
+        return baseTime;
+    }
+
+    private void roll() {
+        final MappedByteBuffer finished = buffer;
+        final SegmentIndexWriter finishedIndex = index;
+        final long finishedSequence = sequence;
+        index = new SegmentIndexWriter();
+        sequence++;
+        final Path path = directory.resolve(EventLogFormat.segmentFileName(sequence));
+        buffer = null;
+        final MappedByteBuffer current = takeSpare(path);
+        baseTime = System.currentTimeMillis();
+        current.putInt(EventLogFormat.MAGIC);
+        current.putShort(EventLogFormat.VERSION);
+        current.putShort((short) 0);
+        current.putLong(baseTime);
+        current.putLong(sequence);
+        current.position(EventLogFormat.HEADER_SIZE);
+        buffer = current;
+        unsynced = 0;
+        lastSync = baseTime;
+        spare = housekeeping.submit(this::createSpare);
+        housekeeping.execute(() -> {
+            if (finished != null) {
+                finished.force();
+                writeIndex(finishedIndex, finishedSequence);
+            }
+            segments.addLast(path);
+            deleteOldSegments();
+        });
+    }
+
+    /**
+     * @return the mapping of the spare segment renamed to the path, or of a new segment if there is no spare.
+     */
+    private @NotNull MappedByteBuffer takeSpare(final @NotNull Path path) {
+        final Future<MappedByteBuffer> spare = this.spare;
+        this.spare = null;
+        if (spare != null) {
+            try {
+                // only waits if the housekeeping thread did not create the spare in time
+                final MappedByteBuffer mapped = spare.get();
+                Files.move(directory.resolve(SPARE_FILE_NAME), path, StandardCopyOption.ATOMIC_MOVE);
+                return mapped;
+            } catch (final ExecutionException | IOException e) {
+                LOG.warn("HiveMQ MQTT Message Log Extension: Could not use the spare capture segment for {}",
+                        path,
+                        e);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return map(path, StandardOpenOption.CREATE_NEW);
+    }
+
+    private @NotNull MappedByteBuffer createSpare() {
+        // a spare of a previous run is overwritten
+        return map(directory.resolve(SPARE_FILE_NAME), StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * @param createOption how the file is created.
+     */
+    private @NotNull MappedByteBuffer map(final @NotNull Path path, final @NotNull StandardOpenOption createOption) {
+        try (final FileChannel channel = FileChannel.open(path,
+                createOption,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Could not create capture segment " + path, e);
+        }
+    }
+
+    private void deleteOldSegments() {
+        while (segments.size() > maxSegments) {
+            final Path oldest = segments.removeFirst();
+            try {
+                Files.deleteIfExists(oldest);
+                Files.deleteIfExists(oldest.resolveSibling(EventLogFormat.indexFileName(EventLogFormat.segmentSequence(
+                        oldest.getFileName().toString()))));
+            } catch (final IOException e) {
+                LOG.warn("HiveMQ MQTT Message Log Extension: Could not delete capture segment {}", oldest, e);
+            }
+        }
+    }
+
+    /**
+     * Called by the housekeeping thread, the index is not changed anymore.
+     */
+    private void writeIndex(final @NotNull SegmentIndexWriter index, final long sequence) {
+        if (index.isEmpty()) {
+            return;
+        }
+        final Path path = directory.resolve(EventLogFormat.indexFileName(sequence));
+        try {
+            index.write(path, sequence);
+        } catch (final IOException e) {
+            // the segment can still be read without its index
+            LOG.warn("HiveMQ MQTT Message Log Extension: Could not write capture index {}", path, e);
+        }
+    }
+
+    /**
+     * Finishes the current segment, waits for the housekeeping and deletes the spare segment.
+     */
+    @Override
+    public void close() {
+        final MappedByteBuffer finished = buffer;
+        buffer = null;
+        if (finished != null) {
+            final SegmentIndexWriter finishedIndex = index;
+            final long finishedSequence = sequence;
+            index = new SegmentIndexWriter();
+            housekeeping.execute(() -> {
+                finished.force();
+                writeIndex(finishedIndex, finishedSequence);
+            });
+        }
+        housekeeping.shutdown();
+        try {
+            if (!housekeeping.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.warn("HiveMQ MQTT Message Log Extension: Housekeeping of the capture segments in {} did not " +
+                        "finish", directory);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        spare = null;
+        try {
+            Files.deleteIfExists(directory.resolve(SPARE_FILE_NAME));
+        } catch (final IOException e) {
+            LOG.warn("HiveMQ MQTT Message Log Extension: Could not delete the spare capture segment in {}",
+                    directory,
+                    e);
+        }
+    }
+}
@@ -16,11 +16,16 @@
 package com.hivemq.extensions.log.mqtt.message.config;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.Locale;
 import java.util.Properties;
 
 public class MqttMessageLogConfig {
 
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(MqttMessageLogConfig.class);
+
     static final @NotNull String TRUE = "true";
     static final @NotNull String FALSE = "false";
     static final @NotNull String VERBOSE = "verbose";
@@ -47,6 +52,120 @@ public class MqttMessageLogConfig {
     static final @NotNull String TOPIC_REGEX = "topic-regex";
     static final @NotNull String CLIENT_REGEX = "client-regex";
 
+    static final @NotNull String VERBOSE_CLIENT_REGEX = "verbose-client-regex";
+    static final @NotNull String VERBOSE_TOPIC_FILTERS = "verbose-topic-filters";
+
+    static final @NotNull String PAYLOAD_CONTAINS = "payload-contains";
+    static final @NotNull String PAYLOAD_REGEX = "payload-regex";
+    static final @NotNull String PAYLOAD_JSON = "payload-json";
+    static final @NotNull String PAYLOAD_MAX_SCAN_BYTES = "payload-max-scan-bytes";
+    static final int PAYLOAD_MAX_SCAN_BYTES_DEFAULT = 65536;
+
+    static final @NotNull String FIELDS_SUFFIX = "-fields";
+    static final @NotNull String TEMPLATE_PREFIX = "template.";
+
+    static final @NotNull String FORMAT = "format";
+    public static final @NotNull String FORMAT_TEXT = "text";
+    public static final @NotNull String FORMAT_BINARY = "binary";
+    public static final @NotNull String FORMAT_JSONL = "jsonl";
+    public static final @NotNull String FORMAT_PCAPNG = "pcapng";
+    public static final @NotNull String FORMAT_JFR = "jfr";
+    static final @NotNull String JFR_EVENTS = "jfr-events";
+    static final @NotNull String NODE = "node";
+    static final @NotNull String PAYLOAD_ENCODING = "payload-encoding";
+    public static final @NotNull String PAYLOAD_ENCODING_UTF8 = "utf8";
+    public static final @NotNull String PAYLOAD_ENCODING_BASE64 = "base64";
+    public static final @NotNull String PAYLOAD_ENCODING_HEX = "hex";
+    static final @NotNull String CAPTURE_DIR = "capture-dir";
+    static final @NotNull String CAPTURE_DIR_DEFAULT = "capture";
+    static final @NotNull String CAPTURE_SEGMENT_SIZE = "capture-segment-size";
+    static final int CAPTURE_SEGMENT_SIZE_DEFAULT = 64 * 1024 * 1024;
+    static final @NotNull String CAPTURE_MAX_SEGMENTS = "capture-max-segments";
+    static final int CAPTURE_MAX_SEGMENTS_DEFAULT = 16;
+    static final @NotNull String CAPTURE_FSYNC = "capture-fsync";
+    public static final @NotNull String FSYNC_NEVER = "never";
+    public static final @NotNull String FSYNC_INTERVAL = "interval";
+    public static final @NotNull String FSYNC_RECORDS = "records";
+    static final @NotNull String CAPTURE_FSYNC_INTERVAL = "capture-fsync-interval";
+    static final int CAPTURE_FSYNC_INTERVAL_DEFAULT = 1000;
+    static final @NotNull String CAPTURE_FSYNC_RECORDS = "capture-fsync-records";
+    static final int CAPTURE_FSYNC_RECORDS_DEFAULT = 1000;
+    static final @NotNull String PCAPNG_QUEUE_SIZE = "pcapng-queue-size";
+    static final int PCAPNG_QUEUE_SIZE_DEFAULT = 65536;
+    static final @NotNull String SINK = "sink";
+    public static final @NotNull String SINK_LOG = "log";
+    public static final @NotNull String SINK_FILE = "file";
+    public static final @NotNull String SINK_CLIENT_FILES = "client-files";
+    static final @NotNull String FILE_DIR = "file-dir";
+    static final @NotNull String FILE_DIR_DEFAULT = "log";
+    static final @NotNull String FILE_NAME = "file-name";
+    static final @NotNull String FILE_NAME_DEFAULT = "mqtt-message-log";
+    static final @NotNull String FILE_ROTATE_SIZE = "file-rotate-size";
+    static final long FILE_ROTATE_SIZE_DEFAULT = 100L * 1024 * 1024;
+    static final @NotNull String FILE_ROTATE_INTERVAL = "file-rotate-interval";
+    static final int FILE_ROTATE_INTERVAL_DEFAULT = 24 * 60 * 60;
+    static final @NotNull String FILE_MAX_TOTAL_SIZE = "file-max-total-size";
+    static final long FILE_MAX_TOTAL_SIZE_DEFAULT = 1024L * 1024 * 1024;
+    static final @NotNull String FILE_MAX_AGE = "file-max-age";
+    static final int FILE_MAX_AGE_DEFAULT = 7 * 24 * 60 * 60;
+    static final @NotNull String FILE_COMPRESS = "file-compress";
+    static final @NotNull String FILE_FLUSH_INTERVAL = "file-flush-interval";
+    static final int FILE_FLUSH_INTERVAL_DEFAULT = 1000;
+    static final @NotNull String CLIENT_FILES_MAX_OPEN = "client-files-max-open";
+    static final int CLIENT_FILES_MAX_OPEN_DEFAULT = 256;
+    static final @NotNull String CLIENT_FILES_IDLE_TIMEOUT = "client-files-idle-timeout";
+    static final int CLIENT_FILES_IDLE_TIMEOUT_DEFAULT = 300;
+    static final @NotNull String HEAVY_HITTERS = "heavy-hitters";
+    static final @NotNull String HEAVY_HITTERS_INTERVAL = "heavy-hitters-interval";
+    static final int HEAVY_HITTERS_INTERVAL_DEFAULT = 60;
+    static final @NotNull String HEAVY_HITTERS_TOP = "heavy-hitters-top";
+    static final int HEAVY_HITTERS_TOP_DEFAULT = 10;
+    static final @NotNull String TOPIC_CARDINALITY = "topic-cardinality";
+    static final @NotNull String TOPIC_CARDINALITY_THRESHOLD = "topic-cardinality-threshold";
+    static final int TOPIC_CARDINALITY_THRESHOLD_DEFAULT = 1000;
+    static final @NotNull String TOPIC_CARDINALITY_WINDOW = "topic-cardinality-window";
+    static final int TOPIC_CARDINALITY_WINDOW_DEFAULT = 60;
+    static final @NotNull String SESSION_SUMMARY = "session-summary";
+    static final @NotNull String KEEP_ALIVE_HEALTH = "keep-alive-health";
+    static final @NotNull String KEEP_ALIVE_LATE_PERCENT = "keep-alive-late-percent";
+    static final int KEEP_ALIVE_LATE_PERCENT_DEFAULT = 110;
+    static final @NotNull String KEEP_ALIVE_EARLY_PERCENT = "keep-alive-early-percent";
+    static final int KEEP_ALIVE_EARLY_PERCENT_DEFAULT = 25;
+    static final @NotNull String CONNECTION_LOST = "connection-lost";
+    static final @NotNull String CONNECTION_LOST_INTERVAL = "connection-lost-interval";
+    static final int CONNECTION_LOST_INTERVAL_DEFAULT = 60;
+    static final @NotNull String CONNECTION_LOST_MAX_LINES = "connection-lost-max-lines";
+    static final int CONNECTION_LOST_MAX_LINES_DEFAULT = 100;
+    static final @NotNull String RECONNECT_STORM = "reconnect-storm";
+    static final @NotNull String RECONNECT_STORM_THRESHOLD = "reconnect-storm-threshold";
+    static final int RECONNECT_STORM_THRESHOLD_DEFAULT = 10;
+    static final @NotNull String RECONNECT_STORM_WINDOW = "reconnect-storm-window";
+    static final int RECONNECT_STORM_WINDOW_DEFAULT = 60;
+    static final @NotNull String RECONNECT_STORM_MAX_CLIENTS = "reconnect-storm-max-clients";
+    static final int RECONNECT_STORM_MAX_CLIENTS_DEFAULT = 10_000;
+    static final @NotNull String TOPIC_TREE = "topic-tree";
+    static final @NotNull String TOPIC_TREE_INTERVAL = "topic-tree-interval";
+    static final int TOPIC_TREE_INTERVAL_DEFAULT = 60;
+    static final @NotNull String TOPIC_TREE_DEPTH = "topic-tree-depth";
+    static final int TOPIC_TREE_DEPTH_DEFAULT = 4;
+    static final @NotNull String TOPIC_TREE_NODES = "topic-tree-nodes";
+    static final int TOPIC_TREE_NODES_DEFAULT = 1000;
+    static final @NotNull String MODE_SUFFIX = "-mode";
+    public static final @NotNull String MODE_EVENT = "event";
+    public static final @NotNull String MODE_SUMMARY = "summary";
+    static final @NotNull String SUMMARY_INTERVAL = "summary-interval";
+    static final int SUMMARY_INTERVAL_DEFAULT = 60;
+    static final @NotNull String SUMMARY_PREFIX_DELIMITERS = "summary-prefix-delimiters";
+    static final @NotNull String SUMMARY_PREFIX_DELIMITERS_DEFAULT = "-_:/.";
+    static final @NotNull String PUBLISH_LOG_ON_CHANGE = "publish-log-on-change";
+    static final @NotNull String PUBLISH_LOG_ON_CHANGE_MAX_TOPICS = "publish-log-on-change-max-topics";
+    static final int PUBLISH_LOG_ON_CHANGE_MAX_TOPICS_DEFAULT = 100_000;
+    static final @NotNull String SUPPRESS_DUPLICATES = "suppress-duplicates";
+    static final @NotNull String SUPPRESS_DUPLICATES_INTERVAL = "suppress-duplicates-interval";
+    static final int SUPPRESS_DUPLICATES_INTERVAL_DEFAULT = 10;
+    static final @NotNull String SUPPRESS_DUPLICATES_MAX_CLIENTS = "suppress-duplicates-max-clients";
+    static final int SUPPRESS_DUPLICATES_MAX_CLIENTS_DEFAULT = 10_000;
+
     private final @NotNull Properties properties;
 
     public MqttMessageLogConfig(final @NotNull Properties properties) {
@@ -89,8 +208,12 @@ public class MqttMessageLogConfig {
         return getForKey(UNSUBACK_SEND);
     }
 
+    /**
+     * @return whether every PINGREQ is logged, by default only if {@code keep-alive-health} does not log the
+     *         anomalies instead.
+     */
     public boolean isPingreqReceived() {
-        return getForKey(PING_REQ_RECEIVED);
+        return properties.getProperty(PING_REQ_RECEIVED, isKeepAliveHealth() ? FALSE : TRUE).equalsIgnoreCase(TRUE);
     }
 
     public boolean isPingrespSend() {
@@ -152,7 +275,14 @@ public class MqttMessageLogConfig {
                 !isPubrelReceived() &&
                 !isPubrelSend() &&
                 !isPubcompReceived() &&
-                !isPubcompSend();
+                !isPubcompSend() &&
+                !isHeavyHitters() &&
+                !isTopicCardinality() &&
+                !isTopicTree() &&
+                !isSessionSummary() &&
+                !isReconnectStorm() &&
+                !isConnectionLost() &&
+                !isKeepAliveHealth();
     }
 
     private boolean getForKey(final @NotNull String key) {
@@ -165,4 +295,479 @@ public class MqttMessageLogConfig {
     public String getClientRegex() {
         return properties.getProperty(CLIENT_REGEX,"");
     }
+
+    public @NotNull String getVerboseClientRegex() {
+        return properties.getProperty(VERBOSE_CLIENT_REGEX, "");
+    }
+
+    public @NotNull String getVerboseTopicFilters() {
+        return properties.getProperty(VERBOSE_TOPIC_FILTERS, "");
+    }
+
+    public @NotNull String getPayloadContains() {
+        return properties.getProperty(PAYLOAD_CONTAINS, "");
+    }
+
+    public @NotNull String getPayloadRegex() {
+        return properties.getProperty(PAYLOAD_REGEX, "");
+    }
+
+    public @NotNull String getPayloadJson() {
+        return properties.getProperty(PAYLOAD_JSON, "");
+    }
+
+    public int getPayloadMaxScanBytes() {
+        return getIntForKey(PAYLOAD_MAX_SCAN_BYTES, PAYLOAD_MAX_SCAN_BYTES_DEFAULT);
+    }
+
+    /**
+     * @param packetType the packet type in lower case, e.g. {@code publish}.
+     * @return the comma separated field list for the packet type ({@code <packetType>-fields}) or an empty string if
+     *         the built-in log line is used.
+     */
+    public @NotNull String getFields(final @NotNull String packetType) {
+        return properties.getProperty(packetType + FIELDS_SUFFIX, "");
+    }
+
+    /**
+     * @param event the event, e.g. {@code publish-received}.
+     * @return the log line template of the event ({@code template.<event>}) or an empty string if none is configured.
+     */
+    public @NotNull String getTemplate(final @NotNull String event) {
+        return properties.getProperty(TEMPLATE_PREFIX + event, "");
+    }
+
+    /**
+     * @return the output format, {@link #FORMAT_TEXT}, {@link #FORMAT_BINARY}, {@link #FORMAT_JSONL},
+     *         {@link #FORMAT_PCAPNG} or {@link #FORMAT_JFR}.
+     */
+    public @NotNull String getFormat() {
+        final String format = properties.getProperty(FORMAT, FORMAT_TEXT).trim().toLowerCase(Locale.ROOT);
+        if (FORMAT_TEXT.equals(format) ||
+                FORMAT_BINARY.equals(format) ||
+                FORMAT_JSONL.equals(format) ||
+                FORMAT_PCAPNG.equals(format) ||
+                FORMAT_JFR.equals(format)) {
+            return format;
+        }
+        LOG.warn("HiveMQ MQTT Message Log Extension: Invalid value '{}' for property '{}', using default {}",
+                format,
+                FORMAT,
+                FORMAT_TEXT);
+        return FORMAT_TEXT;
+    }
+
+    /**
+     * @return whether Java Flight Recorder events are emitted in addition to the output format.
+     */
+    public boolean isJfrEvents() {
+        return properties.getProperty(JFR_EVENTS, FALSE).trim().equalsIgnoreCase(TRUE);
+    }
+
+    /**
+     * @return the name of this broker node in JSON lines or an empty string if the host name is used.
+     */
+    public @NotNull String getNode() {
+        return properties.getProperty(NODE, "").trim();
+    }
+
+    /**
+     * @return how payloads are written in JSON lines, {@link #PAYLOAD_ENCODING_UTF8}, {@link #PAYLOAD_ENCODING_BASE64}
+     *         or {@link #PAYLOAD_ENCODING_HEX}.
+     */
+    public @NotNull String getPayloadEncoding() {
+        final String encoding =
+                properties.getProperty(PAYLOAD_ENCODING, PAYLOAD_ENCODING_UTF8).trim().toLowerCase(Locale.ROOT);
+        if (PAYLOAD_ENCODING_UTF8.equals(encoding) ||
+                PAYLOAD_ENCODING_BASE64.equals(encoding) ||
+                PAYLOAD_ENCODING_HEX.equals(encoding)) {
+            return encoding;
+        }
+        LOG.warn("HiveMQ MQTT Message Log Extension: Invalid value '{}' for property '{}', using default {}",
+                encoding,
+                PAYLOAD_ENCODING,
+                PAYLOAD_ENCODING_UTF8);
+        return PAYLOAD_ENCODING_UTF8;
+    }
+
+    /**
+     * @return the directory of the binary capture segments, relative paths are resolved against the extension home.
+     */
+    public @NotNull String getCaptureDir() {
+        final String captureDir = properties.getProperty(CAPTURE_DIR, "");
+        return captureDir.isBlank() ? CAPTURE_DIR_DEFAULT : captureDir.trim();
+    }
+
+    public int getCaptureSegmentSize() {
+        return getIntForKey(CAPTURE_SEGMENT_SIZE, CAPTURE_SEGMENT_SIZE_DEFAULT);
+    }
+
+    public int getCaptureMaxSegments() {
+        return getIntForKey(CAPTURE_MAX_SEGMENTS, CAPTURE_MAX_SEGMENTS_DEFAULT);
+    }
+
+    /**
+     * @return the number of packets that can wait for the pcapng writer, further packets are dropped.
+     */
+    public int getPcapngQueueSize() {
+        return getIntForKey(PCAPNG_QUEUE_SIZE, PCAPNG_QUEUE_SIZE_DEFAULT);
+    }
+
+    /**
+     * @return when captured records are forced to disk, {@link #FSYNC_NEVER}, {@link #FSYNC_INTERVAL} or
+     *         {@link #FSYNC_RECORDS}.
+     */
+    public @NotNull String getCaptureFsync() {
+        final String fsync = properties.getProperty(CAPTURE_FSYNC, FSYNC_NEVER).trim().toLowerCase(Locale.ROOT);
+        if (FSYNC_NEVER.equals(fsync) || FSYNC_INTERVAL.equals(fsync) || FSYNC_RECORDS.equals(fsync)) {
+            return fsync;
+        }
+        LOG.warn("HiveMQ MQTT Message Log Extension: Invalid value '{}' for property '{}', using default {}",
+                fsync,
+                CAPTURE_FSYNC,
+                FSYNC_NEVER);
+        return FSYNC_NEVER;
+    }
+
+    /**
+     * @return the milliseconds between forcing captured records to disk for {@link #FSYNC_INTERVAL}.
+     */
+    public int getCaptureFsyncInterval() {
+        return getIntForKey(CAPTURE_FSYNC_INTERVAL, CAPTURE_FSYNC_INTERVAL_DEFAULT);
+    }
+
+    /**
+     * @return the number of captured records between forcing them to disk for {@link #FSYNC_RECORDS}.
+     */
+    public int getCaptureFsyncRecords() {
+        return getIntForKey(CAPTURE_FSYNC_RECORDS, CAPTURE_FSYNC_RECORDS_DEFAULT);
+    }
+
+    /**
+     * @return where the text and JSON lines are written, {@link #SINK_LOG}, {@link #SINK_FILE} or
+     *         {@link #SINK_CLIENT_FILES}.
+     */
+    public @NotNull String getSink() {
+        final String sink = properties.getProperty(SINK, SINK_LOG).trim().toLowerCase(Locale.ROOT);
+        if (SINK_LOG.equals(sink) || SINK_FILE.equals(sink) || SINK_CLIENT_FILES.equals(sink)) {
+            return sink;
+        }
+        LOG.warn("HiveMQ MQTT Message Log Extension: Invalid value '{}' for property '{}', using default {}",
+                sink,
+                SINK,
+                SINK_LOG);
+        return SINK_LOG;
+    }
+
+    /**
+     * @return the directory of the file and client files sinks, relative paths are resolved against the extension home.
+     */
+    public @NotNull String getFileDir() {
+        final String fileDir = properties.getProperty(FILE_DIR, "");
+        return fileDir.isBlank() ? FILE_DIR_DEFAULT : fileDir.trim();
+    }
+
+    /**
+     * @return the name of the file of the file sink without the {@code .log} suffix.
+     */
+    public @NotNull String getFileName() {
+        final String fileName = properties.getProperty(FILE_NAME, "");
+        return fileName.isBlank() ? FILE_NAME_DEFAULT : fileName.trim();
+    }
+
+    /**
+     * @return the size in bytes after which the file of the file sink is rolled.
+     */
+    public long getFileRotateSize() {
+        return getLongForKey(FILE_ROTATE_SIZE, FILE_ROTATE_SIZE_DEFAULT);
+    }
+
+    /**
+     * @return the seconds after which the file of the file sink is rolled.
+     */
+    public int getFileRotateInterval() {
+        return getIntForKey(FILE_ROTATE_INTERVAL, FILE_ROTATE_INTERVAL_DEFAULT);
+    }
+
+    /**
+     * @return the total size in bytes of the rolled files of the file sink, the oldest are deleted above.
+     */
+    public long getFileMaxTotalSize() {
+        return getLongForKey(FILE_MAX_TOTAL_SIZE, FILE_MAX_TOTAL_SIZE_DEFAULT);
+    }
+
+    /**
+     * @return the seconds after which rolled files of the file sink are deleted.
+     */
+    public int getFileMaxAge() {
+        return getIntForKey(FILE_MAX_AGE, FILE_MAX_AGE_DEFAULT);
+    }
+
+    public boolean isFileCompress() {
+        return properties.getProperty(FILE_COMPRESS, FALSE).trim().equalsIgnoreCase(TRUE);
+    }
+
+    /**
+     * @return the maximum milliseconds lines of the file and client files sinks are buffered before they are written.
+     */
+    public int getFileFlushInterval() {
+        return getIntForKey(FILE_FLUSH_INTERVAL, FILE_FLUSH_INTERVAL_DEFAULT);
+    }
+
+    /**
+     * @return the maximum number of files of the client files sink that are open at the same time.
+     */
+    public int getClientFilesMaxOpen() {
+        return getIntForKey(CLIENT_FILES_MAX_OPEN, CLIENT_FILES_MAX_OPEN_DEFAULT);
+    }
+
+    /**
+     * @return the seconds without lines after which a file of the client files sink is closed.
+     */
+    public int getClientFilesIdleTimeout() {
+        return getIntForKey(CLIENT_FILES_IDLE_TIMEOUT, CLIENT_FILES_IDLE_TIMEOUT_DEFAULT);
+    }
+
+    /**
+     * @return whether the clients and topics with the most PUBLISH messages and bytes are reported periodically.
+     */
+    public boolean isHeavyHitters() {
+        return properties.getProperty(HEAVY_HITTERS, FALSE).trim().equalsIgnoreCase(TRUE);
+    }
+
+    /**
+     * @return the seconds between two heavy hitter reports.
+     */
+    public int getHeavyHittersInterval() {
+        return getIntForKey(HEAVY_HITTERS_INTERVAL, HEAVY_HITTERS_INTERVAL_DEFAULT);
+    }
+
+    /**
+     * @return the number of clients and topics in a heavy hitter report.
+     */
+    public int getHeavyHittersTop() {
+        return getIntForKey(HEAVY_HITTERS_TOP, HEAVY_HITTERS_TOP_DEFAULT);
+    }
+
+    /**
+     * @return whether a warning is logged when a client publishes to too many distinct topics.
+     */
+    public boolean isTopicCardinality() {
+        return properties.getProperty(TOPIC_CARDINALITY, FALSE).trim().equalsIgnoreCase(TRUE);
+    }
+
+    /**
+     * @return the estimated number of distinct topics per client and window above which a warning is logged.
+     */
+    public int getTopicCardinalityThreshold() {
+        return getIntForKey(TOPIC_CARDINALITY_THRESHOLD, TOPIC_CARDINALITY_THRESHOLD_DEFAULT);
+    }
+
+    /**
+     * @return the seconds of the window in which the distinct topics of a client are counted.
+     */
+    public int getTopicCardinalityWindow() {
+        return getIntForKey(TOPIC_CARDINALITY_WINDOW, TOPIC_CARDINALITY_WINDOW_DEFAULT);
+    }
+
+    /**
+     * @return whether the PUBLISH messages and bytes per topic level are reported periodically.
+     */
+    public boolean isTopicTree() {
+        return properties.getProperty(TOPIC_TREE, FALSE).trim().equalsIgnoreCase(TRUE);
+    }
+
+    /**
+     * @return the seconds between two topic tree reports.
+     */
+    public int getTopicTreeInterval() {
+        return getIntForKey(TOPIC_TREE_INTERVAL, TOPIC_TREE_INTERVAL_DEFAULT);
+    }
+
+    /**
+     * @return the number of topic levels that are counted separately, deeper levels are counted in their ancestor.
+     */
+    public int getTopicTreeDepth() {
+        return getIntForKey(TOPIC_TREE_DEPTH, TOPIC_TREE_DEPTH_DEFAULT);
+    }
+
+    /**
+     * @return the maximum number of topic levels in the tree, further levels are collapsed.
+     */
+    public int getTopicTreeNodes() {
+        return getIntForKey(TOPIC_TREE_NODES, TOPIC_TREE_NODES_DEFAULT);
+    }
+
+    /**
+     * @param event the event, e.g. {@code ping-request-received}.
+     * @return whether the event is counted per interval ({@code <event>-mode=summary}) instead of logged per packet.
+     */
+    public boolean isSummaryMode(final @NotNull String event) {
+        final String mode = properties.getProperty(event + MODE_SUFFIX, MODE_EVENT).trim().toLowerCase(Locale.ROOT);
+        if (MODE_SUMMARY.equals(mode)) {
+            return true;
+        }
+        if (!MODE_EVENT.equals(mode)) {
+            LOG.warn("HiveMQ MQTT Message Log Extension: Invalid value '{}' for property '{}', using default {}",
+                    mode,
+                    event + MODE_SUFFIX,
+                    MODE_EVENT);
+        }
+        return false;
+    }
+
+    /**
+     * @return the seconds between two summaries of the events in summary mode.
+     */
+    public int getSummaryInterval() {
+        return getIntForKey(SUMMARY_INTERVAL, SUMMARY_INTERVAL_DEFAULT);
+    }
+
+    /**
+     * @return the characters that end the client prefix the summaries are grouped by.
+     */
+    public @NotNull String getSummaryPrefixDelimiters() {
+        final String delimiters = properties.getProperty(SUMMARY_PREFIX_DELIMITERS, "").trim();
+        return delimiters.isEmpty() ? SUMMARY_PREFIX_DELIMITERS_DEFAULT : delimiters;
+    }
+
+    /**
+     * @return whether a PUBLISH is only logged if its payload differs from the last payload on the topic.
+     */
+    public boolean isPublishLogOnChange() {
+        return properties.getProperty(PUBLISH_LOG_ON_CHANGE, FALSE).trim().equalsIgnoreCase(TRUE);
+    }
+
+    /**
+     * @return the maximum number of topics whose last payload is remembered for {@code publish-log-on-change}.
+     */
+    public int getPublishLogOnChangeMaxTopics() {
+        return getIntForKey(PUBLISH_LOG_ON_CHANGE_MAX_TOPICS, PUBLISH_LOG_ON_CHANGE_MAX_TOPICS_DEFAULT);
+    }
+
+    /**
+     * @return whether consecutive identical events of a client are collapsed into one line and a repetition count.
+     */
+    public boolean isSuppressDuplicates() {
+        return properties.getProperty(SUPPRESS_DUPLICATES, FALSE).trim().equalsIgnoreCase(TRUE);
+    }
+
+    /**
+     * @return the seconds after which pending repetitions are written at the latest.
+     */
+    public int getSuppressDuplicatesInterval() {
+        return getIntForKey(SUPPRESS_DUPLICATES_INTERVAL, SUPPRESS_DUPLICATES_INTERVAL_DEFAULT);
+    }
+
+    /**
+     * @return the maximum number of clients whose last events are remembered for the duplicate suppression.
+     */
+    public int getSuppressDuplicatesMaxClients() {
+        return getIntForKey(SUPPRESS_DUPLICATES_MAX_CLIENTS, SUPPRESS_DUPLICATES_MAX_CLIENTS_DEFAULT);
+    }
+
+    /**
+     * @return whether a summary of every connection is logged when the connection ends.
+     */
+    public boolean isSessionSummary() {
+        return properties.getProperty(SESSION_SUMMARY, FALSE).trim().equalsIgnoreCase(TRUE);
+    }
+
+    /**
+     * @return whether a warning is logged when a client reconnects too often and failed authentications are
+     *         summarized per client.
+     */
+    public boolean isReconnectStorm() {
+        return properties.getProperty(RECONNECT_STORM, FALSE).trim().equalsIgnoreCase(TRUE);
+    }
+
+    /**
+     * @return the connects of a client per window above which a warning is logged.
+     */
+    public int getReconnectStormThreshold() {
+        return getIntForKey(RECONNECT_STORM_THRESHOLD, RECONNECT_STORM_THRESHOLD_DEFAULT);
+    }
+
+    /**
+     * @return the seconds of the window in which the connects of a client are counted.
+     */
+    public int getReconnectStormWindow() {
+        return getIntForKey(RECONNECT_STORM_WINDOW, RECONNECT_STORM_WINDOW_DEFAULT);
+    }
+
+    /**
+     * @return the maximum number of clients whose connects are counted.
+     */
+    public int getReconnectStormMaxClients() {
+        return getIntForKey(RECONNECT_STORM_MAX_CLIENTS, RECONNECT_STORM_MAX_CLIENTS_DEFAULT);
+    }
+
+    /**
+     * @return whether connections that were lost without a DISCONNECT packet are logged and summarized.
+     */
+    public boolean isConnectionLost() {
+        return properties.getProperty(CONNECTION_LOST, FALSE).trim().equalsIgnoreCase(TRUE);
+    }
+
+    /**
+     * @return the seconds between two summaries of the lost connections.
+     */
+    public int getConnectionLostInterval() {
+        return getIntForKey(CONNECTION_LOST_INTERVAL, CONNECTION_LOST_INTERVAL_DEFAULT);
+    }
+
+    /**
+     * @return the maximum number of lost connections that are logged individually per interval.
+     */
+    public int getConnectionLostMaxLines() {
+        return getIntForKey(CONNECTION_LOST_MAX_LINES, CONNECTION_LOST_MAX_LINES_DEFAULT);
+    }
+
+    /**
+     * @return whether the PINGREQ timing is checked against the keep alive and anomalies are logged.
+     */
+    public boolean isKeepAliveHealth() {
+        return properties.getProperty(KEEP_ALIVE_HEALTH, FALSE).trim().equalsIgnoreCase(TRUE);
+    }
+
+    /**
+     * @return the percentage of the keep alive above which a PINGREQ is late.
+     */
+    public int getKeepAliveLatePercent() {
+        return getIntForKey(KEEP_ALIVE_LATE_PERCENT, KEEP_ALIVE_LATE_PERCENT_DEFAULT);
+    }
+
+    /**
+     * @return the percentage of the keep alive below which a PINGREQ is early.
+     */
+    public int getKeepAliveEarlyPercent() {
+        return getIntForKey(KEEP_ALIVE_EARLY_PERCENT, KEEP_ALIVE_EARLY_PERCENT_DEFAULT);
+    }
+
+    private int getIntForKey(final @NotNull String key, final int defaultValue) {
+        return (int) getLongForKey(key, defaultValue, Integer.MAX_VALUE);
+    }
+
+    private long getLongForKey(final @NotNull String key, final long defaultValue) {
+        return getLongForKey(key, defaultValue, Long.MAX_VALUE);
+    }
+
+    private long getLongForKey(final @NotNull String key, final long defaultValue, final long maxValue) {
+        final String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            final long parsed = Long.parseLong(value.trim());
+            if (parsed > 0 && parsed <= maxValue) {
+                return parsed;
+            }
+        } catch (final NumberFormatException ignored) {
+        }
+        LOG.warn("HiveMQ MQTT Message Log Extension: Invalid value '{}' for property '{}', using default {}",
+                value,
+                key,
+                defaultValue);
+        return defaultValue;
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.filter;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.util.Hashing;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Decides whether a PUBLISH should be logged because its payload changed since the last PUBLISH on the same topic
+ * ({@code publish-log-on-change}). Inbound messages are compared per topic, outbound messages per topic and
+ * subscriber, so every subscriber sees the first message of a value.
+ * <p>
+ * Only a 64 bit fingerprint of the last payload is kept per topic, in {@link #SEGMENTS} least recently used maps
+ * that are selected by the hash of the topic, so threads rarely wait for each other and the number of topics is
+ * bounded. An evicted topic is logged again with its next message. The unchanged messages are counted in the metric
+ * {@link #UNCHANGED_METRIC}.
+ *
+ * @since 1.2.0
+ */
+public class ChangeFilter {
+
+    static final int SEGMENTS = 16;
+    public static final @NotNull String UNCHANGED_METRIC = "com.hivemq.extensions.mqtt-message-log.publish.unchanged";
+
+    private final @NotNull Segment @NotNull [] segments = new Segment[SEGMENTS];
+    private final @NotNull Counter unchanged;
+
+    ChangeFilter(final int maxTopics, final @NotNull Counter unchanged) {
+        final int segmentSize = Math.max(1, maxTopics / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * @return the change filter for the given config or an empty optional if all messages are logged.
+     */
+    public static @NotNull Optional<ChangeFilter> create(
+            final @NotNull MqttMessageLogConfig config, final @NotNull MetricRegistry metricRegistry) {
+        if (!config.isPublishLogOnChange()) {
+            return Optional.empty();
+        }
+        return Optional.of(new ChangeFilter(config.getPublishLogOnChangeMaxTopics(),
+                metricRegistry.counter(UNCHANGED_METRIC)));
+    }
+
+    /**
+     * @param clientId the publisher of inbound and the subscriber of outbound messages.
+     * @return whether the payload differs from the last payload on the topic and should be logged.
+     */
+    public boolean isChanged(
+            final @NotNull String clientId,
+            final @NotNull String topic,
+            final @NotNull Optional<ByteBuffer> payload,
+            final boolean inbound) {
+        final long topicHash = Hashing.hash64(topic);
+        final long key = inbound ? topicHash : Hashing.mix(topicHash * 31 + Hashing.hash64(clientId));
+        final long fingerprint = payload.isPresent() ? Hashing.hash64(payload.get()) : 0;
+        final Segment segment = segments[(int) key & (SEGMENTS - 1)];
+        final Long previous;
+        synchronized (segment) {
+            previous = segment.put(key, fingerprint);
+        }
+        if (previous != null && previous == fingerprint) {
+            unchanged.inc();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Topic hashes to payload fingerprints in access order, guarded by its monitor.
+     */
+    private static class Segment extends LinkedHashMap<Long, Long> {
+
+        private final int maxSize;
+
+        Segment(final int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final @NotNull Map.Entry<Long, Long> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,524 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.filter;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A set of JSON path predicates combined with OR, e.g. {@code $.level == "ERROR" || $.temp > 90}.
+ * <p>
+ * The payload is scanned once by a lazy tokenizer: only object members on the path of a predicate are looked at, all
+ * other values are skipped without being decoded, and the scan stops as soon as one predicate is true or all of them
+ * are false. No objects are allocated per scanned value. Payloads that do not start with a JSON object do not match.
+ * <p>
+ * Paths only address object members ({@code $.a.b.c}). Keys and string values are compared by their raw bytes, so
+ * escaped characters inside them never match.
+ *
+ * @since 1.2.0
+ */
+public class JsonPredicates {
+
+    static final int MAX_PREDICATES = 64;
+
+    private static final int NO_MATCH = -1;
+    private static final int MATCH = -2;
+    /**
+     * Integers with up to 15 digits and powers of ten up to 10^22 are exact doubles.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final int MAX_EXACT_POWER = 22;
+    private static final byte @NotNull [] TRUE_LITERAL = "true".getBytes(US_ASCII);
+    private static final byte @NotNull [] FALSE_LITERAL = "false".getBytes(US_ASCII);
+    private static final byte @NotNull [] NULL_LITERAL = "null".getBytes(US_ASCII);
+    private static final double @NotNull [] POWERS_OF_TEN = new double[MAX_EXACT_POWER + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_EXACT_POWER; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    enum Operator {
+        EQ("=="),
+        NE("!="),
+        GE(">="),
+        LE("<="),
+        GT(">"),
+        LT("<");
+
+        private final @NotNull String symbol;
+
+        Operator(final @NotNull String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    private enum ValueType {
+        STRING,
+        NUMBER,
+        TRUE,
+        FALSE,
+        NULL
+    }
+
+    private static class Predicate {
+
+        private final byte @NotNull [] @NotNull [] path;
+        private final @NotNull Operator operator;
+        private final @NotNull ValueType type;
+        private final byte @NotNull [] string;
+        private final double number;
+
+        private Predicate(
+                final byte @NotNull [] @NotNull [] path,
+                final @NotNull Operator operator,
+                final @NotNull ValueType type,
+                final byte @NotNull [] string,
+                final double number) {
+            this.path = path;
+            this.operator = operator;
+            this.type = type;
+            this.string = string;
+            this.number = number;
+        }
+    }
+
+    private final @NotNull Predicate @NotNull [] predicates;
+    private final long allPredicates;
+
+    private JsonPredicates(final @NotNull Predicate @NotNull [] predicates) {
+        this.predicates = predicates;
+        this.allPredicates = predicates.length == MAX_PREDICATES ? -1L : (1L << predicates.length) - 1;
+    }
+
+    /**
+     * Parses predicates of the form {@code $.path.to.field <op> <value>} separated by {@code ||}. Supported operators
+     * are {@code == != > >= < <=}, values are JSON strings, numbers, {@code true}, {@code false} and {@code null}.
+     *
+     * @throws IllegalArgumentException if the expression is malformed.
+     */
+    public static @NotNull JsonPredicates parse(final @NotNull String expression) {
+        final List<Predicate> predicates = new ArrayList<>();
+        for (final String part : split(expression)) {
+            predicates.add(parsePredicate(part.trim()));
+        }
+        if (predicates.size() > MAX_PREDICATES) {
+            throw new IllegalArgumentException("At most " + MAX_PREDICATES + " JSON predicates are supported");
+        }
+        return new JsonPredicates(predicates.toArray(new Predicate[0]));
+    }
+
+    /**
+     * Splits the expression at every {@code ||} outside of a quoted string value.
+     */
+    private static @NotNull List<String> split(final @NotNull String expression) {
+        final List<String> parts = new ArrayList<>();
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            final char c = expression.charAt(i);
+            if (quoted && c == '\\') {
+                i++;
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && c == '|' && i + 1 < expression.length() && expression.charAt(i + 1) == '|') {
+                parts.add(expression.substring(start, i));
+                start = i + 2;
+                i++;
+            }
+        }
+        parts.add(expression.substring(start));
+        return parts;
+    }
+
+    private static @NotNull Predicate parsePredicate(final @NotNull String predicate) {
+        if (!predicate.startsWith("$.")) {
+            throw new IllegalArgumentException("JSON predicate '" + predicate + "' must start with '$.'");
+        }
+        // the first operator in the expression wins, two character operators are checked before their prefixes
+        Operator operator = null;
+        int index = -1;
+        for (final Operator candidate : Operator.values()) {
+            final int candidateIndex = predicate.indexOf(candidate.symbol);
+            if (candidateIndex >= 0 && (index < 0 || candidateIndex < index)) {
+                operator = candidate;
+                index = candidateIndex;
+            }
+        }
+        if (operator == null) {
+            throw new IllegalArgumentException("JSON predicate '" + predicate + "' has no comparison operator");
+        }
+        final String path = predicate.substring(2, index).trim();
+        final String value = predicate.substring(index + operator.symbol.length()).trim();
+        final String[] segments = path.split("\\.");
+        final byte[][] pathBytes = new byte[segments.length][];
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].isEmpty()) {
+                throw new IllegalArgumentException("JSON predicate '" + predicate + "' has an empty path segment");
+            }
+            pathBytes[i] = segments[i].getBytes(UTF_8);
+        }
+        return parseValue(predicate, pathBytes, operator, value);
+    }
+
+    private static @NotNull Predicate parseValue(
+            final @NotNull String predicate,
+            final byte @NotNull [] @NotNull [] path,
+            final @NotNull Operator operator,
+            final @NotNull String value) {
+        final byte[] none = new byte[0];
+        final boolean equality = operator == Operator.EQ || operator == Operator.NE;
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            if (!equality) {
+                throw new IllegalArgumentException("JSON predicate '" + predicate + "' compares a string with " +
+                        operator.symbol);
+            }
+            return new Predicate(path, operator, ValueType.STRING,
+                    value.substring(1, value.length() - 1).getBytes(UTF_8), 0);
+        }
+        if (value.equals("true") || value.equals("false") || value.equals("null")) {
+            if (!equality) {
+                throw new IllegalArgumentException("JSON predicate '" + predicate + "' compares " + value +
+                        " with " + operator.symbol);
+            }
+            final ValueType type =
+                    value.equals("true") ? ValueType.TRUE : value.equals("false") ? ValueType.FALSE : ValueType.NULL;
+            return new Predicate(path, operator, type, none, 0);
+        }
+        try {
+            return new Predicate(path, operator, ValueType.NUMBER, none, Double.parseDouble(value));
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("JSON predicate '" + predicate + "' has an invalid value '" + value +
+                    "'");
+        }
+    }
+
+    /**
+     * @return true if at least one predicate is true for the JSON object in {@code buffer[from, to)}.
+     */
+    public boolean matches(final @NotNull ByteBuffer buffer, final int from, final int to) {
+        final Scan scan = new Scan(buffer, to);
+        final int start = scan.skipWhitespace(from);
+        if (start >= to || buffer.get(start) != '{') {
+            return false;
+        }
+        return scan.object(start, 0, allPredicates) == MATCH;
+    }
+
+    /**
+     * Cursor over one payload. Every method takes the current index and returns the index behind the consumed token,
+     * {@link #NO_MATCH} if the payload is malformed, truncated or all predicates are false, or {@link #MATCH}.
+     */
+    private class Scan {
+
+        private final @NotNull ByteBuffer buffer;
+        private final int to;
+        private long undecided = allPredicates;
+
+        private Scan(final @NotNull ByteBuffer buffer, final int to) {
+            this.buffer = buffer;
+            this.to = to;
+        }
+
+        int object(int i, final int depth, final long candidates) {
+            i = skipWhitespace(i + 1);
+            if (i < to && buffer.get(i) == '}') {
+                return i + 1;
+            }
+            while (i < to) {
+                if (buffer.get(i) != '"') {
+                    return NO_MATCH;
+                }
+                final int keyStart = i + 1;
+                final int keyEnd = skipString(i);
+                if (keyEnd < 0) {
+                    return NO_MATCH;
+                }
+                i = skipWhitespace(keyEnd);
+                if (i >= to || buffer.get(i) != ':') {
+                    return NO_MATCH;
+                }
+                i = skipWhitespace(i + 1);
+                if (i >= to) {
+                    return NO_MATCH;
+                }
+
+                long leaves = 0;
+                long children = 0;
+                for (long c = candidates & undecided; c != 0; c &= c - 1) {
+                    final int p = Long.numberOfTrailingZeros(c);
+                    final byte[][] path = predicates[p].path;
+                    if (equalsRaw(keyStart, keyEnd - 1, path[depth])) {
+                        if (path.length == depth + 1) {
+                            leaves |= 1L << p;
+                        } else {
+                            children |= 1L << p;
+                        }
+                    }
+                }
+
+                if (leaves != 0) {
+                    final byte first = buffer.get(i);
+                    if (first != '{' && first != '[' && skipValue(i) < 0) {
+                        // a value cut off by the scan limit, e.g. 12 of 12345, must not decide the match
+                        return NO_MATCH;
+                    }
+                    for (long c = leaves; c != 0; c &= c - 1) {
+                        final int p = Long.numberOfTrailingZeros(c);
+                        if (evaluate(predicates[p], i)) {
+                            return MATCH;
+                        }
+                        undecided &= ~(1L << p);
+                    }
+                    if (undecided == 0) {
+                        return NO_MATCH;
+                    }
+                }
+                if (children != 0 && buffer.get(i) == '{') {
+                    i = object(i, depth + 1, children);
+                } else {
+                    i = skipValue(i);
+                }
+                if (i < 0) {
+                    return i;
+                }
+
+                i = skipWhitespace(i);
+                if (i >= to) {
+                    return NO_MATCH;
+                }
+                final byte b = buffer.get(i);
+                if (b == '}') {
+                    return i + 1;
+                }
+                if (b != ',') {
+                    return NO_MATCH;
+                }
+                i = skipWhitespace(i + 1);
+            }
+            return NO_MATCH;
+        }
+
+        private boolean evaluate(final @NotNull Predicate predicate, final int i) {
+            final byte b = buffer.get(i);
+            final boolean equal;
+            switch (predicate.type) {
+                case STRING:
+                    if (b != '"') {
+                        return predicate.operator == Operator.NE;
+                    }
+                    final int end = skipString(i);
+                    equal = end > 0 && equalsRaw(i + 1, end - 1, predicate.string);
+                    break;
+                case TRUE:
+                    equal = isLiteral(i, TRUE_LITERAL);
+                    break;
+                case FALSE:
+                    equal = isLiteral(i, FALSE_LITERAL);
+                    break;
+                case NULL:
+                    equal = isLiteral(i, NULL_LITERAL);
+                    break;
+                default:
+                    if (b != '-' && (b < '0' || b > '9')) {
+                        return predicate.operator == Operator.NE;
+                    }
+                    return compare(parseNumber(i), predicate.number, predicate.operator);
+            }
+            return predicate.operator == Operator.EQ ? equal : !equal;
+        }
+
+        /**
+         * @return whether the whole literal followed by a delimiter starts at {@code i}, so {@code tru} or
+         *         {@code nope} are neither {@code true} nor {@code null}.
+         */
+        private boolean isLiteral(final int i, final byte @NotNull [] literal) {
+            final int end = i + literal.length;
+            return end < to && equalsRaw(i, end, literal) && isDelimiter(buffer.get(end));
+        }
+
+        private boolean equalsRaw(final int start, final int end, final byte @NotNull [] expected) {
+            if (end - start != expected.length) {
+                return false;
+            }
+            for (int j = 0; j < expected.length; j++) {
+                if (buffer.get(start + j) != expected[j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Parses the number starting at {@code i}. Numbers with at most 15 significant digits and a decimal exponent
+         * of at most 22 are computed with one exact multiplication or division, which is correctly rounded like
+         * {@link Double#parseDouble(String)}. All other numbers are parsed from their text.
+         */
+        private double parseNumber(final int start) {
+            int i = start;
+            boolean negative = false;
+            if (buffer.get(i) == '-') {
+                negative = true;
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean fraction = false;
+            boolean exact = true;
+            for (; i < to; i++) {
+                final byte b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    if (mantissa != 0 || b != '0') {
+                        digits++;
+                    }
+                    if (digits <= MAX_EXACT_DIGITS) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        if (fraction) {
+                            exponent--;
+                        }
+                    } else {
+                        exact = false;
+                    }
+                } else if (b == '.' && !fraction) {
+                    fraction = true;
+                } else if (b == 'e' || b == 'E' || b == '+' || b == '-') {
+                    exact = false;
+                } else {
+                    break;
+                }
+            }
+            if (!exact || exponent < -MAX_EXACT_POWER) {
+                return parseText(start, i);
+            }
+            final double value = exponent == 0 ? mantissa : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+
+        private double parseText(final int start, final int end) {
+            final byte[] bytes = new byte[end - start];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = buffer.get(start + j);
+            }
+            try {
+                return Double.parseDouble(new String(bytes, US_ASCII));
+            } catch (final NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        private int skipValue(final int i) {
+            final byte b = buffer.get(i);
+            if (b == '"') {
+                return skipString(i);
+            }
+            if (b == '{' || b == '[') {
+                return skipContainer(i);
+            }
+            for (int j = i; j < to; j++) {
+                if (isDelimiter(buffer.get(j))) {
+                    return j;
+                }
+            }
+            return NO_MATCH;
+        }
+
+        /**
+         * Skips a whole object or array by counting brackets outside of strings, without looking at its content.
+         */
+        private int skipContainer(int i) {
+            int nesting = 0;
+            while (i < to) {
+                final byte b = buffer.get(i);
+                if (b == '"') {
+                    i = skipString(i);
+                    if (i < 0) {
+                        return NO_MATCH;
+                    }
+                    continue;
+                }
+                if (b == '{' || b == '[') {
+                    nesting++;
+                } else if (b == '}' || b == ']') {
+                    nesting--;
+                    if (nesting == 0) {
+                        return i + 1;
+                    }
+                }
+                i++;
+            }
+            return NO_MATCH;
+        }
+
+        /**
+         * @return the index behind the closing quote of the string starting at {@code i}.
+         */
+        private int skipString(int i) {
+            i++;
+            while (i < to) {
+                final byte b = buffer.get(i);
+                if (b == '\\') {
+                    i += 2;
+                } else if (b == '"') {
+                    return i + 1;
+                } else {
+                    i++;
+                }
+            }
+            return NO_MATCH;
+        }
+
+        int skipWhitespace(int i) {
+            while (i < to) {
+                final byte b = buffer.get(i);
+                if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                    return i;
+                }
+                i++;
+            }
+            return i;
+        }
+    }
+
+    private static boolean isDelimiter(final byte b) {
+        return b == ',' || b == '}' || b == ']' || b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean compare(final double actual, final double expected, final @NotNull Operator operator) {
+        switch (operator) {
+            case EQ:
+                return actual == expected;
+            case NE:
+                return actual != expected;
+            case GT:
+                return actual > expected;
+            case GE:
+                return actual >= expected;
+            case LT:
+                return actual < expected;
+            default:
+                return actual <= expected;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.filter;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Decides whether a PUBLISH payload should be logged, without decoding the payload to a String.
+ * <p>
+ * A literal marker ({@code payload-contains}) is searched with Boyer-Moore-Horspool directly on the payload bytes.
+ * A regular expression ({@code payload-regex}) is evaluated against a {@link CharSequence} view of the payload bytes,
+ * each byte being read as one ISO-8859-1 character, so ASCII patterns behave as expected. Both searches never look
+ * further than {@code payload-max-scan-bytes} into the payload. JSON payloads can be filtered with field predicates
+ * ({@code payload-json}, see {@link JsonPredicates}). All configured payload filters have to match.
+ *
+ * @since 1.2.0
+ */
+public class PayloadFilter {
+
+    private final byte @Nullable [] needle;
+    private final int @Nullable [] shift;
+    private final @Nullable Pattern regex;
+    private final @Nullable JsonPredicates json;
+    private final int maxScanBytes;
+
+    PayloadFilter(
+            final @Nullable String contains,
+            final @Nullable Pattern regex,
+            final @Nullable JsonPredicates json,
+            final int maxScanBytes) {
+        if (contains == null || contains.isEmpty()) {
+            this.needle = null;
+            this.shift = null;
+        } else {
+            this.needle = contains.getBytes(UTF_8);
+            this.shift = createShiftTable(needle);
+        }
+        this.regex = regex;
+        this.json = json;
+        this.maxScanBytes = maxScanBytes;
+    }
+
+    /**
+     * @return the payload filter for the given config or an empty optional if no payload filter is configured.
+     */
+    public static @NotNull Optional<PayloadFilter> create(final @NotNull MqttMessageLogConfig config) {
+        final String contains = config.getPayloadContains();
+        final String regex = config.getPayloadRegex();
+        final String json = config.getPayloadJson();
+        if (contains.isEmpty() && regex.isEmpty() && json.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new PayloadFilter(contains,
+                regex.isEmpty() ? null : Pattern.compile(regex),
+                json.isEmpty() ? null : JsonPredicates.parse(json),
+                config.getPayloadMaxScanBytes()));
+    }
+
+    public boolean matches(final @NotNull Optional<ByteBuffer> payload) {
+        if (payload.isEmpty()) {
+            return false;
+        }
+        final ByteBuffer buffer = payload.get();
+        final int from = buffer.position();
+        final int to = from + Math.min(buffer.remaining(), maxScanBytes);
+        if (needle != null && indexOf(buffer, from, to) < 0) {
+            return false;
+        }
+        if (regex != null && !regex.matcher(new ByteBufferCharSequence(buffer, from, to)).find()) {
+            return false;
+        }
+        return json == null || json.matches(buffer, from, to);
+    }
+
+    int indexOf(final @NotNull ByteBuffer buffer, final int from, final int to) {
+        final byte[] needle = this.needle;
+        final int[] shift = this.shift;
+        assert needle != null && shift != null;
+        final int last = needle.length - 1;
+        int i = from;
+        while (i + last < to) {
+            int j = last;
+            while (buffer.get(i + j) == needle[j]) {
+                if (j == 0) {
+                    return i;
+                }
+                j--;
+            }
+            i += shift[buffer.get(i + last) & 0xFF];
+        }
+        return -1;
+    }
+
+    private static int @NotNull [] createShiftTable(final byte @NotNull [] needle) {
+        final int[] shift = new int[256];
+        final int last = needle.length - 1;
+        for (int i = 0; i < shift.length; i++) {
+            shift[i] = needle.length;
+        }
+        for (int i = 0; i < last; i++) {
+            shift[needle[i] & 0xFF] = last - i;
+        }
+        return shift;
+    }
+
+    /**
+     * Read-only view of a region of a {@link ByteBuffer} as ISO-8859-1 characters, using absolute gets only so the
+     * position of the underlying buffer is never touched.
+     */
+    static class ByteBufferCharSequence implements CharSequence {
+
+        private final @NotNull ByteBuffer buffer;
+        private final int from;
+        private final int to;
+
+        ByteBufferCharSequence(final @NotNull ByteBuffer buffer, final int from, final int to) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int length() {
+            return to - from;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return (char) (buffer.get(from + index) & 0xFF);
+        }
+
+        @Override
+        public @NotNull CharSequence subSequence(final int start, final int end) {
+            return new ByteBufferCharSequence(buffer, from + start, from + end);
+        }
+
+        @Override
+        public @NotNull String toString() {
+            final char[] chars = new char[length()];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = charAt(i);
+            }
+            return new String(chars);
+        }
+    }
+}
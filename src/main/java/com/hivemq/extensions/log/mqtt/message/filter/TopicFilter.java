@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.filter;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An MQTT topic filter with the usual {@code +} and {@code #} wildcard semantics. Matching walks the topic in place
+ * without splitting it.
+ *
+ * @since 1.2.0
+ */
+public class TopicFilter {
+
+    private final @NotNull String filter;
+    private final @NotNull String @NotNull [] levels;
+
+    public TopicFilter(final @NotNull String filter) {
+        this.filter = filter;
+        this.levels = filter.split("/", -1);
+        for (int i = 0; i < levels.length; i++) {
+            final String level = levels[i];
+            if ((level.contains("#") && (!level.equals("#") || i != levels.length - 1)) ||
+                    (level.contains("+") && !level.equals("+"))) {
+                throw new IllegalArgumentException("Invalid topic filter '" + filter + "'");
+            }
+        }
+    }
+
+    /**
+     * @return the topic filters of a comma separated list, blank entries are ignored.
+     */
+    public static @NotNull List<TopicFilter> parseList(final @NotNull String filters) {
+        final List<TopicFilter> topicFilters = new ArrayList<>();
+        for (final String filter : filters.split(",")) {
+            if (!filter.isBlank()) {
+                topicFilters.add(new TopicFilter(filter.trim()));
+            }
+        }
+        return topicFilters;
+    }
+
+    public boolean matches(final @NotNull String topic) {
+        // wildcards at the first level do not match topics starting with $
+        if (!topic.isEmpty() && topic.charAt(0) == '$' && (levels[0].equals("+") || levels[0].equals("#"))) {
+            return false;
+        }
+        int start = 0;
+        for (final String level : levels) {
+            if (level.equals("#")) {
+                // also matches the parent level, "a/#" matches "a"
+                return true;
+            }
+            if (start > topic.length()) {
+                return false;
+            }
+            int end = topic.indexOf('/', start);
+            if (end < 0) {
+                end = topic.length();
+            }
+            if (!level.equals("+") &&
+                    (end - start != level.length() || !topic.regionMatches(start, level, 0, level.length()))) {
+                return false;
+            }
+            start = end + 1;
+        }
+        return start > topic.length();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return filter;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.filter;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which traffic is logged verbose. Traffic of clients matching {@code verbose-client-regex} and PUBLISH
+ * messages matching one of the {@code verbose-topic-filters} are logged verbose, all other traffic is logged compact,
+ * unless {@code verbose} is enabled globally.
+ * <p>
+ * The client decision is meant to be taken once per connection and handed to the interceptors of that connection.
+ *
+ * @since 1.2.0
+ */
+public class VerboseFilter {
+
+    private final boolean verbose;
+    private final @Nullable Pattern clientPattern;
+    private final @NotNull TopicFilter @NotNull [] topicFilters;
+
+    VerboseFilter(
+            final boolean verbose,
+            final @Nullable Pattern clientPattern,
+            final @NotNull List<TopicFilter> topicFilters) {
+        this.verbose = verbose;
+        this.clientPattern = clientPattern;
+        this.topicFilters = topicFilters.toArray(new TopicFilter[0]);
+    }
+
+    public static @NotNull VerboseFilter create(final @NotNull MqttMessageLogConfig config) {
+        final String clientRegex = config.getVerboseClientRegex();
+        return new VerboseFilter(config.isVerbose(),
+                clientRegex.isEmpty() ? null : Pattern.compile(clientRegex),
+                TopicFilter.parseList(config.getVerboseTopicFilters()));
+    }
+
+    public boolean isVerbose(final @NotNull String clientId) {
+        return verbose || (clientPattern != null && clientPattern.matcher(clientId).matches());
+    }
+
+    public boolean isVerboseTopic(final @NotNull String topic) {
+        for (final TopicFilter topicFilter : topicFilters) {
+            if (topicFilter.matches(topic)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
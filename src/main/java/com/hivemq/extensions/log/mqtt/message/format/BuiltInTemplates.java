@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.packets.connack.ConnackPacket;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.connect.WillPublishPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.puback.PubackPacket;
+import com.hivemq.extension.sdk.api.packets.pubcomp.PubcompPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.pubrec.PubrecPacket;
+import com.hivemq.extension.sdk.api.packets.pubrel.PubrelPacket;
+import com.hivemq.extension.sdk.api.packets.suback.SubackPacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.SubscribePacket;
+import com.hivemq.extension.sdk.api.packets.unsuback.UnsubackPacket;
+import com.hivemq.extension.sdk.api.packets.unsubscribe.UnsubscribePacket;
+import com.hivemq.extension.sdk.api.parameter.ClientBasedInput;
+
+/**
+ * The templates of the built-in compact and verbose log lines.
+ *
+ * @since 1.2.0
+ */
+public final class BuiltInTemplates {
+
+    public static final @NotNull String PUBLISH_BODY = "Payload: '${payload}', QoS: '${qos}', Retained: '${retain}'";
+    public static final @NotNull String PUBLISH_VERBOSE_BODY = PUBLISH_BODY +
+            ", Message Expiry Interval: '${messageExpiry}', Duplicate Delivery: '${dup}'," +
+            " Correlation Data: '${correlationData}', Response Topic: '${responseTopic}'," +
+            " Content Type: '${contentType}', Payload Format Indicator: '${payloadFormatIndicator}'," +
+            " Subscription Identifiers: '${subscriptionIdentifiers}', ${userProperties}";
+
+    private static final @NotNull String CONNECT = "Received CONNECT from client '${clientId}':" +
+            " Protocol version: '${protocolVersion}', Clean Start: '${cleanStart}'," +
+            " Session Expiry Interval: '${sessionExpiry}'";
+    private static final @NotNull String CONNACK = "Sent CONNACK to client '${clientId}':" +
+            " Reason Code: '${reasonCode}', Session Present: '${sessionPresent}'";
+    private static final @NotNull String ACK_VERBOSE = ", Reason String: '${reasonString}', ${userProperties}";
+
+    public static final @NotNull Layout<PublishPacket> PUBLISH_BODIES =
+            layout(PacketFields.PUBLISH, PUBLISH_BODY, PUBLISH_VERBOSE_BODY);
+
+    public static final @NotNull Layout<PublishPacket> PUBLISH_RECEIVED = layout(PacketFields.PUBLISH,
+            "Received PUBLISH from client '${clientId}' for topic '${topic}': " + PUBLISH_BODY,
+            "Received PUBLISH from client '${clientId}' for topic '${topic}': " + PUBLISH_VERBOSE_BODY);
+
+    public static final @NotNull Layout<PublishPacket> PUBLISH_SEND = layout(PacketFields.PUBLISH,
+            "Sent PUBLISH to client '${clientId}' on topic '${topic}': " + PUBLISH_BODY,
+            "Sent PUBLISH to client '${clientId}' on topic '${topic}': " + PUBLISH_VERBOSE_BODY);
+
+    public static final @NotNull Template<WillPublishPacket> WILL = Template.compile(
+            ", Will: { Topic: '${topic}', " + PUBLISH_VERBOSE_BODY + ", Will Delay: '${willDelay}' }",
+            PacketFields.WILL);
+
+    public static final @NotNull Layout<ConnectPacket> CONNECT_RECEIVED = layout(PacketFields.CONNECT,
+            CONNECT,
+            CONNECT + ", Keep Alive: '${keepAlive}', Maximum Packet Size: '${maximumPacketSize}'," +
+                    " Receive Maximum: '${receiveMaximum}', Topic Alias Maximum: '${topicAliasMaximum}'," +
+                    " Request Problem Information: '${requestProblemInformation}'," +
+                    " Request Response Information: '${requestResponseInformation}', " +
+                    " Username: '${username}', ${password}, Auth Method: '${authMethod}'," +
+                    " Auth Data (Base64): '${authData}', ${userProperties}${willSuffix}");
+
+    public static final @NotNull Layout<ConnackPacket> CONNACK_SEND = layout(PacketFields.CONNACK,
+            CONNACK,
+            CONNACK + ", Session Expiry Interval: '${sessionExpiry}', Assigned clientId '${assignedClientId}'," +
+                    " Maximum QoS: '${maximumQos}', Maximum Packet Size: '${maximumPacketSize}'," +
+                    " Receive Maximum: '${receiveMaximum}', Topic Alias Maximum: '${topicAliasMaximum}'," +
+                    " Reason String: '${reasonString}', Response Information: '${responseInformation}'," +
+                    " Server Keep Alive: '${serverKeepAlive}', Server Reference: '${serverReference}'," +
+                    " Shared Subscription Available: '${sharedSubscriptionsAvailable}'," +
+                    " Wildcards Available: '${wildcardsAvailable}', Retain Available: '${retainAvailable}'," +
+                    " Subscription Identifiers Available: '${subscriptionIdentifiersAvailable}'," +
+                    " Auth Method: '${authMethod}', Auth Data (Base64): '${authData}', ${userProperties}");
+
+    public static final @NotNull Layout<DisconnectPacket> DISCONNECT_RECEIVED = disconnect(true);
+    public static final @NotNull Layout<DisconnectPacket> DISCONNECT_SEND = disconnect(false);
+
+    public static final @NotNull Layout<SubscribePacket> SUBSCRIBE_RECEIVED = layout(PacketFields.SUBSCRIBE,
+            "Received SUBSCRIBE from client '${clientId}': ${topics}",
+            "Received SUBSCRIBE from client '${clientId}': ${subscriptions}," +
+                    " Subscription Identifier: '${subscriptionIdentifier}', ${userProperties}");
+
+    public static final @NotNull Layout<SubackPacket> SUBACK_SEND = layout(PacketFields.SUBACK,
+            "Sent SUBACK to client '${clientId}': ${reasonCodes}",
+            "Sent SUBACK to client '${clientId}': ${reasonCodes}" + ACK_VERBOSE);
+
+    public static final @NotNull Layout<UnsubscribePacket> UNSUBSCRIBE_RECEIVED = layout(PacketFields.UNSUBSCRIBE,
+            "Received UNSUBSCRIBE from client '${clientId}': ${topics}",
+            "Received UNSUBSCRIBE from client '${clientId}': ${topics}, ${userProperties}");
+
+    public static final @NotNull Layout<UnsubackPacket> UNSUBACK_SEND = layout(PacketFields.UNSUBACK,
+            "Sent UNSUBACK to client '${clientId}': ${reasonCodes}",
+            "Sent UNSUBACK to client '${clientId}': ${reasonCodes}" + ACK_VERBOSE);
+
+    public static final @NotNull Layout<ClientBasedInput> PING_REQUEST_RECEIVED =
+            layout(PacketFields.PING, "Received PING REQUEST from client '${clientId}'", null);
+    public static final @NotNull Layout<ClientBasedInput> PING_RESPONSE_SEND =
+            layout(PacketFields.PING, "Sent PING RESPONSE to client '${clientId}'", null);
+
+    public static final @NotNull Layout<PubackPacket> PUBACK_RECEIVED = ack(PacketFields.PUBACK, "PUBACK", true);
+    public static final @NotNull Layout<PubackPacket> PUBACK_SEND = ack(PacketFields.PUBACK, "PUBACK", false);
+    public static final @NotNull Layout<PubrecPacket> PUBREC_RECEIVED = ack(PacketFields.PUBREC, "PUBREC", true);
+    public static final @NotNull Layout<PubrecPacket> PUBREC_SEND = ack(PacketFields.PUBREC, "PUBREC", false);
+    public static final @NotNull Layout<PubrelPacket> PUBREL_RECEIVED = ack(PacketFields.PUBREL, "PUBREL", true);
+    public static final @NotNull Layout<PubrelPacket> PUBREL_SEND = ack(PacketFields.PUBREL, "PUBREL", false);
+    public static final @NotNull Layout<PubcompPacket> PUBCOMP_RECEIVED =
+            ack(PacketFields.PUBCOMP, "PUBCOMP", true);
+    public static final @NotNull Layout<PubcompPacket> PUBCOMP_SEND = ack(PacketFields.PUBCOMP, "PUBCOMP", false);
+
+    private BuiltInTemplates() {
+    }
+
+    /**
+     * @return the prefix of the built-in log lines, e.g. {@code Received PUBACK from client '${clientId}': }.
+     */
+    static @NotNull String prefix(final @NotNull String packetName, final boolean inbound) {
+        return (inbound ? "Received " : "Sent ") + packetName + (inbound ? " from client " : " to client ") +
+                "'${clientId}': ";
+    }
+
+    private static @NotNull Layout<DisconnectPacket> disconnect(final boolean inbound) {
+        final String compact = prefix("DISCONNECT", inbound) + "Reason Code: '${reasonCode}'";
+        return layout(PacketFields.DISCONNECT,
+                compact,
+                compact + ", Reason String: '${reasonString}', Server Reference: '${serverReference}'," +
+                        " Session Expiry: '${sessionExpiry}', ${userProperties}");
+    }
+
+    private static <P> @NotNull Layout<P> ack(
+            final @NotNull FieldCatalog<P> catalog, final @NotNull String packetName, final boolean inbound) {
+        final String compact = prefix(packetName, inbound) + "Reason Code: '${reasonCode}'";
+        return layout(catalog, compact, compact + ACK_VERBOSE);
+    }
+
+    private static <P> @NotNull Layout<P> layout(
+            final @NotNull FieldCatalog<P> catalog,
+            final @NotNull String compact,
+            final @Nullable String verbose) {
+        final Template<P> compactTemplate = Template.compile(compact, catalog);
+        return new Layout<>(compactTemplate, verbose == null ? compactTemplate : Template.compile(verbose, catalog));
+    }
+
+    /**
+     * The compact and the verbose template of an event.
+     */
+    public static class Layout<P> {
+
+        private final @NotNull Template<P> compact;
+        private final @NotNull Template<P> verbose;
+
+        Layout(final @NotNull Template<P> compact, final @NotNull Template<P> verbose) {
+            this.compact = compact;
+            this.verbose = verbose;
+        }
+
+        public @NotNull Template<P> get(final boolean verbose) {
+            return verbose ? this.verbose : compact;
+        }
+    }
+}
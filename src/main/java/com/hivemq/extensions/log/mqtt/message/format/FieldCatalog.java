@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * The named fields that can be selected for one packet type, each with the label it is logged with. Hidden fields
+ * are only available to templates, they exist to reproduce the built-in log lines.
+ *
+ * @param <P> the packet type.
+ * @since 1.2.0
+ */
+public class FieldCatalog<P> {
+
+    private final @NotNull String packetType;
+    private final @NotNull Map<String, Entry<P>> entries = new LinkedHashMap<>();
+
+    FieldCatalog(final @NotNull String packetType) {
+        this.packetType = packetType;
+    }
+
+    public @NotNull String getPacketType() {
+        return packetType;
+    }
+
+    /**
+     * @return the names of all fields that are not hidden.
+     */
+    public @NotNull Set<String> getNames() {
+        final Set<String> names = new LinkedHashSet<>();
+        for (final Entry<P> entry : entries.values()) {
+            if (!entry.hidden) {
+                names.add(entry.name);
+            }
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * @return the field with the given name.
+     * @throws IllegalArgumentException if the catalog has no field with the given name or the field is hidden.
+     */
+    public @NotNull Entry<P> get(final @NotNull String name) {
+        final Entry<P> entry = entries.get(name);
+        if (entry == null || entry.hidden) {
+            throw unknownField(name);
+        }
+        return entry;
+    }
+
+    /**
+     * @return the field with the given name, including hidden fields.
+     * @throws IllegalArgumentException if the catalog has no field with the given name.
+     */
+    public @NotNull Entry<P> getForTemplate(final @NotNull String name) {
+        final Entry<P> entry = entries.get(name);
+        if (entry == null) {
+            throw unknownField(name);
+        }
+        return entry;
+    }
+
+    private @NotNull IllegalArgumentException unknownField(final @NotNull String name) {
+        return new IllegalArgumentException("Unknown " + packetType + " field '" + name + "', available fields: " +
+                String.join(",", getNames()));
+    }
+
+    @NotNull FieldCatalog<P> object(
+            final @NotNull String name,
+            final @NotNull String label,
+            final @NotNull Function<P, Object> getter) {
+        return add(name, label, (builder, packet) -> builder.append(getter.apply(packet)));
+    }
+
+    @NotNull FieldCatalog<P> integer(
+            final @NotNull String name,
+            final @NotNull String label,
+            final @NotNull ToIntFunction<P> getter) {
+        return add(name, label, (builder, packet) -> builder.append(getter.applyAsInt(packet)));
+    }
+
+    @NotNull FieldCatalog<P> longValue(
+            final @NotNull String name,
+            final @NotNull String label,
+            final @NotNull ToLongFunction<P> getter) {
+        return add(name, label, (builder, packet) -> builder.append(getter.applyAsLong(packet)));
+    }
+
+    @NotNull FieldCatalog<P> bool(
+            final @NotNull String name,
+            final @NotNull String label,
+            final @NotNull Predicate<P> getter) {
+        return add(name, label, (builder, packet) -> builder.append(getter.test(packet)));
+    }
+
+    /**
+     * Adds a field with a label, its value is quoted like {@code Label: 'value'}.
+     */
+    @NotNull FieldCatalog<P> add(
+            final @NotNull String name,
+            final @NotNull String label,
+            final @NotNull PacketField<P> field) {
+        entries.put(name, new Entry<>(name, label, field, false));
+        return this;
+    }
+
+    /**
+     * Adds a field that renders its label itself, for example the user properties.
+     */
+    @NotNull FieldCatalog<P> raw(final @NotNull String name, final @NotNull PacketField<P> field) {
+        entries.put(name, new Entry<>(name, null, field, false));
+        return this;
+    }
+
+    /**
+     * Adds a field that can only be used in templates.
+     */
+    @NotNull FieldCatalog<P> hidden(final @NotNull String name, final @NotNull PacketField<P> field) {
+        entries.put(name, new Entry<>(name, null, field, true));
+        return this;
+    }
+
+    /**
+     * Adds all fields of a catalog of a super type, e.g. the PUBLISH fields to the will catalog.
+     */
+    @NotNull FieldCatalog<P> addAll(final @NotNull FieldCatalog<? super P> catalog) {
+        for (final Entry<? super P> entry : catalog.entries.values()) {
+            final PacketField<? super P> field = entry.field;
+            entries.put(entry.name, new Entry<P>(entry.name, entry.label, field::append, entry.hidden));
+        }
+        return this;
+    }
+
+    public static class Entry<P> {
+
+        private final @NotNull String name;
+        private final @Nullable String label;
+        private final @NotNull PacketField<P> field;
+        private final boolean hidden;
+
+        Entry(
+                final @NotNull String name,
+                final @Nullable String label,
+                final @NotNull PacketField<P> field,
+                final boolean hidden) {
+            this.name = name;
+            this.label = label;
+            this.field = field;
+            this.hidden = hidden;
+        }
+
+        public @NotNull String getName() {
+            return name;
+        }
+
+        /**
+         * @return the label or {@code null} if the field renders its label itself.
+         */
+        public @Nullable String getLabel() {
+            return label;
+        }
+
+        public @NotNull PacketField<P> getField() {
+            return field;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders only the selected fields of a packet, e.g. {@code Topic: 'a/b', QoS: '1'}.
+ * <p>
+ * The field list is compiled once into an array of writers with their label prefixes already built, so rendering a
+ * packet only reads and encodes the selected fields.
+ *
+ * @param <P> the packet type.
+ * @since 1.2.0
+ */
+public class FieldProjection<P> implements PacketField<P> {
+
+    private final @NotNull String @NotNull [] prefixes;
+    private final @NotNull String @NotNull [] suffixes;
+    private final @NotNull PacketField<P> @NotNull [] fields;
+
+    private FieldProjection(
+            final @NotNull String @NotNull [] prefixes,
+            final @NotNull String @NotNull [] suffixes,
+            final @NotNull PacketField<P> @NotNull [] fields) {
+        this.prefixes = prefixes;
+        this.suffixes = suffixes;
+        this.fields = fields;
+    }
+
+    /**
+     * @param fieldList comma separated field names of the catalog, blank entries are ignored.
+     * @return the compiled projection or {@code null} if the field list is blank.
+     * @throws IllegalArgumentException if a field is not part of the catalog.
+     */
+    @SuppressWarnings("unchecked")
+    public static <P> @Nullable FieldProjection<P> compile(
+            final @NotNull FieldCatalog<P> catalog, final @NotNull String fieldList) {
+        final List<String> prefixes = new ArrayList<>();
+        final List<String> suffixes = new ArrayList<>();
+        final List<PacketField<P>> fields = new ArrayList<>();
+        for (final String name : fieldList.split(",")) {
+            if (name.isBlank()) {
+                continue;
+            }
+            final FieldCatalog.Entry<P> entry = catalog.get(name.trim());
+            final String separator = fields.isEmpty() ? "" : ", ";
+            if (entry.getLabel() == null) {
+                prefixes.add(separator);
+                suffixes.add("");
+            } else {
+                prefixes.add(separator + entry.getLabel() + ": '");
+                suffixes.add("'");
+            }
+            fields.add(entry.getField());
+        }
+        if (fields.isEmpty()) {
+            return null;
+        }
+        return new FieldProjection<>(prefixes.toArray(new String[0]),
+                suffixes.toArray(new String[0]),
+                fields.toArray(new PacketField[0]));
+    }
+
+    @Override
+    public void append(final @NotNull StringBuilder builder, final @NotNull P packet) {
+        for (int i = 0; i < fields.length; i++) {
+            builder.append(prefixes[i]);
+            fields[i].append(builder, packet);
+            builder.append(suffixes[i]);
+        }
+    }
+}
@@ -0,0 +1,565 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
+import com.hivemq.extension.sdk.api.interceptor.connack.parameter.ConnackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingresp.parameter.PingRespOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.suback.parameter.SubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsuback.parameter.UnsubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.parameter.UnsubscribeInboundInput;
+import com.hivemq.extension.sdk.api.packets.connack.ConnackPacket;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.connect.WillPublishPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.general.Qos;
+import com.hivemq.extension.sdk.api.packets.general.UserProperties;
+import com.hivemq.extension.sdk.api.packets.general.UserProperty;
+import com.hivemq.extension.sdk.api.packets.puback.PubackPacket;
+import com.hivemq.extension.sdk.api.packets.pubcomp.PubcompPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.pubrec.PubrecPacket;
+import com.hivemq.extension.sdk.api.packets.pubrel.PubrelPacket;
+import com.hivemq.extension.sdk.api.packets.suback.SubackPacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.SubscribePacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.Subscription;
+import com.hivemq.extension.sdk.api.packets.unsuback.UnsubackPacket;
+import com.hivemq.extension.sdk.api.packets.unsubscribe.UnsubscribePacket;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+import com.hivemq.extensions.log.mqtt.message.format.JsonWriter.Name;
+import com.hivemq.extensions.log.mqtt.message.util.IsoTimestamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Logs every packet as one JSON object per line (JSON lines) to the message log. The fields are typed: numbers and
+ * booleans are JSON numbers and booleans, enums are written with their name, absent optional properties are omitted.
+ * Every object starts with {@code timestamp}, {@code node}, {@code direction} ({@code in} or {@code out}),
+ * {@code packetType} and {@code clientId}, followed by the fields of the packet. Verbose adds the less frequently
+ * needed MQTT 5 properties. Payloads and correlation data are written in the configured payload encoding.
+ * <p>
+ * The lines are written with a {@link JsonWriter} that is reused per thread, no object tree is built and nothing is
+ * serialized with reflection.
+ *
+ * @since 1.2.0
+ */
+public class JsonLinesFormat implements MessageLogFormat {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(JsonLinesFormat.class);
+
+    private static final @NotNull Name ASSIGNED_CLIENT_ID = Name.of("assignedClientId");
+    private static final @NotNull Name AUTH_DATA = Name.of("authData");
+    private static final @NotNull Name AUTH_METHOD = Name.of("authMethod");
+    private static final @NotNull Name AUTHENTICATION_FAILED = Name.of("authenticationFailed");
+    private static final @NotNull Name CLEAN_START = Name.of("cleanStart");
+    private static final @NotNull Name CLIENT_ID = Name.of("clientId");
+    private static final @NotNull Name CONTENT_TYPE = Name.of("contentType");
+    private static final @NotNull Name CORRELATION_DATA = Name.of("correlationData");
+    private static final @NotNull Name DIRECTION = Name.of("direction");
+    private static final @NotNull Name DUP = Name.of("dup");
+    private static final @NotNull Name KEEP_ALIVE = Name.of("keepAlive");
+    private static final @NotNull Name MAXIMUM_PACKET_SIZE = Name.of("maximumPacketSize");
+    private static final @NotNull Name MAXIMUM_QOS = Name.of("maximumQos");
+    private static final @NotNull Name MESSAGE_EXPIRY = Name.of("messageExpiry");
+    private static final @NotNull Name NAME = Name.of("name");
+    private static final @NotNull Name NODE = Name.of("node");
+    private static final @NotNull Name NO_LOCAL = Name.of("noLocal");
+    private static final @NotNull Name PACKET_ID = Name.of("packetId");
+    private static final @NotNull Name PACKET_TYPE = Name.of("packetType");
+    private static final @NotNull Name PAYLOAD = Name.of("payload");
+    private static final @NotNull Name PAYLOAD_FORMAT_INDICATOR = Name.of("payloadFormatIndicator");
+    private static final @NotNull Name PROTOCOL_VERSION = Name.of("protocolVersion");
+    private static final @NotNull Name QOS = Name.of("qos");
+    private static final @NotNull Name REASON_CODE = Name.of("reasonCode");
+    private static final @NotNull Name REASON_CODES = Name.of("reasonCodes");
+    private static final @NotNull Name REASON_STRING = Name.of("reasonString");
+    private static final @NotNull Name RECEIVE_MAXIMUM = Name.of("receiveMaximum");
+    private static final @NotNull Name REQUEST_PROBLEM_INFORMATION = Name.of("requestProblemInformation");
+    private static final @NotNull Name REQUEST_RESPONSE_INFORMATION = Name.of("requestResponseInformation");
+    private static final @NotNull Name RESPONSE_INFORMATION = Name.of("responseInformation");
+    private static final @NotNull Name RESPONSE_TOPIC = Name.of("responseTopic");
+    private static final @NotNull Name RETAIN = Name.of("retain");
+    private static final @NotNull Name RETAIN_AS_PUBLISHED = Name.of("retainAsPublished");
+    private static final @NotNull Name RETAIN_AVAILABLE = Name.of("retainAvailable");
+    private static final @NotNull Name RETAIN_HANDLING = Name.of("retainHandling");
+    private static final @NotNull Name SERVER_KEEP_ALIVE = Name.of("serverKeepAlive");
+    private static final @NotNull Name SERVER_REFERENCE = Name.of("serverReference");
+    private static final @NotNull Name SESSION_EXPIRY = Name.of("sessionExpiry");
+    private static final @NotNull Name SESSION_PRESENT = Name.of("sessionPresent");
+    private static final @NotNull Name SHARED_SUBSCRIPTIONS_AVAILABLE = Name.of("sharedSubscriptionsAvailable");
+    private static final @NotNull Name SUBSCRIPTIONS = Name.of("subscriptions");
+    private static final @NotNull Name SUBSCRIPTION_IDENTIFIER = Name.of("subscriptionIdentifier");
+    private static final @NotNull Name SUBSCRIPTION_IDENTIFIERS = Name.of("subscriptionIdentifiers");
+    private static final @NotNull Name SUBSCRIPTION_IDENTIFIERS_AVAILABLE = Name.of("subscriptionIdentifiersAvailable");
+    private static final @NotNull Name TIMESTAMP = Name.of("timestamp");
+    private static final @NotNull Name TOPIC = Name.of("topic");
+    private static final @NotNull Name TOPICS = Name.of("topics");
+    private static final @NotNull Name TOPIC_ALIAS_MAXIMUM = Name.of("topicAliasMaximum");
+    private static final @NotNull Name USERNAME = Name.of("username");
+    private static final @NotNull Name USER_PROPERTIES = Name.of("userProperties");
+    private static final @NotNull Name VALUE = Name.of("value");
+    private static final @NotNull Name WILDCARDS_AVAILABLE = Name.of("wildcardsAvailable");
+    private static final @NotNull Name WILL = Name.of("will");
+    private static final @NotNull Name WILL_DELAY = Name.of("willDelay");
+
+    // the direction and packet type members of outbound and inbound packets
+    private static final @NotNull String @NotNull [] CONNECT_HEADERS = headers("CONNECT");
+    private static final @NotNull String @NotNull [] CONNACK_HEADERS = headers("CONNACK");
+    private static final @NotNull String @NotNull [] PUBLISH_HEADERS = headers("PUBLISH");
+    private static final @NotNull String @NotNull [] PUBACK_HEADERS = headers("PUBACK");
+    private static final @NotNull String @NotNull [] PUBREC_HEADERS = headers("PUBREC");
+    private static final @NotNull String @NotNull [] PUBREL_HEADERS = headers("PUBREL");
+    private static final @NotNull String @NotNull [] PUBCOMP_HEADERS = headers("PUBCOMP");
+    private static final @NotNull String @NotNull [] SUBSCRIBE_HEADERS = headers("SUBSCRIBE");
+    private static final @NotNull String @NotNull [] SUBACK_HEADERS = headers("SUBACK");
+    private static final @NotNull String @NotNull [] UNSUBSCRIBE_HEADERS = headers("UNSUBSCRIBE");
+    private static final @NotNull String @NotNull [] UNSUBACK_HEADERS = headers("UNSUBACK");
+    private static final @NotNull String @NotNull [] PINGREQ_HEADERS = headers("PINGREQ");
+    private static final @NotNull String @NotNull [] PINGRESP_HEADERS = headers("PINGRESP");
+    private static final @NotNull String @NotNull [] DISCONNECT_HEADERS = headers("DISCONNECT");
+
+    private final @NotNull String nodeMember;
+    private final @NotNull String payloadEncoding;
+    private final @NotNull LineSink sink;
+    private final @NotNull ThreadLocal<Line> lines = ThreadLocal.withInitial(Line::new);
+
+    JsonLinesFormat(final @NotNull MqttMessageLogConfig config, final @NotNull LineSink sink) {
+        this(config.getNode().isEmpty() ? localHostName() : config.getNode(), config.getPayloadEncoding(), sink);
+    }
+
+    JsonLinesFormat(final @NotNull String node, final @NotNull String payloadEncoding) {
+        this(node, payloadEncoding, LineSink.MESSAGE_LOG);
+    }
+
+    JsonLinesFormat(
+            final @NotNull String node, final @NotNull String payloadEncoding, final @NotNull LineSink sink) {
+        nodeMember = new JsonWriter(new StringBuilder()).name(NODE).value(node).getBuilder().toString();
+        this.payloadEncoding = payloadEncoding;
+        this.sink = sink;
+    }
+
+    private static @NotNull String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (final UnknownHostException e) {
+            LOG.warn("HiveMQ MQTT Message Log Extension: Could not resolve the host name for the node of JSON lines, " +
+                    "set the property 'node'");
+            return "unknown";
+        }
+    }
+
+    @Override
+    public void logPublish(
+            final @NotNull String clientId,
+            final @NotNull PublishPacket publishPacket,
+            final boolean inbound,
+            final boolean verbose) {
+        sink.writeLine(clientId, publishLine(clientId, publishPacket, inbound, verbose));
+    }
+
+    @NotNull String publishLine(
+            final @NotNull String clientId,
+            final @NotNull PublishPacket publishPacket,
+            final boolean inbound,
+            final boolean verbose) {
+        final JsonWriter json = begin(inbound, PUBLISH_HEADERS, clientId);
+        writePublish(json, publishPacket, verbose);
+        return end(json);
+    }
+
+    @Override
+    public void logConnect(final @NotNull ConnectPacket connectPacket, final boolean verbose) {
+        final JsonWriter json = begin(true, CONNECT_HEADERS, connectPacket.getClientId());
+        json.name(PROTOCOL_VERSION).value(connectPacket.getMqttVersion().name());
+        json.name(CLEAN_START).value(connectPacket.getCleanStart());
+        json.name(SESSION_EXPIRY).value(connectPacket.getSessionExpiryInterval());
+        if (verbose) {
+            json.name(KEEP_ALIVE).value(connectPacket.getKeepAlive());
+            json.name(MAXIMUM_PACKET_SIZE).value(connectPacket.getMaximumPacketSize());
+            json.name(RECEIVE_MAXIMUM).value(connectPacket.getReceiveMaximum());
+            json.name(TOPIC_ALIAS_MAXIMUM).value(connectPacket.getTopicAliasMaximum());
+            json.name(REQUEST_PROBLEM_INFORMATION).value(connectPacket.getRequestProblemInformation());
+            json.name(REQUEST_RESPONSE_INFORMATION).value(connectPacket.getRequestResponseInformation());
+            optional(json, USERNAME, connectPacket.getUserName());
+            optional(json, AUTH_METHOD, connectPacket.getAuthenticationMethod());
+            final ByteBuffer authData = connectPacket.getAuthenticationData().orElse(null);
+            if (authData != null) {
+                json.name(AUTH_DATA).base64Value(authData);
+            }
+            final WillPublishPacket will = connectPacket.getWillPublish().orElse(null);
+            if (will != null) {
+                json.name(WILL).beginObject();
+                writePublish(json, will, true);
+                json.name(WILL_DELAY).value(will.getWillDelay());
+                json.endObject();
+            }
+        }
+        userProperties(json, connectPacket.getUserProperties());
+        log(json);
+    }
+
+    @Override
+    public void logConnack(final @NotNull ConnackOutboundInput connackOutboundInput, final boolean verbose) {
+        final ConnackPacket connackPacket = connackOutboundInput.getConnackPacket();
+        final JsonWriter json =
+                begin(false, CONNACK_HEADERS, connackOutboundInput.getClientInformation().getClientId());
+        json.name(REASON_CODE).value(connackPacket.getReasonCode().name());
+        json.name(SESSION_PRESENT).value(connackPacket.getSessionPresent());
+        if (verbose) {
+            optional(json, SESSION_EXPIRY, connackPacket.getSessionExpiryInterval());
+            optional(json, ASSIGNED_CLIENT_ID, connackPacket.getAssignedClientIdentifier());
+            optional(json, MAXIMUM_QOS, connackPacket.getMaximumQoS().map(Qos::getQosNumber));
+            json.name(MAXIMUM_PACKET_SIZE).value(connackPacket.getMaximumPacketSize());
+            json.name(RECEIVE_MAXIMUM).value(connackPacket.getReceiveMaximum());
+            json.name(TOPIC_ALIAS_MAXIMUM).value(connackPacket.getTopicAliasMaximum());
+            optional(json, REASON_STRING, connackPacket.getReasonString());
+            optional(json, RESPONSE_INFORMATION, connackPacket.getResponseInformation());
+            optional(json, SERVER_KEEP_ALIVE, connackPacket.getServerKeepAlive());
+            optional(json, SERVER_REFERENCE, connackPacket.getServerReference());
+            json.name(SHARED_SUBSCRIPTIONS_AVAILABLE).value(connackPacket.getSharedSubscriptionsAvailable());
+            json.name(WILDCARDS_AVAILABLE).value(connackPacket.getWildCardSubscriptionAvailable());
+            json.name(RETAIN_AVAILABLE).value(connackPacket.getRetainAvailable());
+            json.name(SUBSCRIPTION_IDENTIFIERS_AVAILABLE).value(connackPacket.getSubscriptionIdentifiersAvailable());
+            optional(json, AUTH_METHOD, connackPacket.getAuthenticationMethod());
+            final ByteBuffer authData = connackPacket.getAuthenticationData().orElse(null);
+            if (authData != null) {
+                json.name(AUTH_DATA).base64Value(authData);
+            }
+        }
+        userProperties(json, connackPacket.getUserProperties());
+        log(json);
+    }
+
+    @Override
+    public void logDisconnect(
+            final @NotNull DisconnectPacket disconnectPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        final JsonWriter json = begin(inbound, DISCONNECT_HEADERS, clientId);
+        json.name(REASON_CODE).value(disconnectPacket.getReasonCode().name());
+        if (verbose) {
+            optional(json, REASON_STRING, disconnectPacket.getReasonString());
+            optional(json, SERVER_REFERENCE, disconnectPacket.getServerReference());
+            optional(json, SESSION_EXPIRY, disconnectPacket.getSessionExpiryInterval());
+        }
+        userProperties(json, disconnectPacket.getUserProperties());
+        log(json);
+    }
+
+    @Override
+    public void logDisconnectEvent(
+            final @NotNull DisconnectEventInput disconnectEventInput,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean authenticationFailed,
+            final boolean verbose) {
+        final JsonWriter json = begin(inbound, DISCONNECT_HEADERS, clientId);
+        disconnectEventInput.getReasonCode().ifPresent(reasonCode -> json.name(REASON_CODE).value(reasonCode.name()));
+        if (authenticationFailed) {
+            json.name(AUTHENTICATION_FAILED).value(true);
+        }
+        if (verbose) {
+            optional(json, REASON_STRING, disconnectEventInput.getReasonString());
+        }
+        userProperties(json, disconnectEventInput.getUserProperties().orElse(null));
+        log(json);
+    }
+
+    @Override
+    public void logSubscribe(final @NotNull SubscribeInboundInput subscribeInboundInput, final boolean verbose) {
+        final SubscribePacket subscribePacket = subscribeInboundInput.getSubscribePacket();
+        final JsonWriter json =
+                begin(true, SUBSCRIBE_HEADERS, subscribeInboundInput.getClientInformation().getClientId());
+        json.name(PACKET_ID).value(subscribePacket.getPacketId());
+        json.name(SUBSCRIPTIONS).beginArray();
+        for (final Subscription subscription : subscribePacket.getSubscriptions()) {
+            json.beginObject();
+            json.name(TOPIC).value(subscription.getTopicFilter());
+            json.name(QOS).value(subscription.getQos().getQosNumber());
+            if (verbose) {
+                json.name(RETAIN_AS_PUBLISHED).value(subscription.getRetainAsPublished());
+                json.name(NO_LOCAL).value(subscription.getNoLocal());
+                json.name(RETAIN_HANDLING).value(subscription.getRetainHandling().name());
+            }
+            json.endObject();
+        }
+        json.endArray();
+        if (verbose) {
+            optional(json, SUBSCRIPTION_IDENTIFIER, subscribePacket.getSubscriptionIdentifier());
+        }
+        userProperties(json, subscribePacket.getUserProperties());
+        log(json);
+    }
+
+    @Override
+    public void logSuback(final @NotNull SubackOutboundInput subackOutboundInput, final boolean verbose) {
+        final SubackPacket subackPacket = subackOutboundInput.getSubackPacket();
+        final JsonWriter json = begin(false, SUBACK_HEADERS, subackOutboundInput.getClientInformation().getClientId());
+        json.name(PACKET_ID).value(subackPacket.getPacketIdentifier());
+        reasonCodes(json, subackPacket.getReasonCodes());
+        if (verbose) {
+            optional(json, REASON_STRING, subackPacket.getReasonString());
+        }
+        userProperties(json, subackPacket.getUserProperties());
+        log(json);
+    }
+
+    @Override
+    public void logUnsubscribe(final @NotNull UnsubscribeInboundInput unsubscribeInboundInput, final boolean verbose) {
+        final UnsubscribePacket unsubscribePacket = unsubscribeInboundInput.getUnsubscribePacket();
+        final JsonWriter json =
+                begin(true, UNSUBSCRIBE_HEADERS, unsubscribeInboundInput.getClientInformation().getClientId());
+        json.name(PACKET_ID).value(unsubscribePacket.getPacketIdentifier());
+        json.name(TOPICS).beginArray();
+        for (final String topicFilter : unsubscribePacket.getTopicFilters()) {
+            json.value(topicFilter);
+        }
+        json.endArray();
+        userProperties(json, unsubscribePacket.getUserProperties());
+        log(json);
+    }
+
+    @Override
+    public void logUnsuback(final @NotNull UnsubackOutboundInput unsubackOutboundInput, final boolean verbose) {
+        final UnsubackPacket unsubackPacket = unsubackOutboundInput.getUnsubackPacket();
+        final JsonWriter json =
+                begin(false, UNSUBACK_HEADERS, unsubackOutboundInput.getClientInformation().getClientId());
+        json.name(PACKET_ID).value(unsubackPacket.getPacketIdentifier());
+        reasonCodes(json, unsubackPacket.getReasonCodes());
+        if (verbose) {
+            optional(json, REASON_STRING, unsubackPacket.getReasonString());
+        }
+        userProperties(json, unsubackPacket.getUserProperties());
+        log(json);
+    }
+
+    @Override
+    public void logPingreq(final @NotNull PingReqInboundInput pingReqInboundInput) {
+        log(begin(true, PINGREQ_HEADERS, pingReqInboundInput.getClientInformation().getClientId()));
+    }
+
+    @Override
+    public void logPingresp(final @NotNull PingRespOutboundInput pingRespOutboundInput) {
+        log(begin(false, PINGRESP_HEADERS, pingRespOutboundInput.getClientInformation().getClientId()));
+    }
+
+    @Override
+    public void logPuback(
+            final @NotNull PubackPacket pubackPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        final JsonWriter json = begin(inbound, PUBACK_HEADERS, clientId);
+        writeAck(json,
+                pubackPacket.getPacketIdentifier(),
+                pubackPacket.getReasonCode(),
+                verbose ? pubackPacket.getReasonString() : Optional.empty(),
+                pubackPacket.getUserProperties());
+        log(json);
+    }
+
+    @Override
+    public void logPubrec(
+            final @NotNull PubrecPacket pubrecPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        final JsonWriter json = begin(inbound, PUBREC_HEADERS, clientId);
+        writeAck(json,
+                pubrecPacket.getPacketIdentifier(),
+                pubrecPacket.getReasonCode(),
+                verbose ? pubrecPacket.getReasonString() : Optional.empty(),
+                pubrecPacket.getUserProperties());
+        log(json);
+    }
+
+    @Override
+    public void logPubrel(
+            final @NotNull PubrelPacket pubrelPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        final JsonWriter json = begin(inbound, PUBREL_HEADERS, clientId);
+        writeAck(json,
+                pubrelPacket.getPacketIdentifier(),
+                pubrelPacket.getReasonCode(),
+                verbose ? pubrelPacket.getReasonString() : Optional.empty(),
+                pubrelPacket.getUserProperties());
+        log(json);
+    }
+
+    @Override
+    public void logPubcomp(
+            final @NotNull PubcompPacket pubcompPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        final JsonWriter json = begin(inbound, PUBCOMP_HEADERS, clientId);
+        writeAck(json,
+                pubcompPacket.getPacketIdentifier(),
+                pubcompPacket.getReasonCode(),
+                verbose ? pubcompPacket.getReasonString() : Optional.empty(),
+                pubcompPacket.getUserProperties());
+        log(json);
+    }
+
+    private @NotNull JsonWriter begin(
+            final boolean inbound, final @NotNull String @NotNull [] headers, final @NotNull String clientId) {
+        final Line line = lines.get();
+        line.clientId = clientId;
+        return line.json.reset()
+                .beginObject()
+                .name(TIMESTAMP)
+                .plainValue(line.timestamp.format(System.currentTimeMillis()))
+                .raw(nodeMember)
+                .raw(headers[inbound ? 1 : 0])
+                .name(CLIENT_ID)
+                .value(clientId);
+    }
+
+    private static @NotNull String @NotNull [] headers(final @NotNull String packetType) {
+        return new String[]{header(false, packetType), header(true, packetType)};
+    }
+
+    private static @NotNull String header(final boolean inbound, final @NotNull String packetType) {
+        return new JsonWriter(new StringBuilder()).name(DIRECTION)
+                .value(inbound ? "in" : "out")
+                .name(PACKET_TYPE)
+                .value(packetType)
+                .getBuilder()
+                .toString();
+    }
+
+    private static @NotNull String end(final @NotNull JsonWriter json) {
+        return json.endObject().getBuilder().toString();
+    }
+
+    private void log(final @NotNull JsonWriter json) {
+        sink.writeLine(lines.get().clientId, end(json));
+    }
+
+    private void writePublish(
+            final @NotNull JsonWriter json, final @NotNull PublishPacket publishPacket, final boolean verbose) {
+        json.name(TOPIC).value(publishPacket.getTopic());
+        json.name(QOS).value(publishPacket.getQos().getQosNumber());
+        json.name(RETAIN).value(publishPacket.getRetain());
+        json.name(PACKET_ID).value(publishPacket.getPacketId());
+        final ByteBuffer payload = publishPacket.getPayload().orElse(null);
+        if (payload != null) {
+            bytes(json.name(PAYLOAD), payload);
+        }
+        if (verbose) {
+            json.name(DUP).value(publishPacket.getDupFlag());
+            optional(json, MESSAGE_EXPIRY, publishPacket.getMessageExpiryInterval());
+            final ByteBuffer correlationData = publishPacket.getCorrelationData().orElse(null);
+            if (correlationData != null) {
+                bytes(json.name(CORRELATION_DATA), correlationData);
+            }
+            optional(json, RESPONSE_TOPIC, publishPacket.getResponseTopic());
+            optional(json, CONTENT_TYPE, publishPacket.getContentType());
+            optional(json, PAYLOAD_FORMAT_INDICATOR, publishPacket.getPayloadFormatIndicator().map(Enum::name));
+            final List<Integer> subscriptionIdentifiers = publishPacket.getSubscriptionIdentifiers();
+            if (!subscriptionIdentifiers.isEmpty()) {
+                json.name(SUBSCRIPTION_IDENTIFIERS).beginArray();
+                for (final Integer subscriptionIdentifier : subscriptionIdentifiers) {
+                    json.value(subscriptionIdentifier);
+                }
+                json.endArray();
+            }
+        }
+        userProperties(json, publishPacket.getUserProperties());
+    }
+
+    private static void writeAck(
+            final @NotNull JsonWriter json,
+            final int packetId,
+            final @NotNull Enum<?> reasonCode,
+            final @NotNull Optional<String> reasonString,
+            final @NotNull UserProperties userProperties) {
+        json.name(PACKET_ID).value(packetId);
+        json.name(REASON_CODE).value(reasonCode.name());
+        optional(json, REASON_STRING, reasonString);
+        userProperties(json, userProperties);
+    }
+
+    private void bytes(final @NotNull JsonWriter json, final @NotNull ByteBuffer buffer) {
+        switch (payloadEncoding) {
+            case MqttMessageLogConfig.PAYLOAD_ENCODING_BASE64:
+                json.base64Value(buffer);
+                break;
+            case MqttMessageLogConfig.PAYLOAD_ENCODING_HEX:
+                json.hexValue(buffer);
+                break;
+            default:
+                json.utf8Value(buffer);
+        }
+    }
+
+    private static void optional(
+            final @NotNull JsonWriter json, final @NotNull Name name, final @NotNull Optional<?> optional) {
+        final Object value = optional.orElse(null);
+        if (value instanceof Number) {
+            json.name(name).value(((Number) value).longValue());
+        } else if (value != null) {
+            json.name(name).value(value.toString());
+        }
+    }
+
+    private static void reasonCodes(final @NotNull JsonWriter json, final @NotNull List<? extends Enum<?>> codes) {
+        json.name(REASON_CODES).beginArray();
+        for (final Enum<?> reasonCode : codes) {
+            json.value(reasonCode.name());
+        }
+        json.endArray();
+    }
+
+    private static void userProperties(final @NotNull JsonWriter json, final @Nullable UserProperties properties) {
+        final List<UserProperty> userProperties = properties == null ? List.of() : properties.asList();
+        if (userProperties.isEmpty()) {
+            return;
+        }
+        json.name(USER_PROPERTIES).beginArray();
+        for (final UserProperty userProperty : userProperties) {
+            json.beginObject();
+            json.name(NAME).value(userProperty.getName());
+            json.name(VALUE).value(userProperty.getValue());
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * The writer and the timestamp of one thread.
+     */
+    private static class Line {
+
+        private final @NotNull JsonWriter json = new JsonWriter(new StringBuilder(256));
+        private final @NotNull IsoTimestamp timestamp = new IsoTimestamp();
+        private @NotNull String clientId = "";
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes JSON into a {@link StringBuilder} without building an object tree. The caller is responsible for the
+ * structure, the writer only inserts the separators and escapes the strings.
+ *
+ * @since 1.2.0
+ */
+public class JsonWriter {
+
+    private static final char @NotNull [] HEX = "0123456789abcdef".toCharArray();
+    private static final char @NotNull [] BASE64 =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final char REPLACEMENT_CHARACTER = 0xFFFD;
+    private static final @NotNull String @NotNull [] CONTROL_ESCAPES = controlEscapes();
+    private static final int MAX_ESCAPE_LENGTH = 6;
+    private static final int CHUNK_SIZE = 1024;
+    // not valid in JavaScript string literals, so they are escaped as well
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    private final @NotNull StringBuilder builder;
+    // chunk for writing the characters of byte values, a string builder has no bulk append of bytes
+    private char @Nullable [] chars;
+    private boolean separator;
+
+    public JsonWriter(final @NotNull StringBuilder builder) {
+        this.builder = builder;
+    }
+
+    public @NotNull StringBuilder getBuilder() {
+        return builder;
+    }
+
+    public @NotNull JsonWriter beginObject() {
+        separate();
+        builder.append('{');
+        separator = false;
+        return this;
+    }
+
+    public @NotNull JsonWriter endObject() {
+        builder.append('}');
+        separator = true;
+        return this;
+    }
+
+    public @NotNull JsonWriter beginArray() {
+        separate();
+        builder.append('[');
+        separator = false;
+        return this;
+    }
+
+    public @NotNull JsonWriter endArray() {
+        builder.append(']');
+        separator = true;
+        return this;
+    }
+
+    public @NotNull JsonWriter name(final @NotNull String name) {
+        separate();
+        appendString(builder, name);
+        builder.append(':');
+        separator = false;
+        return this;
+    }
+
+    /**
+     * Writes a name that was encoded once, e.g. a constant, without escaping it again.
+     */
+    public @NotNull JsonWriter name(final @NotNull Name name) {
+        separate();
+        builder.append(name.encoded);
+        separator = false;
+        return this;
+    }
+
+    /**
+     * Writes JSON that is already encoded, e.g. a value or a sequence of members that is the same for many lines.
+     */
+    public @NotNull JsonWriter raw(final @NotNull CharSequence json) {
+        separate();
+        builder.append(json);
+        separator = true;
+        return this;
+    }
+
+    public @NotNull JsonWriter value(final @Nullable CharSequence value) {
+        separate();
+        if (value == null) {
+            builder.append("null");
+        } else {
+            appendString(builder, value);
+        }
+        separator = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value without escaping it, the value must not contain characters that need escaping, e.g. a
+     * timestamp.
+     */
+    public @NotNull JsonWriter plainValue(final @NotNull CharSequence value) {
+        separate();
+        builder.append('"').append(value).append('"');
+        separator = true;
+        return this;
+    }
+
+    public @NotNull JsonWriter value(final long value) {
+        separate();
+        builder.append(value);
+        separator = true;
+        return this;
+    }
+
+    public @NotNull JsonWriter value(final boolean value) {
+        separate();
+        builder.append(value);
+        separator = true;
+        return this;
+    }
+
+    /**
+     * Writes the bytes from the position to the limit of the buffer decoded as UTF-8 string, malformed sequences are
+     * replaced with U+FFFD. The position of the buffer is not changed.
+     */
+    public @NotNull JsonWriter utf8Value(final @NotNull ByteBuffer buffer) {
+        separate();
+        builder.append('"');
+        final char[] chars = chunk();
+        int n = 0;
+        final int limit = buffer.limit();
+        int i = buffer.position();
+        while (i < limit) {
+            if (n > chars.length - MAX_ESCAPE_LENGTH) {
+                builder.append(chars, 0, n);
+                n = 0;
+            }
+            final int b = buffer.get(i);
+            if (b >= 0) {
+                n = put(chars, n, (char) b);
+                i++;
+                continue;
+            }
+            final int lead = b & 0xFF;
+            final int continuations;
+            final int min;
+            int codePoint;
+            if (lead >= 0xC2 && lead <= 0xDF) {
+                continuations = 1;
+                min = 0x80;
+                codePoint = lead & 0x1F;
+            } else if (lead >= 0xE0 && lead <= 0xEF) {
+                continuations = 2;
+                min = 0x800;
+                codePoint = lead & 0x0F;
+            } else if (lead >= 0xF0 && lead <= 0xF4) {
+                continuations = 3;
+                min = 0x10000;
+                codePoint = lead & 0x07;
+            } else {
+                chars[n++] = REPLACEMENT_CHARACTER;
+                i++;
+                continue;
+            }
+            int j = i + 1;
+            while (j <= i + continuations && j < limit && (buffer.get(j) & 0xC0) == 0x80) {
+                codePoint = (codePoint << 6) | (buffer.get(j) & 0x3F);
+                j++;
+            }
+            if (j != i + continuations + 1 || codePoint < min || codePoint > Character.MAX_CODE_POINT ||
+                    (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+                chars[n++] = REPLACEMENT_CHARACTER;
+            } else if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                n = put(chars, n, (char) codePoint);
+            } else {
+                chars[n++] = Character.highSurrogate(codePoint);
+                chars[n++] = Character.lowSurrogate(codePoint);
+            }
+            i = j;
+        }
+        builder.append(chars, 0, n).append('"');
+        separator = true;
+        return this;
+    }
+
+    /**
+     * Writes the bytes from the position to the limit of the buffer as Base64 string with padding. The position of
+     * the buffer is not changed.
+     */
+    public @NotNull JsonWriter base64Value(final @NotNull ByteBuffer buffer) {
+        separate();
+        builder.append('"');
+        final char[] chars = chunk();
+        int n = 0;
+        final int limit = buffer.limit();
+        int i = buffer.position();
+        for (; i + 2 < limit; i += 3) {
+            if (n > chars.length - 4) {
+                builder.append(chars, 0, n);
+                n = 0;
+            }
+            final int bits = (buffer.get(i) & 0xFF) << 16 | (buffer.get(i + 1) & 0xFF) << 8 | buffer.get(i + 2) & 0xFF;
+            chars[n++] = BASE64[bits >>> 18];
+            chars[n++] = BASE64[(bits >>> 12) & 0x3F];
+            chars[n++] = BASE64[(bits >>> 6) & 0x3F];
+            chars[n++] = BASE64[bits & 0x3F];
+        }
+        builder.append(chars, 0, n);
+        if (i + 1 == limit) {
+            final int bits = (buffer.get(i) & 0xFF) << 16;
+            builder.append(BASE64[bits >>> 18]).append(BASE64[(bits >>> 12) & 0x3F]).append("==");
+        } else if (i + 2 == limit) {
+            final int bits = (buffer.get(i) & 0xFF) << 16 | (buffer.get(i + 1) & 0xFF) << 8;
+            builder.append(BASE64[bits >>> 18])
+                    .append(BASE64[(bits >>> 12) & 0x3F])
+                    .append(BASE64[(bits >>> 6) & 0x3F])
+                    .append('=');
+        }
+        builder.append('"');
+        separator = true;
+        return this;
+    }
+
+    /**
+     * Writes the bytes from the position to the limit of the buffer as lower case hex string. The position of the
+     * buffer is not changed.
+     */
+    public @NotNull JsonWriter hexValue(final @NotNull ByteBuffer buffer) {
+        separate();
+        builder.append('"');
+        final char[] chars = chunk();
+        int n = 0;
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (n > chars.length - 2) {
+                builder.append(chars, 0, n);
+                n = 0;
+            }
+            final byte b = buffer.get(i);
+            chars[n++] = HEX[(b >> 4) & 0xF];
+            chars[n++] = HEX[b & 0xF];
+        }
+        builder.append(chars, 0, n).append('"');
+        separator = true;
+        return this;
+    }
+
+    public @NotNull JsonWriter nullValue() {
+        separate();
+        builder.append("null");
+        separator = true;
+        return this;
+    }
+
+    /**
+     * Ends a line of JSON lines output, the next value starts a new top-level value.
+     */
+    public @NotNull JsonWriter endLine() {
+        builder.append('\n');
+        separator = false;
+        return this;
+    }
+
+    /**
+     * Clears the builder to write the next value from the start, e.g. to reuse the writer for the next line.
+     */
+    public @NotNull JsonWriter reset() {
+        builder.setLength(0);
+        separator = false;
+        return this;
+    }
+
+    private char @NotNull [] chunk() {
+        char[] chars = this.chars;
+        if (chars == null) {
+            chars = new char[CHUNK_SIZE];
+            this.chars = chars;
+        }
+        return chars;
+    }
+
+    private void separate() {
+        if (separator) {
+            builder.append(',');
+        }
+    }
+
+    /**
+     * Appends the value as quoted JSON string. Runs of characters that need no escaping are appended at once, a string
+     * without any character to escape is appended as a whole.
+     */
+    public static void appendString(final @NotNull StringBuilder builder, final @NotNull CharSequence value) {
+        final int length = value.length();
+        int i = 0;
+        while (i < length && !needsEscaping(value.charAt(i))) {
+            i++;
+        }
+        if (i == length && value instanceof String) {
+            builder.append('"').append((String) value).append('"');
+            return;
+        }
+        builder.append('"');
+        int start = 0;
+        for (; i < length; i++) {
+            final char c = value.charAt(i);
+            if (!needsEscaping(c)) {
+                continue;
+            }
+            builder.append(value, start, i).append(escape(c));
+            start = i + 1;
+        }
+        builder.append(value, start, length).append('"');
+    }
+
+    private static boolean needsEscaping(final char c) {
+        return c < 0x20 || c == '"' || c == '\\' || c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR;
+    }
+
+    /**
+     * Puts the character or its escape sequence into the chunk.
+     *
+     * @return the new length of the chunk.
+     */
+    private static int put(final char @NotNull [] chars, final int n, final char c) {
+        if (!needsEscaping(c)) {
+            chars[n] = c;
+            return n + 1;
+        }
+        final String escaped = escape(c);
+        escaped.getChars(0, escaped.length(), chars, n);
+        return n + escaped.length();
+    }
+
+    private static @NotNull String escape(final char c) {
+        switch (c) {
+            case '"':
+                return "\\\"";
+            case '\\':
+                return "\\\\";
+            case LINE_SEPARATOR:
+                return "\\u2028";
+            case PARAGRAPH_SEPARATOR:
+                return "\\u2029";
+            default:
+                return CONTROL_ESCAPES[c];
+        }
+    }
+
+    private static @NotNull String @NotNull [] controlEscapes() {
+        final String[] escapes = new String[0x20];
+        for (char c = 0; c < escapes.length; c++) {
+            escapes[c] = "\\u00" + HEX[c >> 4] + HEX[c & 0xF];
+        }
+        escapes['\n'] = "\\n";
+        escapes['\r'] = "\\r";
+        escapes['\t'] = "\\t";
+        escapes['\b'] = "\\b";
+        escapes['\f'] = "\\f";
+        return escapes;
+    }
+
+    /**
+     * A name of an object member that is escaped and quoted once.
+     */
+    public static final class Name {
+
+        private final @NotNull String encoded;
+
+        private Name(final @NotNull String encoded) {
+            this.encoded = encoded;
+        }
+
+        public static @NotNull Name of(final @NotNull String name) {
+            final StringBuilder builder = new StringBuilder(name.length() + 3);
+            appendString(builder, name);
+            return new Name(builder.append(':').toString());
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return encoded;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
+import com.hivemq.extension.sdk.api.interceptor.connack.parameter.ConnackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingresp.parameter.PingRespOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.suback.parameter.SubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsuback.parameter.UnsubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.parameter.UnsubscribeInboundInput;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.puback.PubackPacket;
+import com.hivemq.extension.sdk.api.packets.pubcomp.PubcompPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.pubrec.PubrecPacket;
+import com.hivemq.extension.sdk.api.packets.pubrel.PubrelPacket;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+
+/**
+ * The output format of the intercepted packets. The interceptors decide which packets are logged and whether they are
+ * logged verbose, the format decides how they are written.
+ *
+ * @since 1.2.0
+ */
+public interface MessageLogFormat {
+
+    /**
+     * @return the JSON lines format for {@link MqttMessageLogConfig#FORMAT_JSONL}, otherwise the text format that logs
+     *         the packets as lines to the message log.
+     * @throws IllegalArgumentException if a configured field list contains an unknown field or a configured template
+     *                                  contains an unknown or unterminated variable.
+     */
+    static @NotNull MessageLogFormat create(final @NotNull MqttMessageLogConfig config) {
+        return create(config, LineSink.MESSAGE_LOG);
+    }
+
+    /**
+     * @param sink where the lines are written.
+     * @return the JSON lines format for {@link MqttMessageLogConfig#FORMAT_JSONL}, otherwise the text format.
+     * @throws IllegalArgumentException if a configured field list contains an unknown field or a configured template
+     *                                  contains an unknown or unterminated variable.
+     */
+    static @NotNull MessageLogFormat create(
+            final @NotNull MqttMessageLogConfig config, final @NotNull LineSink sink) {
+        if (MqttMessageLogConfig.FORMAT_JSONL.equals(config.getFormat())) {
+            return new JsonLinesFormat(config, sink);
+        }
+        return new TextLogFormat(config, sink);
+    }
+
+    void logPublish(
+            @NotNull String clientId, @NotNull PublishPacket publishPacket, boolean inbound, boolean verbose);
+
+    void logConnect(@NotNull ConnectPacket connectPacket, boolean verbose);
+
+    void logConnack(@NotNull ConnackOutboundInput connackOutboundInput, boolean verbose);
+
+    void logDisconnect(
+            @NotNull DisconnectPacket disconnectPacket, @NotNull String clientId, boolean inbound, boolean verbose);
+
+    /**
+     * Logs a disconnect that is only known from a client lifecycle event (HiveMQ 4.2 Enterprise), not from an
+     * intercepted DISCONNECT packet. Formats that encode the packets themselves do not capture these events.
+     *
+     * @param inbound              whether the client sent the DISCONNECT.
+     * @param authenticationFailed whether the broker disconnected the client because its authentication failed.
+     */
+    default void logDisconnectEvent(
+            final @NotNull DisconnectEventInput disconnectEventInput,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean authenticationFailed,
+            final boolean verbose) {
+    }
+
+    void logSubscribe(@NotNull SubscribeInboundInput subscribeInboundInput, boolean verbose);
+
+    void logSuback(@NotNull SubackOutboundInput subackOutboundInput, boolean verbose);
+
+    void logUnsubscribe(@NotNull UnsubscribeInboundInput unsubscribeInboundInput, boolean verbose);
+
+    void logUnsuback(@NotNull UnsubackOutboundInput unsubackOutboundInput, boolean verbose);
+
+    void logPingreq(@NotNull PingReqInboundInput pingReqInboundInput);
+
+    void logPingresp(@NotNull PingRespOutboundInput pingRespOutboundInput);
+
+    void logPuback(@NotNull PubackPacket pubackPacket, @NotNull String clientId, boolean inbound, boolean verbose);
+
+    void logPubrec(@NotNull PubrecPacket pubrecPacket, @NotNull String clientId, boolean inbound, boolean verbose);
+
+    void logPubrel(@NotNull PubrelPacket pubrelPacket, @NotNull String clientId, boolean inbound, boolean verbose);
+
+    void logPubcomp(@NotNull PubcompPacket pubcompPacket, @NotNull String clientId, boolean inbound, boolean verbose);
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+/**
+ * Writes the value of a single field of a packet. A field reads only the packet properties it needs, so a renderer
+ * built from a few fields never touches the others.
+ *
+ * @param <P> the packet type.
+ * @since 1.2.0
+ */
+@FunctionalInterface
+public interface PacketField<P> {
+
+    void append(@NotNull StringBuilder builder, @NotNull P packet);
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.packets.connack.ConnackPacket;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.connect.WillPublishPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.general.UserProperties;
+import com.hivemq.extension.sdk.api.packets.puback.PubackPacket;
+import com.hivemq.extension.sdk.api.packets.pubcomp.PubcompPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.pubrec.PubrecPacket;
+import com.hivemq.extension.sdk.api.packets.pubrel.PubrelPacket;
+import com.hivemq.extension.sdk.api.packets.suback.SubackPacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.Subscription;
+import com.hivemq.extension.sdk.api.packets.subscribe.SubscribePacket;
+import com.hivemq.extension.sdk.api.packets.unsuback.UnsubackPacket;
+import com.hivemq.extension.sdk.api.packets.unsubscribe.UnsubscribePacket;
+import com.hivemq.extension.sdk.api.parameter.ClientBasedInput;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import static com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil.getHexStringFromByteBuffer;
+import static com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil.getStringFromByteBuffer;
+import static com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil.getUserPropertiesAsString;
+import static com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil.getWillAsString;
+
+/**
+ * The field catalogs of all packet types that can be logged with a field projection. Labels are the same as in the
+ * built-in log lines.
+ *
+ * @since 1.2.0
+ */
+public final class PacketFields {
+
+    public static final @NotNull FieldCatalog<PublishPacket> PUBLISH = new FieldCatalog<PublishPacket>("publish")
+            .object("topic", "Topic", PublishPacket::getTopic)
+            .integer("qos", "QoS", packet -> packet.getQos().getQosNumber())
+            .bool("retain", "Retained", PublishPacket::getRetain)
+            .bool("dup", "Duplicate Delivery", PublishPacket::getDupFlag)
+            .integer("packetId", "Packet Identifier", PublishPacket::getPacketId)
+            .object("payload", "Payload", packet -> getStringFromByteBuffer(packet.getPayload().orElse(null)))
+            .integer("payloadSize", "Payload Size", packet -> size(packet.getPayload()))
+            .object("messageExpiry",
+                    "Message Expiry Interval",
+                    packet -> packet.getMessageExpiryInterval().orElse(null))
+            .object("correlationData",
+                    "Correlation Data",
+                    packet -> getStringFromByteBuffer(packet.getCorrelationData().orElse(null)))
+            .object("responseTopic", "Response Topic", packet -> packet.getResponseTopic().orElse(null))
+            .object("contentType", "Content Type", packet -> packet.getContentType().orElse(null))
+            .object("payloadFormatIndicator",
+                    "Payload Format Indicator",
+                    packet -> packet.getPayloadFormatIndicator().orElse(null))
+            .object("subscriptionIdentifiers", "Subscription Identifiers", PublishPacket::getSubscriptionIdentifiers)
+            .raw("userProperties", userProperties(PublishPacket::getUserProperties));
+
+    public static final @NotNull FieldCatalog<ConnectPacket> CONNECT = new FieldCatalog<ConnectPacket>("connect")
+            .object("clientId", "Client ID", ConnectPacket::getClientId)
+            .object("protocolVersion", "Protocol version", packet -> packet.getMqttVersion().name())
+            .bool("cleanStart", "Clean Start", ConnectPacket::getCleanStart)
+            .longValue("sessionExpiry", "Session Expiry Interval", ConnectPacket::getSessionExpiryInterval)
+            .integer("keepAlive", "Keep Alive", ConnectPacket::getKeepAlive)
+            .longValue("maximumPacketSize", "Maximum Packet Size", ConnectPacket::getMaximumPacketSize)
+            .integer("receiveMaximum", "Receive Maximum", ConnectPacket::getReceiveMaximum)
+            .integer("topicAliasMaximum", "Topic Alias Maximum", ConnectPacket::getTopicAliasMaximum)
+            .bool("requestProblemInformation",
+                    "Request Problem Information",
+                    ConnectPacket::getRequestProblemInformation)
+            .bool("requestResponseInformation",
+                    "Request Response Information",
+                    ConnectPacket::getRequestResponseInformation)
+            .object("username", "Username", packet -> packet.getUserName().orElse(null))
+            .raw("password", PacketFields::appendPassword)
+            .object("authMethod", "Auth Method", packet -> packet.getAuthenticationMethod().orElse(null))
+            .object("authData", "Auth Data (Base64)", packet -> base64(packet.getAuthenticationData()))
+            .raw("userProperties", userProperties(ConnectPacket::getUserProperties))
+            .raw("will", (builder, packet) -> {
+                if (packet.getWillPublish().isPresent()) {
+                    // the will string starts with ", " to be appended to the built-in log line
+                    builder.append(getWillAsString(packet.getWillPublish().get()).substring(2));
+                } else {
+                    builder.append("Will: 'null'");
+                }
+            })
+            .hidden("willSuffix",
+                    (builder, packet) -> packet.getWillPublish()
+                            .ifPresent(will -> builder.append(getWillAsString(will))));
+
+    public static final @NotNull FieldCatalog<WillPublishPacket> WILL =
+            new FieldCatalog<WillPublishPacket>("will").addAll(PUBLISH)
+                    .longValue("willDelay", "Will Delay", WillPublishPacket::getWillDelay);
+
+    public static final @NotNull FieldCatalog<ConnackPacket> CONNACK = new FieldCatalog<ConnackPacket>("connack")
+            .object("reasonCode", "Reason Code", ConnackPacket::getReasonCode)
+            .bool("sessionPresent", "Session Present", ConnackPacket::getSessionPresent)
+            .object("sessionExpiry",
+                    "Session Expiry Interval",
+                    packet -> packet.getSessionExpiryInterval().orElse(null))
+            .object("assignedClientId",
+                    "Assigned clientId",
+                    packet -> packet.getAssignedClientIdentifier().orElse(null))
+            .object("maximumQos", "Maximum QoS", packet -> packet.getMaximumQoS().orElse(null))
+            .integer("maximumPacketSize", "Maximum Packet Size", ConnackPacket::getMaximumPacketSize)
+            .integer("receiveMaximum", "Receive Maximum", ConnackPacket::getReceiveMaximum)
+            .integer("topicAliasMaximum", "Topic Alias Maximum", ConnackPacket::getTopicAliasMaximum)
+            .object("reasonString", "Reason String", packet -> packet.getReasonString().orElse(null))
+            .object("responseInformation",
+                    "Response Information",
+                    packet -> packet.getResponseInformation().orElse(null))
+            .object("serverKeepAlive", "Server Keep Alive", packet -> packet.getServerKeepAlive().orElse(null))
+            .object("serverReference", "Server Reference", packet -> packet.getServerReference().orElse(null))
+            .bool("sharedSubscriptionsAvailable",
+                    "Shared Subscription Available",
+                    ConnackPacket::getSharedSubscriptionsAvailable)
+            .bool("wildcardsAvailable", "Wildcards Available", ConnackPacket::getWildCardSubscriptionAvailable)
+            .bool("retainAvailable", "Retain Available", ConnackPacket::getRetainAvailable)
+            .bool("subscriptionIdentifiersAvailable",
+                    "Subscription Identifiers Available",
+                    ConnackPacket::getSubscriptionIdentifiersAvailable)
+            .object("authMethod", "Auth Method", packet -> packet.getAuthenticationMethod().orElse(null))
+            .object("authData", "Auth Data (Base64)", packet -> base64(packet.getAuthenticationData()))
+            .raw("userProperties", userProperties(ConnackPacket::getUserProperties));
+
+    public static final @NotNull FieldCatalog<DisconnectPacket> DISCONNECT =
+            new FieldCatalog<DisconnectPacket>("disconnect").object("reasonCode",
+                            "Reason Code",
+                            DisconnectPacket::getReasonCode)
+                    .object("reasonString", "Reason String", packet -> packet.getReasonString().orElse(null))
+                    .object("serverReference", "Server Reference", packet -> packet.getServerReference().orElse(null))
+                    .object("sessionExpiry", "Session Expiry", packet -> packet.getSessionExpiryInterval().orElse(null))
+                    .raw("userProperties", userProperties(DisconnectPacket::getUserProperties));
+
+    public static final @NotNull FieldCatalog<SubscribePacket> SUBSCRIBE =
+            new FieldCatalog<SubscribePacket>("subscribe").integer("packetId",
+                            "Packet Identifier",
+                            SubscribePacket::getPacketId)
+                    .raw("topics", (builder, packet) -> appendSubscriptions(builder, packet, false))
+                    .raw("subscriptions", (builder, packet) -> appendSubscriptions(builder, packet, true))
+                    .object("subscriptionIdentifier",
+                            "Subscription Identifier",
+                            packet -> packet.getSubscriptionIdentifier().orElse(null))
+                    .raw("userProperties", userProperties(SubscribePacket::getUserProperties));
+
+    public static final @NotNull FieldCatalog<SubackPacket> SUBACK = new FieldCatalog<SubackPacket>("suback")
+            .integer("packetId", "Packet Identifier", SubackPacket::getPacketIdentifier)
+            .raw("reasonCodes", (builder, packet) -> appendReasonCodes(builder, "Suback", packet.getReasonCodes()))
+            .object("reasonString", "Reason String", packet -> packet.getReasonString().orElse(null))
+            .raw("userProperties", userProperties(SubackPacket::getUserProperties));
+
+    public static final @NotNull FieldCatalog<UnsubscribePacket> UNSUBSCRIBE =
+            new FieldCatalog<UnsubscribePacket>("unsubscribe").integer("packetId",
+                            "Packet Identifier",
+                            UnsubscribePacket::getPacketIdentifier)
+                    .raw("topics", PacketFields::appendTopicFilters)
+                    .raw("userProperties", userProperties(UnsubscribePacket::getUserProperties));
+
+    public static final @NotNull FieldCatalog<UnsubackPacket> UNSUBACK = new FieldCatalog<UnsubackPacket>("unsuback")
+            .integer("packetId", "Packet Identifier", UnsubackPacket::getPacketIdentifier)
+            .raw("reasonCodes", (builder, packet) -> appendReasonCodes(builder, "Unsuback", packet.getReasonCodes()))
+            .object("reasonString", "Reason String", packet -> packet.getReasonString().orElse(null))
+            .raw("userProperties", userProperties(UnsubackPacket::getUserProperties));
+
+    public static final @NotNull FieldCatalog<PubackPacket> PUBACK = ack("puback",
+            PubackPacket::getPacketIdentifier,
+            PubackPacket::getReasonCode,
+            packet -> packet.getReasonString().orElse(null),
+            PubackPacket::getUserProperties);
+
+    public static final @NotNull FieldCatalog<PubrecPacket> PUBREC = ack("pubrec",
+            PubrecPacket::getPacketIdentifier,
+            PubrecPacket::getReasonCode,
+            packet -> packet.getReasonString().orElse(null),
+            PubrecPacket::getUserProperties);
+
+    public static final @NotNull FieldCatalog<PubrelPacket> PUBREL = ack("pubrel",
+            PubrelPacket::getPacketIdentifier,
+            PubrelPacket::getReasonCode,
+            packet -> packet.getReasonString().orElse(null),
+            PubrelPacket::getUserProperties);
+
+    public static final @NotNull FieldCatalog<PubcompPacket> PUBCOMP = ack("pubcomp",
+            PubcompPacket::getPacketIdentifier,
+            PubcompPacket::getReasonCode,
+            packet -> packet.getReasonString().orElse(null),
+            PubcompPacket::getUserProperties);
+
+    /**
+     * PINGREQ and PINGRESP have no fields, only {@code ${clientId}} and {@code ${ts}} can be used in their templates.
+     */
+    public static final @NotNull FieldCatalog<ClientBasedInput> PING = new FieldCatalog<>("ping");
+
+    private PacketFields() {
+    }
+
+    private static <P> @NotNull FieldCatalog<P> ack(
+            final @NotNull String packetType,
+            final @NotNull ToIntFunction<P> packetId,
+            final @NotNull Function<P, Object> reasonCode,
+            final @NotNull Function<P, Object> reasonString,
+            final @NotNull Function<P, UserProperties> userProperties) {
+        return new FieldCatalog<P>(packetType).integer("packetId", "Packet Identifier", packetId)
+                .object("reasonCode", "Reason Code", reasonCode)
+                .object("reasonString", "Reason String", reasonString)
+                .raw("userProperties", userProperties(userProperties));
+    }
+
+    private static <P> @NotNull PacketField<P> userProperties(
+            final @NotNull Function<P, UserProperties> userProperties) {
+        return (builder, packet) -> builder.append(getUserPropertiesAsString(userProperties.apply(packet)));
+    }
+
+    private static int size(final @NotNull Optional<ByteBuffer> buffer) {
+        return buffer.map(ByteBuffer::remaining).orElse(0);
+    }
+
+    private static @Nullable String base64(final @NotNull Optional<ByteBuffer> buffer) {
+        return buffer.map(data -> getStringFromByteBuffer(Base64.getEncoder().encode(data.asReadOnlyBuffer())))
+                .orElse(null);
+    }
+
+    private static void appendPassword(final @NotNull StringBuilder builder, final @NotNull ConnectPacket packet) {
+        final ByteBuffer password = packet.getPassword().orElse(null);
+        final String passwordAsString = getStringFromByteBuffer(password);
+        if (passwordAsString == null || StringUtils.isAsciiPrintable(passwordAsString)) {
+            builder.append("Password: '").append(passwordAsString).append('\'');
+        } else {
+            builder.append("Password (Hex): '").append(getHexStringFromByteBuffer(password)).append('\'');
+        }
+    }
+
+    private static void appendSubscriptions(
+            final @NotNull StringBuilder builder, final @NotNull SubscribePacket packet, final boolean verbose) {
+        builder.append("Topics: {");
+        final List<Subscription> subscriptions = packet.getSubscriptions();
+        for (int i = 0; i < subscriptions.size(); i++) {
+            final Subscription subscription = subscriptions.get(i);
+            builder.append(i == 0 ? " [Topic: '" : ", [Topic: '")
+                    .append(subscription.getTopicFilter())
+                    .append("', QoS: '")
+                    .append(subscription.getQos().getQosNumber());
+            if (verbose) {
+                builder.append("', Retain As Published: '")
+                        .append(subscription.getRetainAsPublished())
+                        .append("', No Local: '")
+                        .append(subscription.getNoLocal())
+                        .append("', Retain Handling: '")
+                        .append(subscription.getRetainHandling().name());
+            }
+            builder.append("']");
+        }
+        builder.append(" }");
+    }
+
+    private static void appendTopicFilters(
+            final @NotNull StringBuilder builder, final @NotNull UnsubscribePacket packet) {
+        builder.append("Topics: {");
+        final List<String> topicFilters = packet.getTopicFilters();
+        for (int i = 0; i < topicFilters.size(); i++) {
+            builder.append(i == 0 ? " [Topic: '" : ", [Topic: '").append(topicFilters.get(i)).append("']");
+        }
+        builder.append(" }");
+    }
+
+    private static void appendReasonCodes(
+            final @NotNull StringBuilder builder,
+            final @NotNull String packetName,
+            final @NotNull List<?> reasonCodes) {
+        builder.append(packetName).append(" Reason Codes: {");
+        for (int i = 0; i < reasonCodes.size(); i++) {
+            builder.append(i == 0 ? " [Reason Code: '" : ", [Reason Code: '").append(reasonCodes.get(i)).append("']");
+        }
+        builder.append(" }");
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extensions.log.mqtt.message.util.IsoTimestamp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A log line template like {@code ${ts} IN PUB ${clientId} ${topic} q${qos} ${payload}}, compiled once into a
+ * sequence of literal chunks and field writers. Rendering is a single pass over the segments, no placeholders are
+ * parsed per event.
+ * <p>
+ * Besides the fields of the packet catalog the variables {@code ${clientId}} and {@code ${ts}} (ISO-8601 timestamp of
+ * the event) are available. A {@code $} that does not start a variable is a literal character.
+ *
+ * @param <P> the packet type.
+ * @since 1.2.0
+ */
+public class Template<P> {
+
+    private static final @NotNull ThreadLocal<IsoTimestamp> TIMESTAMPS = ThreadLocal.withInitial(IsoTimestamp::new);
+    private static final @NotNull Segment<Object> CLIENT_ID = (builder, clientId, packet) -> builder.append(clientId);
+    private static final @NotNull Segment<Object> TIMESTAMP = (builder, clientId, packet) -> builder.append(
+            TIMESTAMPS.get().format(System.currentTimeMillis()));
+
+    private final @NotNull String pattern;
+    private final @NotNull Segment<? super P> @NotNull [] segments;
+
+    private Template(final @NotNull String pattern, final @NotNull Segment<? super P> @NotNull [] segments) {
+        this.pattern = pattern;
+        this.segments = segments;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the pattern contains an unknown or unterminated variable.
+     */
+    public static <P> @NotNull Template<P> compile(
+            final @NotNull String pattern, final @NotNull FieldCatalog<P> catalog) {
+        return compile(pattern, catalog, Map.of());
+    }
+
+    /**
+     * @param variables additional variables, they take precedence over the fields of the catalog.
+     * @throws IllegalArgumentException if the pattern contains an unknown or unterminated variable.
+     */
+    @SuppressWarnings("unchecked")
+    public static <P> @NotNull Template<P> compile(
+            final @NotNull String pattern,
+            final @NotNull FieldCatalog<P> catalog,
+            final @NotNull Map<String, PacketField<P>> variables) {
+        final List<Segment<? super P>> segments = new ArrayList<>();
+        final StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            final int start = pattern.indexOf("${", i);
+            if (start < 0) {
+                literal.append(pattern, i, pattern.length());
+                break;
+            }
+            final int end = pattern.indexOf('}', start + 2);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unterminated variable in template '" + pattern + "'");
+            }
+            literal.append(pattern, i, start);
+            if (literal.length() > 0) {
+                segments.add(literal(literal.toString()));
+                literal.setLength(0);
+            }
+            segments.add(variable(pattern.substring(start + 2, end).trim(), catalog, variables));
+            i = end + 1;
+        }
+        if (literal.length() > 0) {
+            segments.add(literal(literal.toString()));
+        }
+        return new Template<>(pattern, segments.toArray(new Segment[0]));
+    }
+
+    private static <P> @NotNull Segment<? super P> variable(
+            final @NotNull String name,
+            final @NotNull FieldCatalog<P> catalog,
+            final @NotNull Map<String, PacketField<P>> variables) {
+        final PacketField<P> variable = variables.get(name);
+        if (variable != null) {
+            return (builder, clientId, packet) -> variable.append(builder, packet);
+        }
+        switch (name) {
+            case "clientId":
+                return CLIENT_ID;
+            case "ts":
+                return TIMESTAMP;
+            default:
+                final PacketField<P> field = catalog.getForTemplate(name).getField();
+                return (builder, clientId, packet) -> field.append(builder, packet);
+        }
+    }
+
+    private static @NotNull Segment<Object> literal(final @NotNull String literal) {
+        return (builder, clientId, packet) -> builder.append(literal);
+    }
+
+    public void append(final @NotNull StringBuilder builder, final @NotNull String clientId, final @NotNull P packet) {
+        for (final Segment<? super P> segment : segments) {
+            segment.append(builder, clientId, packet);
+        }
+    }
+
+    public @NotNull String render(final @NotNull String clientId, final @NotNull P packet) {
+        final StringBuilder builder = new StringBuilder(128);
+        append(builder, clientId, packet);
+        return builder.toString();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return pattern;
+    }
+
+    @FunctionalInterface
+    private interface Segment<P> {
+
+        void append(@NotNull StringBuilder builder, @NotNull String clientId, @NotNull P packet);
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
+import com.hivemq.extension.sdk.api.interceptor.connack.parameter.ConnackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingresp.parameter.PingRespOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.suback.parameter.SubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsuback.parameter.UnsubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.parameter.UnsubscribeInboundInput;
+import com.hivemq.extension.sdk.api.packets.connack.ConnackPacket;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.puback.PubackPacket;
+import com.hivemq.extension.sdk.api.packets.pubcomp.PubcompPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.pubrec.PubrecPacket;
+import com.hivemq.extension.sdk.api.packets.pubrel.PubrelPacket;
+import com.hivemq.extension.sdk.api.packets.suback.SubackPacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.SubscribePacket;
+import com.hivemq.extension.sdk.api.packets.unsuback.UnsubackPacket;
+import com.hivemq.extension.sdk.api.packets.unsubscribe.UnsubscribePacket;
+import com.hivemq.extension.sdk.api.parameter.ClientBasedInput;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Logs the packets as text lines with the log line template of the event. Per event the template is resolved once at
+ * startup:
+ * <ol>
+ *     <li>the configured template of the event ({@code template.<event>}),</li>
+ *     <li>the configured field projection of the packet type ({@code <packetType>-fields}),</li>
+ *     <li>the built-in compact or verbose log line.</li>
+ * </ol>
+ * A configured template or field projection replaces the verbose decision for its event.
+ *
+ * @since 1.2.0
+ */
+public class TextLogFormat implements MessageLogFormat {
+
+    private final @NotNull BuiltInTemplates.Layout<PublishPacket> publishReceived;
+    private final @NotNull BuiltInTemplates.Layout<PublishPacket> publishSend;
+    private final @NotNull BuiltInTemplates.Layout<ConnectPacket> connectReceived;
+    private final @NotNull BuiltInTemplates.Layout<ConnackPacket> connackSend;
+    private final @NotNull BuiltInTemplates.Layout<DisconnectPacket> disconnectReceived;
+    private final @NotNull BuiltInTemplates.Layout<DisconnectPacket> disconnectSend;
+    private final @NotNull BuiltInTemplates.Layout<SubscribePacket> subscribeReceived;
+    private final @NotNull BuiltInTemplates.Layout<SubackPacket> subackSend;
+    private final @NotNull BuiltInTemplates.Layout<UnsubscribePacket> unsubscribeReceived;
+    private final @NotNull BuiltInTemplates.Layout<UnsubackPacket> unsubackSend;
+    private final @NotNull BuiltInTemplates.Layout<ClientBasedInput> pingRequestReceived;
+    private final @NotNull BuiltInTemplates.Layout<ClientBasedInput> pingResponseSend;
+    private final @NotNull BuiltInTemplates.Layout<PubackPacket> pubackReceived;
+    private final @NotNull BuiltInTemplates.Layout<PubackPacket> pubackSend;
+    private final @NotNull BuiltInTemplates.Layout<PubrecPacket> pubrecReceived;
+    private final @NotNull BuiltInTemplates.Layout<PubrecPacket> pubrecSend;
+    private final @NotNull BuiltInTemplates.Layout<PubrelPacket> pubrelReceived;
+    private final @NotNull BuiltInTemplates.Layout<PubrelPacket> pubrelSend;
+    private final @NotNull BuiltInTemplates.Layout<PubcompPacket> pubcompReceived;
+    private final @NotNull BuiltInTemplates.Layout<PubcompPacket> pubcompSend;
+    private final @NotNull LineSink sink;
+
+    TextLogFormat(final @NotNull MqttMessageLogConfig config, final @NotNull LineSink sink) {
+        this.sink = sink;
+        final FieldProjection<PublishPacket> publish = compile(config, PacketFields.PUBLISH);
+        publishReceived = resolve(config,
+                "publish-received",
+                PacketFields.PUBLISH,
+                true,
+                publish,
+                BuiltInTemplates.PUBLISH_RECEIVED);
+        publishSend =
+                resolve(config, "publish-send", PacketFields.PUBLISH, false, publish, BuiltInTemplates.PUBLISH_SEND);
+        connectReceived =
+                resolve(config, "connect-received", PacketFields.CONNECT, true, BuiltInTemplates.CONNECT_RECEIVED);
+        connackSend = resolve(config, "connack-send", PacketFields.CONNACK, false, BuiltInTemplates.CONNACK_SEND);
+        final FieldProjection<DisconnectPacket> disconnect = compile(config, PacketFields.DISCONNECT);
+        disconnectReceived = resolve(config,
+                "disconnect-received",
+                PacketFields.DISCONNECT,
+                true,
+                disconnect,
+                BuiltInTemplates.DISCONNECT_RECEIVED);
+        disconnectSend = resolve(config,
+                "disconnect-send",
+                PacketFields.DISCONNECT,
+                false,
+                disconnect,
+                BuiltInTemplates.DISCONNECT_SEND);
+        subscribeReceived = resolve(config,
+                "subscribe-received",
+                PacketFields.SUBSCRIBE,
+                true,
+                BuiltInTemplates.SUBSCRIBE_RECEIVED);
+        subackSend = resolve(config, "suback-send", PacketFields.SUBACK, false, BuiltInTemplates.SUBACK_SEND);
+        unsubscribeReceived = resolve(config,
+                "unsubscribe-received",
+                PacketFields.UNSUBSCRIBE,
+                true,
+                BuiltInTemplates.UNSUBSCRIBE_RECEIVED);
+        unsubackSend = resolve(config, "unsuback-send", PacketFields.UNSUBACK, false, BuiltInTemplates.UNSUBACK_SEND);
+        pingRequestReceived = resolve(config,
+                "ping-request-received",
+                PacketFields.PING,
+                true,
+                null,
+                BuiltInTemplates.PING_REQUEST_RECEIVED);
+        pingResponseSend = resolve(config,
+                "ping-response-send",
+                PacketFields.PING,
+                false,
+                null,
+                BuiltInTemplates.PING_RESPONSE_SEND);
+        final FieldProjection<PubackPacket> puback = compile(config, PacketFields.PUBACK);
+        pubackReceived =
+                resolve(config, "puback-received", PacketFields.PUBACK, true, puback, BuiltInTemplates.PUBACK_RECEIVED);
+        pubackSend = resolve(config, "puback-send", PacketFields.PUBACK, false, puback, BuiltInTemplates.PUBACK_SEND);
+        final FieldProjection<PubrecPacket> pubrec = compile(config, PacketFields.PUBREC);
+        pubrecReceived =
+                resolve(config, "pubrec-received", PacketFields.PUBREC, true, pubrec, BuiltInTemplates.PUBREC_RECEIVED);
+        pubrecSend = resolve(config, "pubrec-send", PacketFields.PUBREC, false, pubrec, BuiltInTemplates.PUBREC_SEND);
+        final FieldProjection<PubrelPacket> pubrel = compile(config, PacketFields.PUBREL);
+        pubrelReceived =
+                resolve(config, "pubrel-received", PacketFields.PUBREL, true, pubrel, BuiltInTemplates.PUBREL_RECEIVED);
+        pubrelSend = resolve(config, "pubrel-send", PacketFields.PUBREL, false, pubrel, BuiltInTemplates.PUBREL_SEND);
+        final FieldProjection<PubcompPacket> pubcomp = compile(config, PacketFields.PUBCOMP);
+        pubcompReceived = resolve(config,
+                "pubcomp-received",
+                PacketFields.PUBCOMP,
+                true,
+                pubcomp,
+                BuiltInTemplates.PUBCOMP_RECEIVED);
+        pubcompSend =
+                resolve(config, "pubcomp-send", PacketFields.PUBCOMP, false, pubcomp, BuiltInTemplates.PUBCOMP_SEND);
+    }
+
+    private static <P> @Nullable FieldProjection<P> compile(
+            final @NotNull MqttMessageLogConfig config, final @NotNull FieldCatalog<P> catalog) {
+        return FieldProjection.compile(catalog, config.getFields(catalog.getPacketType()));
+    }
+
+    private static <P> @NotNull BuiltInTemplates.Layout<P> resolve(
+            final @NotNull MqttMessageLogConfig config,
+            final @NotNull String event,
+            final @NotNull FieldCatalog<P> catalog,
+            final boolean inbound,
+            final @NotNull BuiltInTemplates.Layout<P> builtIn) {
+        return resolve(config, event, catalog, inbound, compile(config, catalog), builtIn);
+    }
+
+    private static <P> @NotNull BuiltInTemplates.Layout<P> resolve(
+            final @NotNull MqttMessageLogConfig config,
+            final @NotNull String event,
+            final @NotNull FieldCatalog<P> catalog,
+            final boolean inbound,
+            final @Nullable FieldProjection<P> projection,
+            final @NotNull BuiltInTemplates.Layout<P> builtIn) {
+        final String pattern = config.getTemplate(event);
+        final Template<P> template;
+        if (!pattern.isBlank()) {
+            template = Template.compile(pattern, catalog);
+        } else if (projection != null) {
+            final String prefix = BuiltInTemplates.prefix(catalog.getPacketType().toUpperCase(Locale.ROOT), inbound);
+            template = Template.compile(prefix + "${fields}", catalog, Map.of("fields", projection));
+        } else {
+            return builtIn;
+        }
+        return new BuiltInTemplates.Layout<>(template, template);
+    }
+
+    @Override
+    public void logPublish(
+            final @NotNull String clientId,
+            final @NotNull PublishPacket publishPacket,
+            final boolean inbound,
+            final boolean verbose) {
+        log(inbound ? publishReceived : publishSend, verbose, clientId, publishPacket);
+    }
+
+    @Override
+    public void logConnect(final @NotNull ConnectPacket connectPacket, final boolean verbose) {
+        log(connectReceived, verbose, connectPacket.getClientId(), connectPacket);
+    }
+
+    @Override
+    public void logConnack(final @NotNull ConnackOutboundInput connackOutboundInput, final boolean verbose) {
+        log(connackSend,
+                verbose,
+                connackOutboundInput.getClientInformation().getClientId(),
+                connackOutboundInput.getConnackPacket());
+    }
+
+    @Override
+    public void logDisconnect(
+            final @NotNull DisconnectPacket disconnectPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        log(inbound ? disconnectReceived : disconnectSend, verbose, clientId, disconnectPacket);
+    }
+
+    @Override
+    public void logDisconnectEvent(
+            final @NotNull DisconnectEventInput disconnectEventInput,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean authenticationFailed,
+            final boolean verbose) {
+        final String message;
+        if (authenticationFailed) {
+            message = "Sent DISCONNECT to client '" + clientId + "' because authentication failed.";
+        } else if (inbound) {
+            message = "Received DISCONNECT from client '" + clientId + "':";
+        } else {
+            message = "Sent DISCONNECT to client '" + clientId + "':";
+        }
+        sink.writeLine(clientId, MessageLogUtil.getDisconnectEventAsString(message, disconnectEventInput, verbose));
+    }
+
+    @Override
+    public void logSubscribe(final @NotNull SubscribeInboundInput subscribeInboundInput, final boolean verbose) {
+        log(subscribeReceived,
+                verbose,
+                subscribeInboundInput.getClientInformation().getClientId(),
+                subscribeInboundInput.getSubscribePacket());
+    }
+
+    @Override
+    public void logSuback(final @NotNull SubackOutboundInput subackOutboundInput, final boolean verbose) {
+        log(subackSend,
+                verbose,
+                subackOutboundInput.getClientInformation().getClientId(),
+                subackOutboundInput.getSubackPacket());
+    }
+
+    @Override
+    public void logUnsubscribe(final @NotNull UnsubscribeInboundInput unsubscribeInboundInput, final boolean verbose) {
+        log(unsubscribeReceived,
+                verbose,
+                unsubscribeInboundInput.getClientInformation().getClientId(),
+                unsubscribeInboundInput.getUnsubscribePacket());
+    }
+
+    @Override
+    public void logUnsuback(final @NotNull UnsubackOutboundInput unsubackOutboundInput, final boolean verbose) {
+        log(unsubackSend,
+                verbose,
+                unsubackOutboundInput.getClientInformation().getClientId(),
+                unsubackOutboundInput.getUnsubackPacket());
+    }
+
+    @Override
+    public void logPingreq(final @NotNull PingReqInboundInput pingReqInboundInput) {
+        log(pingRequestReceived, false, pingReqInboundInput.getClientInformation().getClientId(), pingReqInboundInput);
+    }
+
+    @Override
+    public void logPingresp(final @NotNull PingRespOutboundInput pingRespOutboundInput) {
+        log(pingResponseSend,
+                false,
+                pingRespOutboundInput.getClientInformation().getClientId(),
+                pingRespOutboundInput);
+    }
+
+    @Override
+    public void logPuback(
+            final @NotNull PubackPacket pubackPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        log(inbound ? pubackReceived : pubackSend, verbose, clientId, pubackPacket);
+    }
+
+    @Override
+    public void logPubrec(
+            final @NotNull PubrecPacket pubrecPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        log(inbound ? pubrecReceived : pubrecSend, verbose, clientId, pubrecPacket);
+    }
+
+    @Override
+    public void logPubrel(
+            final @NotNull PubrelPacket pubrelPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        log(inbound ? pubrelReceived : pubrelSend, verbose, clientId, pubrelPacket);
+    }
+
+    @Override
+    public void logPubcomp(
+            final @NotNull PubcompPacket pubcompPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        log(inbound ? pubcompReceived : pubcompSend, verbose, clientId, pubcompPacket);
+    }
+
+    private <P> void log(
+            final @NotNull BuiltInTemplates.Layout<P> layout,
+            final boolean verbose,
+            final @NotNull String clientId,
+            final @NotNull P packet) {
+        sink.writeLine(clientId, layout.get(verbose).render(clientId, packet));
+    }
+}
@@ -16,12 +16,27 @@
 package com.hivemq.extensions.log.mqtt.message.initializer;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.client.ClientContext;
 import com.hivemq.extension.sdk.api.client.parameter.InitializerInput;
 import com.hivemq.extension.sdk.api.services.Services;
 import com.hivemq.extension.sdk.api.services.intializer.ClientInitializer;
+import com.hivemq.extensions.log.mqtt.message.aggregate.Aggregations;
+import com.hivemq.extensions.log.mqtt.message.aggregate.KeepAliveHealth;
+import com.hivemq.extensions.log.mqtt.message.aggregate.SessionStats;
+import com.hivemq.extensions.log.mqtt.message.aggregate.SessionSummaries;
 import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.filter.ChangeFilter;
+import com.hivemq.extensions.log.mqtt.message.filter.PayloadFilter;
+import com.hivemq.extensions.log.mqtt.message.filter.VerboseFilter;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
+import com.hivemq.extensions.log.mqtt.message.interceptor.ConnectDisconnectEventListener;
 import com.hivemq.extensions.log.mqtt.message.interceptor.InterceptorUtil;
+import com.hivemq.extensions.log.mqtt.message.interceptor.KeepAliveInterceptor;
+import com.hivemq.extensions.log.mqtt.message.interceptor.SessionStatsInterceptor;
+import com.hivemq.extensions.log.mqtt.message.pcap.PcapngCapture;
+import com.hivemq.extensions.log.mqtt.message.sink.ClientFileSink;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
 
 /**
  * Creates a {@link ClientInitializer} that is usable since HiveMQ 4.3 Enterprise Version or Community Version 2020.1.
@@ -32,9 +47,25 @@ import com.hivemq.extensions.log.mqtt.message.interceptor.InterceptorUtil;
 public class ClientInitializerImpl implements ClientInitializer {
 
     private final @NotNull MqttMessageLogConfig config;
+    private final @NotNull VerboseFilter verboseFilter;
+    private final @Nullable PayloadFilter payloadFilter;
+    private final @Nullable ChangeFilter changeFilter;
+    private final @NotNull MessageLogFormat messageLogFormat;
+    private final @NotNull LineSink sink;
+    private final @NotNull Aggregations aggregations;
 
-    public ClientInitializerImpl(final @NotNull MqttMessageLogConfig config) {
+    public ClientInitializerImpl(
+            final @NotNull MqttMessageLogConfig config,
+            final @NotNull MessageLogFormat messageLogFormat,
+            final @NotNull LineSink sink,
+            final @NotNull Aggregations aggregations) {
         this.config = config;
+        this.verboseFilter = VerboseFilter.create(config);
+        this.payloadFilter = PayloadFilter.create(config).orElse(null);
+        this.changeFilter = ChangeFilter.create(config, Services.metricRegistry()).orElse(null);
+        this.messageLogFormat = messageLogFormat;
+        this.sink = sink;
+        this.aggregations = aggregations;
         init();
     }
 
@@ -42,51 +73,105 @@ public class ClientInitializerImpl implements ClientInitializer {
      * Initialize any logging logic that can be done without a {@link ClientInitializer}.
      */
     private void init() {
-        InterceptorUtil.createConnectOutboundInterceptor(config)
+        InterceptorUtil.createConnectOutboundInterceptor(config, verboseFilter, messageLogFormat)
                 .ifPresent(connectInboundInterceptor -> Services.interceptorRegistry()
                         .setConnectInboundInterceptorProvider((input) -> connectInboundInterceptor));
 
-        InterceptorUtil.createConnackOutboundInterceptor(config)
+        InterceptorUtil.createConnackOutboundInterceptor(config, verboseFilter, messageLogFormat)
                 .ifPresent(connackOutboundInterceptor -> Services.interceptorRegistry()
                         .setConnackOutboundInterceptorProvider(input -> connackOutboundInterceptor));
+
+        // the disconnect packets are logged by the interceptors, the listener only closes the files or the capture
+        // connection of the client and feeds the connection aggregations
+        if (sink instanceof ClientFileSink || sink instanceof PcapngCapture ||
+                aggregations.isLifecycleAggregated()) {
+            final ConnectDisconnectEventListener connectDisconnectEventListener =
+                    new ConnectDisconnectEventListener(false,
+                            false,
+                            verboseFilter,
+                            config.getClientRegex(),
+                            messageLogFormat,
+                            sink,
+                            aggregations);
+            Services.eventRegistry().setClientLifecycleEventListener(input -> connectDisconnectEventListener);
+        }
     }
 
     @Override
     public void initialize(
             final @NotNull InitializerInput initializerInput, final @NotNull ClientContext clientContext) {
-        InterceptorUtil.createDisconnectInboundInterceptor(config)
+        // the verbose decision for the client is taken once per connection
+        final boolean verbose = verboseFilter.isVerbose(initializerInput.getClientInformation().getClientId());
+
+        final SessionSummaries sessionSummaries = aggregations.getSessionSummaries();
+        if (sessionSummaries != null) {
+            final SessionStats sessionStats = sessionSummaries.connected(initializerInput);
+            if (sessionStats != null) {
+                new SessionStatsInterceptor(sessionStats).addTo(clientContext);
+            }
+        }
+        final KeepAliveHealth keepAliveHealth = aggregations.getKeepAliveHealth();
+        if (keepAliveHealth != null) {
+            final KeepAliveHealth.Connection connection = keepAliveHealth.connected(initializerInput);
+            if (connection != null) {
+                new KeepAliveInterceptor(keepAliveHealth, connection).addTo(clientContext);
+            }
+        }
+
+        InterceptorUtil.createDisconnectInboundInterceptor(config, verbose, messageLogFormat)
                 .ifPresent(clientContext::addDisconnectInboundInterceptor);
-        InterceptorUtil.createDisconnectOutboundInterceptor(config)
+        InterceptorUtil.createDisconnectOutboundInterceptor(config, verbose, messageLogFormat)
                 .ifPresent(clientContext::addDisconnectOutboundInterceptor);
 
-        InterceptorUtil.createSubscribeInboundInterceptor(config)
+        InterceptorUtil.createSubscribeInboundInterceptor(config, verbose, messageLogFormat)
                 .ifPresent(clientContext::addSubscribeInboundInterceptor);
-        InterceptorUtil.createSubackOutboundInterceptor(config).ifPresent(clientContext::addSubackOutboundInterceptor);
+        InterceptorUtil.createSubackOutboundInterceptor(config, verbose, messageLogFormat)
+                .ifPresent(clientContext::addSubackOutboundInterceptor);
 
-        InterceptorUtil.createPingreqInboundInterceptor(config).ifPresent(clientContext::addPingReqInboundInterceptor);
-        InterceptorUtil.createPingrespOutboundInterceptor(config)
+        InterceptorUtil.createPingreqInboundInterceptor(config, messageLogFormat)
+                .ifPresent(clientContext::addPingReqInboundInterceptor);
+        InterceptorUtil.createPingrespOutboundInterceptor(config, messageLogFormat)
                 .ifPresent(clientContext::addPingRespOutboundInterceptor);
 
-        InterceptorUtil.createUnsubscribeInboundInterceptor(config)
+        InterceptorUtil.createUnsubscribeInboundInterceptor(config, verbose, messageLogFormat)
                 .ifPresent(clientContext::addUnsubscribeInboundInterceptor);
-        InterceptorUtil.createUnsubackOutboundInterceptor(config)
+        InterceptorUtil.createUnsubackOutboundInterceptor(config, verbose, messageLogFormat)
                 .ifPresent(clientContext::addUnsubackOutboundInterceptor);
 
-        InterceptorUtil.createPublishInboundInterceptor(config).ifPresent(clientContext::addPublishInboundInterceptor);
-        InterceptorUtil.createPublishOutboundInterceptor(config)
+        InterceptorUtil.createPublishInboundInterceptor(config,
+                        verbose,
+                        verboseFilter,
+                        payloadFilter,
+                        changeFilter,
+                        messageLogFormat,
+                        aggregations)
+                .ifPresent(clientContext::addPublishInboundInterceptor);
+        InterceptorUtil.createPublishOutboundInterceptor(config,
+                        verbose,
+                        verboseFilter,
+                        payloadFilter,
+                        changeFilter,
+                        messageLogFormat)
                 .ifPresent(clientContext::addPublishOutboundInterceptor);
 
-        InterceptorUtil.createPubackInboundInterceptor(config).ifPresent(clientContext::addPubackInboundInterceptor);
-        InterceptorUtil.createPubackOutboundInterceptor(config).ifPresent(clientContext::addPubackOutboundInterceptor);
+        InterceptorUtil.createPubackInboundInterceptor(config, verbose, messageLogFormat)
+                .ifPresent(clientContext::addPubackInboundInterceptor);
+        InterceptorUtil.createPubackOutboundInterceptor(config, verbose, messageLogFormat)
+                .ifPresent(clientContext::addPubackOutboundInterceptor);
 
-        InterceptorUtil.createPubrecInboundInterceptor(config).ifPresent(clientContext::addPubrecInboundInterceptor);
-        InterceptorUtil.createPubrecOutboundInterceptor(config).ifPresent(clientContext::addPubrecOutboundInterceptor);
+        InterceptorUtil.createPubrecInboundInterceptor(config, verbose, messageLogFormat)
+                .ifPresent(clientContext::addPubrecInboundInterceptor);
+        InterceptorUtil.createPubrecOutboundInterceptor(config, verbose, messageLogFormat)
+                .ifPresent(clientContext::addPubrecOutboundInterceptor);
 
-        InterceptorUtil.createPubrelInboundInterceptor(config).ifPresent(clientContext::addPubrelInboundInterceptor);
-        InterceptorUtil.createPubrelOutboundInterceptor(config).ifPresent(clientContext::addPubrelOutboundInterceptor);
+        InterceptorUtil.createPubrelInboundInterceptor(config, verbose, messageLogFormat)
+                .ifPresent(clientContext::addPubrelInboundInterceptor);
+        InterceptorUtil.createPubrelOutboundInterceptor(config, verbose, messageLogFormat)
+                .ifPresent(clientContext::addPubrelOutboundInterceptor);
 
-        InterceptorUtil.createPubcompInboundInterceptor(config).ifPresent(clientContext::addPubcompInboundInterceptor);
-        InterceptorUtil.createPubcompOutboundInterceptor(config)
+        InterceptorUtil.createPubcompInboundInterceptor(config, verbose, messageLogFormat)
+                .ifPresent(clientContext::addPubcompInboundInterceptor);
+        InterceptorUtil.createPubcompOutboundInterceptor(config, verbose, messageLogFormat)
                 .ifPresent(clientContext::addPubcompOutboundInterceptor);
     }
 }
@@ -16,14 +16,23 @@
 package com.hivemq.extensions.log.mqtt.message.initializer;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.client.ClientContext;
 import com.hivemq.extension.sdk.api.client.parameter.InitializerInput;
 import com.hivemq.extension.sdk.api.services.Services;
 import com.hivemq.extension.sdk.api.services.intializer.ClientInitializer;
+import com.hivemq.extensions.log.mqtt.message.aggregate.Aggregations;
 import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.filter.ChangeFilter;
+import com.hivemq.extensions.log.mqtt.message.filter.PayloadFilter;
+import com.hivemq.extensions.log.mqtt.message.filter.VerboseFilter;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import com.hivemq.extensions.log.mqtt.message.interceptor.ConnectDisconnectEventListener;
 import com.hivemq.extensions.log.mqtt.message.interceptor.ConnectInboundInterceptorImpl;
 import com.hivemq.extensions.log.mqtt.message.interceptor.InterceptorUtil;
+import com.hivemq.extensions.log.mqtt.message.pcap.PcapngCapture;
+import com.hivemq.extensions.log.mqtt.message.sink.ClientFileSink;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
 
 /**
  * Creates a {@link ClientInitializer} that is usable for any HiveMQ 4.2 Enterprise Version.
@@ -34,9 +43,25 @@ import com.hivemq.extensions.log.mqtt.message.interceptor.InterceptorUtil;
 public class ClientInitializerImpl4_2 implements ClientInitializer {
 
     private final @NotNull MqttMessageLogConfig config;
+    private final @NotNull VerboseFilter verboseFilter;
+    private final @Nullable PayloadFilter payloadFilter;
+    private final @Nullable ChangeFilter changeFilter;
+    private final @NotNull MessageLogFormat messageLogFormat;
+    private final @NotNull LineSink sink;
+    private final @NotNull Aggregations aggregations;
 
-    public ClientInitializerImpl4_2(final @NotNull MqttMessageLogConfig config) {
+    public ClientInitializerImpl4_2(
+            final @NotNull MqttMessageLogConfig config,
+            final @NotNull MessageLogFormat messageLogFormat,
+            final @NotNull LineSink sink,
+            final @NotNull Aggregations aggregations) {
         this.config = config;
+        this.verboseFilter = VerboseFilter.create(config);
+        this.payloadFilter = PayloadFilter.create(config).orElse(null);
+        this.changeFilter = ChangeFilter.create(config, Services.metricRegistry()).orElse(null);
+        this.messageLogFormat = messageLogFormat;
+        this.sink = sink;
+        this.aggregations = aggregations;
         init();
     }
 
@@ -44,17 +69,22 @@ public class ClientInitializerImpl4_2 implements ClientInitializer {
      * Initialize any logging logic that can be done without a {@link ClientInitializer}.
      */
     private void init() {
-        if (config.isClientConnect() && config.isClientDisconnect()) {
+        // the files of the client files sink and the capture connections are closed and the connection aggregations
+        // are fed on disconnect
+        if (config.isClientDisconnect() || sink instanceof ClientFileSink || sink instanceof PcapngCapture ||
+                aggregations.isLifecycleAggregated()) {
             final ConnectDisconnectEventListener connectDisconnectEventListener =
-                    new ConnectDisconnectEventListener(true, config.isVerbose(),config.getClientRegex());
-            Services.eventRegistry().setClientLifecycleEventListener((input) -> connectDisconnectEventListener);
-        } else if (config.isClientDisconnect()) {
-            final ConnectDisconnectEventListener connectDisconnectEventListener =
-                    new ConnectDisconnectEventListener(false, config.isVerbose(),config.getClientRegex());
+                    new ConnectDisconnectEventListener(config.isClientConnect(),
+                            config.isClientDisconnect(),
+                            verboseFilter,
+                            config.getClientRegex(),
+                            messageLogFormat,
+                            sink,
+                            aggregations);
             Services.eventRegistry().setClientLifecycleEventListener((input) -> connectDisconnectEventListener);
         } else if (config.isClientConnect()) {
             final ConnectInboundInterceptorImpl connectInboundInterceptor =
-                    new ConnectInboundInterceptorImpl(config.isVerbose(),config.getClientRegex());
+                    new ConnectInboundInterceptorImpl(verboseFilter, config.getClientRegex(), messageLogFormat);
             Services.interceptorRegistry().setConnectInboundInterceptorProvider((input) -> connectInboundInterceptor);
         }
     }
@@ -62,10 +92,25 @@ public class ClientInitializerImpl4_2 implements ClientInitializer {
     @Override
     public void initialize(
             final @NotNull InitializerInput initializerInput, final @NotNull ClientContext clientContext) {
-        InterceptorUtil.createSubscribeInboundInterceptor(config)
+        // the verbose decision for the client is taken once per connection
+        final boolean verbose = verboseFilter.isVerbose(initializerInput.getClientInformation().getClientId());
+
+        InterceptorUtil.createSubscribeInboundInterceptor(config, verbose, messageLogFormat)
                 .ifPresent(clientContext::addSubscribeInboundInterceptor);
-        InterceptorUtil.createPublishInboundInterceptor(config).ifPresent(clientContext::addPublishInboundInterceptor);
-        InterceptorUtil.createPublishOutboundInterceptor(config)
+        InterceptorUtil.createPublishInboundInterceptor(config,
+                        verbose,
+                        verboseFilter,
+                        payloadFilter,
+                        changeFilter,
+                        messageLogFormat,
+                        aggregations)
+                .ifPresent(clientContext::addPublishInboundInterceptor);
+        InterceptorUtil.createPublishOutboundInterceptor(config,
+                        verbose,
+                        verboseFilter,
+                        payloadFilter,
+                        changeFilter,
+                        messageLogFormat)
                 .ifPresent(clientContext::addPublishOutboundInterceptor);
     }
 }
@@ -20,7 +20,8 @@ import com.hivemq.extension.sdk.api.interceptor.connack.ConnackOutboundIntercept
 import com.hivemq.extension.sdk.api.interceptor.connack.parameter.ConnackOutboundInput;
 import com.hivemq.extension.sdk.api.interceptor.connack.parameter.ConnackOutboundOutput;
 import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
-import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import com.hivemq.extensions.log.mqtt.message.filter.VerboseFilter;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,12 +32,17 @@ import org.slf4j.LoggerFactory;
 class ConnackOutboundInterceptorImpl implements ConnackOutboundInterceptor {
 
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(ConnackOutboundInterceptorImpl.class);
-    private final boolean verbose;
+    private final @NotNull VerboseFilter verboseFilter;
     private final String regex;
+    private final @NotNull MessageLogFormat messageLogFormat;
 
-    ConnackOutboundInterceptorImpl(final boolean verbose, final String regex) {
-        this.verbose = verbose;
+    ConnackOutboundInterceptorImpl(
+            final @NotNull VerboseFilter verboseFilter,
+            final String regex,
+            final @NotNull MessageLogFormat messageLogFormat) {
+        this.verboseFilter = verboseFilter;
         this.regex = regex;
+        this.messageLogFormat = messageLogFormat;
     }
 
     @Override
@@ -48,7 +54,7 @@ class ConnackOutboundInterceptorImpl implements ConnackOutboundInterceptor {
             //LOG.debug("onOutboundConnack regex: {}, clientId: {}, matches: {}", regex, clientId,clientId.matches(regex));
 
             if (regex.isEmpty() || clientId.matches(regex)) {
-                MessageLogUtil.logConnack(connackOutboundInput, verbose);
+                messageLogFormat.logConnack(connackOutboundInput, verboseFilter.isVerbose(clientId));
             }
         } catch (final Exception e) {
             LOG.debug("Exception thrown at outbound connack logging: ", e);
@@ -16,6 +16,8 @@
 package com.hivemq.extensions.log.mqtt.message.interceptor;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.client.parameter.Listener;
 import com.hivemq.extension.sdk.api.events.client.ClientLifecycleEventListener;
 import com.hivemq.extension.sdk.api.events.client.parameters.AuthenticationFailedInput;
 import com.hivemq.extension.sdk.api.events.client.parameters.AuthenticationSuccessfulInput;
@@ -25,11 +27,22 @@ import com.hivemq.extension.sdk.api.events.client.parameters.ConnectionStartInpu
 import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
 import com.hivemq.extension.sdk.api.events.client.parameters.ServerInitiatedDisconnectInput;
 import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.general.DisconnectedReasonCode;
+import com.hivemq.extension.sdk.api.parameter.ClientBasedInput;
+import com.hivemq.extensions.log.mqtt.message.aggregate.Aggregations;
+import com.hivemq.extensions.log.mqtt.message.aggregate.ConnectionChurn;
+import com.hivemq.extensions.log.mqtt.message.aggregate.ConnectionLostSummary;
+import com.hivemq.extensions.log.mqtt.message.aggregate.KeepAliveHealth;
+import com.hivemq.extensions.log.mqtt.message.aggregate.SessionSummaries;
 import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
-import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import com.hivemq.extensions.log.mqtt.message.filter.VerboseFilter;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Optional;
+
 /**
  * @author Florian Limpöck
  * @since 1.0.0
@@ -39,18 +52,58 @@ public class ConnectDisconnectEventListener implements ClientLifecycleEventListe
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(ConnectDisconnectEventListener.class);
 
     private final boolean logConnect;
-    private final boolean verbose;
+    private final boolean logDisconnect;
+    private final @NotNull VerboseFilter verboseFilter;
     private final String regex;
+    private final @NotNull MessageLogFormat messageLogFormat;
+    private final @NotNull LineSink sink;
+    private final @Nullable SessionSummaries sessionSummaries;
+    private final @Nullable ConnectionChurn connectionChurn;
+    private final @Nullable ConnectionLostSummary connectionLostSummary;
+    private final @Nullable KeepAliveHealth keepAliveHealth;
+
+    public ConnectDisconnectEventListener(
+            final boolean logConnect,
+            final @NotNull VerboseFilter verboseFilter,
+            final String regex,
+            final @NotNull MessageLogFormat messageLogFormat) {
+        this(logConnect, true, verboseFilter, regex, messageLogFormat, LineSink.MESSAGE_LOG, Aggregations.none());
+    }
 
-    public ConnectDisconnectEventListener(final boolean logConnect, final boolean verbose,
-                                          final String regex) {
+    /**
+     * @param sink             is notified about every disconnect and lost connection, also if disconnects are not
+     *                         logged.
+     * @param aggregations     the connection aggregations are fed with every connect and disconnect.
+     * @since 1.2.0
+     */
+    public ConnectDisconnectEventListener(
+            final boolean logConnect,
+            final boolean logDisconnect,
+            final @NotNull VerboseFilter verboseFilter,
+            final String regex,
+            final @NotNull MessageLogFormat messageLogFormat,
+            final @NotNull LineSink sink,
+            final @NotNull Aggregations aggregations) {
         this.logConnect = logConnect;
-        this.verbose = verbose;
+        this.logDisconnect = logDisconnect;
+        this.verboseFilter = verboseFilter;
         this.regex = regex;
+        this.messageLogFormat = messageLogFormat;
+        this.sink = sink;
+        this.sessionSummaries = aggregations.getSessionSummaries();
+        this.connectionChurn = aggregations.getConnectionChurn();
+        this.connectionLostSummary = aggregations.getConnectionLostSummary();
+        this.keepAliveHealth = aggregations.getKeepAliveHealth();
     }
 
     @Override
     public void onMqttConnectionStart(final @NotNull ConnectionStartInput connectionStartInput) {
+        if (connectionChurn != null) {
+            connectionChurn.connected(connectionStartInput.getClientInformation().getClientId());
+        }
+        if (keepAliveHealth != null) {
+            keepAliveHealth.connectionStarted(connectionStartInput);
+        }
         if (!logConnect) {
             return;
         }
@@ -58,7 +111,7 @@ public class ConnectDisconnectEventListener implements ClientLifecycleEventListe
             final ConnectPacket connectPacket = connectionStartInput.getConnectPacket();
             final String clientId = connectPacket.getClientId();
             if (regex.isEmpty() || clientId.matches(regex)) {
-                MessageLogUtil.logConnect(connectPacket, verbose);
+                messageLogFormat.logConnect(connectPacket, verboseFilter.isVerbose(clientId));
             }
         } catch (final Exception e) {
             LOG.debug("Exception thrown at inbound connect logging: ", e);
@@ -78,38 +131,84 @@ public class ConnectDisconnectEventListener implements ClientLifecycleEventListe
     @Override
     public void onAuthenticationFailedDisconnect(final @NotNull AuthenticationFailedInput authenticationFailedInput) {
         final String clientId = authenticationFailedInput.getClientInformation().getClientId();
-        if (regex.isEmpty() || clientId.matches(regex)) {
-            MessageLogUtil.logDisconnect(String.format("Sent DISCONNECT to client '%s' because authentication failed.",
-                            authenticationFailedInput.getClientInformation().getClientId()),
-                    authenticationFailedInput,
-                    verbose);
+        if (connectionChurn != null) {
+            // failed authentications are summarized per client instead of logged one by one
+            connectionChurn.authenticationFailed(clientId);
+        } else if (logDisconnect && (regex.isEmpty() || clientId.matches(regex))) {
+            messageLogFormat.logDisconnectEvent(authenticationFailedInput,
+                    clientId,
+                    false,
+                    true,
+                    verboseFilter.isVerbose(clientId));
         }
+        disconnected(authenticationFailedInput, clientId, "authentication failed");
     }
 
     @Override
     public void onConnectionLost(final @NotNull ConnectionLostInput connectionLostInput) {
-        //NOOP since no mqtt message is sent.
+        // no mqtt message is sent, the lost connection is only logged if enabled
+        final String clientId = connectionLostInput.getClientInformation().getClientId();
+        if (connectionLostSummary != null) {
+            try {
+                final Optional<Listener> listener = connectionLostInput.getConnectionInformation().getListener();
+                connectionLostSummary.connectionLost(clientId, listener.map(Listener::getName).orElse(null));
+            } catch (final Exception e) {
+                LOG.debug("Exception thrown at connection lost logging: ", e);
+            }
+        }
+        disconnected(connectionLostInput, clientId, "connection lost");
     }
 
     @Override
     public void onClientInitiatedDisconnect(final @NotNull ClientInitiatedDisconnectInput clientInitiatedDisconnectInput) {
         final String clientId = clientInitiatedDisconnectInput.getClientInformation().getClientId();
-        if (regex.isEmpty() || clientId.matches(regex)) {
-            MessageLogUtil.logDisconnect(String.format("Received DISCONNECT from client '%s':",
-                            clientInitiatedDisconnectInput.getClientInformation().getClientId()),
-                    clientInitiatedDisconnectInput,
-                    verbose);
+        if (logDisconnect && (regex.isEmpty() || clientId.matches(regex))) {
+            messageLogFormat.logDisconnectEvent(clientInitiatedDisconnectInput,
+                    clientId,
+                    true,
+                    false,
+                    verboseFilter.isVerbose(clientId));
         }
+        disconnected(clientInitiatedDisconnectInput,
+                clientId,
+                reason("client DISCONNECT", clientInitiatedDisconnectInput.getReasonCode()));
     }
 
     @Override
     public void onServerInitiatedDisconnect(final @NotNull ServerInitiatedDisconnectInput serverInitiatedDisconnectInput) {
         final String clientId = serverInitiatedDisconnectInput.getClientInformation().getClientId();
-        if (regex.isEmpty() || clientId.matches(regex)) {
-            MessageLogUtil.logDisconnect(String.format("Sent DISCONNECT to client '%s':",
-                            serverInitiatedDisconnectInput.getClientInformation().getClientId()),
-                    serverInitiatedDisconnectInput,
-                    verbose);
+        if (logDisconnect && (regex.isEmpty() || clientId.matches(regex))) {
+            messageLogFormat.logDisconnectEvent(serverInitiatedDisconnectInput,
+                    clientId,
+                    false,
+                    false,
+                    verboseFilter.isVerbose(clientId));
         }
+        disconnected(serverInitiatedDisconnectInput,
+                clientId,
+                reason("server DISCONNECT", serverInitiatedDisconnectInput.getReasonCode()));
+    }
+
+    private void disconnected(
+            final @NotNull ClientBasedInput input, final @NotNull String clientId, final @NotNull String reason) {
+        try {
+            if (sessionSummaries != null) {
+                sessionSummaries.disconnected(input, reason);
+            }
+            if (connectionChurn != null) {
+                connectionChurn.disconnected(clientId, reason);
+            }
+            if (keepAliveHealth != null) {
+                keepAliveHealth.disconnected(input, reason);
+            }
+        } catch (final Exception e) {
+            LOG.debug("Exception thrown at connection aggregation: ", e);
+        }
+        sink.clientDisconnected(clientId);
+    }
+
+    private static @NotNull String reason(
+            final @NotNull String disconnect, final @NotNull Optional<DisconnectedReasonCode> reasonCode) {
+        return reasonCode.isPresent() ? disconnect + " " + reasonCode.get() : disconnect;
     }
 }
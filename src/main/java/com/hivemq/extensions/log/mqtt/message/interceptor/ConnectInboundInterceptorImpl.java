@@ -20,7 +20,8 @@ import com.hivemq.extension.sdk.api.interceptor.connect.ConnectInboundIntercepto
 import com.hivemq.extension.sdk.api.interceptor.connect.parameter.ConnectInboundInput;
 import com.hivemq.extension.sdk.api.interceptor.connect.parameter.ConnectInboundOutput;
 import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
-import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import com.hivemq.extensions.log.mqtt.message.filter.VerboseFilter;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,12 +32,17 @@ import org.slf4j.LoggerFactory;
 public class ConnectInboundInterceptorImpl implements ConnectInboundInterceptor {
 
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(ConnectInboundInterceptorImpl.class);
-    private final boolean verbose;
+    private final @NotNull VerboseFilter verboseFilter;
     private final String regex;
+    private final @NotNull MessageLogFormat messageLogFormat;
 
-    public ConnectInboundInterceptorImpl(final boolean verbose, final String regex) {
-        this.verbose = verbose;
+    public ConnectInboundInterceptorImpl(
+            final @NotNull VerboseFilter verboseFilter,
+            final String regex,
+            final @NotNull MessageLogFormat messageLogFormat) {
+        this.verboseFilter = verboseFilter;
         this.regex = regex;
+        this.messageLogFormat = messageLogFormat;
     }
 
     @Override
@@ -47,7 +53,7 @@ public class ConnectInboundInterceptorImpl implements ConnectInboundInterceptor
             final ConnectPacket connectPacket = connectInboundInput.getConnectPacket();
             final String clientId = connectPacket.getClientId();
             if (regex.isEmpty() || clientId.matches(regex)) {
-                MessageLogUtil.logConnect(connectPacket, verbose);
+                messageLogFormat.logConnect(connectPacket, verboseFilter.isVerbose(clientId));
             }
         } catch (final Exception e) {
             LOG.debug("Exception thrown at inbound connect logging: ", e);
@@ -19,7 +19,7 @@ import com.hivemq.extension.sdk.api.annotations.NotNull;
 import com.hivemq.extension.sdk.api.interceptor.disconnect.DisconnectInboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.disconnect.parameter.DisconnectInboundInput;
 import com.hivemq.extension.sdk.api.interceptor.disconnect.parameter.DisconnectInboundOutput;
-import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,10 +32,15 @@ class DisconnectInboundInterceptorImpl implements DisconnectInboundInterceptor {
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(DisconnectInboundInterceptorImpl.class);
     private final boolean verbose;
     private final String regex;
+    private final @NotNull MessageLogFormat messageLogFormat;
 
-    DisconnectInboundInterceptorImpl(final boolean verbose, final String regex) {
+    DisconnectInboundInterceptorImpl(
+            final boolean verbose,
+            final String regex,
+            final @NotNull MessageLogFormat messageLogFormat) {
         this.regex = regex;
         this.verbose = verbose;
+        this.messageLogFormat = messageLogFormat;
     }
 
     @Override
@@ -45,7 +50,7 @@ class DisconnectInboundInterceptorImpl implements DisconnectInboundInterceptor {
         try {
             final String clientId = disconnectInboundInput.getClientInformation().getClientId();
             if (regex.isEmpty() || clientId.matches(regex)) {
-                MessageLogUtil.logDisconnect(disconnectInboundInput.getDisconnectPacket(), clientId, true, verbose);
+                messageLogFormat.logDisconnect(disconnectInboundInput.getDisconnectPacket(), clientId, true, verbose);
             }
         } catch (final Exception e) {
             LOG.debug("Exception thrown at inbound disconnect logging: ", e);
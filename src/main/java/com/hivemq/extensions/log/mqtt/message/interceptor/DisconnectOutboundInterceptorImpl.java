@@ -19,7 +19,7 @@ import com.hivemq.extension.sdk.api.annotations.NotNull;
 import com.hivemq.extension.sdk.api.interceptor.disconnect.DisconnectOutboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.disconnect.parameter.DisconnectOutboundInput;
 import com.hivemq.extension.sdk.api.interceptor.disconnect.parameter.DisconnectOutboundOutput;
-import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,10 +32,15 @@ class DisconnectOutboundInterceptorImpl implements DisconnectOutboundInterceptor
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(DisconnectOutboundInterceptorImpl.class);
     private final boolean verbose;
     private final String regex;
+    private final @NotNull MessageLogFormat messageLogFormat;
 
-    DisconnectOutboundInterceptorImpl(final boolean verbose, final String regex) {
+    DisconnectOutboundInterceptorImpl(
+            final boolean verbose,
+            final String regex,
+            final @NotNull MessageLogFormat messageLogFormat) {
         this.verbose = verbose;
         this.regex = regex;
+        this.messageLogFormat = messageLogFormat;
     }
 
     @Override
@@ -45,7 +50,7 @@ class DisconnectOutboundInterceptorImpl implements DisconnectOutboundInterceptor
         try {
             final String clientId = disconnectOutboundInput.getClientInformation().getClientId();
             if (regex.isEmpty() || clientId.matches(regex)) {
-                MessageLogUtil.logDisconnect(disconnectOutboundInput.getDisconnectPacket(), clientId, false, verbose);
+                messageLogFormat.logDisconnect(disconnectOutboundInput.getDisconnectPacket(), clientId, false, verbose);
             }
         } catch (final Exception e) {
             LOG.debug("Exception thrown at outbound disconnect logging: ", e);
@@ -16,6 +16,7 @@
 package com.hivemq.extensions.log.mqtt.message.interceptor;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.interceptor.connack.ConnackOutboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.connect.ConnectInboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.disconnect.DisconnectInboundInterceptor;
@@ -36,7 +37,12 @@ import com.hivemq.extension.sdk.api.interceptor.suback.SubackOutboundInterceptor
 import com.hivemq.extension.sdk.api.interceptor.subscribe.SubscribeInboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.unsuback.UnsubackOutboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.unsubscribe.UnsubscribeInboundInterceptor;
+import com.hivemq.extensions.log.mqtt.message.aggregate.Aggregations;
 import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.filter.ChangeFilter;
+import com.hivemq.extensions.log.mqtt.message.filter.PayloadFilter;
+import com.hivemq.extensions.log.mqtt.message.filter.VerboseFilter;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 
 import java.util.Optional;
 
@@ -46,161 +52,248 @@ import java.util.Optional;
  */
 public class InterceptorUtil {
 
-    public static @NotNull Optional<ConnectInboundInterceptor> createConnectOutboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<ConnectInboundInterceptor> createConnectOutboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final @NotNull VerboseFilter verboseFilter,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isClientConnect()) {
-            return Optional.of(new ConnectInboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new ConnectInboundInterceptorImpl(verboseFilter,
+                    config.getClientRegex(),
+                    messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<ConnackOutboundInterceptor> createConnackOutboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<ConnackOutboundInterceptor> createConnackOutboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final @NotNull VerboseFilter verboseFilter,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isConnackSend()) {
-            return Optional.of(new ConnackOutboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new ConnackOutboundInterceptorImpl(verboseFilter,
+                    config.getClientRegex(),
+                    messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<DisconnectInboundInterceptor> createDisconnectInboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<DisconnectInboundInterceptor> createDisconnectInboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isClientDisconnect()) {
-            return Optional.of(new DisconnectInboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new DisconnectInboundInterceptorImpl(verbose,
+                    config.getClientRegex(),
+                    messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<DisconnectOutboundInterceptor> createDisconnectOutboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<DisconnectOutboundInterceptor> createDisconnectOutboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isClientDisconnect()) {
-            return Optional.of(new DisconnectOutboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new DisconnectOutboundInterceptorImpl(verbose,
+                    config.getClientRegex(),
+                    messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<SubscribeInboundInterceptor> createSubscribeInboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<SubscribeInboundInterceptor> createSubscribeInboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isSubscribeReceived()) {
-            return Optional.of(new SubscribeInboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new SubscribeInboundInterceptorImpl(verbose, config.getClientRegex(), messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<SubackOutboundInterceptor> createSubackOutboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<SubackOutboundInterceptor> createSubackOutboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isSubackSend()) {
-            return Optional.of(new SubackOutboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new SubackOutboundInterceptorImpl(verbose, config.getClientRegex(), messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<PublishOutboundInterceptor> createPublishOutboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<PublishOutboundInterceptor> createPublishOutboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull VerboseFilter verboseFilter,
+            final @Nullable PayloadFilter payloadFilter,
+            final @Nullable ChangeFilter changeFilter,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isPublishSend()) {
-            return Optional.of(new PublishOutboundInterceptorImpl(config.isVerbose(),config.getClientRegex(),config.getTopicRegex()));
+            return Optional.of(new PublishOutboundInterceptorImpl(verbose,
+                    verboseFilter,
+                    config.getClientRegex(),
+                    config.getTopicRegex(),
+                    payloadFilter,
+                    changeFilter,
+                    messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<PublishInboundInterceptor> createPublishInboundInterceptor(final @NotNull MqttMessageLogConfig config) {
-        if (config.isPublishReceived()) {
-            return Optional.of(new PublishInboundInterceptorImpl(config.isVerbose(),config.getClientRegex(),config.getTopicRegex()));
+    public static @NotNull Optional<PublishInboundInterceptor> createPublishInboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull VerboseFilter verboseFilter,
+            final @Nullable PayloadFilter payloadFilter,
+            final @Nullable ChangeFilter changeFilter,
+            final @NotNull MessageLogFormat messageLogFormat,
+            final @NotNull Aggregations aggregations) {
+        if (config.isPublishReceived() || aggregations.isPublishReceivedAggregated()) {
+            return Optional.of(new PublishInboundInterceptorImpl(verbose,
+                    verboseFilter,
+                    config.getClientRegex(),
+                    config.getTopicRegex(),
+                    payloadFilter,
+                    changeFilter,
+                    messageLogFormat,
+                    config.isPublishReceived(),
+                    aggregations));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<PingReqInboundInterceptor> createPingreqInboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<PingReqInboundInterceptor> createPingreqInboundInterceptor(
+            final @NotNull MqttMessageLogConfig config, final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isPingreqReceived()) {
-            return Optional.of(new PingreqInboundInterceptorImpl(config.getClientRegex()));
+            return Optional.of(new PingreqInboundInterceptorImpl(config.getClientRegex(), messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<PingRespOutboundInterceptor> createPingrespOutboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<PingRespOutboundInterceptor> createPingrespOutboundInterceptor(
+            final @NotNull MqttMessageLogConfig config, final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isPingrespSend()) {
-            return Optional.of(new PingrespOutboundInterceptorImpl(config.getClientRegex()));
+            return Optional.of(new PingrespOutboundInterceptorImpl(config.getClientRegex(), messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<UnsubscribeInboundInterceptor> createUnsubscribeInboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<UnsubscribeInboundInterceptor> createUnsubscribeInboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isUnsubscribeReceived()) {
-            return Optional.of(new UnsubscribeInboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new UnsubscribeInboundInterceptorImpl(verbose,
+                    config.getClientRegex(),
+                    messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<UnsubackOutboundInterceptor> createUnsubackOutboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<UnsubackOutboundInterceptor> createUnsubackOutboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isUnsubackSend()) {
-            return Optional.of(new UnsubackOutboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new UnsubackOutboundInterceptorImpl(verbose, config.getClientRegex(), messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<PubackInboundInterceptor> createPubackInboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<PubackInboundInterceptor> createPubackInboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isPubackReceived()) {
-            return Optional.of(new PubackInboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new PubackInboundInterceptorImpl(verbose, config.getClientRegex(), messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<PubackOutboundInterceptor> createPubackOutboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<PubackOutboundInterceptor> createPubackOutboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isPubackSend()) {
-            return Optional.of(new PubackOutboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new PubackOutboundInterceptorImpl(verbose, config.getClientRegex(), messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<PubrecInboundInterceptor> createPubrecInboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<PubrecInboundInterceptor> createPubrecInboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isPubrecReceived()) {
-            return Optional.of(new PubrecInboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new PubrecInboundInterceptorImpl(verbose, config.getClientRegex(), messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<PubrecOutboundInterceptor> createPubrecOutboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<PubrecOutboundInterceptor> createPubrecOutboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isPubrecSend()) {
-            return Optional.of(new PubrecOutboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new PubrecOutboundInterceptorImpl(verbose, config.getClientRegex(), messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<PubrelInboundInterceptor> createPubrelInboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<PubrelInboundInterceptor> createPubrelInboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isPubrelReceived()) {
-            return Optional.of(new PubrelInboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new PubrelInboundInterceptorImpl(verbose, config.getClientRegex(), messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<PubrelOutboundInterceptor> createPubrelOutboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<PubrelOutboundInterceptor> createPubrelOutboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isPubrelSend()) {
-            return Optional.of(new PubrelOutboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new PubrelOutboundInterceptorImpl(verbose, config.getClientRegex(), messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<PubcompInboundInterceptor> createPubcompInboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<PubcompInboundInterceptor> createPubcompInboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isPubcompReceived()) {
-            return Optional.of(new PubcompInboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new PubcompInboundInterceptorImpl(verbose, config.getClientRegex(), messageLogFormat));
         } else {
             return Optional.empty();
         }
     }
 
-    public static @NotNull Optional<PubcompOutboundInterceptor> createPubcompOutboundInterceptor(final @NotNull MqttMessageLogConfig config) {
+    public static @NotNull Optional<PubcompOutboundInterceptor> createPubcompOutboundInterceptor(
+            final @NotNull MqttMessageLogConfig config,
+            final boolean verbose,
+            final @NotNull MessageLogFormat messageLogFormat) {
         if (config.isPubcompSend()) {
-            return Optional.of(new PubcompOutboundInterceptorImpl(config.isVerbose(),config.getClientRegex()));
+            return Optional.of(new PubcompOutboundInterceptorImpl(verbose, config.getClientRegex(), messageLogFormat));
         } else {
             return Optional.empty();
         }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.interceptor;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.client.ClientContext;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.PingReqInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.puback.PubackInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.puback.parameter.PubackInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.puback.parameter.PubackInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.pubcomp.PubcompInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.pubcomp.parameter.PubcompInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pubcomp.parameter.PubcompInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.publish.PublishInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.pubrec.PubrecInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.pubrec.parameter.PubrecInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pubrec.parameter.PubrecInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.pubrel.PubrelInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.pubrel.parameter.PubrelInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pubrel.parameter.PubrelInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.SubscribeInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.UnsubscribeInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.parameter.UnsubscribeInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.parameter.UnsubscribeInboundOutput;
+import com.hivemq.extensions.log.mqtt.message.aggregate.KeepAliveHealth;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the packets a client sends for its {@link KeepAliveHealth}: every packet restarts the keep alive interval,
+ * every PINGREQ is checked against it.
+ *
+ * @since 1.2.0
+ */
+public class KeepAliveInterceptor implements PingReqInboundInterceptor, PublishInboundInterceptor,
+        PubackInboundInterceptor, PubrecInboundInterceptor, PubrelInboundInterceptor, PubcompInboundInterceptor,
+        SubscribeInboundInterceptor, UnsubscribeInboundInterceptor {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(KeepAliveInterceptor.class);
+
+    private final @NotNull KeepAliveHealth keepAliveHealth;
+    private final @NotNull KeepAliveHealth.Connection connection;
+
+    public KeepAliveInterceptor(
+            final @NotNull KeepAliveHealth keepAliveHealth, final @NotNull KeepAliveHealth.Connection connection) {
+        this.keepAliveHealth = keepAliveHealth;
+        this.connection = connection;
+    }
+
+    /**
+     * Adds this interceptor for all packet types a client sends after CONNECT to the connection.
+     */
+    public void addTo(final @NotNull ClientContext clientContext) {
+        clientContext.addPingReqInboundInterceptor(this);
+        clientContext.addPublishInboundInterceptor(this);
+        clientContext.addPubackInboundInterceptor(this);
+        clientContext.addPubrecInboundInterceptor(this);
+        clientContext.addPubrelInboundInterceptor(this);
+        clientContext.addPubcompInboundInterceptor(this);
+        clientContext.addSubscribeInboundInterceptor(this);
+        clientContext.addUnsubscribeInboundInterceptor(this);
+    }
+
+    @Override
+    public void onInboundPingReq(
+            final @NotNull PingReqInboundInput pingReqInboundInput,
+            final @NotNull PingReqInboundOutput pingReqInboundOutput) {
+        try {
+            keepAliveHealth.pingReceived(pingReqInboundInput.getClientInformation().getClientId(), connection);
+        } catch (final Exception e) {
+            LOG.debug("Exception thrown at keep alive check: ", e);
+        }
+    }
+
+    @Override
+    public void onInboundPublish(
+            final @NotNull PublishInboundInput publishInboundInput,
+            final @NotNull PublishInboundOutput publishInboundOutput) {
+        connection.received(System.nanoTime());
+    }
+
+    @Override
+    public void onInboundPuback(
+            final @NotNull PubackInboundInput pubackInboundInput,
+            final @NotNull PubackInboundOutput pubackInboundOutput) {
+        connection.received(System.nanoTime());
+    }
+
+    @Override
+    public void onInboundPubrec(
+            final @NotNull PubrecInboundInput pubrecInboundInput,
+            final @NotNull PubrecInboundOutput pubrecInboundOutput) {
+        connection.received(System.nanoTime());
+    }
+
+    @Override
+    public void onInboundPubrel(
+            final @NotNull PubrelInboundInput pubrelInboundInput,
+            final @NotNull PubrelInboundOutput pubrelInboundOutput) {
+        connection.received(System.nanoTime());
+    }
+
+    @Override
+    public void onInboundPubcomp(
+            final @NotNull PubcompInboundInput pubcompInboundInput,
+            final @NotNull PubcompInboundOutput pubcompInboundOutput) {
+        connection.received(System.nanoTime());
+    }
+
+    @Override
+    public void onInboundSubscribe(
+            final @NotNull SubscribeInboundInput subscribeInboundInput,
+            final @NotNull SubscribeInboundOutput subscribeInboundOutput) {
+        connection.received(System.nanoTime());
+    }
+
+    @Override
+    public void onInboundUnsubscribe(
+            final @NotNull UnsubscribeInboundInput unsubscribeInboundInput,
+            final @NotNull UnsubscribeInboundOutput unsubscribeInboundOutput) {
+        connection.received(System.nanoTime());
+    }
+}
@@ -19,7 +19,7 @@ import com.hivemq.extension.sdk.api.annotations.NotNull;
 import com.hivemq.extension.sdk.api.interceptor.pingreq.PingReqInboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundInput;
 import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundOutput;
-import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,8 +31,11 @@ class PingreqInboundInterceptorImpl implements PingReqInboundInterceptor {
 
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(PingreqInboundInterceptorImpl.class);
     private final String regex;
-    PingreqInboundInterceptorImpl(final String regex){
-        this.regex=regex;
+    private final @NotNull MessageLogFormat messageLogFormat;
+
+    PingreqInboundInterceptorImpl(final String regex, final @NotNull MessageLogFormat messageLogFormat) {
+        this.regex = regex;
+        this.messageLogFormat = messageLogFormat;
     }
 
 
@@ -43,7 +46,7 @@ class PingreqInboundInterceptorImpl implements PingReqInboundInterceptor {
         try {
             final String clientId = pingReqInboundInput.getClientInformation().getClientId();
             if (regex.isEmpty() || clientId.matches(regex)) {
-                MessageLogUtil.logPingreq(pingReqInboundInput);
+                messageLogFormat.logPingreq(pingReqInboundInput);
             }
         } catch (final Exception e) {
             LOG.debug("Exception thrown at inbound ping request logging: ", e);
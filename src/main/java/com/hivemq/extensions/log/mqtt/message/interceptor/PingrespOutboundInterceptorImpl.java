@@ -19,7 +19,7 @@ import com.hivemq.extension.sdk.api.annotations.NotNull;
 import com.hivemq.extension.sdk.api.interceptor.pingresp.PingRespOutboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.pingresp.parameter.PingRespOutboundInput;
 import com.hivemq.extension.sdk.api.interceptor.pingresp.parameter.PingRespOutboundOutput;
-import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,8 +31,11 @@ class PingrespOutboundInterceptorImpl implements PingRespOutboundInterceptor {
 
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(PingrespOutboundInterceptorImpl.class);
     private final String regex;
-    PingrespOutboundInterceptorImpl(final String regex){
+    private final @NotNull MessageLogFormat messageLogFormat;
+
+    PingrespOutboundInterceptorImpl(final String regex, final @NotNull MessageLogFormat messageLogFormat) {
         this.regex = regex;
+        this.messageLogFormat = messageLogFormat;
     }
 
     @Override
@@ -42,7 +45,7 @@ class PingrespOutboundInterceptorImpl implements PingRespOutboundInterceptor {
         try {
             final String clientId = pingRespOutboundInput.getClientInformation().getClientId();
             if (regex.isEmpty() || clientId.matches(regex)) {
-                MessageLogUtil.logPingresp(pingRespOutboundInput);
+                messageLogFormat.logPingresp(pingRespOutboundInput);
             }
         } catch (final Exception e) {
             LOG.debug("Exception thrown at outbound ping response logging: ", e);
@@ -19,7 +19,7 @@ import com.hivemq.extension.sdk.api.annotations.NotNull;
 import com.hivemq.extension.sdk.api.interceptor.puback.PubackInboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.puback.parameter.PubackInboundInput;
 import com.hivemq.extension.sdk.api.interceptor.puback.parameter.PubackInboundOutput;
-import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,10 +32,15 @@ class PubackInboundInterceptorImpl implements PubackInboundInterceptor {
     private static final @NotNull Logger log = LoggerFactory.getLogger(PubackInboundInterceptorImpl.class);
     private final boolean verbose;
     private final String regex;
+    private final @NotNull MessageLogFormat messageLogFormat;
 
-    PubackInboundInterceptorImpl(final boolean verbose, final String regex) {
+    PubackInboundInterceptorImpl(
+            final boolean verbose,
+            final String regex,
+            final @NotNull MessageLogFormat messageLogFormat) {
         this.verbose = verbose;
         this.regex = regex;
+        this.messageLogFormat = messageLogFormat;
     }
 
     @Override
@@ -45,7 +50,7 @@ class PubackInboundInterceptorImpl implements PubackInboundInterceptor {
         try {
             @NotNull final String clientId = pubackInboundInput.getClientInformation().getClientId();
             if (regex.isEmpty() || clientId.matches(regex)) {
-                MessageLogUtil.logPuback(pubackInboundInput.getPubackPacket(), clientId, true, verbose);
+                messageLogFormat.logPuback(pubackInboundInput.getPubackPacket(), clientId, true, verbose);
             }
         } catch (final Exception e) {
             log.debug("Exception thrown at inbound puback logging: ", e);
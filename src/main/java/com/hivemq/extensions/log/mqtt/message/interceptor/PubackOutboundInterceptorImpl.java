@@ -19,7 +19,7 @@ import com.hivemq.extension.sdk.api.annotations.NotNull;
 import com.hivemq.extension.sdk.api.interceptor.puback.PubackOutboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.puback.parameter.PubackOutboundInput;
 import com.hivemq.extension.sdk.api.interceptor.puback.parameter.PubackOutboundOutput;
-import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,10 +32,15 @@ class PubackOutboundInterceptorImpl implements PubackOutboundInterceptor {
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(PubackOutboundInterceptorImpl.class);
     private final boolean verbose;
     private final String regex;
+    private final @NotNull MessageLogFormat messageLogFormat;
 
-    PubackOutboundInterceptorImpl(final boolean verbose, final String regex) {
+    PubackOutboundInterceptorImpl(
+            final boolean verbose,
+            final String regex,
+            final @NotNull MessageLogFormat messageLogFormat) {
         this.verbose = verbose;
         this.regex = regex;
+        this.messageLogFormat = messageLogFormat;
     }
 
     @Override
@@ -45,7 +50,7 @@ class PubackOutboundInterceptorImpl implements PubackOutboundInterceptor {
         try {
             final String clientId = pubackOutboundInput.getClientInformation().getClientId();
             if (regex.isEmpty() || clientId.matches(regex)) {
-                MessageLogUtil.logPuback(pubackOutboundInput.getPubackPacket(), clientId, false, verbose);
+                messageLogFormat.logPuback(pubackOutboundInput.getPubackPacket(), clientId, false, verbose);
             }
         } catch (final Exception e) {
             LOG.debug("Exception thrown at outbound puback logging: ", e);
@@ -19,7 +19,7 @@ import com.hivemq.extension.sdk.api.annotations.NotNull;
 import com.hivemq.extension.sdk.api.interceptor.pubcomp.PubcompInboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.pubcomp.parameter.PubcompInboundInput;
 import com.hivemq.extension.sdk.api.interceptor.pubcomp.parameter.PubcompInboundOutput;
-import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,10 +32,15 @@ class PubcompInboundInterceptorImpl implements PubcompInboundInterceptor {
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(PubcompInboundInterceptorImpl.class);
     private final boolean verbose;
     private final String regex;
+    private final @NotNull MessageLogFormat messageLogFormat;
 
-    PubcompInboundInterceptorImpl(final boolean verbose, final String regex) {
+    PubcompInboundInterceptorImpl(
+            final boolean verbose,
+            final String regex,
+            final @NotNull MessageLogFormat messageLogFormat) {
         this.verbose = verbose;
         this.regex = regex;
+        this.messageLogFormat = messageLogFormat;
     }
 
     @Override
@@ -45,7 +50,7 @@ class PubcompInboundInterceptorImpl implements PubcompInboundInterceptor {
         try {
             final String clientId = pubcompInboundInput.getClientInformation().getClientId();
             if (regex.isEmpty() || clientId.matches(regex)) {
-                MessageLogUtil.logPubcomp(pubcompInboundInput.getPubcompPacket(), clientId, true, verbose);
+                messageLogFormat.logPubcomp(pubcompInboundInput.getPubcompPacket(), clientId, true, verbose);
             }
         } catch (final Exception e) {
             LOG.debug("Exception thrown at inbound pubcomp logging: ", e);
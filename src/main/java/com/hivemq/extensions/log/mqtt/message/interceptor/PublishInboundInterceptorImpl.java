@@ -16,14 +16,23 @@
 package com.hivemq.extensions.log.mqtt.message.interceptor;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.interceptor.publish.PublishInboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundInput;
 import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundOutput;
-import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
-import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import com.hivemq.extensions.log.mqtt.message.aggregate.Aggregations;
+import com.hivemq.extensions.log.mqtt.message.aggregate.HeavyHitters;
+import com.hivemq.extensions.log.mqtt.message.aggregate.TopicCardinality;
+import com.hivemq.extensions.log.mqtt.message.aggregate.TopicTree;
+import com.hivemq.extensions.log.mqtt.message.filter.ChangeFilter;
+import com.hivemq.extensions.log.mqtt.message.filter.PayloadFilter;
+import com.hivemq.extensions.log.mqtt.message.filter.VerboseFilter;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Florian Limpöck
  * @since 1.0.0
@@ -32,13 +41,39 @@ class PublishInboundInterceptorImpl implements PublishInboundInterceptor {
 
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(PublishInboundInterceptorImpl.class);
     private final boolean verbose;
+    private final @NotNull VerboseFilter verboseFilter;
     private final String clientRegex;
     private final String topicRegex;
+    private final @Nullable PayloadFilter payloadFilter;
+    private final @Nullable ChangeFilter changeFilter;
+    private final @NotNull MessageLogFormat messageLogFormat;
+    private final boolean log;
+    private final @Nullable HeavyHitters heavyHitters;
+    private final @Nullable TopicTree topicTree;
+    private final @Nullable TopicCardinality topicCardinality;
 
-    PublishInboundInterceptorImpl(final boolean verbose, final String clientRegex, final String topicRegex) {
+    PublishInboundInterceptorImpl(
+            final boolean verbose,
+            final @NotNull VerboseFilter verboseFilter,
+            final String clientRegex,
+            final String topicRegex,
+            final @Nullable PayloadFilter payloadFilter,
+            final @Nullable ChangeFilter changeFilter,
+            final @NotNull MessageLogFormat messageLogFormat,
+            final boolean log,
+            final @NotNull Aggregations aggregations) {
         this.verbose = verbose;
+        this.verboseFilter = verboseFilter;
         this.clientRegex = clientRegex;
         this.topicRegex = topicRegex;
+        this.payloadFilter = payloadFilter;
+        this.changeFilter = changeFilter;
+        this.messageLogFormat = messageLogFormat;
+        this.log = log;
+        this.heavyHitters = aggregations.getHeavyHitters();
+        this.topicTree = aggregations.getTopicTree();
+        // the interceptor is created per connection, so is its state
+        this.topicCardinality = aggregations.newTopicCardinality();
     }
 
     @Override
@@ -49,11 +84,41 @@ class PublishInboundInterceptorImpl implements PublishInboundInterceptor {
             final String clientId = publishInboundInput.getClientInformation().getClientId();
             final String topic = publishInboundInput.getPublishPacket().getTopic();
 
+            // the aggregations count all messages, the filters only select what is logged
+            if (heavyHitters != null || topicTree != null) {
+                final int payloadSize =
+                        publishInboundInput.getPublishPacket().getPayload().map(ByteBuffer::remaining).orElse(0);
+                if (heavyHitters != null) {
+                    heavyHitters.add(clientId, topic, payloadSize);
+                }
+                if (topicTree != null) {
+                    topicTree.add(topic, payloadSize);
+                }
+            }
+            if (topicCardinality != null) {
+                topicCardinality.add(clientId, topic);
+            }
+            if (!log) {
+                return;
+            }
             if ((topicRegex.isEmpty() || topic.matches(topicRegex))
                     || (clientRegex.isEmpty() || clientId.matches(clientRegex))) {
-                MessageLogUtil.logPublish(String.format("Received PUBLISH from client '%s' for topic", clientId),
+                // the payload is only scanned once the cheaper client and topic filters passed
+                if (payloadFilter != null &&
+                        !payloadFilter.matches(publishInboundInput.getPublishPacket().getPayload())) {
+                    return;
+                }
+                // the change filter remembers the payload, so it must only see messages that are logged otherwise
+                if (changeFilter != null && !changeFilter.isChanged(clientId,
+                        topic,
+                        publishInboundInput.getPublishPacket().getPayload(),
+                        true)) {
+                    return;
+                }
+                messageLogFormat.logPublish(clientId,
                         publishInboundInput.getPublishPacket(),
-                        verbose);
+                        true,
+                        verbose || verboseFilter.isVerboseTopic(topic));
             }
         } catch (final Exception e) {
             LOG.debug("Exception thrown at inbound publish logging: ", e);
@@ -16,10 +16,14 @@
 package com.hivemq.extensions.log.mqtt.message.interceptor;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.interceptor.publish.PublishOutboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundInput;
 import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundOutput;
-import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import com.hivemq.extensions.log.mqtt.message.filter.ChangeFilter;
+import com.hivemq.extensions.log.mqtt.message.filter.PayloadFilter;
+import com.hivemq.extensions.log.mqtt.message.filter.VerboseFilter;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,13 +35,28 @@ class PublishOutboundInterceptorImpl implements PublishOutboundInterceptor {
 
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(PublishOutboundInterceptorImpl.class);
     private final boolean verbose;
+    private final @NotNull VerboseFilter verboseFilter;
     private final String topicRegex;
     private final String clientRegex;
+    private final @Nullable PayloadFilter payloadFilter;
+    private final @Nullable ChangeFilter changeFilter;
+    private final @NotNull MessageLogFormat messageLogFormat;
 
-    PublishOutboundInterceptorImpl(final boolean verbose, final String clientRegex, final String topicRegex) {
+    PublishOutboundInterceptorImpl(
+            final boolean verbose,
+            final @NotNull VerboseFilter verboseFilter,
+            final String clientRegex,
+            final String topicRegex,
+            final @Nullable PayloadFilter payloadFilter,
+            final @Nullable ChangeFilter changeFilter,
+            final @NotNull MessageLogFormat messageLogFormat) {
         this.verbose = verbose;
+        this.verboseFilter = verboseFilter;
         this.topicRegex = topicRegex;
         this.clientRegex = clientRegex;
+        this.payloadFilter = payloadFilter;
+        this.changeFilter = changeFilter;
+        this.messageLogFormat = messageLogFormat;
     }
 
     @Override
@@ -49,9 +68,22 @@ class PublishOutboundInterceptorImpl implements PublishOutboundInterceptor {
             final String topic = publishOutboundInput.getPublishPacket().getTopic();
             if ((topicRegex.isEmpty() || topic.matches(topicRegex))
                     || (clientRegex.isEmpty() || clientId.matches(clientRegex))) {
-                MessageLogUtil.logPublish(String.format("Sent PUBLISH to client '%s' on topic", clientId),
+                // the payload is only scanned once the cheaper client and topic filters passed
+                if (payloadFilter != null &&
+                        !payloadFilter.matches(publishOutboundInput.getPublishPacket().getPayload())) {
+                    return;
+                }
+                // the change filter remembers the payload, so it must only see messages that are logged otherwise
+                if (changeFilter != null && !changeFilter.isChanged(clientId,
+                        topic,
+                        publishOutboundInput.getPublishPacket().getPayload(),
+                        false)) {
+                    return;
+                }
+                messageLogFormat.logPublish(clientId,
                         publishOutboundInput.getPublishPacket(),
-                        verbose);
+                        false,
+                        verbose || verboseFilter.isVerboseTopic(topic));
             }
         } catch (final Exception e) {
             LOG.debug("Exception thrown at outbound publish logging: ", e);
@@ -19,7 +19,7 @@ import com.hivemq.extension.sdk.api.annotations.NotNull;
 import com.hivemq.extension.sdk.api.interceptor.pubrec.PubrecInboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.pubrec.parameter.PubrecInboundInput;
 import com.hivemq.extension.sdk.api.interceptor.pubrec.parameter.PubrecInboundOutput;
-import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,10 +32,15 @@ class PubrecInboundInterceptorImpl implements PubrecInboundInterceptor {
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(PubrecInboundInterceptorImpl.class);
     private final boolean verbose;
     private final String regex;
+    private final @NotNull MessageLogFormat messageLogFormat;
 
-    PubrecInboundInterceptorImpl(final boolean verbose, final String regex) {
+    PubrecInboundInterceptorImpl(
+            final boolean verbose,
+            final String regex,
+            final @NotNull MessageLogFormat messageLogFormat) {
         this.verbose = verbose;
         this.regex = regex;
+        this.messageLogFormat = messageLogFormat;
     }
 
     @Override
@@ -44,7 +49,7 @@ class PubrecInboundInterceptorImpl implements PubrecInboundInterceptor {
             final @NotNull PubrecInboundOutput pubrecInboundOutput) {
         try {
             final String clientId = pubrecInboundInput.getClientInformation().getClientId();
-            MessageLogUtil.logPubrec(pubrecInboundInput.getPubrecPacket(), clientId, true, verbose);
+            messageLogFormat.logPubrec(pubrecInboundInput.getPubrecPacket(), clientId, true, verbose);
         } catch (final Exception e) {
             LOG.debug("Exception thrown at inbound pubrec logging: ", e);
         }
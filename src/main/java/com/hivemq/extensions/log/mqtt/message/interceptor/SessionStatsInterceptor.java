@@ -0,0 +1,273 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.interceptor;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.client.ClientContext;
+import com.hivemq.extension.sdk.api.interceptor.disconnect.DisconnectInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.disconnect.DisconnectOutboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.disconnect.parameter.DisconnectInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.disconnect.parameter.DisconnectInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.disconnect.parameter.DisconnectOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.disconnect.parameter.DisconnectOutboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.PingReqInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.pingresp.PingRespOutboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.pingresp.parameter.PingRespOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingresp.parameter.PingRespOutboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.puback.PubackInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.puback.PubackOutboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.puback.parameter.PubackInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.puback.parameter.PubackInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.puback.parameter.PubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.puback.parameter.PubackOutboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.pubcomp.PubcompInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.pubcomp.PubcompOutboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.pubcomp.parameter.PubcompInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pubcomp.parameter.PubcompInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.pubcomp.parameter.PubcompOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pubcomp.parameter.PubcompOutboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.publish.PublishInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.publish.PublishOutboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.pubrec.PubrecInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.pubrec.PubrecOutboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.pubrec.parameter.PubrecInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pubrec.parameter.PubrecInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.pubrec.parameter.PubrecOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pubrec.parameter.PubrecOutboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.pubrel.PubrelInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.pubrel.PubrelOutboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.pubrel.parameter.PubrelInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pubrel.parameter.PubrelInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.pubrel.parameter.PubrelOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pubrel.parameter.PubrelOutboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.suback.SubackOutboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.suback.parameter.SubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.suback.parameter.SubackOutboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.SubscribeInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.unsuback.UnsubackOutboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.unsuback.parameter.UnsubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsuback.parameter.UnsubackOutboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.UnsubscribeInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.parameter.UnsubscribeInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.parameter.UnsubscribeInboundOutput;
+import com.hivemq.extension.sdk.api.packets.publish.AckReasonCode;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extensions.log.mqtt.message.aggregate.EventSummary.Event;
+import com.hivemq.extensions.log.mqtt.message.aggregate.SessionStats;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Counts all packets of one connection for its {@link SessionStats}, independent of which packets are logged. It is
+ * added to the connection in addition to the logging interceptors, so the session summary is also complete if
+ * per-packet logging is disabled.
+ *
+ * @since 1.2.0
+ */
+public class SessionStatsInterceptor implements PublishInboundInterceptor, PublishOutboundInterceptor,
+        PubackInboundInterceptor, PubackOutboundInterceptor, PubrecInboundInterceptor, PubrecOutboundInterceptor,
+        PubrelInboundInterceptor, PubrelOutboundInterceptor, PubcompInboundInterceptor, PubcompOutboundInterceptor,
+        SubscribeInboundInterceptor, SubackOutboundInterceptor, UnsubscribeInboundInterceptor,
+        UnsubackOutboundInterceptor, PingReqInboundInterceptor, PingRespOutboundInterceptor,
+        DisconnectInboundInterceptor, DisconnectOutboundInterceptor {
+
+    private final @NotNull SessionStats stats;
+
+    public SessionStatsInterceptor(final @NotNull SessionStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Adds this interceptor for all packet types to the connection.
+     */
+    public void addTo(final @NotNull ClientContext clientContext) {
+        clientContext.addPublishInboundInterceptor(this);
+        clientContext.addPublishOutboundInterceptor(this);
+        clientContext.addPubackInboundInterceptor(this);
+        clientContext.addPubackOutboundInterceptor(this);
+        clientContext.addPubrecInboundInterceptor(this);
+        clientContext.addPubrecOutboundInterceptor(this);
+        clientContext.addPubrelInboundInterceptor(this);
+        clientContext.addPubrelOutboundInterceptor(this);
+        clientContext.addPubcompInboundInterceptor(this);
+        clientContext.addPubcompOutboundInterceptor(this);
+        clientContext.addSubscribeInboundInterceptor(this);
+        clientContext.addSubackOutboundInterceptor(this);
+        clientContext.addUnsubscribeInboundInterceptor(this);
+        clientContext.addUnsubackOutboundInterceptor(this);
+        clientContext.addPingReqInboundInterceptor(this);
+        clientContext.addPingRespOutboundInterceptor(this);
+        clientContext.addDisconnectInboundInterceptor(this);
+        clientContext.addDisconnectOutboundInterceptor(this);
+    }
+
+    @Override
+    public void onInboundPublish(
+            final @NotNull PublishInboundInput publishInboundInput,
+            final @NotNull PublishInboundOutput publishInboundOutput) {
+        publish(publishInboundInput.getPublishPacket(), true);
+    }
+
+    @Override
+    public void onOutboundPublish(
+            final @NotNull PublishOutboundInput publishOutboundInput,
+            final @NotNull PublishOutboundOutput publishOutboundOutput) {
+        publish(publishOutboundInput.getPublishPacket(), false);
+    }
+
+    private void publish(final @NotNull PublishPacket publishPacket, final boolean inbound) {
+        final Optional<ByteBuffer> payload = publishPacket.getPayload();
+        stats.publish(inbound,
+                publishPacket.getQos().getQosNumber(),
+                payload.isPresent() ? payload.get().remaining() : 0);
+    }
+
+    @Override
+    public void onInboundPuback(
+            final @NotNull PubackInboundInput pubackInboundInput,
+            final @NotNull PubackInboundOutput pubackInboundOutput) {
+        stats.packet(Event.PUBACK_RECEIVED);
+        stats.acknowledged(true);
+    }
+
+    @Override
+    public void onOutboundPuback(
+            final @NotNull PubackOutboundInput pubackOutboundInput,
+            final @NotNull PubackOutboundOutput pubackOutboundOutput) {
+        stats.packet(Event.PUBACK_SEND);
+        stats.acknowledged(false);
+    }
+
+    @Override
+    public void onInboundPubrec(
+            final @NotNull PubrecInboundInput pubrecInboundInput,
+            final @NotNull PubrecInboundOutput pubrecInboundOutput) {
+        stats.packet(Event.PUBREC_RECEIVED);
+        // a PUBREC with an error reason code ends the QoS 2 flow, no PUBREL and PUBCOMP follow
+        if (isError(pubrecInboundInput.getPubrecPacket().getReasonCode())) {
+            stats.acknowledged(true);
+        }
+    }
+
+    @Override
+    public void onOutboundPubrec(
+            final @NotNull PubrecOutboundInput pubrecOutboundInput,
+            final @NotNull PubrecOutboundOutput pubrecOutboundOutput) {
+        stats.packet(Event.PUBREC_SEND);
+        if (isError(pubrecOutboundInput.getPubrecPacket().getReasonCode())) {
+            stats.acknowledged(false);
+        }
+    }
+
+    private static boolean isError(final @NotNull AckReasonCode reasonCode) {
+        return reasonCode != AckReasonCode.SUCCESS && reasonCode != AckReasonCode.NO_MATCHING_SUBSCRIBERS;
+    }
+
+    @Override
+    public void onInboundPubrel(
+            final @NotNull PubrelInboundInput pubrelInboundInput,
+            final @NotNull PubrelInboundOutput pubrelInboundOutput) {
+        stats.packet(Event.PUBREL_RECEIVED);
+    }
+
+    @Override
+    public void onOutboundPubrel(
+            final @NotNull PubrelOutboundInput pubrelOutboundInput,
+            final @NotNull PubrelOutboundOutput pubrelOutboundOutput) {
+        stats.packet(Event.PUBREL_SEND);
+    }
+
+    @Override
+    public void onInboundPubcomp(
+            final @NotNull PubcompInboundInput pubcompInboundInput,
+            final @NotNull PubcompInboundOutput pubcompInboundOutput) {
+        stats.packet(Event.PUBCOMP_RECEIVED);
+        stats.acknowledged(true);
+    }
+
+    @Override
+    public void onOutboundPubcomp(
+            final @NotNull PubcompOutboundInput pubcompOutboundInput,
+            final @NotNull PubcompOutboundOutput pubcompOutboundOutput) {
+        stats.packet(Event.PUBCOMP_SEND);
+        stats.acknowledged(false);
+    }
+
+    @Override
+    public void onInboundSubscribe(
+            final @NotNull SubscribeInboundInput subscribeInboundInput,
+            final @NotNull SubscribeInboundOutput subscribeInboundOutput) {
+        stats.subscribed(subscribeInboundInput.getSubscribePacket().getSubscriptions().size());
+    }
+
+    @Override
+    public void onOutboundSuback(
+            final @NotNull SubackOutboundInput subackOutboundInput,
+            final @NotNull SubackOutboundOutput subackOutboundOutput) {
+        stats.packet(Event.SUBACK_SEND);
+    }
+
+    @Override
+    public void onInboundUnsubscribe(
+            final @NotNull UnsubscribeInboundInput unsubscribeInboundInput,
+            final @NotNull UnsubscribeInboundOutput unsubscribeInboundOutput) {
+        stats.unsubscribed(unsubscribeInboundInput.getUnsubscribePacket().getTopicFilters().size());
+    }
+
+    @Override
+    public void onOutboundUnsuback(
+            final @NotNull UnsubackOutboundInput unsubackOutboundInput,
+            final @NotNull UnsubackOutboundOutput unsubackOutboundOutput) {
+        stats.packet(Event.UNSUBACK_SEND);
+    }
+
+    @Override
+    public void onInboundPingReq(
+            final @NotNull PingReqInboundInput pingReqInboundInput,
+            final @NotNull PingReqInboundOutput pingReqInboundOutput) {
+        stats.packet(Event.PINGREQ_RECEIVED);
+    }
+
+    @Override
+    public void onOutboundPingResp(
+            final @NotNull PingRespOutboundInput pingRespOutboundInput,
+            final @NotNull PingRespOutboundOutput pingRespOutboundOutput) {
+        stats.packet(Event.PINGRESP_SEND);
+    }
+
+    @Override
+    public void onInboundDisconnect(
+            final @NotNull DisconnectInboundInput disconnectInboundInput,
+            final @NotNull DisconnectInboundOutput disconnectInboundOutput) {
+        stats.packet(Event.DISCONNECT_RECEIVED);
+    }
+
+    @Override
+    public void onOutboundDisconnect(
+            final @NotNull DisconnectOutboundInput disconnectOutboundInput,
+            final @NotNull DisconnectOutboundOutput disconnectOutboundOutput) {
+        stats.packet(Event.DISCONNECT_SEND);
+    }
+}
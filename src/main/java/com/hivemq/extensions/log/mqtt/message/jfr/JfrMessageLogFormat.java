@@ -0,0 +1,386 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.jfr;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
+import com.hivemq.extension.sdk.api.interceptor.connack.parameter.ConnackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingresp.parameter.PingRespOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.suback.parameter.SubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsuback.parameter.UnsubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.parameter.UnsubscribeInboundInput;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.puback.PubackPacket;
+import com.hivemq.extension.sdk.api.packets.pubcomp.PubcompPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.pubrec.PubrecPacket;
+import com.hivemq.extension.sdk.api.packets.pubrel.PubrelPacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.Subscription;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Emits a {@link MqttPacketEvent} for every logged packet and a {@link MqttFlowEvent} for every acknowledged QoS 1 or 2
+ * flow and passes the packet on to another format.
+ * <p>
+ * If no recording enables the events, a packet costs one check of the event states, no values are extracted. The ack
+ * latency is measured from a PUBLISH with QoS 1 or 2 to its PUBACK or PUBREC and from a PUBREL to its PUBCOMP, only
+ * for flows that started while one of the events was enabled.
+ *
+ * @since 1.2.0
+ */
+public class JfrMessageLogFormat implements MessageLogFormat {
+
+    /**
+     * Upper bound of the tracked flows, acknowledgements that never arrive, e.g. of lost connections, must not fill
+     * the memory.
+     */
+    static final int MAX_PENDING_FLOWS = 65_536;
+
+    private final @Nullable MessageLogFormat delegate;
+    private final @NotNull Map<String, MqttFlowEvent> pendingFlows = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate the format the packets are passed on to or {@code null} if the packets are only recorded.
+     */
+    public JfrMessageLogFormat(final @Nullable MessageLogFormat delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void logPublish(
+            final @NotNull String clientId,
+            final @NotNull PublishPacket publishPacket,
+            final boolean inbound,
+            final boolean verbose) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        final int qos = publishPacket.getQos().getQosNumber();
+        if (qos > 0) {
+            startFlow(clientId, publishPacket.getPacketId(), inbound, event.isEnabled());
+        }
+        if (event.isEnabled()) {
+            event.topic = publishPacket.getTopic();
+            event.qos = qos;
+            event.payloadSize = publishPacket.getPayload().map(ByteBuffer::remaining).orElse(0);
+            commit(event, "PUBLISH", clientId, inbound);
+        }
+        if (delegate != null) {
+            delegate.logPublish(clientId, publishPacket, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logConnect(final @NotNull ConnectPacket connectPacket, final boolean verbose) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        if (event.isEnabled()) {
+            commit(event, "CONNECT", connectPacket.getClientId(), true);
+        }
+        if (delegate != null) {
+            delegate.logConnect(connectPacket, verbose);
+        }
+    }
+
+    @Override
+    public void logConnack(final @NotNull ConnackOutboundInput connackOutboundInput, final boolean verbose) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        if (event.isEnabled()) {
+            event.reasonCode = connackOutboundInput.getConnackPacket().getReasonCode().name();
+            commit(event, "CONNACK", connackOutboundInput.getClientInformation().getClientId(), false);
+        }
+        if (delegate != null) {
+            delegate.logConnack(connackOutboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logDisconnect(
+            final @NotNull DisconnectPacket disconnectPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        if (event.isEnabled()) {
+            event.reasonCode = disconnectPacket.getReasonCode().name();
+            commit(event, "DISCONNECT", clientId, inbound);
+        }
+        if (delegate != null) {
+            delegate.logDisconnect(disconnectPacket, clientId, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logDisconnectEvent(
+            final @NotNull DisconnectEventInput disconnectEventInput,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean authenticationFailed,
+            final boolean verbose) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        if (event.isEnabled()) {
+            event.reasonCode = disconnectEventInput.getReasonCode().map(Enum::name).orElse(null);
+            commit(event, "DISCONNECT", clientId, inbound);
+        }
+        if (delegate != null) {
+            delegate.logDisconnectEvent(disconnectEventInput, clientId, inbound, authenticationFailed, verbose);
+        }
+    }
+
+    @Override
+    public void logSubscribe(final @NotNull SubscribeInboundInput subscribeInboundInput, final boolean verbose) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        if (event.isEnabled()) {
+            final List<Subscription> subscriptions = subscribeInboundInput.getSubscribePacket().getSubscriptions();
+            final StringBuilder topics = new StringBuilder();
+            for (final Subscription subscription : subscriptions) {
+                if (topics.length() > 0) {
+                    topics.append(',');
+                }
+                topics.append(subscription.getTopicFilter());
+            }
+            event.topic = topics.toString();
+            event.qos = subscriptions.isEmpty() ? 0 : subscriptions.get(0).getQos().getQosNumber();
+            commit(event, "SUBSCRIBE", subscribeInboundInput.getClientInformation().getClientId(), true);
+        }
+        if (delegate != null) {
+            delegate.logSubscribe(subscribeInboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logSuback(final @NotNull SubackOutboundInput subackOutboundInput, final boolean verbose) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        if (event.isEnabled()) {
+            event.reasonCode = reasonCodes(subackOutboundInput.getSubackPacket().getReasonCodes());
+            commit(event, "SUBACK", subackOutboundInput.getClientInformation().getClientId(), false);
+        }
+        if (delegate != null) {
+            delegate.logSuback(subackOutboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logUnsubscribe(final @NotNull UnsubscribeInboundInput unsubscribeInboundInput, final boolean verbose) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        if (event.isEnabled()) {
+            event.topic = String.join(",", unsubscribeInboundInput.getUnsubscribePacket().getTopicFilters());
+            commit(event, "UNSUBSCRIBE", unsubscribeInboundInput.getClientInformation().getClientId(), true);
+        }
+        if (delegate != null) {
+            delegate.logUnsubscribe(unsubscribeInboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logUnsuback(final @NotNull UnsubackOutboundInput unsubackOutboundInput, final boolean verbose) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        if (event.isEnabled()) {
+            event.reasonCode = reasonCodes(unsubackOutboundInput.getUnsubackPacket().getReasonCodes());
+            commit(event, "UNSUBACK", unsubackOutboundInput.getClientInformation().getClientId(), false);
+        }
+        if (delegate != null) {
+            delegate.logUnsuback(unsubackOutboundInput, verbose);
+        }
+    }
+
+    @Override
+    public void logPingreq(final @NotNull PingReqInboundInput pingReqInboundInput) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        if (event.isEnabled()) {
+            commit(event, "PINGREQ", pingReqInboundInput.getClientInformation().getClientId(), true);
+        }
+        if (delegate != null) {
+            delegate.logPingreq(pingReqInboundInput);
+        }
+    }
+
+    @Override
+    public void logPingresp(final @NotNull PingRespOutboundInput pingRespOutboundInput) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        if (event.isEnabled()) {
+            commit(event, "PINGRESP", pingRespOutboundInput.getClientInformation().getClientId(), false);
+        }
+        if (delegate != null) {
+            delegate.logPingresp(pingRespOutboundInput);
+        }
+    }
+
+    @Override
+    public void logPuback(
+            final @NotNull PubackPacket pubackPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        final long ackLatency =
+                endFlow(clientId, pubackPacket.getPacketIdentifier(), inbound, "PUBACK", pubackPacket.getReasonCode());
+        if (event.isEnabled()) {
+            event.reasonCode = pubackPacket.getReasonCode().name();
+            event.ackLatency = ackLatency;
+            commit(event, "PUBACK", clientId, inbound);
+        }
+        if (delegate != null) {
+            delegate.logPuback(pubackPacket, clientId, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logPubrec(
+            final @NotNull PubrecPacket pubrecPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        final long ackLatency =
+                endFlow(clientId, pubrecPacket.getPacketIdentifier(), inbound, "PUBREC", pubrecPacket.getReasonCode());
+        if (event.isEnabled()) {
+            event.reasonCode = pubrecPacket.getReasonCode().name();
+            event.ackLatency = ackLatency;
+            commit(event, "PUBREC", clientId, inbound);
+        }
+        if (delegate != null) {
+            delegate.logPubrec(pubrecPacket, clientId, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logPubrel(
+            final @NotNull PubrelPacket pubrelPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        startFlow(clientId, pubrelPacket.getPacketIdentifier(), inbound, event.isEnabled());
+        if (event.isEnabled()) {
+            event.reasonCode = pubrelPacket.getReasonCode().name();
+            commit(event, "PUBREL", clientId, inbound);
+        }
+        if (delegate != null) {
+            delegate.logPubrel(pubrelPacket, clientId, inbound, verbose);
+        }
+    }
+
+    @Override
+    public void logPubcomp(
+            final @NotNull PubcompPacket pubcompPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        final MqttPacketEvent event = new MqttPacketEvent();
+        final long ackLatency = endFlow(clientId,
+                pubcompPacket.getPacketIdentifier(),
+                inbound,
+                "PUBCOMP",
+                pubcompPacket.getReasonCode());
+        if (event.isEnabled()) {
+            event.reasonCode = pubcompPacket.getReasonCode().name();
+            event.ackLatency = ackLatency;
+            commit(event, "PUBCOMP", clientId, inbound);
+        }
+        if (delegate != null) {
+            delegate.logPubcomp(pubcompPacket, clientId, inbound, verbose);
+        }
+    }
+
+    int getPendingFlows() {
+        return pendingFlows.size();
+    }
+
+    private static void commit(
+            final @NotNull MqttPacketEvent event,
+            final @NotNull String packetType,
+            final @NotNull String clientId,
+            final boolean inbound) {
+        event.packetType = packetType;
+        event.clientId = clientId;
+        event.inbound = inbound;
+        event.commit();
+    }
+
+    /**
+     * @param packetEventEnabled whether the packet events are recorded, they need the start for their ack latency.
+     */
+    private void startFlow(
+            final @NotNull String clientId,
+            final int packetId,
+            final boolean inbound,
+            final boolean packetEventEnabled) {
+        final MqttFlowEvent flow = new MqttFlowEvent();
+        if (!packetEventEnabled && !flow.isEnabled()) {
+            return;
+        }
+        if (pendingFlows.size() >= MAX_PENDING_FLOWS) {
+            pendingFlows.clear();
+        }
+        flow.begin();
+        flow.startNanos = System.nanoTime();
+        pendingFlows.put(flowKey(clientId, packetId, inbound), flow);
+    }
+
+    /**
+     * Ends the flow and commits its {@link MqttFlowEvent} if it exceeds the threshold of the recording.
+     *
+     * @param inbound the direction of the acknowledgement, the flow was started in the other direction.
+     * @return the nanoseconds since the flow started or 0 if the start is unknown.
+     */
+    private long endFlow(
+            final @NotNull String clientId,
+            final int packetId,
+            final boolean inbound,
+            final @NotNull String packetType,
+            final @NotNull Enum<?> reasonCode) {
+        if (pendingFlows.isEmpty()) {
+            return 0;
+        }
+        final MqttFlowEvent flow = pendingFlows.remove(flowKey(clientId, packetId, !inbound));
+        if (flow == null) {
+            return 0;
+        }
+        final long latency = System.nanoTime() - flow.startNanos;
+        flow.end();
+        if (flow.shouldCommit()) {
+            flow.packetType = packetType;
+            flow.inbound = !inbound;
+            flow.clientId = clientId;
+            flow.packetId = packetId;
+            flow.reasonCode = reasonCode.name();
+            flow.commit();
+        }
+        return latency;
+    }
+
+    private static @NotNull String flowKey(final @NotNull String clientId, final int packetId, final boolean inbound) {
+        return (inbound ? "<" : ">") + packetId + ':' + clientId;
+    }
+
+    private static @NotNull String reasonCodes(final @NotNull List<? extends Enum<?>> reasonCodes) {
+        final StringBuilder builder = new StringBuilder();
+        for (final Enum<?> reasonCode : reasonCodes) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(reasonCode.name());
+        }
+        return builder.toString();
+    }
+}
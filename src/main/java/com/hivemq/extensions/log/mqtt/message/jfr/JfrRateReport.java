@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.jfr;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Command line tool that aggregates the {@link MqttPacketEvent}s of flight recordings into packet rates per interval.
+ * <pre>
+ * JfrRateReport [--interval &lt;seconds&gt;] &lt;recording&gt;...
+ * </pre>
+ * For every interval the rate of every packet type and direction, the PUBLISH payload throughput and the average and
+ * maximum ack latency are printed. The recordings can be dumped from a running broker with
+ * {@code jcmd <pid> JFR.dump}, so the report can be repeated while the recording continues.
+ *
+ * @since 1.2.0
+ */
+public class JfrRateReport {
+
+    private static final int EXIT_USAGE = 2;
+    private static final int EXIT_ERROR = 1;
+
+    private final long intervalMillis;
+    private final @NotNull TreeMap<Long, Map<String, Rate>> intervals = new TreeMap<>();
+
+    JfrRateReport(final long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    public static void main(final @NotNull String @NotNull [] args) {
+        long intervalSeconds = 1;
+        final List<Path> recordings = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("--interval".equals(args[i])) {
+                    if (++i >= args.length) {
+                        throw new IllegalArgumentException("Missing value for option '--interval'");
+                    }
+                    intervalSeconds = parseInterval(args[i]);
+                } else if (args[i].startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option '" + args[i] + "'");
+                } else {
+                    recordings.add(Paths.get(args[i]));
+                }
+            }
+            if (recordings.isEmpty()) {
+                throw new IllegalArgumentException("No recording given");
+            }
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: JfrRateReport [--interval <seconds>] <recording>...");
+            System.exit(EXIT_USAGE);
+            return;
+        }
+        final JfrRateReport report = new JfrRateReport(intervalSeconds * 1000);
+        try {
+            for (final Path recording : recordings) {
+                report.read(recording);
+            }
+        } catch (final IOException e) {
+            System.err.println("Could not read recording: " + e.getMessage());
+            System.exit(EXIT_ERROR);
+            return;
+        }
+        System.out.print(report.render());
+    }
+
+    private static long parseInterval(final @NotNull String value) {
+        try {
+            final long interval = Long.parseLong(value);
+            if (interval > 0) {
+                return interval;
+            }
+        } catch (final NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException(
+                "Invalid value '" + value + "' for option '--interval', expected a positive number of seconds");
+    }
+
+    void read(final @NotNull Path recording) throws IOException {
+        try (final RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                final RecordedEvent event = file.readEvent();
+                if (MqttPacketEvent.NAME.equals(event.getEventType().getName())) {
+                    add(event.getStartTime().toEpochMilli(),
+                            event.getString("packetType"),
+                            event.getBoolean("inbound"),
+                            event.getInt("payloadSize"),
+                            event.getLong("ackLatency"));
+                }
+            }
+        }
+    }
+
+    void add(
+            final long timeMillis,
+            final @NotNull String packetType,
+            final boolean inbound,
+            final int payloadSize,
+            final long ackLatencyNanos) {
+        final long interval = Math.floorDiv(timeMillis, intervalMillis) * intervalMillis;
+        final Rate rate = intervals.computeIfAbsent(interval, key -> new TreeMap<>())
+                .computeIfAbsent(packetType + (inbound ? " in" : " out"), key -> new Rate());
+        rate.packets++;
+        rate.bytes += payloadSize;
+        if (ackLatencyNanos > 0) {
+            rate.latencies++;
+            rate.latencySum += ackLatencyNanos;
+            rate.maxLatency = Math.max(rate.maxLatency, ackLatencyNanos);
+        }
+    }
+
+    /**
+     * @return one line per interval with the rates of the packet types, ordered by time.
+     */
+    @NotNull String render() {
+        final double seconds = intervalMillis / 1000.0;
+        final StringBuilder builder = new StringBuilder();
+        for (final Map.Entry<Long, Map<String, Rate>> interval : intervals.entrySet()) {
+            builder.append(Instant.ofEpochMilli(interval.getKey()));
+            for (final Map.Entry<String, Rate> entry : interval.getValue().entrySet()) {
+                final Rate rate = entry.getValue();
+                builder.append(String.format(Locale.ROOT, "  %s %.1f/s", entry.getKey(), rate.packets / seconds));
+                if (rate.bytes > 0) {
+                    builder.append(String.format(Locale.ROOT, " %.1f B/s", rate.bytes / seconds));
+                }
+                if (rate.latencies > 0) {
+                    builder.append(String.format(Locale.ROOT,
+                            " ack avg %.3f ms max %.3f ms",
+                            rate.latencySum / (double) rate.latencies / 1_000_000,
+                            rate.maxLatency / 1_000_000.0));
+                }
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static class Rate {
+
+        private long packets;
+        private long bytes;
+        private long latencies;
+        private long latencySum;
+        private long maxLatency;
+    }
+}
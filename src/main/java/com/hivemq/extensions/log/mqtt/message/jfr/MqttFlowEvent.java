@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.jfr;
+
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for the acknowledgement of a QoS 1 or 2 message. Its duration is the time from the
+ * PUBLISH to its PUBACK or PUBREC and from the PUBREL to its PUBCOMP, so a recording can limit the events to the slow
+ * acknowledgements with a threshold, e.g.
+ * {@code +com.hivemq.extensions.log.mqtt.Flow#enabled=true +com.hivemq.extensions.log.mqtt.Flow#threshold=100ms}.
+ *
+ * @since 1.2.0
+ */
+@Name(MqttFlowEvent.NAME)
+@Label("MQTT Flow")
+@Category({"HiveMQ", "MQTT"})
+@Description("The time until a PUBLISH or PUBREL was acknowledged, measured by the HiveMQ MQTT Message Log Extension")
+@Enabled(false)
+@StackTrace(false)
+public class MqttFlowEvent extends Event {
+
+    public static final String NAME = "com.hivemq.extensions.log.mqtt.Flow";
+
+    @Label("Acknowledgement")
+    @Description("The packet type of the acknowledgement")
+    @Nullable String packetType;
+
+    @Label("Inbound")
+    @Description("Whether the PUBLISH or PUBREL was received from the client")
+    boolean inbound;
+
+    @Label("Client ID")
+    @Nullable String clientId;
+
+    @Label("Packet ID")
+    int packetId;
+
+    @Label("Reason Code")
+    @Nullable String reasonCode;
+
+    /**
+     * The start for the ack latency of the {@link MqttPacketEvent}, not recorded.
+     */
+    transient long startNanos;
+}
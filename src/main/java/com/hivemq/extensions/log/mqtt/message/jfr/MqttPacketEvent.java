@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.jfr;
+
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event for an intercepted MQTT packet. The event is disabled unless a recording enables it,
+ * e.g. with {@code -XX:StartFlightRecording:settings=default,+com.hivemq.extensions.log.mqtt.Packet#enabled=true}
+ * or a custom {@code .jfc} settings file.
+ * <p>
+ * The event is an instant event, its duration is always 0, so only the {@code enabled} setting applies. The
+ * acknowledgement latency is also recorded as duration of the {@link MqttFlowEvent}, which can be filtered with a
+ * {@code threshold}.
+ *
+ * @since 1.2.0
+ */
+@Name(MqttPacketEvent.NAME)
+@Label("MQTT Packet")
+@Category({"HiveMQ", "MQTT"})
+@Description("An MQTT packet intercepted by the HiveMQ MQTT Message Log Extension")
+@Enabled(false)
+@StackTrace(false)
+public class MqttPacketEvent extends Event {
+
+    public static final String NAME = "com.hivemq.extensions.log.mqtt.Packet";
+
+    @Label("Packet Type")
+    @Nullable String packetType;
+
+    @Label("Inbound")
+    @Description("Whether the packet was received from the client")
+    boolean inbound;
+
+    @Label("Client ID")
+    @Nullable String clientId;
+
+    @Label("Topic")
+    @Description("The topic of a PUBLISH or the topic filters of a SUBSCRIBE or UNSUBSCRIBE")
+    @Nullable String topic;
+
+    @Label("QoS")
+    int qos;
+
+    @Label("Payload Size")
+    @DataAmount
+    int payloadSize;
+
+    @Label("Reason Code")
+    @Nullable String reasonCode;
+
+    @Label("Ack Latency")
+    @Description("The time from the PUBLISH or PUBREL to this acknowledgement, 0 if unknown")
+    @Timespan
+    long ackLatency;
+}
@@ -0,0 +1,582 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.pcap;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.connack.ConnackPacket;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.connect.WillPublishPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.general.MqttVersion;
+import com.hivemq.extension.sdk.api.packets.general.Qos;
+import com.hivemq.extension.sdk.api.packets.general.UserProperties;
+import com.hivemq.extension.sdk.api.packets.general.UserProperty;
+import com.hivemq.extension.sdk.api.packets.publish.PayloadFormatIndicator;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.suback.SubackPacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.SubscribePacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.Subscription;
+import com.hivemq.extension.sdk.api.packets.unsuback.UnsubackPacket;
+import com.hivemq.extension.sdk.api.packets.unsubscribe.UnsubscribePacket;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Encodes the packets of the extension SDK back into the MQTT wire format of the protocol version of the client.
+ * <p>
+ * The encoding is equivalent, not necessarily byte-identical to what was sent: properties with their default value
+ * are omitted and MQTT 5 acknowledgements always contain their reason code. The password of a CONNECT packet is never
+ * encoded. An encoder is used by one thread.
+ *
+ * @since 1.2.0
+ */
+class MqttWireEncoder {
+
+    static final int CONNECT = 0x10;
+    static final int CONNACK = 0x20;
+    static final int PUBLISH = 0x30;
+    static final int PUBACK = 0x40;
+    static final int PUBREC = 0x50;
+    static final int PUBREL = 0x62;
+    static final int PUBCOMP = 0x70;
+    static final int SUBSCRIBE = 0x82;
+    static final int SUBACK = 0x90;
+    static final int UNSUBSCRIBE = 0xA2;
+    static final int UNSUBACK = 0xB0;
+    static final int PINGREQ = 0xC0;
+    static final int PINGRESP = 0xD0;
+    static final int DISCONNECT = 0xE0;
+
+    private static final int PAYLOAD_FORMAT_INDICATOR = 0x01;
+    private static final int MESSAGE_EXPIRY_INTERVAL = 0x02;
+    private static final int CONTENT_TYPE = 0x03;
+    private static final int RESPONSE_TOPIC = 0x08;
+    private static final int CORRELATION_DATA = 0x09;
+    private static final int SUBSCRIPTION_IDENTIFIER = 0x0B;
+    private static final int SESSION_EXPIRY_INTERVAL = 0x11;
+    private static final int ASSIGNED_CLIENT_IDENTIFIER = 0x12;
+    private static final int SERVER_KEEP_ALIVE = 0x13;
+    private static final int AUTHENTICATION_METHOD = 0x15;
+    private static final int AUTHENTICATION_DATA = 0x16;
+    private static final int REQUEST_PROBLEM_INFORMATION = 0x17;
+    private static final int WILL_DELAY_INTERVAL = 0x18;
+    private static final int REQUEST_RESPONSE_INFORMATION = 0x19;
+    private static final int RESPONSE_INFORMATION = 0x1A;
+    private static final int SERVER_REFERENCE = 0x1C;
+    private static final int REASON_STRING = 0x1F;
+    private static final int RECEIVE_MAXIMUM = 0x21;
+    private static final int TOPIC_ALIAS_MAXIMUM = 0x22;
+    private static final int MAXIMUM_QOS = 0x24;
+    private static final int RETAIN_AVAILABLE = 0x25;
+    private static final int USER_PROPERTY = 0x26;
+    private static final int MAXIMUM_PACKET_SIZE = 0x27;
+    private static final int WILDCARD_SUBSCRIPTION_AVAILABLE = 0x28;
+    private static final int SUBSCRIPTION_IDENTIFIERS_AVAILABLE = 0x29;
+    private static final int SHARED_SUBSCRIPTION_AVAILABLE = 0x2A;
+
+    private static final int DEFAULT_RECEIVE_MAXIMUM = 65_535;
+    /**
+     * The maximum packet size the SDK reports if the client or broker did not set one.
+     */
+    private static final long DEFAULT_MAXIMUM_PACKET_SIZE = 268_435_460;
+
+    /**
+     * The MQTT 5 reason codes by the names of the reason code enums of the SDK, which are the names of the
+     * specification.
+     */
+    private static final @NotNull Map<String, Integer> REASON_CODES = new HashMap<>();
+
+    static {
+        reasonCodes(0x00, "SUCCESS", "NORMAL_DISCONNECTION", "GRANTED_QOS_0");
+        reasonCodes(0x01, "GRANTED_QOS_1");
+        reasonCodes(0x02, "GRANTED_QOS_2");
+        reasonCodes(0x04, "DISCONNECT_WITH_WILL_MESSAGE");
+        reasonCodes(0x10, "NO_MATCHING_SUBSCRIBERS");
+        reasonCodes(0x11, "NO_SUBSCRIPTIONS_EXISTED");
+        reasonCodes(0x80, "UNSPECIFIED_ERROR");
+        reasonCodes(0x81, "MALFORMED_PACKET");
+        reasonCodes(0x82, "PROTOCOL_ERROR");
+        reasonCodes(0x83, "IMPLEMENTATION_SPECIFIC_ERROR");
+        reasonCodes(0x84, "UNSUPPORTED_PROTOCOL_VERSION");
+        reasonCodes(0x85, "CLIENT_IDENTIFIER_NOT_VALID");
+        reasonCodes(0x86, "BAD_USER_NAME_OR_PASSWORD");
+        reasonCodes(0x87, "NOT_AUTHORIZED");
+        reasonCodes(0x88, "SERVER_UNAVAILABLE");
+        reasonCodes(0x89, "SERVER_BUSY");
+        reasonCodes(0x8A, "BANNED");
+        reasonCodes(0x8B, "SERVER_SHUTTING_DOWN");
+        reasonCodes(0x8C, "BAD_AUTHENTICATION_METHOD");
+        reasonCodes(0x8D, "KEEP_ALIVE_TIMEOUT");
+        reasonCodes(0x8E, "SESSION_TAKEN_OVER");
+        reasonCodes(0x8F, "TOPIC_FILTER_INVALID");
+        reasonCodes(0x90, "TOPIC_NAME_INVALID");
+        reasonCodes(0x91, "PACKET_IDENTIFIER_IN_USE");
+        reasonCodes(0x92, "PACKET_IDENTIFIER_NOT_FOUND");
+        reasonCodes(0x93, "RECEIVE_MAXIMUM_EXCEEDED");
+        reasonCodes(0x94, "TOPIC_ALIAS_INVALID");
+        reasonCodes(0x95, "PACKET_TOO_LARGE");
+        reasonCodes(0x96, "MESSAGE_RATE_TOO_HIGH");
+        reasonCodes(0x97, "QUOTA_EXCEEDED");
+        reasonCodes(0x98, "ADMINISTRATIVE_ACTION");
+        reasonCodes(0x99, "PAYLOAD_FORMAT_INVALID");
+        reasonCodes(0x9A, "RETAIN_NOT_SUPPORTED");
+        reasonCodes(0x9B, "QOS_NOT_SUPPORTED");
+        reasonCodes(0x9C, "USE_ANOTHER_SERVER");
+        reasonCodes(0x9D, "SERVER_MOVED");
+        reasonCodes(0x9E, "SHARED_SUBSCRIPTION_NOT_SUPPORTED");
+        reasonCodes(0x9F, "CONNECTION_RATE_EXCEEDED");
+        reasonCodes(0xA0, "MAXIMUM_CONNECT_TIME");
+        reasonCodes(0xA1, "SUBSCRIPTION_IDENTIFIERS_NOT_SUPPORTED");
+        reasonCodes(0xA2, "WILDCARD_SUBSCRIPTION_NOT_SUPPORTED");
+    }
+
+    private final @NotNull Bytes body = new Bytes();
+    private final @NotNull Bytes properties = new Bytes();
+
+    private static void reasonCodes(final int code, final @NotNull String @NotNull ... names) {
+        for (final String name : names) {
+            REASON_CODES.put(name, code);
+        }
+    }
+
+    /**
+     * @return the MQTT 5 reason code of a reason code enum of the SDK.
+     */
+    static int reasonCode(final @NotNull Enum<?> reasonCode) {
+        return REASON_CODES.getOrDefault(reasonCode.name(), 0x80);
+    }
+
+    byte @NotNull [] connect(final @NotNull ConnectPacket connectPacket) {
+        final MqttVersion version = connectPacket.getMqttVersion();
+        final boolean mqtt5 = version == MqttVersion.V_5;
+        body.reset();
+        if (version == MqttVersion.V_3_1) {
+            body.string("MQIsdp").u8(3);
+        } else {
+            body.string("MQTT").u8(mqtt5 ? 5 : 4);
+        }
+        final WillPublishPacket will = connectPacket.getWillPublish().orElse(null);
+        final String userName = connectPacket.getUserName().orElse(null);
+        int flags = connectPacket.getCleanStart() ? 0x02 : 0;
+        if (will != null) {
+            flags |= 0x04 | (will.getQos().getQosNumber() << 3) | (will.getRetain() ? 0x20 : 0);
+        }
+        if (userName != null) {
+            flags |= 0x80;
+        }
+        body.u8(flags).u16(connectPacket.getKeepAlive());
+        if (mqtt5) {
+            properties.reset();
+            if (connectPacket.getSessionExpiryInterval() != 0) {
+                properties.u8(SESSION_EXPIRY_INTERVAL).u32(connectPacket.getSessionExpiryInterval());
+            }
+            if (connectPacket.getReceiveMaximum() != DEFAULT_RECEIVE_MAXIMUM) {
+                properties.u8(RECEIVE_MAXIMUM).u16(connectPacket.getReceiveMaximum());
+            }
+            if (connectPacket.getMaximumPacketSize() < DEFAULT_MAXIMUM_PACKET_SIZE) {
+                properties.u8(MAXIMUM_PACKET_SIZE).u32(connectPacket.getMaximumPacketSize());
+            }
+            if (connectPacket.getTopicAliasMaximum() != 0) {
+                properties.u8(TOPIC_ALIAS_MAXIMUM).u16(connectPacket.getTopicAliasMaximum());
+            }
+            if (connectPacket.getRequestResponseInformation()) {
+                properties.u8(REQUEST_RESPONSE_INFORMATION).u8(1);
+            }
+            if (!connectPacket.getRequestProblemInformation()) {
+                properties.u8(REQUEST_PROBLEM_INFORMATION).u8(0);
+            }
+            stringProperty(AUTHENTICATION_METHOD, connectPacket.getAuthenticationMethod());
+            binaryProperty(AUTHENTICATION_DATA, connectPacket.getAuthenticationData());
+            userProperties(connectPacket.getUserProperties());
+            body.properties(properties);
+        }
+        body.string(connectPacket.getClientId());
+        if (will != null) {
+            if (mqtt5) {
+                properties.reset();
+                if (will.getWillDelay() != 0) {
+                    properties.u8(WILL_DELAY_INTERVAL).u32(will.getWillDelay());
+                }
+                publishProperties(will);
+                body.properties(properties);
+            }
+            body.string(will.getTopic());
+            final ByteBuffer payload = will.getPayload().orElse(null);
+            body.u16(payload == null ? 0 : payload.remaining());
+            if (payload != null) {
+                body.bytes(payload);
+            }
+        }
+        if (userName != null) {
+            body.string(userName);
+        }
+        return packet(CONNECT);
+    }
+
+    byte @NotNull [] connack(final @NotNull ConnackPacket connackPacket, final @NotNull MqttVersion version) {
+        body.reset();
+        body.u8(connackPacket.getSessionPresent() ? 1 : 0);
+        if (version != MqttVersion.V_5) {
+            body.u8(connectReturnCode(connackPacket.getReasonCode()));
+            return packet(CONNACK);
+        }
+        body.u8(reasonCode(connackPacket.getReasonCode()));
+        properties.reset();
+        final Optional<Long> sessionExpiryInterval = connackPacket.getSessionExpiryInterval();
+        if (sessionExpiryInterval.isPresent()) {
+            properties.u8(SESSION_EXPIRY_INTERVAL).u32(sessionExpiryInterval.get());
+        }
+        if (connackPacket.getReceiveMaximum() != DEFAULT_RECEIVE_MAXIMUM) {
+            properties.u8(RECEIVE_MAXIMUM).u16(connackPacket.getReceiveMaximum());
+        }
+        final Qos maximumQos = connackPacket.getMaximumQoS().orElse(Qos.EXACTLY_ONCE);
+        if (maximumQos != Qos.EXACTLY_ONCE) {
+            properties.u8(MAXIMUM_QOS).u8(maximumQos.getQosNumber());
+        }
+        if (!connackPacket.getRetainAvailable()) {
+            properties.u8(RETAIN_AVAILABLE).u8(0);
+        }
+        if (connackPacket.getMaximumPacketSize() < DEFAULT_MAXIMUM_PACKET_SIZE) {
+            properties.u8(MAXIMUM_PACKET_SIZE).u32(connackPacket.getMaximumPacketSize());
+        }
+        stringProperty(ASSIGNED_CLIENT_IDENTIFIER, connackPacket.getAssignedClientIdentifier());
+        if (connackPacket.getTopicAliasMaximum() != 0) {
+            properties.u8(TOPIC_ALIAS_MAXIMUM).u16(connackPacket.getTopicAliasMaximum());
+        }
+        stringProperty(REASON_STRING, connackPacket.getReasonString());
+        userProperties(connackPacket.getUserProperties());
+        if (!connackPacket.getWildCardSubscriptionAvailable()) {
+            properties.u8(WILDCARD_SUBSCRIPTION_AVAILABLE).u8(0);
+        }
+        if (!connackPacket.getSubscriptionIdentifiersAvailable()) {
+            properties.u8(SUBSCRIPTION_IDENTIFIERS_AVAILABLE).u8(0);
+        }
+        if (!connackPacket.getSharedSubscriptionsAvailable()) {
+            properties.u8(SHARED_SUBSCRIPTION_AVAILABLE).u8(0);
+        }
+        final Optional<Integer> serverKeepAlive = connackPacket.getServerKeepAlive();
+        if (serverKeepAlive.isPresent()) {
+            properties.u8(SERVER_KEEP_ALIVE).u16(serverKeepAlive.get());
+        }
+        stringProperty(RESPONSE_INFORMATION, connackPacket.getResponseInformation());
+        stringProperty(SERVER_REFERENCE, connackPacket.getServerReference());
+        stringProperty(AUTHENTICATION_METHOD, connackPacket.getAuthenticationMethod());
+        binaryProperty(AUTHENTICATION_DATA, connackPacket.getAuthenticationData());
+        body.properties(properties);
+        return packet(CONNACK);
+    }
+
+    byte @NotNull [] publish(final @NotNull PublishPacket publishPacket, final @NotNull MqttVersion version) {
+        body.reset();
+        body.string(publishPacket.getTopic());
+        final int qos = publishPacket.getQos().getQosNumber();
+        if (qos > 0) {
+            body.u16(publishPacket.getPacketId());
+        }
+        if (version == MqttVersion.V_5) {
+            properties.reset();
+            publishProperties(publishPacket);
+            for (final int subscriptionIdentifier : publishPacket.getSubscriptionIdentifiers()) {
+                properties.u8(SUBSCRIPTION_IDENTIFIER).varint(subscriptionIdentifier);
+            }
+            body.properties(properties);
+        }
+        publishPacket.getPayload().ifPresent(body::bytes);
+        return packet(PUBLISH |
+                (publishPacket.getDupFlag() ? 0x08 : 0) |
+                (qos << 1) |
+                (publishPacket.getRetain() ? 0x01 : 0));
+    }
+
+    /**
+     * Encodes PUBACK, PUBREC, PUBREL and PUBCOMP packets.
+     */
+    byte @NotNull [] ack(
+            final int type,
+            final int packetId,
+            final @NotNull Enum<?> reasonCode,
+            final @NotNull Optional<String> reasonString,
+            final @NotNull UserProperties userProperties,
+            final @NotNull MqttVersion version) {
+        body.reset();
+        body.u16(packetId);
+        if (version == MqttVersion.V_5) {
+            body.u8(reasonCode(reasonCode));
+            properties.reset();
+            stringProperty(REASON_STRING, reasonString);
+            userProperties(userProperties);
+            body.properties(properties);
+        }
+        return packet(type);
+    }
+
+    byte @NotNull [] subscribe(final @NotNull SubscribePacket subscribePacket, final @NotNull MqttVersion version) {
+        final boolean mqtt5 = version == MqttVersion.V_5;
+        body.reset();
+        body.u16(subscribePacket.getPacketId());
+        if (mqtt5) {
+            properties.reset();
+            final Optional<Integer> subscriptionIdentifier = subscribePacket.getSubscriptionIdentifier();
+            if (subscriptionIdentifier.isPresent()) {
+                properties.u8(SUBSCRIPTION_IDENTIFIER).varint(subscriptionIdentifier.get());
+            }
+            userProperties(subscribePacket.getUserProperties());
+            body.properties(properties);
+        }
+        for (final Subscription subscription : subscribePacket.getSubscriptions()) {
+            body.string(subscription.getTopicFilter());
+            int options = subscription.getQos().getQosNumber();
+            if (mqtt5) {
+                options |= (subscription.getNoLocal() ? 0x04 : 0) |
+                        (subscription.getRetainAsPublished() ? 0x08 : 0) |
+                        (subscription.getRetainHandling().ordinal() << 4);
+            }
+            body.u8(options);
+        }
+        return packet(SUBSCRIBE);
+    }
+
+    byte @NotNull [] suback(final @NotNull SubackPacket subackPacket, final @NotNull MqttVersion version) {
+        final boolean mqtt5 = version == MqttVersion.V_5;
+        body.reset();
+        body.u16(subackPacket.getPacketIdentifier());
+        if (mqtt5) {
+            properties.reset();
+            stringProperty(REASON_STRING, subackPacket.getReasonString());
+            userProperties(subackPacket.getUserProperties());
+            body.properties(properties);
+        }
+        for (final Enum<?> reasonCode : subackPacket.getReasonCodes()) {
+            final int code = reasonCode(reasonCode);
+            // MQTT 3 only knows the granted QoS and failure
+            body.u8(mqtt5 || code < 0x80 ? code : 0x80);
+        }
+        return packet(SUBACK);
+    }
+
+    byte @NotNull [] unsubscribe(
+            final @NotNull UnsubscribePacket unsubscribePacket, final @NotNull MqttVersion version) {
+        body.reset();
+        body.u16(unsubscribePacket.getPacketIdentifier());
+        if (version == MqttVersion.V_5) {
+            properties.reset();
+            userProperties(unsubscribePacket.getUserProperties());
+            body.properties(properties);
+        }
+        for (final String topicFilter : unsubscribePacket.getTopicFilters()) {
+            body.string(topicFilter);
+        }
+        return packet(UNSUBSCRIBE);
+    }
+
+    byte @NotNull [] unsuback(final @NotNull UnsubackPacket unsubackPacket, final @NotNull MqttVersion version) {
+        body.reset();
+        body.u16(unsubackPacket.getPacketIdentifier());
+        if (version == MqttVersion.V_5) {
+            properties.reset();
+            stringProperty(REASON_STRING, unsubackPacket.getReasonString());
+            userProperties(unsubackPacket.getUserProperties());
+            body.properties(properties);
+            final List<? extends Enum<?>> reasonCodes = unsubackPacket.getReasonCodes();
+            for (final Enum<?> reasonCode : reasonCodes) {
+                body.u8(reasonCode(reasonCode));
+            }
+        }
+        return packet(UNSUBACK);
+    }
+
+    byte @NotNull [] disconnect(
+            final @NotNull DisconnectPacket disconnectPacket, final @NotNull MqttVersion version) {
+        body.reset();
+        if (version == MqttVersion.V_5) {
+            body.u8(reasonCode(disconnectPacket.getReasonCode()));
+            properties.reset();
+            final Optional<Long> sessionExpiryInterval = disconnectPacket.getSessionExpiryInterval();
+            if (sessionExpiryInterval.isPresent()) {
+                properties.u8(SESSION_EXPIRY_INTERVAL).u32(sessionExpiryInterval.get());
+            }
+            stringProperty(REASON_STRING, disconnectPacket.getReasonString());
+            userProperties(disconnectPacket.getUserProperties());
+            stringProperty(SERVER_REFERENCE, disconnectPacket.getServerReference());
+            body.properties(properties);
+        }
+        return packet(DISCONNECT);
+    }
+
+    static byte @NotNull [] empty(final int type) {
+        return new byte[]{(byte) type, 0};
+    }
+
+    private void publishProperties(final @NotNull PublishPacket publishPacket) {
+        final Optional<PayloadFormatIndicator> payloadFormatIndicator = publishPacket.getPayloadFormatIndicator();
+        if (payloadFormatIndicator.isPresent()) {
+            properties.u8(PAYLOAD_FORMAT_INDICATOR)
+                    .u8(payloadFormatIndicator.get() == PayloadFormatIndicator.UTF_8 ? 1 : 0);
+        }
+        final Optional<Long> messageExpiryInterval = publishPacket.getMessageExpiryInterval();
+        if (messageExpiryInterval.isPresent()) {
+            properties.u8(MESSAGE_EXPIRY_INTERVAL).u32(messageExpiryInterval.get());
+        }
+        stringProperty(CONTENT_TYPE, publishPacket.getContentType());
+        stringProperty(RESPONSE_TOPIC, publishPacket.getResponseTopic());
+        binaryProperty(CORRELATION_DATA, publishPacket.getCorrelationData());
+        userProperties(publishPacket.getUserProperties());
+    }
+
+    private void stringProperty(final int identifier, final @NotNull Optional<String> value) {
+        if (value.isPresent()) {
+            properties.u8(identifier).string(value.get());
+        }
+    }
+
+    private void binaryProperty(final int identifier, final @NotNull Optional<ByteBuffer> value) {
+        if (value.isPresent()) {
+            final ByteBuffer buffer = value.get();
+            properties.u8(identifier).u16(buffer.remaining()).bytes(buffer);
+        }
+    }
+
+    private void userProperties(final @NotNull UserProperties userProperties) {
+        for (final UserProperty userProperty : userProperties.asList()) {
+            properties.u8(USER_PROPERTY).string(userProperty.getName()).string(userProperty.getValue());
+        }
+    }
+
+    private static int connectReturnCode(final @NotNull Enum<?> reasonCode) {
+        switch (reasonCode.name()) {
+            case "SUCCESS":
+                return 0;
+            case "UNSUPPORTED_PROTOCOL_VERSION":
+                return 1;
+            case "CLIENT_IDENTIFIER_NOT_VALID":
+                return 2;
+            case "BAD_USER_NAME_OR_PASSWORD":
+                return 4;
+            case "NOT_AUTHORIZED":
+                return 5;
+            default:
+                return 3;
+        }
+    }
+
+    private byte @NotNull [] packet(final int header) {
+        final int remainingLength = body.length;
+        final byte[] packet = new byte[1 + Bytes.varintSize(remainingLength) + remainingLength];
+        packet[0] = (byte) header;
+        int position = 1;
+        int value = remainingLength;
+        do {
+            final int digit = value & 0x7F;
+            value >>>= 7;
+            packet[position++] = (byte) (value > 0 ? digit | 0x80 : digit);
+        } while (value > 0);
+        System.arraycopy(body.bytes, 0, packet, position, remainingLength);
+        return packet;
+    }
+
+    /**
+     * A growable big-endian byte array, an array grown for a large packet is not kept.
+     */
+    private static class Bytes {
+
+        private static final int INITIAL_SIZE = 256;
+        private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+        private byte @NotNull [] bytes = new byte[INITIAL_SIZE];
+        private int length;
+
+        void reset() {
+            if (bytes.length > MAX_RETAINED_SIZE) {
+                bytes = new byte[INITIAL_SIZE];
+            }
+            length = 0;
+        }
+
+        @NotNull Bytes u8(final int value) {
+            ensure(1);
+            bytes[length++] = (byte) value;
+            return this;
+        }
+
+        @NotNull Bytes u16(final int value) {
+            ensure(2);
+            bytes[length++] = (byte) (value >>> 8);
+            bytes[length++] = (byte) value;
+            return this;
+        }
+
+        @NotNull Bytes u32(final long value) {
+            ensure(4);
+            bytes[length++] = (byte) (value >>> 24);
+            bytes[length++] = (byte) (value >>> 16);
+            bytes[length++] = (byte) (value >>> 8);
+            bytes[length++] = (byte) value;
+            return this;
+        }
+
+        @NotNull Bytes varint(int value) {
+            ensure(4);
+            do {
+                final int digit = value & 0x7F;
+                value >>>= 7;
+                bytes[length++] = (byte) (value > 0 ? digit | 0x80 : digit);
+            } while (value > 0);
+            return this;
+        }
+
+        @NotNull Bytes string(final @NotNull String value) {
+            final byte[] encoded = value.getBytes(UTF_8);
+            u16(encoded.length);
+            ensure(encoded.length);
+            System.arraycopy(encoded, 0, bytes, length, encoded.length);
+            length += encoded.length;
+            return this;
+        }
+
+        @NotNull Bytes bytes(final @NotNull ByteBuffer value) {
+            final int remaining = value.remaining();
+            ensure(remaining);
+            value.duplicate().get(bytes, length, remaining);
+            length += remaining;
+            return this;
+        }
+
+        void properties(final @NotNull Bytes properties) {
+            varint(properties.length);
+            ensure(properties.length);
+            System.arraycopy(properties.bytes, 0, bytes, length, properties.length);
+            length += properties.length;
+        }
+
+        private void ensure(final int count) {
+            if (length + count > bytes.length) {
+                final byte[] grown = new byte[Math.max(bytes.length * 2, length + count)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+        }
+
+        static int varintSize(final int value) {
+            return value < 0x80 ? 1 : value < 0x4000 ? 2 : value < 0x20_0000 ? 3 : 4;
+        }
+    }
+}
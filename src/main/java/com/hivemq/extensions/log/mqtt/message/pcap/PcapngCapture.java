@@ -0,0 +1,438 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.pcap;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.interceptor.connack.parameter.ConnackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.pingresp.parameter.PingRespOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.suback.parameter.SubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsuback.parameter.UnsubackOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.unsubscribe.parameter.UnsubscribeInboundInput;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.general.MqttVersion;
+import com.hivemq.extension.sdk.api.packets.puback.PubackPacket;
+import com.hivemq.extension.sdk.api.packets.pubcomp.PubcompPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.pubrec.PubrecPacket;
+import com.hivemq.extension.sdk.api.packets.pubrel.PubrelPacket;
+import com.hivemq.extension.sdk.api.parameter.ClientBasedInput;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Exports the logged packets re-encoded in the MQTT wire format into a pcapng file that can be analyzed with Wireshark,
+ * see {@link PcapngWriter} for the synthetic TCP connections.
+ * <p>
+ * The packets are encoded on the thread of the interceptor and handed over to a writer thread via a bounded queue,
+ * the writer thread writes them in batches. If the queue is full the packet is dropped and the number of dropped
+ * packets is logged periodically, the broker is never blocked by the capture.
+ * <p>
+ * The protocol version of a client is taken from its CONNECT packet or the connection information of the
+ * interceptor, packets of clients whose CONNECT was not captured are encoded as MQTT 3.1.1. The capture is also the
+ * {@link LineSink} of the extension to learn about lost connections, it ignores lines.
+ *
+ * @since 1.2.0
+ */
+public class PcapngCapture implements MessageLogFormat, LineSink, Closeable {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(PcapngCapture.class);
+
+    public static final @NotNull String FILE_NAME = "mqtt-message-log.pcapng";
+
+    private static final int BATCH_SIZE = 1024;
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final long DROP_REPORT_INTERVAL_MILLIS = 10_000;
+    private static final @NotNull MqttVersion DEFAULT_VERSION = MqttVersion.V_3_1_1;
+
+    private static final int CONNECT = 0;
+    private static final int DATA = 1;
+    private static final int DISCONNECT = 2;
+    private static final int CLOSE = 3;
+
+    private final @NotNull PcapngWriter writer;
+    private final @NotNull BlockingQueue<Frame> queue;
+    private final @NotNull LongSupplier microsClock;
+    private final @NotNull ThreadLocal<MqttWireEncoder> encoders = ThreadLocal.withInitial(MqttWireEncoder::new);
+    private final @NotNull Map<String, MqttVersion> versions = new ConcurrentHashMap<>();
+    private final @NotNull AtomicLong dropped = new AtomicLong();
+    private final @NotNull Thread writerThread;
+    private volatile boolean closed;
+    private long lastDropReport;
+    private long reportedDropped;
+
+    PcapngCapture(final @NotNull PcapngWriter writer, final int queueSize, final @NotNull LongSupplier microsClock) {
+        this.writer = writer;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.microsClock = microsClock;
+        writerThread = new Thread(this::run, "mqtt-message-log-pcapng-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Appends a new section to the pcapng file, the file and its directory are created if they do not exist.
+     *
+     * @param queueSize the number of packets that can wait for the writer thread.
+     */
+    public static @NotNull PcapngCapture open(final @NotNull Path file, final int queueSize) throws IOException {
+        final Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        final FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        final PcapngWriter writer;
+        try {
+            writer = new PcapngWriter(channel);
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new PcapngCapture(writer, queueSize, PcapngCapture::currentMicros);
+    }
+
+    private static long currentMicros() {
+        final Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+    }
+
+    @Override
+    public void logPublish(
+            final @NotNull String clientId,
+            final @NotNull PublishPacket publishPacket,
+            final boolean inbound,
+            final boolean verbose) {
+        enqueue(DATA, clientId, inbound, encoders.get().publish(publishPacket, version(clientId)));
+    }
+
+    @Override
+    public void logConnect(final @NotNull ConnectPacket connectPacket, final boolean verbose) {
+        final String clientId = connectPacket.getClientId();
+        versions.put(clientId, connectPacket.getMqttVersion());
+        enqueue(CONNECT, clientId, true, encoders.get().connect(connectPacket));
+    }
+
+    @Override
+    public void logConnack(final @NotNull ConnackOutboundInput connackOutboundInput, final boolean verbose) {
+        enqueue(DATA,
+                connackOutboundInput.getClientInformation().getClientId(),
+                false,
+                encoders.get().connack(connackOutboundInput.getConnackPacket(), version(connackOutboundInput)));
+    }
+
+    @Override
+    public void logDisconnect(
+            final @NotNull DisconnectPacket disconnectPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        enqueue(DISCONNECT, clientId, inbound, encoders.get().disconnect(disconnectPacket, version(clientId)));
+    }
+
+    @Override
+    public void logSubscribe(final @NotNull SubscribeInboundInput subscribeInboundInput, final boolean verbose) {
+        enqueue(DATA,
+                subscribeInboundInput.getClientInformation().getClientId(),
+                true,
+                encoders.get().subscribe(subscribeInboundInput.getSubscribePacket(), version(subscribeInboundInput)));
+    }
+
+    @Override
+    public void logSuback(final @NotNull SubackOutboundInput subackOutboundInput, final boolean verbose) {
+        enqueue(DATA,
+                subackOutboundInput.getClientInformation().getClientId(),
+                false,
+                encoders.get().suback(subackOutboundInput.getSubackPacket(), version(subackOutboundInput)));
+    }
+
+    @Override
+    public void logUnsubscribe(final @NotNull UnsubscribeInboundInput unsubscribeInboundInput, final boolean verbose) {
+        enqueue(DATA,
+                unsubscribeInboundInput.getClientInformation().getClientId(),
+                true,
+                encoders.get()
+                        .unsubscribe(unsubscribeInboundInput.getUnsubscribePacket(),
+                                version(unsubscribeInboundInput)));
+    }
+
+    @Override
+    public void logUnsuback(final @NotNull UnsubackOutboundInput unsubackOutboundInput, final boolean verbose) {
+        enqueue(DATA,
+                unsubackOutboundInput.getClientInformation().getClientId(),
+                false,
+                encoders.get().unsuback(unsubackOutboundInput.getUnsubackPacket(), version(unsubackOutboundInput)));
+    }
+
+    @Override
+    public void logPingreq(final @NotNull PingReqInboundInput pingReqInboundInput) {
+        enqueue(DATA,
+                pingReqInboundInput.getClientInformation().getClientId(),
+                true,
+                MqttWireEncoder.empty(MqttWireEncoder.PINGREQ));
+    }
+
+    @Override
+    public void logPingresp(final @NotNull PingRespOutboundInput pingRespOutboundInput) {
+        enqueue(DATA,
+                pingRespOutboundInput.getClientInformation().getClientId(),
+                false,
+                MqttWireEncoder.empty(MqttWireEncoder.PINGRESP));
+    }
+
+    @Override
+    public void logPuback(
+            final @NotNull PubackPacket pubackPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        enqueue(DATA,
+                clientId,
+                inbound,
+                encoders.get()
+                        .ack(MqttWireEncoder.PUBACK,
+                                pubackPacket.getPacketIdentifier(),
+                                pubackPacket.getReasonCode(),
+                                pubackPacket.getReasonString(),
+                                pubackPacket.getUserProperties(),
+                                version(clientId)));
+    }
+
+    @Override
+    public void logPubrec(
+            final @NotNull PubrecPacket pubrecPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        enqueue(DATA,
+                clientId,
+                inbound,
+                encoders.get()
+                        .ack(MqttWireEncoder.PUBREC,
+                                pubrecPacket.getPacketIdentifier(),
+                                pubrecPacket.getReasonCode(),
+                                pubrecPacket.getReasonString(),
+                                pubrecPacket.getUserProperties(),
+                                version(clientId)));
+    }
+
+    @Override
+    public void logPubrel(
+            final @NotNull PubrelPacket pubrelPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        enqueue(DATA,
+                clientId,
+                inbound,
+                encoders.get()
+                        .ack(MqttWireEncoder.PUBREL,
+                                pubrelPacket.getPacketIdentifier(),
+                                pubrelPacket.getReasonCode(),
+                                pubrelPacket.getReasonString(),
+                                pubrelPacket.getUserProperties(),
+                                version(clientId)));
+    }
+
+    @Override
+    public void logPubcomp(
+            final @NotNull PubcompPacket pubcompPacket,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final boolean verbose) {
+        enqueue(DATA,
+                clientId,
+                inbound,
+                encoders.get()
+                        .ack(MqttWireEncoder.PUBCOMP,
+                                pubcompPacket.getPacketIdentifier(),
+                                pubcompPacket.getReasonCode(),
+                                pubcompPacket.getReasonString(),
+                                pubcompPacket.getUserProperties(),
+                                version(clientId)));
+    }
+
+    /**
+     * The capture does not write log lines.
+     */
+    @Override
+    public void writeLine(final @NotNull String line) {
+    }
+
+    /**
+     * Ends the TCP connection of a client that lost its connection without DISCONNECT packet.
+     */
+    @Override
+    public void clientDisconnected(final @NotNull String clientId) {
+        versions.remove(clientId);
+        enqueue(CLOSE, clientId, false, null);
+    }
+
+    /**
+     * @return the number of packets that were dropped because the queue was full.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes the queued packets and closes the file.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writerThread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writer.close();
+        } catch (final IOException e) {
+            LOG.warn("HiveMQ MQTT Message Log Extension: Could not close the pcapng capture: {}", e.getMessage());
+        }
+    }
+
+    private @NotNull MqttVersion version(final @NotNull String clientId) {
+        return versions.getOrDefault(clientId, DEFAULT_VERSION);
+    }
+
+    private @NotNull MqttVersion version(final @NotNull ClientBasedInput input) {
+        final MqttVersion version = input.getConnectionInformation().getMqttVersion();
+        return version == null ? version(input.getClientInformation().getClientId()) : version;
+    }
+
+    private void enqueue(
+            final int kind,
+            final @NotNull String clientId,
+            final boolean inbound,
+            final byte @Nullable [] packet) {
+        if (closed || !queue.offer(new Frame(kind, clientId, inbound, packet, microsClock.getAsLong()))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void run() {
+        final List<Frame> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (true) {
+                final Frame first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed) {
+                        return;
+                    }
+                    reportDropped();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                for (final Frame frame : batch) {
+                    write(frame);
+                }
+                batch.clear();
+                if (queue.isEmpty()) {
+                    writer.flush();
+                }
+                // drops happen while the queue is full, so the writer rarely sees an empty poll then
+                reportDropped();
+            }
+        } catch (final IOException e) {
+            LOG.warn("HiveMQ MQTT Message Log Extension: Could not write the pcapng capture, capturing stopped: {}",
+                    e.getMessage());
+            closed = true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(final @NotNull Frame frame) throws IOException {
+        switch (frame.kind) {
+            case CONNECT:
+                writer.reconnect(frame.clientId, frame.micros);
+                writer.packet(frame.clientId, frame.inbound, frame.packet, frame.micros);
+                break;
+            case DISCONNECT:
+                writer.packet(frame.clientId, frame.inbound, frame.packet, frame.micros);
+                writer.disconnect(frame.clientId, frame.inbound, frame.micros);
+                break;
+            case CLOSE:
+                writer.disconnect(frame.clientId, frame.inbound, frame.micros);
+                break;
+            default:
+                writer.packet(frame.clientId, frame.inbound, frame.packet, frame.micros);
+        }
+    }
+
+    private void reportDropped() {
+        final long now = System.currentTimeMillis();
+        if (now - lastDropReport < DROP_REPORT_INTERVAL_MILLIS) {
+            return;
+        }
+        final long count = dropped.get();
+        if (count > reportedDropped) {
+            LOG.warn("HiveMQ MQTT Message Log Extension: Dropped {} packets of the pcapng capture, the writer could " +
+                    "not keep up", count - reportedDropped);
+            reportedDropped = count;
+            lastDropReport = now;
+        }
+    }
+
+    private static class Frame {
+
+        private final int kind;
+        private final @NotNull String clientId;
+        private final boolean inbound;
+        private final byte @Nullable [] packet;
+        private final long micros;
+
+        Frame(
+                final int kind,
+                final @NotNull String clientId,
+                final boolean inbound,
+                final byte @Nullable [] packet,
+                final long micros) {
+            this.kind = kind;
+            this.clientId = clientId;
+            this.inbound = inbound;
+            this.packet = packet;
+            this.micros = micros;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.pcap;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes MQTT packets as pcapng enhanced packet blocks with synthetic IPv4 and TCP headers, so the file opens in
+ * Wireshark with the MQTT dissector.
+ * <p>
+ * Every MQTT connection gets its own TCP connection from a synthetic client address {@code 10.x.y.z} to the broker
+ * address {@code 172.16.0.1:1883}, started with a handshake at its first packet and ended with a FIN exchange after its
+ * DISCONNECT. Sequence and acknowledgement numbers follow the bytes of both directions, packets larger than the maximum
+ * IPv4 packet are split into several segments. The clientId is attached as comment to every packet. TCP checksums are
+ * not calculated, Wireshark does not validate them by default.
+ * <p>
+ * The blocks are collected in a direct buffer and written when it is full or on {@link #flush()}. Not thread-safe,
+ * used by the capture writer thread only.
+ *
+ * @since 1.2.0
+ */
+class PcapngWriter implements Closeable {
+
+    static final int SECTION_HEADER_BLOCK = 0x0A0D0D0A;
+    static final int INTERFACE_DESCRIPTION_BLOCK = 0x00000001;
+    static final int ENHANCED_PACKET_BLOCK = 0x00000006;
+    static final int BYTE_ORDER_MAGIC = 0x1A2B3C4D;
+    static final int LINKTYPE_RAW = 101;
+    static final int SERVER_ADDRESS = 0xAC10_0001;
+    static final int SERVER_PORT = 1883;
+    static final int HEADERS_SIZE = 40;
+    /**
+     * The IPv4 total length is a 16 bit field.
+     */
+    static final int MAX_SEGMENT_SIZE = 0xFFFF - HEADERS_SIZE;
+
+    static final int FIN = 0x01;
+    static final int SYN = 0x02;
+    static final int PSH = 0x08;
+    static final int ACK = 0x10;
+
+    private static final int OPTION_END = 0;
+    private static final int OPTION_COMMENT = 1;
+    private static final int OPTION_SHB_USER_APPLICATION = 4;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final @NotNull FileChannel channel;
+    private final @NotNull ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final @NotNull Map<String, Connection> connections = new HashMap<>();
+    private int connectionCount;
+    private short ipId;
+
+    /**
+     * Starts a new section in the channel, the channel may already contain sections.
+     */
+    PcapngWriter(final @NotNull FileChannel channel) throws IOException {
+        this.channel = channel;
+        final byte[] application = "HiveMQ MQTT Message Log Extension".getBytes(UTF_8);
+        final int sectionHeaderLength = 28 + optionLength(application) + 4;
+        buffer.putInt(SECTION_HEADER_BLOCK).putInt(sectionHeaderLength).putInt(BYTE_ORDER_MAGIC);
+        buffer.putShort((short) 1).putShort((short) 0).putLong(-1);
+        option(OPTION_SHB_USER_APPLICATION, application);
+        buffer.putShort((short) OPTION_END).putShort((short) 0);
+        buffer.putInt(sectionHeaderLength);
+        buffer.putInt(INTERFACE_DESCRIPTION_BLOCK).putInt(20);
+        buffer.putShort((short) LINKTYPE_RAW).putShort((short) 0).putInt(0);
+        buffer.putInt(20);
+        flush();
+    }
+
+    /**
+     * Writes a packet of a client, starts the TCP connection of the client if it has none.
+     *
+     * @param micros the timestamp in microseconds since the epoch.
+     */
+    void packet(
+            final @NotNull String clientId,
+            final boolean inbound,
+            final byte @NotNull [] packet,
+            final long micros) throws IOException {
+        final Connection connection = connection(clientId, micros);
+        for (int offset = 0; offset < packet.length; offset += MAX_SEGMENT_SIZE) {
+            segment(connection,
+                    inbound,
+                    PSH | ACK,
+                    packet,
+                    offset,
+                    Math.min(MAX_SEGMENT_SIZE, packet.length - offset),
+                    connection.comment,
+                    micros);
+        }
+    }
+
+    /**
+     * Ends the TCP connection of the client before a new CONNECT starts the next one.
+     */
+    void reconnect(final @NotNull String clientId, final long micros) throws IOException {
+        if (connections.containsKey(clientId)) {
+            disconnect(clientId, true, micros);
+        }
+    }
+
+    /**
+     * Ends the TCP connection of the client, the side that sent the DISCONNECT closes first.
+     */
+    void disconnect(final @NotNull String clientId, final boolean inbound, final long micros) throws IOException {
+        final Connection connection = connections.remove(clientId);
+        if (connection == null) {
+            return;
+        }
+        segment(connection, inbound, FIN | ACK, null, 0, 0, null, micros);
+        segment(connection, !inbound, FIN | ACK, null, 0, 0, null, micros);
+        segment(connection, inbound, ACK, null, 0, 0, null, micros);
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    int getOpenConnections() {
+        return connections.size();
+    }
+
+    private @NotNull Connection connection(final @NotNull String clientId, final long micros) throws IOException {
+        Connection connection = connections.get(clientId);
+        if (connection == null) {
+            final int number = ++connectionCount & 0xFF_FFFF;
+            connection = new Connection(0x0A00_0000 | (number == 0 ? 1 : number),
+                    0xC000 + (number & 0x3FFF),
+                    ("client: " + clientId).getBytes(UTF_8));
+            connections.put(clientId, connection);
+            segment(connection, true, SYN, null, 0, 0, null, micros);
+            segment(connection, false, SYN | ACK, null, 0, 0, null, micros);
+            segment(connection, true, ACK, null, 0, 0, null, micros);
+        }
+        return connection;
+    }
+
+    private void segment(
+            final @NotNull Connection connection,
+            final boolean inbound,
+            final int flags,
+            final byte @Nullable [] data,
+            final int offset,
+            final int length,
+            final byte @Nullable [] comment,
+            final long micros) throws IOException {
+        final int packetLength = HEADERS_SIZE + length;
+        final int blockLength = 32 + padded(packetLength) + (comment == null ? 0 : optionLength(comment) + 4);
+        if (buffer.remaining() < blockLength) {
+            flush();
+        }
+        buffer.putInt(ENHANCED_PACKET_BLOCK).putInt(blockLength).putInt(0);
+        buffer.putInt((int) (micros >>> 32)).putInt((int) micros);
+        buffer.putInt(packetLength).putInt(packetLength);
+
+        final int ipStart = buffer.position();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        buffer.put((byte) 0x45).put((byte) 0).putShort((short) packetLength);
+        buffer.putShort(ipId++).putShort((short) 0x4000).put((byte) 64).put((byte) 6).putShort((short) 0);
+        buffer.putInt(inbound ? connection.address : SERVER_ADDRESS);
+        buffer.putInt(inbound ? SERVER_ADDRESS : connection.address);
+        buffer.putShort(ipStart + 10, checksum(ipStart));
+
+        final int ackNumber;
+        if (inbound) {
+            buffer.putShort((short) connection.port).putShort((short) SERVER_PORT).putInt(connection.clientSequence);
+            ackNumber = connection.serverSequence;
+            connection.clientSequence += length + ((flags & (SYN | FIN)) != 0 ? 1 : 0);
+        } else {
+            buffer.putShort((short) SERVER_PORT).putShort((short) connection.port).putInt(connection.serverSequence);
+            ackNumber = connection.clientSequence;
+            connection.serverSequence += length + ((flags & (SYN | FIN)) != 0 ? 1 : 0);
+        }
+        buffer.putInt((flags & ACK) != 0 ? ackNumber : 0);
+        buffer.put((byte) 0x50).put((byte) flags).putShort((short) 0xFFFF).putInt(0);
+        if (length > 0) {
+            buffer.put(data, offset, length);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        pad(packetLength);
+
+        if (comment != null) {
+            option(OPTION_COMMENT, comment);
+            buffer.putShort((short) OPTION_END).putShort((short) 0);
+        }
+        buffer.putInt(blockLength);
+    }
+
+    private short checksum(final int start) {
+        int sum = 0;
+        for (int i = 0; i < 20; i += 2) {
+            sum += buffer.getShort(start + i) & 0xFFFF;
+        }
+        while ((sum >>> 16) != 0) {
+            sum = (sum & 0xFFFF) + (sum >>> 16);
+        }
+        return (short) ~sum;
+    }
+
+    private void option(final int code, final byte @NotNull [] value) {
+        buffer.putShort((short) code).putShort((short) value.length).put(value);
+        pad(value.length);
+    }
+
+    private void pad(final int length) {
+        for (int i = length; i < padded(length); i++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static int optionLength(final byte @NotNull [] value) {
+        return 4 + padded(value.length);
+    }
+
+    private static int padded(final int length) {
+        return (length + 3) & ~3;
+    }
+
+    private static class Connection {
+
+        private final int address;
+        private final int port;
+        private final byte @NotNull [] comment;
+        private int clientSequence;
+        private int serverSequence;
+
+        Connection(final int address, final int port, final byte @NotNull [] comment) {
+            this.address = address;
+            this.port = port;
+            this.comment = comment;
+        }
+    }
+}
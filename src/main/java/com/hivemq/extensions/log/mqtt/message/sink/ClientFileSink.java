@@ -0,0 +1,283 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.sink;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes the lines of every client to its own file {@code <clientId>.log} in the directory, to trace a few clients
+ * without searching a shared log.
+ * <p>
+ * The open files are kept in a cache bounded by the maximum number of open files, the least recently used file is
+ * closed when another client needs a file and files without lines for the idle timeout are closed every flush
+ * interval. The lines are collected in a buffer per open file that is written when it is full, every flush interval
+ * and when the file is closed. The file of a client is closed when the client disconnects, later lines continue it.
+ *
+ * @since 1.2.0
+ */
+public class ClientFileSink implements LineSink, Closeable {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(ClientFileSink.class);
+
+    static final @NotNull String SUFFIX = ".log";
+    static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_NAME_LENGTH = 200;
+    private static final char @NotNull [] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final @NotNull Path dir;
+    private final boolean timestamps;
+    private final int maxOpenFiles;
+    private final long idleTimeoutMillis;
+    private final @NotNull LongSupplier clock;
+    private final @NotNull ThreadLocal<LineEncoder> encoders = ThreadLocal.withInitial(LineEncoder::new);
+    private final @NotNull ScheduledExecutorService flusher;
+
+    // guarded by this, access order, so the first file is the least recently used
+    private final @NotNull LinkedHashMap<String, ClientFile> files = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean closed;
+
+    ClientFileSink(
+            final @NotNull Path dir,
+            final boolean timestamps,
+            final int maxOpenFiles,
+            final long flushIntervalMillis,
+            final long idleTimeoutMillis,
+            final @NotNull LongSupplier clock) throws IOException {
+        this.dir = dir;
+        this.timestamps = timestamps;
+        this.maxOpenFiles = maxOpenFiles;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.clock = clock;
+        Files.createDirectories(dir);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "mqtt-message-log-client-file-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param timestamps whether every line is prefixed with its ISO-8601 timestamp.
+     */
+    public static @NotNull ClientFileSink open(
+            final @NotNull Path dir,
+            final boolean timestamps,
+            final int maxOpenFiles,
+            final long flushIntervalMillis,
+            final long idleTimeoutMillis) throws IOException {
+        return new ClientFileSink(dir,
+                timestamps,
+                maxOpenFiles,
+                flushIntervalMillis,
+                idleTimeoutMillis,
+                System::currentTimeMillis);
+    }
+
+    public @NotNull Path getDir() {
+        return dir;
+    }
+
+    /**
+     * Lines without a client, e.g. the summaries of the aggregations, are logged via the message log, the formats
+     * write every line with its client.
+     */
+    @Override
+    public void writeLine(final @NotNull String line) {
+        LineSink.MESSAGE_LOG.writeLine(line);
+    }
+
+    @Override
+    public void writeLine(final @NotNull String clientId, final @NotNull String line) {
+        final long now = clock.getAsLong();
+        final LineEncoder encoder = encoders.get();
+        final byte[] bytes = encoder.encode(line, timestamps, now);
+        final int length = encoder.getLength();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            ClientFile file = files.get(clientId);
+            try {
+                if (file == null) {
+                    file = open(clientId);
+                }
+                file.write(bytes, length, now);
+            } catch (final IOException e) {
+                LOG.warn("HiveMQ MQTT Message Log Extension: Could not write the line of client '{}' to {}",
+                        clientId,
+                        dir.resolve(fileName(clientId)),
+                        e);
+                if (file != null) {
+                    files.remove(clientId);
+                    file.closeQuietly();
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void clientDisconnected(final @NotNull String clientId) {
+        final ClientFile file = files.remove(clientId);
+        if (file != null) {
+            file.closeQuietly();
+        }
+    }
+
+    /**
+     * Writes the buffered lines of all open files and closes the files that are idle for the idle timeout.
+     */
+    public synchronized void flush() {
+        final long now = clock.getAsLong();
+        final Iterator<ClientFile> iterator = files.values().iterator();
+        while (iterator.hasNext()) {
+            final ClientFile file = iterator.next();
+            if (now - file.lastWrite >= idleTimeoutMillis) {
+                iterator.remove();
+                file.closeQuietly();
+                continue;
+            }
+            try {
+                file.flush();
+            } catch (final IOException e) {
+                LOG.warn("HiveMQ MQTT Message Log Extension: Could not write to {}", file.path, e);
+                iterator.remove();
+                file.closeQuietly();
+            }
+        }
+    }
+
+    synchronized int getOpenFiles() {
+        return files.size();
+    }
+
+    /**
+     * Writes the buffered lines and closes all files. Lines written afterwards are dropped.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        synchronized (this) {
+            closed = true;
+            for (final ClientFile file : files.values()) {
+                file.closeQuietly();
+            }
+            files.clear();
+        }
+    }
+
+    private @NotNull ClientFile open(final @NotNull String clientId) throws IOException {
+        if (files.size() >= maxOpenFiles) {
+            final Iterator<Map.Entry<String, ClientFile>> iterator = files.entrySet().iterator();
+            final ClientFile eldest = iterator.next().getValue();
+            iterator.remove();
+            eldest.closeQuietly();
+        }
+        final Path path = dir.resolve(fileName(clientId));
+        final ClientFile file = new ClientFile(path,
+                FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+        files.put(clientId, file);
+        return file;
+    }
+
+    /**
+     * @return the file name of the client, all characters except ASCII letters, digits, {@code -}, {@code _} and a
+     *         {@code .} that is not the first character are percent-encoded, long names are shortened with a hash.
+     */
+    static @NotNull String fileName(final @NotNull String clientId) {
+        final StringBuilder builder = new StringBuilder(clientId.length() + SUFFIX.length());
+        for (final byte b : clientId.getBytes(UTF_8)) {
+            if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '-' || b == '_' ||
+                    (b == '.' && builder.length() > 0)) {
+                builder.append((char) b);
+            } else {
+                builder.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+        }
+        if (builder.length() > MAX_NAME_LENGTH) {
+            builder.setLength(MAX_NAME_LENGTH - 9);
+            builder.append('~').append(String.format(Locale.ROOT, "%08x", clientId.hashCode()));
+        }
+        return builder.append(SUFFIX).toString();
+    }
+
+    private static class ClientFile {
+
+        private final @NotNull Path path;
+        private final @NotNull FileChannel channel;
+        private final @NotNull ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long lastWrite;
+
+        ClientFile(final @NotNull Path path, final @NotNull FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        void write(final byte @NotNull [] bytes, final int length, final long now) throws IOException {
+            lastWrite = now;
+            if (length <= buffer.remaining()) {
+                buffer.put(bytes, 0, length);
+                return;
+            }
+            final ByteBuffer[] buffers = {buffer.flip(), ByteBuffer.wrap(bytes, 0, length)};
+            while (buffers[1].hasRemaining()) {
+                channel.write(buffers);
+            }
+            buffer.clear();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void closeQuietly() {
+            try {
+                flush();
+            } catch (final IOException e) {
+                LOG.warn("HiveMQ MQTT Message Log Extension: Could not write to {}", path, e);
+            }
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                LOG.warn("HiveMQ MQTT Message Log Extension: Could not close {}", path, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.sink;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the lines to a file owned by the extension, independent of the logback configuration of the broker.
+ * <p>
+ * A line is encoded into a byte array of the writing thread and copied into the active direct buffer. Full buffers
+ * are handed over to the file writer thread that writes all handed over buffers with one gathering write and rolls
+ * the file between two writes, writers only swap buffers and never wait for a rotation. The active buffer is handed
+ * over at least every flush interval. Writers wait only if all buffers are handed over and not written yet.
+ * <p>
+ * The file is rolled to {@code <name>.<yyyyMMdd-HHmmss-SSS>.log} when it exceeds the rotate size or the rotate
+ * interval. Compressing rolled files and deleting them by total size and age runs on a separate housekeeping thread,
+ * so a slow compression does not delay writing.
+ *
+ * @since 1.2.0
+ */
+public class FileSink implements LineSink, Closeable {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(FileSink.class);
+
+    static final @NotNull String SUFFIX = ".log";
+    static final @NotNull String GZIP_SUFFIX = ".gz";
+    static final int BUFFER_SIZE = 256 * 1024;
+    static final int BUFFER_COUNT = 8;
+    private static final @NotNull DateTimeFormatter ROLLED_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+
+    private final @NotNull Path dir;
+    private final @NotNull String name;
+    private final @NotNull Path file;
+    private final @NotNull RollingPolicy rollingPolicy;
+    private final boolean timestamps;
+    private final long flushIntervalMillis;
+    private final @NotNull LongSupplier clock;
+    private final @NotNull ThreadLocal<LineEncoder> encoders = ThreadLocal.withInitial(LineEncoder::new);
+
+    // held while a line is copied into the buffers, so lines that span buffers are not interleaved
+    private final @NotNull ReentrantLock appendLock = new ReentrantLock();
+    // guards the buffers and the counters below, shared with the file writer thread
+    private final @NotNull ReentrantLock lock = new ReentrantLock();
+    private final @NotNull Condition bufferFree = lock.newCondition();
+    private final @NotNull Condition bufferFilled = lock.newCondition();
+    private final @NotNull Condition buffersWritten = lock.newCondition();
+    private final @NotNull ArrayDeque<ByteBuffer> free = new ArrayDeque<>(BUFFER_COUNT);
+    private final @NotNull ArrayDeque<ByteBuffer> filled = new ArrayDeque<>(BUFFER_COUNT);
+    private @Nullable ByteBuffer active;
+    private long handedOver;
+    private long written;
+    private boolean closed;
+
+    // only used by the file writer thread after the start
+    private @Nullable FileChannel channel;
+    private long fileSize;
+    private long fileOpened;
+
+    private final @NotNull Thread writer;
+    private final @NotNull ExecutorService housekeeping;
+
+    FileSink(
+            final @NotNull Path dir,
+            final @NotNull String name,
+            final @NotNull RollingPolicy rollingPolicy,
+            final boolean timestamps,
+            final long flushIntervalMillis,
+            final @NotNull LongSupplier clock) throws IOException {
+        this.dir = dir;
+        this.name = name;
+        this.file = dir.resolve(name + SUFFIX);
+        this.rollingPolicy = rollingPolicy;
+        this.timestamps = timestamps;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.clock = clock;
+        Files.createDirectories(dir);
+        open(clock.getAsLong());
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            free.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+        }
+        housekeeping = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "mqtt-message-log-file-housekeeping");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeping.execute(this::houseKeep);
+        writer = new Thread(this::writeLoop, "mqtt-message-log-file-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens the file {@code <name>.log} in the directory, an existing file is continued.
+     *
+     * @param timestamps whether every line is prefixed with its ISO-8601 timestamp.
+     */
+    public static @NotNull FileSink open(
+            final @NotNull Path dir,
+            final @NotNull String name,
+            final @NotNull RollingPolicy rollingPolicy,
+            final boolean timestamps,
+            final long flushIntervalMillis) throws IOException {
+        return new FileSink(dir, name, rollingPolicy, timestamps, flushIntervalMillis, System::currentTimeMillis);
+    }
+
+    public @NotNull Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void writeLine(final @NotNull String line) {
+        final LineEncoder encoder = encoders.get();
+        final byte[] bytes = encoder.encode(line, timestamps, clock.getAsLong());
+        final int length = encoder.getLength();
+        appendLock.lock();
+        try {
+            lock.lock();
+            try {
+                int offset = 0;
+                while (offset < length) {
+                    ByteBuffer active = this.active;
+                    while (active == null) {
+                        if (closed) {
+                            return;
+                        }
+                        active = free.poll();
+                        if (active == null) {
+                            bufferFree.awaitUninterruptibly();
+                        }
+                    }
+                    this.active = active;
+                    final int count = Math.min(active.remaining(), length - offset);
+                    active.put(bytes, offset, count);
+                    offset += count;
+                    if (!active.hasRemaining()) {
+                        handOver();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Writes all lines that were written before to the file.
+     */
+    public void flush() {
+        appendLock.lock();
+        try {
+            lock.lock();
+            try {
+                handOverActive();
+                while (written < handedOver && writer.isAlive()) {
+                    buffersWritten.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the remaining lines, closes the file and waits for a running compression. Lines written afterwards are
+     * dropped.
+     */
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                handOverActive();
+                closed = true;
+                bufferFilled.signalAll();
+                bufferFree.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        housekeeping.shutdown();
+        try {
+            if (!housekeeping.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.warn("HiveMQ MQTT Message Log Extension: Housekeeping of the rolled files of {} did not finish",
+                        file);
+            }
+        } catch (final InterruptedException e) {
+            interrupted = true;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handOver() {
+        filled.add(active);
+        active = null;
+        handedOver++;
+        bufferFilled.signal();
+    }
+
+    private void handOverActive() {
+        final ByteBuffer active = this.active;
+        if (active != null && active.position() > 0) {
+            handOver();
+        }
+    }
+
+    private void writeLoop() {
+        final ByteBuffer[] batch = new ByteBuffer[BUFFER_COUNT];
+        while (true) {
+            int count = 0;
+            boolean closing;
+            lock.lock();
+            try {
+                if (filled.isEmpty() && !closed) {
+                    bufferFilled.awaitNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis));
+                }
+                closing = closed;
+                while (!filled.isEmpty()) {
+                    batch[count++] = filled.poll();
+                }
+            } catch (final InterruptedException e) {
+                closing = true;
+            } finally {
+                lock.unlock();
+            }
+            if (count == 0) {
+                if (closing) {
+                    break;
+                }
+                flushIdle();
+                continue;
+            }
+            write(batch, count);
+            lock.lock();
+            try {
+                for (int i = 0; i < count; i++) {
+                    free.add(batch[i].clear());
+                    batch[i] = null;
+                }
+                written += count;
+                bufferFree.signalAll();
+                buffersWritten.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        closeChannel();
+    }
+
+    /**
+     * Hands over the active buffer when the flush interval passed without a full buffer. A line that is copied right
+     * now is not split, the buffer is handed over in the next interval instead.
+     */
+    private void flushIdle() {
+        if (!appendLock.tryLock()) {
+            return;
+        }
+        try {
+            lock.lock();
+            try {
+                handOverActive();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void write(final @NotNull ByteBuffer @NotNull [] batch, final int count) {
+        long bytes = 0;
+        for (int i = 0; i < count; i++) {
+            bytes += batch[i].flip().remaining();
+        }
+        final long now = clock.getAsLong();
+        if (fileSize > 0 && (fileSize + bytes > rollingPolicy.getRotateSize() ||
+                now - fileOpened >= rollingPolicy.getRotateIntervalMillis())) {
+            roll(now);
+        }
+        try {
+            if (channel == null) {
+                open(now);
+            }
+            final FileChannel channel = this.channel;
+            long remaining = bytes;
+            while (remaining > 0) {
+                remaining -= channel.write(batch, 0, count);
+            }
+            fileSize += bytes;
+        } catch (final IOException e) {
+            LOG.error("HiveMQ MQTT Message Log Extension: Could not write {} bytes to {}", bytes, file, e);
+            closeChannel();
+        }
+    }
+
+    private void open(final long now) throws IOException {
+        final FileChannel channel =
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.channel = channel;
+        fileSize = channel.size();
+        fileOpened = now;
+    }
+
+    private void closeChannel() {
+        final FileChannel channel = this.channel;
+        if (channel == null) {
+            return;
+        }
+        this.channel = null;
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            LOG.warn("HiveMQ MQTT Message Log Extension: Could not close {}", file, e);
+        }
+    }
+
+    private void roll(final long now) {
+        closeChannel();
+        final Path rolled = dir.resolve(name + "." + ROLLED_TIMESTAMP.format(Instant.ofEpochMilli(now)) + SUFFIX);
+        try {
+            Files.move(file, rolled);
+            housekeeping.execute(this::houseKeep);
+        } catch (final IOException e) {
+            LOG.warn("HiveMQ MQTT Message Log Extension: Could not roll {} to {}, continuing the file",
+                    file,
+                    rolled,
+                    e);
+        }
+    }
+
+    /**
+     * Compresses the rolled files if configured and deletes the oldest rolled files above the maximum total size or
+     * age.
+     */
+    private void houseKeep() {
+        try {
+            final List<Path> rolled = listRolled();
+            if (rollingPolicy.isCompress()) {
+                for (int i = 0; i < rolled.size(); i++) {
+                    if (rolled.get(i).getFileName().toString().endsWith(SUFFIX)) {
+                        rolled.set(i, compress(rolled.get(i)));
+                    }
+                }
+            }
+            long totalSize = 0;
+            for (final Path path : rolled) {
+                totalSize += Files.size(path);
+            }
+            final long now = clock.getAsLong();
+            for (final Path path : rolled) {
+                final long size = Files.size(path);
+                if (totalSize > rollingPolicy.getMaxTotalSize() ||
+                        now - Files.getLastModifiedTime(path).toMillis() > rollingPolicy.getMaxAgeMillis()) {
+                    Files.delete(path);
+                    totalSize -= size;
+                }
+            }
+        } catch (final IOException e) {
+            LOG.warn("HiveMQ MQTT Message Log Extension: Housekeeping of the rolled files of {} failed", file, e);
+        }
+    }
+
+    /**
+     * @return the rolled files, oldest first.
+     */
+    @NotNull List<Path> listRolled() throws IOException {
+        final String prefix = name + ".";
+        final String activeName = file.getFileName().toString();
+        try (final Stream<Path> paths = Files.list(dir)) {
+            return paths.filter(path -> {
+                final String fileName = path.getFileName().toString();
+                return fileName.startsWith(prefix) &&
+                        !fileName.equals(activeName) &&
+                        (fileName.endsWith(SUFFIX) || fileName.endsWith(SUFFIX + GZIP_SUFFIX));
+            }).sorted().collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private static @NotNull Path compress(final @NotNull Path path) throws IOException {
+        final Path compressed = path.resolveSibling(path.getFileName() + GZIP_SUFFIX);
+        final Path temporary = path.resolveSibling(path.getFileName() + GZIP_SUFFIX + ".tmp");
+        try (final OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary), 64 * 1024)) {
+            Files.copy(path, out);
+        }
+        Files.setLastModifiedTime(temporary, Files.getLastModifiedTime(path));
+        Files.move(temporary, compressed, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(path);
+        return compressed;
+    }
+}
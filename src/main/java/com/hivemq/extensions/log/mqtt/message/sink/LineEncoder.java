@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.sink;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extensions.log.mqtt.message.util.IsoTimestamp;
+
+/**
+ * Encodes lines as UTF-8 with a trailing line feed, optionally prefixed with their timestamp. An encoder is used by one
+ * thread, its array is reused for lines up to {@link #MAX_RETAINED_LINE_BYTES}.
+ *
+ * @since 1.2.0
+ */
+class LineEncoder {
+
+    /**
+     * Larger lines are encoded into a temporary array that is not kept by the encoder.
+     */
+    private static final int MAX_RETAINED_LINE_BYTES = 64 * 1024;
+
+    private final @NotNull IsoTimestamp timestamp = new IsoTimestamp();
+    private byte @NotNull [] bytes = new byte[1024];
+    private int length;
+
+    /**
+     * @return the array that contains the encoded line from index 0 to {@link #getLength()}, only valid until the next
+     *         call.
+     */
+    byte @NotNull [] encode(final @NotNull String line, final boolean withTimestamp, final long millis) {
+        final CharSequence prefix = withTimestamp ? timestamp.format(millis) : null;
+        final int maxLength = (prefix == null ? 0 : prefix.length() + 1) + line.length() * 3 + 1;
+        byte[] bytes = this.bytes;
+        if (maxLength > bytes.length) {
+            bytes = new byte[Math.max(maxLength, bytes.length * 2)];
+            if (bytes.length <= MAX_RETAINED_LINE_BYTES) {
+                this.bytes = bytes;
+            }
+        }
+        int n = 0;
+        if (prefix != null) {
+            for (int i = 0; i < prefix.length(); i++) {
+                bytes[n++] = (byte) prefix.charAt(i);
+            }
+            bytes[n++] = ' ';
+        }
+        final int length = line.length();
+        for (int i = 0; i < length; i++) {
+            final char c = line.charAt(i);
+            if (c < 0x80) {
+                bytes[n++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[n++] = (byte) (0xC0 | (c >> 6));
+                bytes[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                    Character.isLowSurrogate(line.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, line.charAt(++i));
+                bytes[n++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[n++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                bytes[n++] = '?';
+            } else {
+                bytes[n++] = (byte) (0xE0 | (c >> 12));
+                bytes[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        bytes[n++] = '\n';
+        this.length = n;
+        return bytes;
+    }
+
+    int getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.sink;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+
+/**
+ * The destination of the rendered log lines of the text and JSON lines formats.
+ *
+ * @since 1.2.0
+ */
+@FunctionalInterface
+public interface LineSink {
+
+    /**
+     * Logs the lines via the message log of the broker's logback configuration.
+     */
+    @NotNull LineSink MESSAGE_LOG = MessageLogUtil::logLine;
+
+    /**
+     * @param line a complete line without line separator.
+     */
+    void writeLine(@NotNull String line);
+
+    /**
+     * @param clientId the client the line is about.
+     * @param line     a complete line without line separator.
+     */
+    default void writeLine(final @NotNull String clientId, final @NotNull String line) {
+        writeLine(line);
+    }
+
+    /**
+     * Called when the client disconnected or lost its connection, a sink that holds resources per client releases
+     * them.
+     */
+    default void clientDisconnected(final @NotNull String clientId) {
+    }
+}
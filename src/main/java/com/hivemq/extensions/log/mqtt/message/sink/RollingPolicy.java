@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.sink;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+/**
+ * When the file of a {@link FileSink} is rolled and which rolled files are kept.
+ *
+ * @since 1.2.0
+ */
+public class RollingPolicy {
+
+    private final long rotateSize;
+    private final long rotateIntervalMillis;
+    private final long maxTotalSize;
+    private final long maxAgeMillis;
+    private final boolean compress;
+
+    /**
+     * @param rotateSize           the size in bytes after which the file is rolled.
+     * @param rotateIntervalMillis the age of the file after which it is rolled.
+     * @param maxTotalSize         the total size in bytes of the rolled files, the oldest are deleted above.
+     * @param maxAgeMillis         the age after which rolled files are deleted.
+     * @param compress             whether rolled files are compressed with gzip.
+     */
+    public RollingPolicy(
+            final long rotateSize,
+            final long rotateIntervalMillis,
+            final long maxTotalSize,
+            final long maxAgeMillis,
+            final boolean compress) {
+        this.rotateSize = rotateSize;
+        this.rotateIntervalMillis = rotateIntervalMillis;
+        this.maxTotalSize = maxTotalSize;
+        this.maxAgeMillis = maxAgeMillis;
+        this.compress = compress;
+    }
+
+    public long getRotateSize() {
+        return rotateSize;
+    }
+
+    public long getRotateIntervalMillis() {
+        return rotateIntervalMillis;
+    }
+
+    public long getMaxTotalSize() {
+        return maxTotalSize;
+    }
+
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "rotate size " + rotateSize + " bytes, rotate interval " + rotateIntervalMillis / 1000 +
+                " s, max total size " + maxTotalSize + " bytes, max age " + maxAgeMillis / 1000 + " s" +
+                (compress ? ", gzip" : "");
+    }
+}
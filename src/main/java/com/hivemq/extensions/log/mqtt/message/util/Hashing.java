@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.util;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fast non-cryptographic 64 bit hashes for the aggregations, FNV-1a finished with the MurmurHash3 mixer. Not suitable
+ * against adversarial keys.
+ *
+ * @since 1.2.0
+ */
+public final class Hashing {
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    private Hashing() {
+    }
+
+    public static long hash64(final @NotNull CharSequence chars) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < chars.length(); i++) {
+            hash = (hash ^ chars.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Hashes the remaining bytes of a buffer without copying them or changing its position, 8 bytes per step like the
+     * body of MurmurHash3. The hash depends on the byte order of the buffer.
+     */
+    public static long hash64(final @NotNull ByteBuffer buffer) {
+        final int end = buffer.limit();
+        long hash = FNV_OFFSET_BASIS ^ (end - buffer.position());
+        int i = buffer.position();
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            hash ^= Long.rotateLeft(buffer.getLong(i) * C1, 31) * C2;
+            hash = Long.rotateLeft(hash, 27) * 5 + 0x52DCE729;
+        }
+        for (; i < end; i++) {
+            hash = (hash ^ (buffer.get(i) & 0xFF)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * The finalizer of MurmurHash3, spreads every input bit over all output bits.
+     */
+    public static long mix(final long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
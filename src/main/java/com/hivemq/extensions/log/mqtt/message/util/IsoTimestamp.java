@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.util;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formats epoch milliseconds as ISO-8601 UTC timestamp with milliseconds, e.g. {@code 2024-05-02T10:15:30.123Z}. The
+ * timestamp is formatted once per millisecond, the date and time up to the second once per second.
+ * <p>
+ * Not thread-safe, every thread uses its own instance.
+ *
+ * @since 1.2.0
+ */
+public class IsoTimestamp {
+
+    private final @NotNull StringBuilder timestamp = new StringBuilder(32);
+    private long millis = Long.MIN_VALUE;
+    private long second = Long.MIN_VALUE;
+    private int secondLength;
+
+    /**
+     * @return the timestamp, only valid until the next call.
+     */
+    public @NotNull CharSequence format(final long millis) {
+        if (millis == this.millis) {
+            return timestamp;
+        }
+        this.millis = millis;
+        final long second = Math.floorDiv(millis, 1000);
+        if (second != this.second) {
+            this.second = second;
+            timestamp.setLength(0);
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo(LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC),
+                    timestamp);
+            timestamp.append('.');
+            secondLength = timestamp.length();
+        }
+        final int millisOfSecond = (int) Math.floorMod(millis, 1000);
+        timestamp.setLength(secondLength);
+        timestamp.append((char) ('0' + millisOfSecond / 100))
+                .append((char) ('0' + millisOfSecond / 10 % 10))
+                .append((char) ('0' + millisOfSecond % 10))
+                .append('Z');
+        return timestamp;
+    }
+}
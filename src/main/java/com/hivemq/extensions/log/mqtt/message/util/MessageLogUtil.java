@@ -25,38 +25,22 @@ import com.hivemq.extension.sdk.api.interceptor.suback.parameter.SubackOutboundI
 import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundInput;
 import com.hivemq.extension.sdk.api.interceptor.unsuback.parameter.UnsubackOutboundInput;
 import com.hivemq.extension.sdk.api.interceptor.unsubscribe.parameter.UnsubscribeInboundInput;
-import com.hivemq.extension.sdk.api.packets.connack.ConnackPacket;
 import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
 import com.hivemq.extension.sdk.api.packets.connect.WillPublishPacket;
 import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
-import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectReasonCode;
 import com.hivemq.extension.sdk.api.packets.general.UserProperties;
 import com.hivemq.extension.sdk.api.packets.general.UserProperty;
 import com.hivemq.extension.sdk.api.packets.puback.PubackPacket;
 import com.hivemq.extension.sdk.api.packets.pubcomp.PubcompPacket;
-import com.hivemq.extension.sdk.api.packets.pubcomp.PubcompReasonCode;
-import com.hivemq.extension.sdk.api.packets.publish.AckReasonCode;
-import com.hivemq.extension.sdk.api.packets.publish.PayloadFormatIndicator;
 import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
 import com.hivemq.extension.sdk.api.packets.pubrec.PubrecPacket;
 import com.hivemq.extension.sdk.api.packets.pubrel.PubrelPacket;
-import com.hivemq.extension.sdk.api.packets.pubrel.PubrelReasonCode;
-import com.hivemq.extension.sdk.api.packets.suback.SubackPacket;
-import com.hivemq.extension.sdk.api.packets.subscribe.SubackReasonCode;
-import com.hivemq.extension.sdk.api.packets.subscribe.SubscribePacket;
-import com.hivemq.extension.sdk.api.packets.subscribe.Subscription;
-import com.hivemq.extension.sdk.api.packets.unsuback.UnsubackPacket;
-import com.hivemq.extension.sdk.api.packets.unsuback.UnsubackReasonCode;
-import com.hivemq.extension.sdk.api.packets.unsubscribe.UnsubscribePacket;
-import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
-import org.apache.commons.lang3.StringUtils;
+import com.hivemq.extensions.log.mqtt.message.format.BuiltInTemplates;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
-import java.util.Base64;
 import java.util.List;
-import java.util.Optional;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -75,16 +59,23 @@ public class MessageLogUtil {
             final @NotNull String message,
             final @NotNull DisconnectEventInput disconnectEventInput,
             final boolean verbose) {
+        LOG.info(getDisconnectEventAsString(message, disconnectEventInput, verbose));
+    }
+
+    public static @NotNull String getDisconnectEventAsString(
+            final @NotNull String message,
+            final @NotNull DisconnectEventInput disconnectEventInput,
+            final boolean verbose) {
+        final StringBuilder builder = new StringBuilder(128);
+        builder.append(message).append(" Reason Code: '").append(disconnectEventInput.getReasonCode().orElse(null));
         if (!verbose) {
-            LOG.info(message + " Reason Code: '{}'", disconnectEventInput.getReasonCode().orElse(null));
-            return;
+            return builder.append('\'').toString();
         }
-        final String userPropertiesAsString =
-                getUserPropertiesAsString(disconnectEventInput.getUserProperties().orElse(null));
-        LOG.info(message + " Reason Code: '{}', Reason String: '{}', {}",
-                disconnectEventInput.getReasonCode().orElse(null),
-                disconnectEventInput.getReasonString().orElse(null),
-                userPropertiesAsString);
+        return builder.append("', Reason String: '")
+                .append(disconnectEventInput.getReasonString().orElse(null))
+                .append("', ")
+                .append(getUserPropertiesAsString(disconnectEventInput.getUserProperties().orElse(null)))
+                .toString();
     }
 
     public static void logDisconnect(
@@ -92,307 +83,76 @@ public class MessageLogUtil {
             final @NotNull String clientId,
             final boolean inbound,
             final boolean verbose) {
-        final DisconnectReasonCode reasonCode = disconnectPacket.getReasonCode();
-
-        if (!verbose) {
-            if (inbound) {
-                LOG.info("Received DISCONNECT from client '{}': Reason Code: '{}'", clientId, reasonCode);
-            } else {
-                LOG.info("Sent DISCONNECT to client '{}': Reason Code: '{}'", clientId, reasonCode);
-            }
-            return;
-        }
-
-        final String userPropertiesAsString = getUserPropertiesAsString(disconnectPacket.getUserProperties());
-        final String reasonString = disconnectPacket.getReasonString().orElse(null);
-        final String serverReference = disconnectPacket.getServerReference().orElse(null);
-        final Long sessionExpiry = disconnectPacket.getSessionExpiryInterval().orElse(null);
-
-        if (inbound) {
-            LOG.info(
-                    "Received DISCONNECT from client '{}': Reason Code: '{}', Reason String: '{}', Server Reference: '{}', Session Expiry: '{}', {}",
-                    clientId,
-                    reasonCode,
-                    reasonString,
-                    serverReference,
-                    sessionExpiry,
-                    userPropertiesAsString);
-        } else {
-            LOG.info(
-                    "Sent DISCONNECT to client '{}': Reason Code: '{}', Reason String: '{}', Server Reference: '{}', Session Expiry: '{}', {}",
-                    clientId,
-                    reasonCode,
-                    reasonString,
-                    serverReference,
-                    sessionExpiry,
-                    userPropertiesAsString);
-        }
+        final BuiltInTemplates.Layout<DisconnectPacket> layout =
+                inbound ? BuiltInTemplates.DISCONNECT_RECEIVED : BuiltInTemplates.DISCONNECT_SEND;
+        LOG.info(layout.get(verbose).render(clientId, disconnectPacket));
     }
 
     public static void logConnect(final @NotNull ConnectPacket connectPacket, final boolean verbose) {
-        if (!verbose) {
-            LOG.info(
-                    "Received CONNECT from client '{}': Protocol version: '{}', Clean Start: '{}', Session Expiry Interval: '{}'",
-                    connectPacket.getClientId(),
-                    connectPacket.getMqttVersion().name(),
-                    connectPacket.getCleanStart(),
-                    connectPacket.getSessionExpiryInterval());
-            return;
-        }
-
-        final String userPropertiesAsString = getUserPropertiesAsString(connectPacket.getUserProperties());
-        final String passwordAsString = getStringFromByteBuffer(connectPacket.getPassword().orElse(null));
-        final String passwordProperty;
-        if (StringUtils.isAsciiPrintable(passwordAsString) || passwordAsString == null) {
-            passwordProperty = "Password: '" + passwordAsString + "'";
-        } else {
-            passwordProperty =
-                    "Password (Hex): '" + getHexStringFromByteBuffer(connectPacket.getPassword().orElse(null)) + "'";
-        }
-
-        final String authDataAsString;
-        if (connectPacket.getAuthenticationData().isPresent()) {
-            authDataAsString =
-                    getStringFromByteBuffer(Base64.getEncoder().encode(connectPacket.getAuthenticationData().get()));
-        } else {
-            authDataAsString = null;
-        }
-
-        final String willString;
-        if (connectPacket.getWillPublish().isPresent()) {
-            willString = getWillAsString(connectPacket.getWillPublish().get());
-        } else {
-            willString = "";
-        }
-
-        LOG.info(
-                "Received CONNECT from client '{}': Protocol version: '{}', Clean Start: '{}', Session Expiry Interval: '{}'," +
-                        " Keep Alive: '{}', Maximum Packet Size: '{}', Receive Maximum: '{}', Topic Alias Maximum: '{}'," +
-                        " Request Problem Information: '{}', Request Response Information: '{}', " +
-                        " Username: '{}', {}, Auth Method: '{}', Auth Data (Base64): '{}', {}{}",
-                connectPacket.getClientId(),
-                connectPacket.getMqttVersion().name(),
-                connectPacket.getCleanStart(),
-                connectPacket.getSessionExpiryInterval(),
-                connectPacket.getKeepAlive(),
-                connectPacket.getMaximumPacketSize(),
-                connectPacket.getReceiveMaximum(),
-                connectPacket.getTopicAliasMaximum(),
-                connectPacket.getRequestProblemInformation(),
-                connectPacket.getRequestResponseInformation(),
-                connectPacket.getUserName().orElse(null),
-                passwordProperty,
-                connectPacket.getAuthenticationMethod().orElse(null),
-                authDataAsString,
-                userPropertiesAsString,
-                willString);
+        LOG.info(BuiltInTemplates.CONNECT_RECEIVED.get(verbose).render(connectPacket.getClientId(), connectPacket));
     }
 
     public static void logConnack(final @NotNull ConnackOutboundInput connackOutboundInput, final boolean verbose) {
-        final @NotNull String clientId = connackOutboundInput.getClientInformation().getClientId();
-        final @NotNull ConnackPacket connackPacket = connackOutboundInput.getConnackPacket();
-
-        if (!verbose) {
-            LOG.info("Sent CONNACK to client '{}': Reason Code: '{}', Session Present: '{}'",
-                    clientId,
-                    connackPacket.getReasonCode(),
-                    connackPacket.getSessionPresent());
-            return;
-        }
-
-        final String userPropertiesAsString = getUserPropertiesAsString(connackPacket.getUserProperties());
-
-        final String authDataAsString;
-        if (connackPacket.getAuthenticationData().isPresent()) {
-            authDataAsString =
-                    getStringFromByteBuffer(Base64.getEncoder().encode(connackPacket.getAuthenticationData().get()));
-        } else {
-            authDataAsString = null;
-        }
-
-        LOG.info("Sent CONNACK to client '{}': Reason Code: '{}', Session Present: '{}', Session Expiry Interval: '{}'," +
-                        " Assigned clientId '{}', Maximum QoS: '{}', Maximum Packet Size: '{}', Receive Maximum: '{}'," +
-                        " Topic Alias Maximum: '{}', Reason String: '{}', Response Information: '{}', Server Keep Alive: '{}'," +
-                        " Server Reference: '{}', Shared Subscription Available: '{}', Wildcards Available: '{}'," +
-                        " Retain Available: '{}', Subscription Identifiers Available: '{}'," +
-                        " Auth Method: '{}', Auth Data (Base64): '{}', {}",
-                clientId,
-                connackPacket.getReasonCode(),
-                connackPacket.getSessionPresent(),
-                connackPacket.getSessionExpiryInterval().orElse(null),
-                connackPacket.getAssignedClientIdentifier().orElse(null),
-                connackPacket.getMaximumQoS().orElse(null),
-                connackPacket.getMaximumPacketSize(),
-                connackPacket.getReceiveMaximum(),
-                connackPacket.getTopicAliasMaximum(),
-                connackPacket.getReasonString().orElse(null),
-                connackPacket.getResponseInformation().orElse(null),
-                connackPacket.getServerKeepAlive().orElse(null),
-                connackPacket.getServerReference().orElse(null),
-                connackPacket.getSharedSubscriptionsAvailable(),
-                connackPacket.getWildCardSubscriptionAvailable(),
-                connackPacket.getRetainAvailable(),
-                connackPacket.getSubscriptionIdentifiersAvailable(),
-                connackPacket.getAuthenticationMethod().orElse(null),
-                authDataAsString,
-                userPropertiesAsString);
+        LOG.info(BuiltInTemplates.CONNACK_SEND.get(verbose)
+                .render(connackOutboundInput.getClientInformation().getClientId(),
+                        connackOutboundInput.getConnackPacket()));
     }
 
-    private static @NotNull String getWillAsString(final @NotNull WillPublishPacket willPublishPacket) {
-        final String topic = willPublishPacket.getTopic();
-        final String publishAsString = getPublishAsString(willPublishPacket, true);
-        final String willPublishAsString = publishAsString + ", Will Delay: '" + willPublishPacket.getWillDelay() + "'";
-
-        return String.format(", Will: { Topic: '%s', %s }", topic, willPublishAsString);
+    public static @NotNull String getWillAsString(final @NotNull WillPublishPacket willPublishPacket) {
+        return BuiltInTemplates.WILL.render("", willPublishPacket);
     }
 
     public static void logPublish(
             final @NotNull String prefix, final @NotNull PublishPacket publishPacket, final boolean verbose) {
-        final String topic = publishPacket.getTopic();
-        final String publishString = getPublishAsString(publishPacket, verbose);
+        final StringBuilder builder = new StringBuilder(128);
+        builder.append(prefix).append(" '").append(publishPacket.getTopic()).append("': ");
+        BuiltInTemplates.PUBLISH_BODIES.get(verbose).append(builder, "", publishPacket);
+        LOG.info(builder.toString());
+    }
 
-        LOG.info("{} '{}': {}", prefix, topic, publishString);
+    public static void logPublish(
+            final @NotNull String clientId,
+            final @NotNull PublishPacket publishPacket,
+            final boolean inbound,
+            final boolean verbose) {
+        final BuiltInTemplates.Layout<PublishPacket> layout =
+                inbound ? BuiltInTemplates.PUBLISH_RECEIVED : BuiltInTemplates.PUBLISH_SEND;
+        LOG.info(layout.get(verbose).render(clientId, publishPacket));
     }
 
     public static void logSubscribe(final @NotNull SubscribeInboundInput subscribeInboundInput, final boolean verbose) {
-        final StringBuilder topics = new StringBuilder();
-        final String clientId = subscribeInboundInput.getClientInformation().getClientId();
-        final SubscribePacket subscribePacket = subscribeInboundInput.getSubscribePacket();
-
-        if (!verbose) {
-            topics.append("Topics: {");
-            for (final Subscription sub : subscribePacket.getSubscriptions()) {
-                topics.append(" [Topic: '")
-                        .append(sub.getTopicFilter())
-                        .append("', QoS: '")
-                        .append(sub.getQos().getQosNumber())
-                        .append("'],");
-            }
-            topics.deleteCharAt(topics.length() - 1); //delete last comma
-            topics.append(" }");
-            LOG.info("Received SUBSCRIBE from client '{}': {}", clientId, topics);
-            return;
-        }
-
-        topics.append("Topics: {");
-        for (final Subscription sub : subscribePacket.getSubscriptions()) {
-            topics.append(" [Topic: '")
-                    .append(sub.getTopicFilter())
-                    .append("', QoS: '")
-                    .append(sub.getQos().getQosNumber())
-                    .append("', Retain As Published: '")
-                    .append(sub.getRetainAsPublished())
-                    .append("', No Local: '")
-                    .append(sub.getNoLocal())
-                    .append("', Retain Handling: '")
-                    .append(sub.getRetainHandling().name())
-                    .append("'],");
-        }
-
-        topics.deleteCharAt(topics.length() - 1); //delete last comma
-
-        topics.append(" }");
-
-        final Integer subscriptionIdentifier = subscribePacket.getSubscriptionIdentifier().orElse(null);
-        final String userPropertiesAsString = getUserPropertiesAsString(subscribePacket.getUserProperties());
-
-        LOG.info("Received SUBSCRIBE from client '{}': {}, Subscription Identifier: '{}', {}",
-                clientId,
-                topics,
-                subscriptionIdentifier,
-                userPropertiesAsString);
+        LOG.info(BuiltInTemplates.SUBSCRIBE_RECEIVED.get(verbose)
+                .render(subscribeInboundInput.getClientInformation().getClientId(),
+                        subscribeInboundInput.getSubscribePacket()));
     }
 
     public static void logSuback(final @NotNull SubackOutboundInput subackOutboundInput, final boolean verbose) {
-        final StringBuilder suback = new StringBuilder();
-        final String clientId = subackOutboundInput.getClientInformation().getClientId();
-        @NotNull final SubackPacket subackPacket = subackOutboundInput.getSubackPacket();
-
-        suback.append("Suback Reason Codes: {");
-        for (final SubackReasonCode sub : subackPacket.getReasonCodes()) {
-            suback.append(" [Reason Code: '").append(sub).append("'],");
-        }
-
-        suback.deleteCharAt(suback.length() - 1); //delete last comma
-        suback.append(" }");
-
-        if (!verbose) {
-            LOG.info("Sent SUBACK to client '{}': {}", clientId, suback);
-            return;
-        }
-
-        final String userPropertiesAsString = getUserPropertiesAsString(subackPacket.getUserProperties());
-        final String reasonString = subackPacket.getReasonString().orElse(null);
-
-        LOG.info("Sent SUBACK to client '{}': {}, Reason String: '{}', {}",
-                clientId,
-                suback,
-                reasonString,
-                userPropertiesAsString);
+        LOG.info(BuiltInTemplates.SUBACK_SEND.get(verbose)
+                .render(subackOutboundInput.getClientInformation().getClientId(),
+                        subackOutboundInput.getSubackPacket()));
     }
 
     public static void logUnsubscribe(
             final @NotNull UnsubscribeInboundInput unsubscribeInboundInput, final boolean verbose) {
-        final StringBuilder topics = new StringBuilder();
-        @NotNull final String clientId = unsubscribeInboundInput.getClientInformation().getClientId();
-        @NotNull final UnsubscribePacket unsubscribePacket = unsubscribeInboundInput.getUnsubscribePacket();
-
-        topics.append("Topics: {");
-        for (final String unsub : unsubscribePacket.getTopicFilters()) {
-            topics.append(" [Topic: '").append(unsub).append("'],");
-        }
-
-        topics.deleteCharAt(topics.length() - 1); //delete last comma
-        topics.append(" }");
-
-        if (!verbose) {
-            LOG.info("Received UNSUBSCRIBE from client '{}': {}", clientId, topics);
-            return;
-        }
-
-        final String userPropertiesAsString = getUserPropertiesAsString(unsubscribePacket.getUserProperties());
-
-        LOG.info("Received UNSUBSCRIBE from client '{}': {}, {}", clientId, topics, userPropertiesAsString);
+        LOG.info(BuiltInTemplates.UNSUBSCRIBE_RECEIVED.get(verbose)
+                .render(unsubscribeInboundInput.getClientInformation().getClientId(),
+                        unsubscribeInboundInput.getUnsubscribePacket()));
     }
 
     public static void logUnsuback(final @NotNull UnsubackOutboundInput unsubackOutboundInput, final boolean verbose) {
-        final StringBuilder unsuback = new StringBuilder();
-        final String clientId = unsubackOutboundInput.getClientInformation().getClientId();
-        final UnsubackPacket unsubackPacket = unsubackOutboundInput.getUnsubackPacket();
-
-        unsuback.append("Unsuback Reason Codes: {");
-        for (final UnsubackReasonCode unsubackReasonCode : unsubackPacket.getReasonCodes()) {
-            unsuback.append(" [Reason Code: '").append(unsubackReasonCode).append("'],");
-        }
-
-        unsuback.deleteCharAt(unsuback.length() - 1); //delete last comma
-        unsuback.append(" }");
-
-        if (!verbose) {
-            LOG.info("Sent UNSUBACK to client '{}': {}", clientId, unsuback);
-            return;
-        }
-
-        final String userPropertiesAsString = getUserPropertiesAsString(unsubackPacket.getUserProperties());
-        final String reasonString = unsubackPacket.getReasonString().orElse(null);
-
-        LOG.info("Sent UNSUBACK to client '{}': {}, Reason String: '{}', {}",
-                clientId,
-                unsuback,
-                reasonString,
-                userPropertiesAsString);
+        LOG.info(BuiltInTemplates.UNSUBACK_SEND.get(verbose)
+                .render(unsubackOutboundInput.getClientInformation().getClientId(),
+                        unsubackOutboundInput.getUnsubackPacket()));
     }
 
     public static void logPingreq(final @NotNull PingReqInboundInput pingReqInboundInput) {
-        final String clientId = pingReqInboundInput.getClientInformation().getClientId();
-
-        LOG.info("Received PING REQUEST from client '{}'", clientId);
+        LOG.info(BuiltInTemplates.PING_REQUEST_RECEIVED.get(false)
+                .render(pingReqInboundInput.getClientInformation().getClientId(), pingReqInboundInput));
     }
 
     public static void logPingresp(final @NotNull PingRespOutboundInput pingRespOutboundInput) {
-        final String clientId = pingRespOutboundInput.getClientInformation().getClientId();
-
-        LOG.info("Sent PING RESPONSE to client '{}'", clientId);
+        LOG.info(BuiltInTemplates.PING_RESPONSE_SEND.get(false)
+                .render(pingRespOutboundInput.getClientInformation().getClientId(), pingRespOutboundInput));
     }
 
     public static void logPuback(
@@ -400,33 +160,9 @@ public class MessageLogUtil {
             final @NotNull String clientId,
             final boolean inbound,
             final boolean verbose) {
-        final AckReasonCode reasonCode = pubackPacket.getReasonCode();
-
-        if (!verbose) {
-            if (inbound) {
-                LOG.info("Received PUBACK from client '{}': Reason Code: '{}'", clientId, reasonCode);
-            } else {
-                LOG.info("Sent PUBACK to client '{}': Reason Code: '{}'", clientId, reasonCode);
-            }
-            return;
-        }
-
-        final String userPropertiesAsString = getUserPropertiesAsString(pubackPacket.getUserProperties());
-        final String reasonString = pubackPacket.getReasonString().orElse(null);
-
-        if (inbound) {
-            LOG.info("Received PUBACK from client '{}': Reason Code: '{}', Reason String: '{}', {}",
-                    clientId,
-                    reasonCode,
-                    reasonString,
-                    userPropertiesAsString);
-        } else {
-            LOG.info("Sent PUBACK to client '{}': Reason Code: '{}', Reason String: '{}', {}",
-                    clientId,
-                    reasonCode,
-                    reasonString,
-                    userPropertiesAsString);
-        }
+        final BuiltInTemplates.Layout<PubackPacket> layout =
+                inbound ? BuiltInTemplates.PUBACK_RECEIVED : BuiltInTemplates.PUBACK_SEND;
+        LOG.info(layout.get(verbose).render(clientId, pubackPacket));
     }
 
     public static void logPubrec(
@@ -434,33 +170,9 @@ public class MessageLogUtil {
             final @NotNull String clientId,
             final boolean inbound,
             final boolean verbose) {
-        final AckReasonCode reasonCode = pubrecPacket.getReasonCode();
-
-        if (!verbose) {
-            if (inbound) {
-                LOG.info("Received PUBREC from client '{}': Reason Code: '{}'", clientId, reasonCode);
-            } else {
-                LOG.info("Sent PUBREC to client '{}': Reason Code: '{}'", clientId, reasonCode);
-            }
-            return;
-        }
-
-        final String userPropertiesAsString = getUserPropertiesAsString(pubrecPacket.getUserProperties());
-        final String reasonString = pubrecPacket.getReasonString().orElse(null);
-
-        if (inbound) {
-            LOG.info("Received PUBREC from client '{}': Reason Code: '{}', Reason String: '{}', {}",
-                    clientId,
-                    reasonCode,
-                    reasonString,
-                    userPropertiesAsString);
-        } else {
-            LOG.info("Sent PUBREC to client '{}': Reason Code: '{}', Reason String: '{}', {}",
-                    clientId,
-                    reasonCode,
-                    reasonString,
-                    userPropertiesAsString);
-        }
+        final BuiltInTemplates.Layout<PubrecPacket> layout =
+                inbound ? BuiltInTemplates.PUBREC_RECEIVED : BuiltInTemplates.PUBREC_SEND;
+        LOG.info(layout.get(verbose).render(clientId, pubrecPacket));
     }
 
     public static void logPubrel(
@@ -468,33 +180,9 @@ public class MessageLogUtil {
             final @NotNull String clientId,
             final boolean inbound,
             final boolean verbose) {
-        final PubrelReasonCode reasonCode = pubrelPacket.getReasonCode();
-
-        if (!verbose) {
-            if (inbound) {
-                LOG.info("Received PUBREL from client '{}': Reason Code: '{}'", clientId, reasonCode);
-            } else {
-                LOG.info("Sent PUBREL to client '{}': Reason Code: '{}'", clientId, reasonCode);
-            }
-            return;
-        }
-
-        final String userPropertiesAsString = getUserPropertiesAsString(pubrelPacket.getUserProperties());
-        final String reasonString = pubrelPacket.getReasonString().orElse(null);
-
-        if (inbound) {
-            LOG.info("Received PUBREL from client '{}': Reason Code: '{}', Reason String: '{}', {}",
-                    clientId,
-                    reasonCode,
-                    reasonString,
-                    userPropertiesAsString);
-        } else {
-            LOG.info("Sent PUBREL to client '{}': Reason Code: '{}', Reason String: '{}', {}",
-                    clientId,
-                    reasonCode,
-                    reasonString,
-                    userPropertiesAsString);
-        }
+        final BuiltInTemplates.Layout<PubrelPacket> layout =
+                inbound ? BuiltInTemplates.PUBREL_RECEIVED : BuiltInTemplates.PUBREL_SEND;
+        LOG.info(layout.get(verbose).render(clientId, pubrelPacket));
     }
 
     public static void logPubcomp(
@@ -502,80 +190,19 @@ public class MessageLogUtil {
             final @NotNull String clientId,
             final boolean inbound,
             final boolean verbose) {
-        final PubcompReasonCode reasonCode = pubcompPacket.getReasonCode();
-
-        if (!verbose) {
-            if (inbound) {
-                LOG.info("Received PUBCOMP from client '{}': Reason Code: '{}'", clientId, reasonCode);
-            } else {
-                LOG.info("Sent PUBCOMP to client '{}': Reason Code: '{}'", clientId, reasonCode);
-            }
-            return;
-        }
-
-        final String userPropertiesAsString = getUserPropertiesAsString(pubcompPacket.getUserProperties());
-        final String reasonString = pubcompPacket.getReasonString().orElse(null);
-
-        if (inbound) {
-            LOG.info("Received PUBCOMP from client '{}': Reason Code: '{}', Reason String: '{}', {}",
-                    clientId,
-                    reasonCode,
-                    reasonString,
-                    userPropertiesAsString);
-        } else {
-            LOG.info("Sent PUBCOMP to client '{}': Reason Code: '{}', Reason String: '{}', {}",
-                    clientId,
-                    reasonCode,
-                    reasonString,
-                    userPropertiesAsString);
-        }
+        final BuiltInTemplates.Layout<PubcompPacket> layout =
+                inbound ? BuiltInTemplates.PUBCOMP_RECEIVED : BuiltInTemplates.PUBCOMP_SEND;
+        LOG.info(layout.get(verbose).render(clientId, pubcompPacket));
     }
 
-    private static @NotNull String getPublishAsString(
-            final @NotNull PublishPacket publishPacket, final boolean verbose) {
-        final int qos = publishPacket.getQos().getQosNumber();
-        final boolean retained = publishPacket.getRetain();
-        final Optional<ByteBuffer> payload = publishPacket.getPayload();
-        final String payloadAsString = getStringFromByteBuffer(payload.orElse(null));
-
-        if (!verbose) {
-            return String.format("Payload: '%s'," + " QoS: '%s'," + " Retained: '%s'", payloadAsString, qos, retained);
-        }
-        final Optional<String> contentType = publishPacket.getContentType();
-        final String correlationDataString = getStringFromByteBuffer(publishPacket.getCorrelationData().orElse(null));
-        final Optional<String> responseTopic = publishPacket.getResponseTopic();
-        final Optional<Long> messageExpiryInterval = publishPacket.getMessageExpiryInterval();
-        final boolean dupFlag = publishPacket.getDupFlag();
-        final Optional<PayloadFormatIndicator> payloadFormatIndicator = publishPacket.getPayloadFormatIndicator();
-        final List<Integer> subscriptionIdentifiers = publishPacket.getSubscriptionIdentifiers();
-
-        final String userPropertiesAsString = getUserPropertiesAsString(publishPacket.getUserProperties());
-
-        return String.format("Payload: '%s'," +
-                        " QoS: '%s'," +
-                        " Retained: '%s'," +
-                        " Message Expiry Interval: '%s'," +
-                        " Duplicate Delivery: '%s'," +
-                        " Correlation Data: '%s'," +
-                        " Response Topic: '%s'," +
-                        " Content Type: '%s'," +
-                        " Payload Format Indicator: '%s'," +
-                        " Subscription Identifiers: '%s'," +
-                        " %s",
-                payloadAsString,
-                qos,
-                retained,
-                messageExpiryInterval.orElse(null),
-                dupFlag,
-                correlationDataString,
-                responseTopic.orElse(null),
-                contentType.orElse(null),
-                payloadFormatIndicator.orElse(null),
-                subscriptionIdentifiers,
-                userPropertiesAsString);
+    /**
+     * Logs a line that was already rendered completely, no placeholders are resolved.
+     */
+    public static void logLine(final @NotNull String line) {
+        LOG.info(line);
     }
 
-    private static @Nullable String getStringFromByteBuffer(final @Nullable ByteBuffer buffer) {
+    public static @Nullable String getStringFromByteBuffer(final @Nullable ByteBuffer buffer) {
         if (buffer == null) {
             return null;
         }
@@ -586,7 +213,7 @@ public class MessageLogUtil {
         return new String(bytes, UTF_8);
     }
 
-    private static @Nullable String getHexStringFromByteBuffer(final @Nullable ByteBuffer buffer) {
+    public static @Nullable String getHexStringFromByteBuffer(final @Nullable ByteBuffer buffer) {
         if (buffer == null) {
             return null;
         }
@@ -608,7 +235,7 @@ public class MessageLogUtil {
         return new String(out);
     }
 
-    private static @NotNull String getUserPropertiesAsString(final @Nullable UserProperties userProperties) {
+    public static @NotNull String getUserPropertiesAsString(final @Nullable UserProperties userProperties) {
         if (userProperties == null) {
             return "User Properties: 'null'";
         }
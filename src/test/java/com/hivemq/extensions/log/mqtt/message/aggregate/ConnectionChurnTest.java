@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.codahale.metrics.Meter;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 1.2.0
+ */
+class ConnectionChurnTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final @NotNull Meter connects = new Meter();
+    private final @NotNull List<String> lines = new ArrayList<>();
+    private final @NotNull ConnectionChurn connectionChurn = new ConnectionChurn(5, 60_000, 100, connects, lines::add);
+
+    @Test
+    void test_warns_once_per_window() {
+        for (int i = 0; i < 5; i++) {
+            assertFalse(connectionChurn.connected("client-1", i * SECOND));
+            connectionChurn.disconnected("client-1", "connection lost", i * SECOND);
+        }
+        assertTrue(connectionChurn.connected("client-1", 5 * SECOND));
+        assertFalse(connectionChurn.connected("client-1", 6 * SECOND));
+        assertFalse(connectionChurn.connected("client-2", 6 * SECOND));
+        assertEquals(8, connects.getCount());
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("Client 'client-1' connected 6 times within 60 s (0.10 per second), " +
+                "last disconnect reasons: "), lines.get(0));
+    }
+
+    @Test
+    void test_sliding_window() {
+        for (int i = 0; i < 5; i++) {
+            assertFalse(connectionChurn.connected("client-1", (50 + i) * SECOND));
+        }
+        // the windows start with the first connect, in the middle of the next window the previous one counts half
+        assertFalse(connectionChurn.connected("client-1", 140 * SECOND));
+        assertFalse(connectionChurn.connected("client-1", 140 * SECOND));
+        assertTrue(connectionChurn.connected("client-1", 140 * SECOND));
+    }
+
+    @Test
+    void test_previous_window_expires() {
+        for (int i = 0; i < 5; i++) {
+            assertFalse(connectionChurn.connected("client-1", i * SECOND));
+        }
+        assertFalse(connectionChurn.connected("client-1", 150 * SECOND));
+    }
+
+    @Test
+    void test_bounded_clients() {
+        final ConnectionChurn bounded = new ConnectionChurn(1, 60_000, 2, connects, lines::add);
+
+        bounded.connected("client-1", 0);
+        bounded.connected("client-2", 0);
+        bounded.connected("client-3", 0);
+        assertFalse(bounded.connected("client-3", 0));
+
+        assertEquals(2, bounded.size());
+        assertEquals(4, connects.getCount());
+    }
+
+    @Test
+    void test_idle_clients_removed() {
+        connectionChurn.connected("client-1", 0);
+        connectionChurn.connected("client-2", 100 * SECOND);
+
+        connectionChurn.report(130 * SECOND);
+
+        assertEquals(1, connectionChurn.size());
+    }
+
+    @Test
+    void test_authentication_failures_reported() {
+        for (int i = 0; i < 3; i++) {
+            connectionChurn.authenticationFailed("client-1");
+        }
+        connectionChurn.authenticationFailed("client-2");
+
+        connectionChurn.report(0);
+        connectionChurn.report(0);
+
+        assertEquals(List.of("Failed authentications of the last 60 s: 4, by client: 'client-1' 3, 'client-2' 1"),
+                lines);
+    }
+
+    @Test
+    void test_authentication_failures_of_untracked_clients() {
+        final ConnectionChurn bounded = new ConnectionChurn(1, 60_000, 0, connects, lines::add);
+
+        bounded.authenticationFailed("client-1");
+        bounded.report(0);
+
+        assertEquals(List.of("Failed authentications of the last 60 s: 1"), lines);
+    }
+}
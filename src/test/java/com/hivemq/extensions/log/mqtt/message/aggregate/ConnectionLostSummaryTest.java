@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.codahale.metrics.MetricRegistry;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.sink.ClientFileSink;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 1.2.0
+ */
+class ConnectionLostSummaryTest {
+
+    @TempDir
+    @NotNull Path directory;
+
+    private final @NotNull List<String> lines = new ArrayList<>();
+
+    @Test
+    void test_logged_individually_up_to_max_lines() {
+        final ConnectionLostSummary summary = new ConnectionLostSummary("", 2, "-", lines::add, false);
+
+        summary.connectionLost("truck-1", "tcp-1883");
+        summary.connectionLost("truck-2", "tcp-1883");
+        summary.connectionLost("truck-3", "tcp-1883");
+
+        assertEquals(List.of("Lost connection to client 'truck-1' on listener 'tcp-1883'",
+                "Lost connection to client 'truck-2' on listener 'tcp-1883'"), lines);
+    }
+
+    @Test
+    void test_summary_per_listener_and_prefix() {
+        final ConnectionLostSummary summary = new ConnectionLostSummary("", 1, "-", lines::add, false);
+        for (int i = 0; i < 3; i++) {
+            summary.connectionLost("truck-" + i, "tcp-1883");
+        }
+        summary.connectionLost("car-1", "tls-8883");
+        summary.connectionLost("truck-9", null);
+        lines.clear();
+
+        summary.report();
+
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("Lost connections of the last "), lines.get(0));
+        assertTrue(lines.get(0).contains(": 5 ("), lines.get(0));
+        assertTrue(lines.get(0).endsWith(", 4 not logged individually, per listener and client prefix:" +
+                " 'tcp-1883' 'truck' 3, '(unknown)' 'truck' 1, 'tls-8883' 'car' 1"), lines.get(0));
+    }
+
+    @Test
+    void test_next_interval() {
+        final ConnectionLostSummary summary = new ConnectionLostSummary("", 1, "-", lines::add, false);
+        summary.connectionLost("truck-1", "tcp-1883");
+        summary.report();
+        lines.clear();
+
+        summary.report();
+        assertTrue(lines.isEmpty());
+
+        summary.connectionLost("truck-2", "tcp-1883");
+        assertEquals(List.of("Lost connection to client 'truck-2' on listener 'tcp-1883'"), lines);
+    }
+
+    @Test
+    void test_client_regex_only_applies_to_lines() {
+        final ConnectionLostSummary summary = new ConnectionLostSummary("car-.*", 10, "-", lines::add, false);
+
+        summary.connectionLost("truck-1", "tcp-1883");
+        assertTrue(lines.isEmpty());
+
+        summary.report();
+        assertTrue(lines.get(0).contains(": 1 ("), lines.get(0));
+    }
+
+    @Test
+    void test_json() {
+        final ConnectionLostSummary summary = new ConnectionLostSummary("", 1, "-", lines::add, true);
+
+        summary.connectionLost("truck-1", "tcp-1883");
+
+        assertTrue(lines.get(0).startsWith("{\"timestamp\":\""), lines.get(0));
+        assertTrue(lines.get(0).endsWith(
+                "\"event\":\"connection-lost\",\"clientId\":\"truck-1\",\"listener\":\"tcp-1883\"}"), lines.get(0));
+    }
+
+    @Test
+    void test_written_to_the_configured_sink() throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("connection-lost", "true");
+        final MqttMessageLogConfig config = new MqttMessageLogConfig(properties);
+        try (final ClientFileSink sink = ClientFileSink.open(directory, false, 16, 60_000, 60_000);
+             final Aggregations aggregations = Aggregations.create(config, new MetricRegistry(), true, sink)) {
+            final ConnectionLostSummary summary = aggregations.getConnectionLostSummary();
+            assertNotNull(summary);
+
+            summary.connectionLost("truck-1", "tcp-1883");
+            sink.flush();
+
+            assertEquals("Lost connection to client 'truck-1' on listener 'tcp-1883'\n",
+                    Files.readString(directory.resolve("truck-1.log"), UTF_8));
+        }
+    }
+}
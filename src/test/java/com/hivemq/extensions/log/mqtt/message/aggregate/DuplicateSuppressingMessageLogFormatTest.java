@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectReasonCode;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
+import com.hivemq.extensions.log.mqtt.message.sink.LineSink;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 1.2.0
+ */
+class DuplicateSuppressingMessageLogFormatTest {
+
+    private final @NotNull List<String> lines = new ArrayList<>();
+    private final @NotNull LineSink sink = lines::add;
+    private final @NotNull MessageLogFormat delegate = mock(MessageLogFormat.class);
+
+    @Test
+    void test_consecutive_duplicates_are_collapsed() {
+        final DuplicateSuppressingMessageLogFormat format =
+                new DuplicateSuppressingMessageLogFormat(delegate, sink, false, 100);
+        final PublishPacket stuck = publish("devices/1", "retry");
+        final PublishPacket other = publish("devices/1", "ok");
+        for (int i = 0; i < 5; i++) {
+            format.logPublish("device-1", stuck, true, false);
+        }
+        format.logPublish("device-1", other, true, false);
+
+        verify(delegate).logPublish("device-1", stuck, true, false);
+        verify(delegate).logPublish("device-1", other, true, false);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("Received PUBLISH from client 'device-1' repeated 4 times over "),
+                lines.get(0));
+    }
+
+    @Test
+    void test_clients_and_packet_types_are_separate() {
+        final DuplicateSuppressingMessageLogFormat format =
+                new DuplicateSuppressingMessageLogFormat(delegate, sink, false, 100);
+        final PublishPacket publish = publish("topic", "payload");
+        final DisconnectPacket disconnect = disconnect(DisconnectReasonCode.UNSPECIFIED_ERROR);
+        format.logPublish("client-1", publish, true, false);
+        format.logPublish("client-2", publish, true, false);
+        format.logPublish("client-1", publish, false, false);
+        format.logDisconnect(disconnect, "client-1", true, false);
+        format.logDisconnect(disconnect, "client-1", true, false);
+        format.logDisconnect(disconnect(DisconnectReasonCode.NORMAL_DISCONNECTION), "client-1", true, false);
+
+        verify(delegate).logPublish("client-1", publish, true, false);
+        verify(delegate).logPublish("client-2", publish, true, false);
+        verify(delegate).logPublish("client-1", publish, false, false);
+        verify(delegate, times(1)).logDisconnect(disconnect, "client-1", true, false);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("Received DISCONNECT from client 'client-1' repeated 1 times"),
+                lines.get(0));
+    }
+
+    @Test
+    void test_flush_writes_pending_repetitions_as_json() {
+        final DuplicateSuppressingMessageLogFormat format =
+                new DuplicateSuppressingMessageLogFormat(delegate, sink, true, 100);
+        final PublishPacket publish = publish("topic", "payload");
+        format.logPublish("client", publish, false, false);
+        format.logPublish("client", publish, false, false);
+        format.logPublish("client", publish, false, false);
+
+        format.flush();
+
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).contains(
+                "\"direction\":\"out\",\"packetType\":\"PUBLISH\",\"clientId\":\"client\",\"repeated\":2,"),
+                lines.get(0));
+
+        // the client is still remembered, further repetitions stay suppressed
+        format.logPublish("client", publish, false, false);
+        verify(delegate, times(1)).logPublish("client", publish, false, false);
+
+        // clients without events since the previous flush are forgotten
+        format.flush();
+        assertEquals(1, format.getClients());
+        format.flush();
+        assertEquals(0, format.getClients());
+    }
+
+    @Test
+    void test_clients_are_bounded() {
+        final DuplicateSuppressingMessageLogFormat format =
+                new DuplicateSuppressingMessageLogFormat(delegate, sink, false, 10);
+        final PublishPacket publish = publish("topic", "payload");
+        for (int i = 0; i < 25; i++) {
+            format.logPublish("client-" + i, publish, true, false);
+        }
+        assertTrue(format.getClients() <= 10);
+    }
+
+    @Test
+    void test_flush_evicts_least_recently_active_clients() {
+        final DuplicateSuppressingMessageLogFormat format =
+                new DuplicateSuppressingMessageLogFormat(delegate, sink, false, 4);
+        final PublishPacket publish = publish("topic", "payload");
+        for (int i = 0; i < 4; i++) {
+            format.logPublish("client-" + i, publish, true, false);
+            format.logPublish("client-" + i, publish, true, false);
+        }
+        // while all clients are remembered, the events of a new client are not suppressed
+        format.logPublish("client-4", publish, true, false);
+        format.logPublish("client-4", publish, true, false);
+        verify(delegate, times(2)).logPublish("client-4", publish, true, false);
+        assertEquals(4, format.getClients());
+
+        format.flush();
+
+        // the repetitions of the evicted clients are reported as well
+        assertEquals(4, lines.size());
+        assertEquals(3, format.getClients());
+        format.logPublish("client-0", publish, true, false);
+        verify(delegate, times(2)).logPublish("client-0", publish, true, false);
+        format.logPublish("client-3", publish, true, false);
+        verify(delegate, times(1)).logPublish("client-3", publish, true, false);
+    }
+
+    private static @NotNull PublishPacket publish(final @NotNull String topic, final @NotNull String payload) {
+        final PublishPacket publishPacket = mock(PublishPacket.class);
+        when(publishPacket.getTopic()).thenReturn(topic);
+        when(publishPacket.getPayload()).thenReturn(Optional.of(ByteBuffer.wrap(payload.getBytes(UTF_8))));
+        return publishPacket;
+    }
+
+    private static @NotNull DisconnectPacket disconnect(final @NotNull DisconnectReasonCode reasonCode) {
+        final DisconnectPacket disconnectPacket = mock(DisconnectPacket.class);
+        when(disconnectPacket.getReasonCode()).thenReturn(reasonCode);
+        return disconnectPacket;
+    }
+}
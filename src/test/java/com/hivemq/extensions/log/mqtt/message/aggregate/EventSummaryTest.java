@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundInput;
+import com.hivemq.extension.sdk.api.packets.puback.PubackPacket;
+import com.hivemq.extensions.log.mqtt.message.aggregate.EventSummary.Event;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static util.PacketUtil.createEmptyPuback;
+import static util.PacketUtil.createPingreq;
+
+/**
+ * @since 1.2.0
+ */
+class EventSummaryTest {
+
+    private final @NotNull List<String> lines = new ArrayList<>();
+
+    @Test
+    void test_summarized_events_are_counted_others_passed_on() {
+        final EventSummary summary = new EventSummary(EnumSet.of(Event.PINGREQ_RECEIVED), "-", lines::add);
+        final MessageLogFormat delegate = mock(MessageLogFormat.class);
+        final SummaryMessageLogFormat format = new SummaryMessageLogFormat(delegate, summary);
+
+        final PingReqInboundInput pingReqInboundInput = createPingreq();
+        format.logPingreq(pingReqInboundInput);
+        final PubackPacket pubackPacket = createEmptyPuback();
+        format.logPuback(pubackPacket, "clientId", true, false);
+
+        verify(delegate).logPuback(pubackPacket, "clientId", true, false);
+        summary.report();
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains(": PINGREQ in 1 ("), lines.get(0));
+        assertEquals("Summary of PINGREQ in per client prefix: 'clientId' 1", lines.get(1));
+    }
+
+    @Test
+    void test_counts_per_client_prefix() {
+        final EventSummary summary =
+                new EventSummary(EnumSet.of(Event.PINGREQ_RECEIVED, Event.PINGRESP_SEND), "-_", lines::add);
+        for (int i = 0; i < 30; i++) {
+            summary.count(Event.PINGREQ_RECEIVED, "sensor-" + i);
+            summary.count(Event.PINGRESP_SEND, "sensor-" + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            summary.count(Event.PINGREQ_RECEIVED, "gateway_" + i);
+        }
+
+        summary.report();
+
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).contains(": PINGREQ in 40 ("), lines.get(0));
+        assertTrue(lines.get(0).contains(", PINGRESP out 30 ("), lines.get(0));
+        assertEquals("Summary of PINGREQ in per client prefix: 'sensor' 30, 'gateway' 10", lines.get(1));
+        assertEquals("Summary of PINGRESP out per client prefix: 'sensor' 30", lines.get(2));
+
+        // the next interval starts from zero
+        summary.report();
+        assertEquals(3, lines.size());
+    }
+
+    @Test
+    void test_prefixes_are_bounded() {
+        final EventSummary summary = new EventSummary(EnumSet.of(Event.CONNECT_RECEIVED), "-", lines::add);
+        for (int i = 0; i < EventSummary.MAX_PREFIXES + 10; i++) {
+            summary.count(Event.CONNECT_RECEIVED, "client" + i);
+        }
+
+        summary.report();
+
+        assertTrue(lines.get(1).startsWith("Summary of CONNECT in per client prefix: '(other)' 10, "), lines.get(1));
+        assertTrue(lines.get(1).endsWith(" and " + (EventSummary.MAX_PREFIXES + 1 - EventSummary.REPORTED_PREFIXES) +
+                " more prefixes"), lines.get(1));
+    }
+
+    @Test
+    void test_create_from_config() {
+        final Properties properties = new Properties();
+        assertNull(EventSummary.create(new MqttMessageLogConfig(properties), lines::add));
+
+        properties.setProperty("ping-request-received-mode", "summary");
+        properties.setProperty("ping-response-send-mode", "invalid");
+        final EventSummary summary = EventSummary.create(new MqttMessageLogConfig(properties), lines::add);
+        assertNotNull(summary);
+        assertTrue(summary.isSummarized(Event.PINGREQ_RECEIVED));
+        assertFalse(summary.isSummarized(Event.PINGRESP_SEND));
+    }
+
+    @Test
+    void test_nothing_reported_without_events() {
+        final EventSummary summary = new EventSummary(EnumSet.of(Event.CONNECT_RECEIVED), "-", lines::add);
+
+        summary.report();
+
+        assertTrue(lines.isEmpty());
+    }
+}
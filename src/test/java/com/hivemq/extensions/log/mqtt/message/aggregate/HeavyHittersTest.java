@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 1.2.0
+ */
+class HeavyHittersTest {
+
+    private final @NotNull List<String> lines = new ArrayList<>();
+
+    @Test
+    void test_heavy_hitters_of_skewed_stream() {
+        final HeavyHitters heavyHitters = new HeavyHitters(2, lines::add);
+        for (int i = 0; i < 5000; i++) {
+            heavyHitters.add("client-" + i, "topic/" + i, 1);
+        }
+        for (int i = 0; i < 1000; i++) {
+            heavyHitters.add("heavy-1", "sensors/1", 10);
+            if (i % 2 == 0) {
+                heavyHitters.add("heavy-2", "sensors/2", 100);
+            }
+        }
+
+        heavyHitters.report();
+
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(0).endsWith(": 6500 PUBLISH messages, 65000 bytes"), lines.get(0));
+        assertTrue(lines.get(1).startsWith("Top clients by messages: 'heavy-1' 10"), lines.get(1));
+        assertTrue(lines.get(1).contains(", 'heavy-2' 50"), lines.get(1));
+        assertTrue(lines.get(2).startsWith("Top clients by bytes: 'heavy-2' 50"), lines.get(2));
+        assertTrue(lines.get(3).startsWith("Top topics by messages: 'sensors/1' 10"), lines.get(3));
+        assertTrue(lines.get(4).startsWith("Top topics by bytes: 'sensors/2' 50"), lines.get(4));
+    }
+
+    @Test
+    void test_merges_threads() throws InterruptedException {
+        final HeavyHitters heavyHitters = new HeavyHitters(1, lines::add);
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    heavyHitters.add("client", "topic", 2);
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        heavyHitters.report();
+
+        assertEquals("Top clients by messages: 'client' 4000 messages 8000 bytes", lines.get(1));
+    }
+
+    @Test
+    void test_report_starts_new_interval() {
+        final HeavyHitters heavyHitters = new HeavyHitters(1, lines::add);
+        heavyHitters.add("client", "topic", 2);
+        heavyHitters.report();
+        heavyHitters.report();
+        assertEquals(5, lines.size());
+
+        heavyHitters.add("client", "topic", 2);
+        heavyHitters.report();
+        assertEquals("Top topics by bytes: 'topic' 1 messages 2 bytes", lines.get(9));
+    }
+}
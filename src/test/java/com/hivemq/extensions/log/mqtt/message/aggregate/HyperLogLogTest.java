@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extensions.log.mqtt.message.util.Hashing;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 1.2.0
+ */
+class HyperLogLogTest {
+
+    private final HyperLogLog hyperLogLog = new HyperLogLog();
+
+    @Test
+    void test_small_cardinality() {
+        for (int i = 0; i < 20; i++) {
+            for (int repeat = 0; repeat < 10; repeat++) {
+                hyperLogLog.add(Hashing.hash64("topic/" + i));
+            }
+        }
+        assertEquals(20, hyperLogLog.estimate(), 2);
+    }
+
+    @Test
+    void test_large_cardinality() {
+        for (int i = 0; i < 100_000; i++) {
+            hyperLogLog.add(Hashing.hash64("device/" + i + "/temperature"));
+        }
+        assertEquals(100_000, hyperLogLog.estimate(), 20_000);
+    }
+
+    @Test
+    void test_repeated_key_does_not_change_registers() {
+        assertTrue(hyperLogLog.add(Hashing.hash64("topic")));
+        assertFalse(hyperLogLog.add(Hashing.hash64("topic")));
+        assertEquals(1, hyperLogLog.estimate());
+    }
+
+    @Test
+    void test_clear() {
+        for (int i = 0; i < 1000; i++) {
+            hyperLogLog.add(Hashing.hash64("topic/" + i));
+        }
+        hyperLogLog.clear();
+        assertEquals(0, hyperLogLog.estimate());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.UniformReservoir;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.client.parameter.ClientInformation;
+import com.hivemq.extension.sdk.api.client.parameter.ConnectionAttributeStore;
+import com.hivemq.extension.sdk.api.client.parameter.ConnectionInformation;
+import com.hivemq.extension.sdk.api.events.client.parameters.ConnectionStartInput;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 1.2.0
+ */
+class KeepAliveHealthTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final @NotNull List<String> lines = new ArrayList<>();
+    private final @NotNull Histogram jitter = new Histogram(new UniformReservoir());
+    private final @NotNull KeepAliveHealth keepAliveHealth = new KeepAliveHealth(110, 25, jitter, lines::add, false);
+
+    @Test
+    void test_regular_pings_not_logged() {
+        final KeepAliveHealth.Connection connection = new KeepAliveHealth.Connection(60_000, 0);
+
+        keepAliveHealth.pingReceived("client-1", connection, 60 * SECOND);
+        keepAliveHealth.pingReceived("client-1", connection, 119 * SECOND);
+
+        assertTrue(lines.isEmpty());
+        assertArrayEquals(new long[]{-1000, 0}, jitter.getSnapshot().getValues());
+    }
+
+    @Test
+    void test_late_ping() {
+        final KeepAliveHealth.Connection connection = new KeepAliveHealth.Connection(60_000, 0);
+
+        keepAliveHealth.pingReceived("client-1", connection, 70 * SECOND);
+
+        assertEquals(List.of("Received late PINGREQ from client 'client-1': 70000 ms after the last packet," +
+                " Keep Alive: '60'"), lines);
+    }
+
+    @Test
+    void test_interval_starts_with_last_packet() {
+        final KeepAliveHealth.Connection connection = new KeepAliveHealth.Connection(60_000, 0);
+
+        connection.received(30 * SECOND);
+        keepAliveHealth.pingReceived("client-1", connection, 90 * SECOND);
+
+        assertTrue(lines.isEmpty());
+    }
+
+    @Test
+    void test_early_ping_reported_once() {
+        final KeepAliveHealth.Connection connection = new KeepAliveHealth.Connection(60_000, 0);
+
+        keepAliveHealth.pingReceived("client-1", connection, 5 * SECOND);
+        keepAliveHealth.pingReceived("client-1", connection, 10 * SECOND);
+
+        assertEquals(List.of("Received early PINGREQ from client 'client-1': 5000 ms after the last packet," +
+                " Keep Alive: '60'"), lines);
+        assertEquals(2, jitter.getCount());
+    }
+
+    @Test
+    void test_missing_ping_before_disconnect() {
+        final ConnectionStartInput input = connection("client-1", 60);
+        keepAliveHealth.connectionStarted(input);
+        final KeepAliveHealth.Connection connection = keepAliveHealth.connected(input);
+        assertNotNull(connection);
+        connection.received(0);
+
+        keepAliveHealth.disconnected(input, "connection lost", 90 * SECOND);
+
+        assertEquals(List.of("Missing PINGREQ from client 'client-1' before 'connection lost': " +
+                "no packet for 90000 ms, Keep Alive: '60'"), lines);
+        assertEquals(0, keepAliveHealth.size());
+    }
+
+    @Test
+    void test_disconnect_in_time() {
+        final ConnectionStartInput input = connection("client-1", 60);
+        keepAliveHealth.connectionStarted(input);
+        final KeepAliveHealth.Connection connection = keepAliveHealth.connected(input);
+        assertNotNull(connection);
+        connection.received(0);
+
+        keepAliveHealth.disconnected(input, "client DISCONNECT", 30 * SECOND);
+
+        assertTrue(lines.isEmpty());
+        assertEquals(0, keepAliveHealth.size());
+    }
+
+    @Test
+    void test_keep_alive_disabled() {
+        final ConnectionStartInput input = connection("client-1", 0);
+        keepAliveHealth.connectionStarted(input);
+
+        assertNull(keepAliveHealth.connected(input));
+        assertEquals(0, keepAliveHealth.size());
+    }
+
+    @Test
+    void test_json() {
+        final KeepAliveHealth json = new KeepAliveHealth(110, 25, jitter, lines::add, true);
+
+        json.pingReceived("client-1", new KeepAliveHealth.Connection(60_000, 0), 70 * SECOND);
+
+        assertTrue(lines.get(0).endsWith("\"event\":\"keep-alive\",\"clientId\":\"client-1\",\"anomaly\":\"late\"," +
+                "\"intervalMs\":70000,\"keepAliveMs\":60000}"), lines.get(0));
+    }
+
+    private static @NotNull ConnectionStartInput connection(final @NotNull String clientId, final int keepAlive) {
+        final Map<String, ByteBuffer> attributes = new HashMap<>();
+        final ConnectionAttributeStore attributeStore = mock(ConnectionAttributeStore.class);
+        when(attributeStore.remove(anyString())).thenAnswer(invocation -> Optional.ofNullable(attributes.remove(
+                invocation.<String>getArgument(0))));
+        doAnswer(invocation -> attributes.put(invocation.getArgument(0),
+                invocation.getArgument(1))).when(attributeStore).put(anyString(), any(ByteBuffer.class));
+        final ConnectionInformation connectionInformation = mock(ConnectionInformation.class);
+        when(connectionInformation.getConnectionAttributeStore()).thenReturn(attributeStore);
+        final ClientInformation clientInformation = mock(ClientInformation.class);
+        when(clientInformation.getClientId()).thenReturn(clientId);
+        final ConnectPacket connectPacket = mock(ConnectPacket.class);
+        when(connectPacket.getKeepAlive()).thenReturn(keepAlive);
+        final ConnectionStartInput input = mock(ConnectionStartInput.class);
+        when(input.getConnectionInformation()).thenReturn(connectionInformation);
+        when(input.getClientInformation()).thenReturn(clientInformation);
+        when(input.getConnectPacket()).thenReturn(connectPacket);
+        return input;
+    }
+}
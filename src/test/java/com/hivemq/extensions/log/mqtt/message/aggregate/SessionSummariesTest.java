@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.client.parameter.ClientInformation;
+import com.hivemq.extension.sdk.api.client.parameter.ConnectionAttributeStore;
+import com.hivemq.extension.sdk.api.client.parameter.ConnectionInformation;
+import com.hivemq.extension.sdk.api.parameter.ClientBasedInput;
+import com.hivemq.extensions.log.mqtt.message.aggregate.EventSummary.Event;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 1.2.0
+ */
+class SessionSummariesTest {
+
+    private final @NotNull List<String> lines = new ArrayList<>();
+
+    @Test
+    void test_summary_text() {
+        final SessionStats stats = new SessionStats("client-1", 0);
+        stats.subscribed(2);
+        stats.packet(Event.SUBACK_SEND);
+        stats.publish(true, 0, 10);
+        stats.publish(true, 1, 20);
+        stats.publish(true, 1, 30);
+        stats.packet(Event.PUBACK_SEND);
+        stats.acknowledged(false);
+        stats.publish(false, 2, 5);
+        stats.packet(Event.PUBREC_RECEIVED);
+        stats.packet(Event.PUBREL_SEND);
+        stats.packet(Event.PUBCOMP_RECEIVED);
+        stats.acknowledged(true);
+        stats.packet(Event.DISCONNECT_RECEIVED);
+
+        assertEquals("Session of client 'client-1' ended after 1500 ms: Disconnect: 'client DISCONNECT'," +
+                " Packets In: 'DISCONNECT 1, PUBLISH 3, SUBSCRIBE 1, PUBREC 1, PUBCOMP 1'," +
+                " Packets Out: 'PUBLISH 1, SUBACK 1, PUBACK 1, PUBREL 1', Bytes In: '60', Bytes Out: '5'," +
+                " QoS In: '0: 1, 1: 2, 2: 0', QoS Out: '0: 0, 1: 0, 2: 1', Max In-Flight In: '2'," +
+                " Max In-Flight Out: '1', Subscriptions: '2', Unsubscriptions: '0'",
+                stats.summary("client DISCONNECT", 1_500_000_000L, false));
+    }
+
+    @Test
+    void test_summary_json() {
+        final SessionStats stats = new SessionStats("client-1", 0);
+        stats.publish(false, 1, 7);
+        stats.packet(Event.PINGREQ_RECEIVED);
+
+        final String json = stats.summary("connection lost", 2_000_000L, true);
+
+        assertTrue(json.startsWith("{\"timestamp\":\""), json);
+        assertTrue(json.endsWith("\"event\":\"session\",\"clientId\":\"client-1\",\"durationMs\":2," +
+                "\"disconnect\":\"connection lost\",\"packetsIn\":{\"PINGREQ\":1},\"packetsOut\":{\"PUBLISH\":1}," +
+                "\"bytesIn\":0,\"bytesOut\":7,\"qosIn\":[0,0,0],\"qosOut\":[0,1,0],\"maxInFlightIn\":0," +
+                "\"maxInFlightOut\":1,\"subscriptions\":0,\"unsubscriptions\":0}"), json);
+    }
+
+    @Test
+    void test_acknowledgements_of_previous_connection_ignored() {
+        final SessionStats stats = new SessionStats("client-1", 0);
+        stats.acknowledged(true);
+        stats.acknowledged(true);
+        stats.publish(false, 1, 0);
+
+        assertTrue(stats.summary("", 0, false).contains("Max In-Flight Out: '1'"));
+    }
+
+    @Test
+    void test_summary_written_on_disconnect() {
+        final SessionSummaries sessionSummaries = new SessionSummaries("", lines::add, false);
+        final ClientBasedInput connection = connection("client-1");
+
+        final SessionStats stats = sessionSummaries.connected(connection);
+        assertNotNull(stats);
+        stats.publish(true, 0, 3);
+        assertEquals(1, sessionSummaries.size());
+
+        sessionSummaries.disconnected(connection, "connection lost");
+
+        assertEquals(0, sessionSummaries.size());
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("Session of client 'client-1' ended after "), lines.get(0));
+        assertTrue(lines.get(0).contains("Disconnect: 'connection lost', Packets In: 'PUBLISH 1'"), lines.get(0));
+    }
+
+    @Test
+    void test_session_take_over() {
+        final SessionSummaries sessionSummaries = new SessionSummaries("", lines::add, false);
+        final ClientBasedInput previous = connection("client-1");
+        final ClientBasedInput next = connection("client-1");
+
+        final SessionStats previousStats = sessionSummaries.connected(previous);
+        final SessionStats nextStats = sessionSummaries.connected(next);
+        assertNotNull(previousStats);
+        assertNotNull(nextStats);
+        nextStats.publish(true, 0, 3);
+
+        sessionSummaries.disconnected(previous, "server DISCONNECT SESSION_TAKEN_OVER");
+
+        assertEquals(1, sessionSummaries.size());
+        assertTrue(lines.get(0).contains("Packets In: ''"), lines.get(0));
+    }
+
+    @Test
+    void test_client_regex() {
+        final SessionSummaries sessionSummaries =
+                new SessionSummaries("sensor-.*", lines::add, false);
+        final ClientBasedInput connection = connection("client-1");
+
+        assertNull(sessionSummaries.connected(connection));
+
+        sessionSummaries.disconnected(connection, "connection lost");
+        assertTrue(lines.isEmpty());
+    }
+
+    @Test
+    void test_disconnect_without_connect() {
+        final SessionSummaries sessionSummaries = new SessionSummaries("", lines::add, false);
+
+        sessionSummaries.disconnected(connection("client-1"), "authentication failed");
+
+        assertTrue(lines.isEmpty());
+    }
+
+    private static @NotNull ClientBasedInput connection(final @NotNull String clientId) {
+        final Map<String, ByteBuffer> attributes = new HashMap<>();
+        final ConnectionAttributeStore attributeStore = mock(ConnectionAttributeStore.class);
+        when(attributeStore.remove(anyString())).thenAnswer(invocation -> Optional.ofNullable(attributes.remove(
+                invocation.<String>getArgument(0))));
+        doAnswer(invocation -> attributes.put(invocation.getArgument(0),
+                invocation.getArgument(1))).when(attributeStore).put(anyString(), any(ByteBuffer.class));
+        final ConnectionInformation connectionInformation = mock(ConnectionInformation.class);
+        when(connectionInformation.getConnectionAttributeStore()).thenReturn(attributeStore);
+        final ClientInformation clientInformation = mock(ClientInformation.class);
+        when(clientInformation.getClientId()).thenReturn(clientId);
+        final ClientBasedInput input = mock(ClientBasedInput.class);
+        when(input.getConnectionInformation()).thenReturn(connectionInformation);
+        when(input.getClientInformation()).thenReturn(clientInformation);
+        return input;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 1.2.0
+ */
+class TopicCardinalityTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void test_warns_once_per_window() {
+        final TopicCardinality topicCardinality = new TopicCardinality(100, 60_000, 0);
+        int exceeded = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (topicCardinality.add("client", "topic/" + i, SECOND)) {
+                exceeded++;
+            }
+        }
+        assertEquals(1, exceeded);
+
+        // the next window starts counting from zero
+        assertFalse(topicCardinality.add("client", "topic/a", 61 * SECOND));
+        assertEquals(1, topicCardinality.estimate());
+        for (int i = 0; i < 1000; i++) {
+            if (topicCardinality.add("client", "topic/" + i, 62 * SECOND)) {
+                exceeded++;
+            }
+        }
+        assertEquals(2, exceeded);
+    }
+
+    @Test
+    void test_same_topics_do_not_exceed() {
+        final TopicCardinality topicCardinality = new TopicCardinality(10, 60_000, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(topicCardinality.add("client", "topic/" + (i % 5), SECOND));
+        }
+        assertTrue(topicCardinality.estimate() <= 6);
+    }
+}
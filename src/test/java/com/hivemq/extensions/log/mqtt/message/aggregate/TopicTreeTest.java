@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.aggregate;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 1.2.0
+ */
+class TopicTreeTest {
+
+    private final @NotNull List<String> lines = new ArrayList<>();
+
+    @Test
+    void test_counts_per_level() {
+        final TopicTree topicTree = new TopicTree(2, 100, lines::add);
+        topicTree.add("plant/line-1/temperature", 10);
+        topicTree.add("plant/line-1/humidity", 10);
+        topicTree.add("plant/line-2", 5);
+        topicTree.add("office", 1);
+
+        topicTree.report();
+
+        assertEquals(List.of("Topic tree of the last 0 s: 4 PUBLISH messages, 26 bytes",
+                "  plant 3 messages 25 bytes",
+                "    plant/line-1 2 messages 20 bytes",
+                "    plant/line-2 1 messages 5 bytes",
+                "  office 1 messages 1 bytes"), lines);
+    }
+
+    @Test
+    void test_collapses_levels_above_node_budget() {
+        final TopicTree topicTree = new TopicTree(3, 3, lines::add);
+        for (int i = 0; i < 10; i++) {
+            topicTree.add("devices/" + i + "/status", 1);
+        }
+        assertEquals(3, topicTree.getNodes());
+
+        topicTree.report();
+
+        assertEquals(List.of("Topic tree of the last 0 s: 10 PUBLISH messages, 10 bytes",
+                "  devices 10 messages 10 bytes",
+                "    devices/+ 9 messages 9 bytes",
+                "      devices/+/+ 9 messages 9 bytes",
+                "    devices/0 1 messages 1 bytes",
+                "      devices/0/status 1 messages 1 bytes"), lines);
+    }
+
+    @Test
+    void test_removes_cold_branches() {
+        final TopicTree topicTree = new TopicTree(3, 3, lines::add);
+        topicTree.add("a/b/c", 1);
+        assertEquals(3, topicTree.getNodes());
+        topicTree.report();
+
+        topicTree.report();
+        assertEquals(0, topicTree.getNodes());
+
+        topicTree.add("d/e/f", 1);
+        lines.clear();
+        topicTree.report();
+        assertTrue(lines.contains("      d/e/f 1 messages 1 bytes"), lines.toString());
+    }
+}
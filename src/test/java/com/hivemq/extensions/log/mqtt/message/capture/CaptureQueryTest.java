@@ -0,0 +1,287 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.general.Qos;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
+import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import util.LogbackTestAppender;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static util.PacketUtil.createFullConnack;
+import static util.PacketUtil.createFullConnect;
+import static util.PacketUtil.createFullDisconnect;
+import static util.PacketUtil.createFullPuback;
+import static util.PacketUtil.createFullPubcomp;
+import static util.PacketUtil.createFullPublish;
+import static util.PacketUtil.createFullPubrec;
+import static util.PacketUtil.createFullPubrel;
+import static util.PacketUtil.createFullSuback;
+import static util.PacketUtil.createFullSubsribe;
+import static util.PacketUtil.createFullUnsuback;
+import static util.PacketUtil.createFullUnsubsribe;
+import static util.PacketUtil.createPingreq;
+import static util.PacketUtil.createPingresp;
+
+/**
+ * @since 1.2.0
+ */
+class CaptureQueryTest {
+
+    @RegisterExtension
+    private final @NotNull LogbackTestAppender logbackTestAppender =
+            LogbackTestAppender.createFor(LoggerFactory.getLogger(MessageLogUtil.class));
+
+    @TempDir
+    @NotNull Path directory;
+
+    @Test
+    void test_decoded_lines_equal_text_format() throws IOException {
+        final List<Consumer<MessageLogFormat>> packets = List.of(
+                format -> format.logConnect(createFullConnect(), false),
+                format -> format.logConnack(createFullConnack(), false),
+                format -> format.logPublish("clientId", createFullPublish(), true, false),
+                format -> format.logPublish("clientId", createFullPublish(), false, false),
+                format -> format.logSubscribe(createFullSubsribe(), false),
+                format -> format.logSuback(createFullSuback(), false),
+                format -> format.logUnsubscribe(createFullUnsubsribe(), false),
+                format -> format.logUnsuback(createFullUnsuback(), false),
+                format -> format.logPingreq(createPingreq()),
+                format -> format.logPingresp(createPingresp()),
+                format -> format.logPuback(createFullPuback(), "clientId", true, false),
+                format -> format.logPubrec(createFullPubrec(), "clientId", false, false),
+                format -> format.logPubrel(createFullPubrel(), "clientId", true, false),
+                format -> format.logPubcomp(createFullPubcomp(), "clientId", false, false),
+                format -> format.logDisconnect(createFullDisconnect(), "clientId", true, false));
+
+        final MessageLogFormat textFormat = MessageLogFormat.create(new MqttMessageLogConfig(new Properties()));
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 4)) {
+            for (final Consumer<MessageLogFormat> packet : packets) {
+                packet.accept(textFormat);
+                packet.accept(eventLog);
+            }
+        }
+        final List<String> expected = logbackTestAppender.getEvents()
+                .stream()
+                .map(ILoggingEvent::getFormattedMessage)
+                .collect(Collectors.toList());
+
+        final List<String> lines = query();
+        assertEquals(packets.size(), lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            final String line = lines.get(i);
+            assertEquals(expected.get(i), line.substring(line.indexOf(' ') + 1));
+        }
+    }
+
+    @Test
+    void test_filters() throws IOException {
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 4)) {
+            eventLog.logPublish("clientId", createFullPublish(), true, false);
+            eventLog.logPublish("other", createFullPublish(), false, false);
+            eventLog.logSubscribe(createFullSubsribe(), false);
+            eventLog.logPingreq(createPingreq());
+        }
+
+        assertEquals(1, query("--client", "other").size());
+        assertEquals(2, query("--topic", "topic").size());
+        assertEquals(1, query("--topic", "topic1").size());
+        assertEquals(3, query("--topic", "#").size());
+        assertEquals(3, query("--type", "publish,pingreq").size());
+        assertEquals(0, query("--to", "1970-01-01T00:00:00Z").size());
+        assertEquals(4, query("--from", "1970-01-01T00:00:00Z").size());
+
+        final List<String> json = query("--json", "--type", "publish", "--client", "clientId");
+        assertEquals(1, json.size());
+        assertTrue(json.get(0).startsWith("{\"timestamp\":\""), json.get(0));
+        assertTrue(json.get(0).endsWith("\"direction\":\"in\",\"packetType\":\"PUBLISH\",\"clientId\":\"clientId\"," +
+                "\"topic\":\"topic\",\"qos\":1,\"retain\":false,\"dup\":false,\"packetId\":0,\"payload\":\"message\"}"),
+                json.get(0));
+    }
+
+    @Test
+    void test_json_lines() throws IOException {
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 4)) {
+            eventLog.logPublish("clientId", createFullPublish(), true, false);
+            eventLog.logPingreq(createPingreq());
+        }
+
+        final List<String> json = query("--json");
+        assertEquals(2, json.size());
+        assertTrue(json.get(1).startsWith("{\"timestamp\":\""), json.get(1));
+        assertTrue(json.get(1).endsWith("\"packetType\":\"PINGREQ\",\"clientId\":\"clientId\"}"), json.get(1));
+    }
+
+    @Test
+    void test_segments_are_written_in_bounded_chunks_and_in_order() throws IOException {
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 64)) {
+            for (int i = 0; i < 20_000; i++) {
+                eventLog.logPuback(createFullPuback(), "client-" + i, true, false);
+            }
+        }
+        final List<Path> inputs = new ArrayList<>();
+        final CaptureQuery query = new CaptureQuery();
+        query.parse(List.of("--json", directory.toString()), inputs);
+        final StringBuilder output = new StringBuilder();
+        final int[] maxWrite = new int[1];
+        query.run(inputs, new Writer() {
+            @Override
+            public void write(final char @NotNull [] chars, final int offset, final int length) {
+                maxWrite[0] = Math.max(maxWrite[0], length);
+                output.append(chars, offset, length);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        final String[] lines = output.toString().split("\n");
+        assertEquals(20_000, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(lines[i].contains("\"clientId\":\"client-" + i + "\""), lines[i]);
+        }
+        assertTrue(maxWrite[0] < CaptureQuery.CHUNK_SIZE + 1024, "largest write " + maxWrite[0]);
+    }
+
+    @Test
+    void test_index_lookup_equals_full_scan() throws IOException {
+        try (final EventLog eventLog = EventLog.open(directory, 256 * 1024, 8)) {
+            for (int i = 0; i < 1000; i++) {
+                final PublishPacket publishPacket = mock(PublishPacket.class);
+                when(publishPacket.getTopic()).thenReturn("topic/" + (i % 7));
+                when(publishPacket.getQos()).thenReturn(Qos.AT_LEAST_ONCE);
+                when(publishPacket.getPayload()).thenReturn(Optional.of(ByteBuffer.wrap(new byte[1000])));
+                eventLog.logPublish(i < 10 ? "early" : "client-" + (i % 13), publishPacket, i % 2 == 0, false);
+            }
+        }
+        try (final Stream<Path> files = Files.list(directory)) {
+            // 4 segments and their indexes
+            assertEquals(8, files.count());
+        }
+
+        final List<List<String>> indexed = new ArrayList<>();
+        final List<String[]> queries = List.of(new String[]{"--client", "early"},
+                new String[]{"--client", "client-3"},
+                new String[]{"--topic", "topic/5"},
+                new String[]{"--topic", "topic/+", "--client", "client-1"},
+                new String[]{"--client", "unknown"});
+        for (final String[] args : queries) {
+            indexed.add(query(args));
+        }
+        assertEquals(10, indexed.get(0).size());
+        assertEquals(0, indexed.get(4).size());
+
+        // a segment without index is scanned completely
+        try (final Stream<Path> files = Files.list(directory)) {
+            for (final Path file : files.collect(Collectors.toList())) {
+                if (file.toString().endsWith(EventLogFormat.INDEX_SUFFIX)) {
+                    Files.delete(file);
+                }
+            }
+        }
+        for (int i = 0; i < queries.size(); i++) {
+            assertEquals(indexed.get(i), query(queries.get(i)));
+        }
+    }
+
+    @Test
+    void test_index_selects_blocks() throws IOException {
+        try (final EventLog eventLog = EventLog.open(directory, 1024 * 1024, 4)) {
+            for (int i = 0; i < 500; i++) {
+                eventLog.logPublish(i < 10 ? "early" : "other", createFullPublish(), true, false);
+            }
+        }
+        final SegmentIndex index = SegmentIndex.open(directory.resolve(EventLogFormat.indexFileName(1)));
+        final CaptureQuery query = parse("--client", "early", directory.toString());
+        final boolean[] blocks = query.selectBlocks(index);
+        assertTrue(blocks[0]);
+        for (int block = 1; block < blocks.length; block++) {
+            assertFalse(blocks[block]);
+        }
+        assertEquals(0, countSelected(parse("--to", "1970-01-01T00:00:00Z", "dir").selectBlocks(index)));
+        assertEquals(index.getBlockCount(), countSelected(parse("--topic", "topic", "dir").selectBlocks(index)));
+        assertEquals(0, countSelected(parse("--topic", "other", "dir").selectBlocks(index)));
+    }
+
+    @Test
+    void test_invalid_arguments() {
+        assertThrows(IllegalArgumentException.class, () -> parse("--type", "foo", "dir"));
+        assertThrows(IllegalArgumentException.class, () -> parse("--from", "yesterday", "dir"));
+        assertThrows(IllegalArgumentException.class, () -> parse("--client"));
+        assertThrows(IllegalArgumentException.class, () -> parse("--unknown", "dir"));
+        assertThrows(IllegalArgumentException.class, () -> parse("--json"));
+    }
+
+    private @NotNull List<String> query(final @NotNull String @NotNull ... args) throws IOException {
+        final List<String> allArgs = new ArrayList<>(Arrays.asList(args));
+        allArgs.add(directory.toString());
+        final List<Path> inputs = new ArrayList<>();
+        final CaptureQuery query = new CaptureQuery();
+        query.parse(allArgs, inputs);
+        final StringWriter out = new StringWriter();
+        query.run(inputs, out);
+        return out.toString().isEmpty() ? List.of() : List.of(out.toString().split("\n"));
+    }
+
+    private static int countSelected(final boolean @NotNull [] blocks) {
+        int count = 0;
+        for (final boolean block : blocks) {
+            if (block) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static @NotNull CaptureQuery parse(final @NotNull String @NotNull ... args) {
+        final CaptureQuery query = new CaptureQuery();
+        query.parse(List.of(args), new ArrayList<>());
+        return query;
+    }
+}
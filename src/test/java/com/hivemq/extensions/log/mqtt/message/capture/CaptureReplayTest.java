@@ -0,0 +1,254 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.general.Qos;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 1.2.0
+ */
+class CaptureReplayTest {
+
+    @TempDir
+    @NotNull Path directory;
+
+    private @NotNull ServerSocket serverSocket;
+    private final @NotNull List<String> received = Collections.synchronizedList(new ArrayList<>());
+    private final @NotNull Semaphore disconnects = new Semaphore(0);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        final Thread acceptor = new Thread(() -> {
+            try {
+                while (true) {
+                    final Socket socket = serverSocket.accept();
+                    final Thread connection = new Thread(() -> serve(socket));
+                    connection.setDaemon(true);
+                    connection.start();
+                }
+            } catch (final IOException ignored) {
+                // server socket closed
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        serverSocket.close();
+    }
+
+    @Test
+    void test_replay_keeps_messages_and_per_client_order() throws IOException {
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 4)) {
+            for (int i = 0; i < 50; i++) {
+                eventLog.logPublish("client-a", publish("a/" + i, Qos.AT_MOST_ONCE, "a-" + i), true, false);
+                eventLog.logPublish("client-b", publish("b/" + i, Qos.AT_LEAST_ONCE, "b-" + i), true, false);
+                eventLog.logPublish("client-c", publish("c/" + i, Qos.EXACTLY_ONCE, "c-" + i), true, false);
+                eventLog.logPublish("client-a", publish("a/" + i, Qos.AT_MOST_ONCE, "ignored"), false, false);
+            }
+        }
+
+        final CaptureReplay replay = new CaptureReplay();
+        final List<Path> inputs = new ArrayList<>();
+        replay.parse(List.of("--broker",
+                "127.0.0.1:" + serverSocket.getLocalPort(),
+                "--speed",
+                "0",
+                "--clients",
+                "2",
+                directory.toString()), inputs);
+        final CaptureReplay.Report report = replay.run(inputs);
+        awaitDisconnects(2);
+
+        assertEquals(150, report.messages);
+        assertEquals(3, report.clients);
+        assertEquals(150, received.size());
+        for (final String client : List.of("a", "b", "c")) {
+            final List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                expected.add(client + "/" + i + " q" + (client.charAt(0) - 'a') + " " + client + "-" + i);
+            }
+            assertEquals(expected,
+                    received.stream().filter(message -> message.startsWith(client + "/")).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void test_replay_more_messages_than_inflight_window_unpaced() throws IOException {
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 4)) {
+            for (int i = 0; i < 200; i++) {
+                eventLog.logPublish("client-a", publish("a/" + i, Qos.AT_LEAST_ONCE, "0123456789"), true, false);
+            }
+        }
+
+        final CaptureReplay replay = new CaptureReplay();
+        final List<Path> inputs = new ArrayList<>();
+        replay.parse(List.of("--broker",
+                "127.0.0.1:" + serverSocket.getLocalPort(),
+                "--speed",
+                "0",
+                "--max-inflight",
+                "8",
+                directory.toString()), inputs);
+        final CaptureReplay.Report report = replay.run(inputs);
+        awaitDisconnects(4);
+
+        assertEquals(200, report.messages);
+        assertEquals(200, received.size());
+    }
+
+    @Test
+    void test_replay_filters_clients() throws IOException {
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 4)) {
+            eventLog.logPublish("client-a", publish("a", Qos.AT_MOST_ONCE, "a"), true, false);
+            eventLog.logPublish("client-b", publish("b", Qos.AT_MOST_ONCE, "b"), true, false);
+        }
+
+        final CaptureReplay replay = new CaptureReplay();
+        final List<Path> inputs = new ArrayList<>();
+        replay.parse(List.of("--broker",
+                "127.0.0.1:" + serverSocket.getLocalPort(),
+                "--client",
+                "client-b",
+                directory.toString()), inputs);
+        final CaptureReplay.Report report = replay.run(inputs);
+        awaitDisconnects(4);
+
+        assertEquals(1, report.messages);
+        assertEquals(List.of("b q0 b"), received);
+    }
+
+    @Test
+    void test_invalid_options() {
+        final List<Path> inputs = new ArrayList<>();
+        assertThrows(IllegalArgumentException.class,
+                () -> new CaptureReplay().parse(List.of("--speed", "-1", "capture"), inputs));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CaptureReplay().parse(List.of("--clients", "0", "capture"), inputs));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CaptureReplay().parse(List.of("--json", "capture"), inputs));
+        assertThrows(IllegalArgumentException.class, () -> new CaptureReplay().parse(List.of("--speed", "2"), inputs));
+    }
+
+    @Test
+    void test_report_rates() {
+        final CaptureReplay.Report report = new CaptureReplay.Report(100, 2, 10_000, 5_000_000_000L, 2, 1_000_000);
+
+        assertEquals(10, report.getOriginalRate(), 0.001);
+        assertEquals(20, report.getAchievedRate(), 0.001);
+    }
+
+    private void awaitDisconnects(final int connections) {
+        try {
+            assertTrue(disconnects.tryAcquire(connections, 10, TimeUnit.SECONDS));
+        } catch (final InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static @NotNull PublishPacket publish(
+            final @NotNull String topic, final @NotNull Qos qos, final @NotNull String payload) {
+        final PublishPacket publishPacket = mock(PublishPacket.class);
+        when(publishPacket.getTopic()).thenReturn(topic);
+        when(publishPacket.getQos()).thenReturn(qos);
+        when(publishPacket.getPayload()).thenAnswer(invocation -> Optional.of(ByteBuffer.wrap(payload.getBytes(
+                UTF_8))));
+        return publishPacket;
+    }
+
+    /**
+     * A broker that acknowledges the connection and the PUBLISH flows and records the received messages.
+     */
+    private void serve(final @NotNull Socket socket) {
+        try (socket) {
+            final DataInputStream in = new DataInputStream(socket.getInputStream());
+            final OutputStream out = socket.getOutputStream();
+            while (true) {
+                final int type = in.readUnsignedByte();
+                int length = 0;
+                int shift = 0;
+                int digit;
+                do {
+                    digit = in.readUnsignedByte();
+                    length |= (digit & 0x7F) << shift;
+                    shift += 7;
+                } while ((digit & 0x80) != 0);
+                final byte[] body = new byte[length];
+                in.readFully(body);
+                final ByteBuffer buffer = ByteBuffer.wrap(body);
+                switch (type >> 4) {
+                    case 1:
+                        out.write(new byte[]{0x20, 2, 0, 0});
+                        break;
+                    case 3:
+                        final int qos = (type >> 1) & 3;
+                        final byte[] topic = new byte[buffer.getShort()];
+                        buffer.get(topic);
+                        final int packetId = qos > 0 ? buffer.getShort() : 0;
+                        received.add(new String(topic, UTF_8) + " q" + qos + " " + UTF_8.decode(buffer));
+                        if (qos > 0) {
+                            out.write(new byte[]{(byte) (qos == 1 ? 0x40 : 0x50), 2, (byte) (packetId >> 8),
+                                    (byte) packetId});
+                        }
+                        break;
+                    case 6:
+                        out.write(new byte[]{0x70, 2, body[0], body[1]});
+                        break;
+                    case 14:
+                        disconnects.release();
+                        return;
+                    default:
+                }
+            }
+        } catch (final IOException ignored) {
+            // connection closed
+        }
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.capture;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.general.Qos;
+import com.hivemq.extension.sdk.api.packets.publish.AckReasonCode;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static util.PacketUtil.createFullPuback;
+import static util.PacketUtil.createFullPublish;
+
+/**
+ * @since 1.2.0
+ */
+class EventLogTest {
+
+    @TempDir
+    @NotNull Path directory;
+
+    @Test
+    void test_publish_and_puback_records() throws IOException {
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 4)) {
+            eventLog.logPublish("clientId", createFullPublish(), true, false);
+            eventLog.logPuback(createFullPuback(), "clientId", false, false);
+        }
+
+        final ByteBuffer buffer = segment(1);
+        assertEquals(SegmentWriter.MIN_SEGMENT_SIZE, buffer.capacity());
+        assertEquals(EventLogFormat.MAGIC, buffer.getInt());
+        assertEquals(EventLogFormat.VERSION, buffer.getShort());
+        buffer.position(EventLogFormat.HEADER_SIZE);
+
+        frame(buffer);
+        assertEquals(EventLogFormat.DICTIONARY_CLIENT, buffer.get());
+        assertEquals(0, EventLogFormat.getVarint(buffer));
+        assertEquals("clientId", string(buffer));
+        assertEquals(EventLogFormat.DICTIONARY_TOPIC, buffer.get());
+        assertEquals(0, EventLogFormat.getVarint(buffer));
+        assertEquals("topic", string(buffer));
+
+        assertEquals(EventLogFormat.PUBLISH_RECEIVED, buffer.get());
+        assertTrue(EventLogFormat.getZigzag(buffer) >= 0);
+        assertEquals(0, EventLogFormat.getVarint(buffer));
+        assertEquals(0, EventLogFormat.getVarint(buffer));
+        assertEquals(1, buffer.get());
+        assertEquals(0, EventLogFormat.getVarint(buffer));
+        assertEquals("message", string(buffer));
+
+        frame(buffer);
+        assertEquals(EventLogFormat.PUBACK_SEND, buffer.get());
+        EventLogFormat.getZigzag(buffer);
+        assertEquals(0, EventLogFormat.getVarint(buffer));
+        assertEquals(10, EventLogFormat.getVarint(buffer));
+        assertEquals(AckReasonCode.NO_MATCHING_SUBSCRIBERS.ordinal(), buffer.get());
+
+        assertEquals(0, buffer.getInt());
+    }
+
+    @Test
+    void test_segments_roll_and_old_segments_are_deleted() throws IOException {
+        final PublishPacket publishPacket = publish(new byte[10_000]);
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 2)) {
+            for (int i = 0; i < 20; i++) {
+                eventLog.logPublish("client-" + i, publishPacket, false, false);
+            }
+        }
+
+        // 6 publishes fit into one segment, the 20 publishes need 4 segments of which the last 2 are kept
+        assertEquals(fileNames(3, 4), segmentNames());
+
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 2)) {
+            eventLog.logPublish("client", publishPacket, false, false);
+            // the last segment is continued, its index is written again when it is finished
+            assertEquals(List.of(EventLogFormat.indexFileName(3),
+                    EventLogFormat.segmentFileName(3),
+                    EventLogFormat.segmentFileName(4)), segmentNames());
+            // then the sequence continues
+            for (int i = 0; i < 4; i++) {
+                eventLog.logPublish("client", publishPacket, false, false);
+            }
+        }
+        assertEquals(fileNames(4, 5), segmentNames());
+    }
+
+    @Test
+    void test_spare_segment_taken_at_roll_and_deleted_at_close() throws Exception {
+        final PublishPacket publishPacket = publish(new byte[10_000]);
+        final Path spare = directory.resolve(SegmentWriter.SPARE_FILE_NAME);
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 4)) {
+            for (int i = 0; i < 7; i++) {
+                eventLog.logPublish("client", publishPacket, false, false);
+            }
+            // the index of the first segment is written in the background
+            assertEquals(List.of(EventLogFormat.segmentFileName(1), EventLogFormat.segmentFileName(2)),
+                    segmentNames().stream()
+                            .filter(name -> name.endsWith(EventLogFormat.SEGMENT_SUFFIX))
+                            .collect(Collectors.toList()));
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while (!Files.exists(spare) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(SegmentWriter.MIN_SEGMENT_SIZE, Files.size(spare));
+        }
+
+        assertFalse(Files.exists(spare));
+        assertEquals(fileNames(1, 2), segmentNames());
+        assertEquals(7, events(1) + events(2));
+    }
+
+    @Test
+    void test_index_written_at_roll() throws IOException {
+        final PublishPacket publishPacket = publish(new byte[1000]);
+        try (final EventLog eventLog = EventLog.open(directory, 1024 * 1024, 4)) {
+            eventLog.logPublish("first", publishPacket, true, false);
+            for (int i = 0; i < 500; i++) {
+                eventLog.logPublish("client-" + (i % 10), publishPacket, true, false);
+            }
+            eventLog.logPublish("last", publishPacket, false, false);
+            assertEquals(1, segmentNames().size());
+        }
+
+        final SegmentIndex index = SegmentIndex.open(directory.resolve(EventLogFormat.indexFileName(1)));
+        assertEquals(1, index.getSequence());
+        assertEquals(8, index.getBlockCount());
+        assertEquals(EventLogFormat.HEADER_SIZE, index.getBlockOffset(0));
+        for (int block = 1; block < index.getBlockCount(); block++) {
+            assertTrue(index.getBlockOffset(block) - index.getBlockOffset(block - 1) >=
+                    EventLogFormat.INDEX_BLOCK_SIZE);
+            assertTrue(index.getBlockMinTime(block) >= index.getBlockTimeBase(block));
+        }
+        assertEquals(List.of("first", "client-0", "client-1", "client-2", "client-3", "client-4", "client-5",
+                "client-6", "client-7", "client-8", "client-9", "last"), index.getClientIds());
+        assertEquals(List.of("topic"), index.getTopics());
+        assertArrayEquals(new int[]{0}, index.getClientBlocks("first"));
+        assertArrayEquals(new int[]{7}, index.getClientBlocks("last"));
+        assertEquals(8, index.getClientBlocks("client-5").length);
+        assertEquals(8, index.getTopicBlocks("topic").length);
+        assertEquals(0, index.getClientBlocks("unknown").length);
+
+        // every block can be decoded on its own with the dictionaries of the index
+        final SegmentReader reader = SegmentReader.open(directory.resolve(EventLogFormat.segmentFileName(1)));
+        reader.loadDictionaries(index);
+        reader.seek(index.getBlockOffset(7), index.getBlockTimeBase(7));
+        CapturedEvent event = reader.next();
+        CapturedEvent last = null;
+        while (event != null) {
+            assertTrue(event.getTime() >= index.getBlockMinTime(7) && event.getTime() <= index.getBlockMaxTime(7));
+            last = event;
+            event = reader.next();
+        }
+        assertNotNull(last);
+        assertEquals("last", last.getClientId());
+    }
+
+    @Test
+    void test_too_large_payload_is_truncated() throws IOException {
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 4)) {
+            eventLog.logPublish("clientId", publish(new byte[2 * SegmentWriter.MIN_SEGMENT_SIZE]), true, false);
+        }
+
+        final ByteBuffer buffer = segment(1);
+        buffer.position(EventLogFormat.HEADER_SIZE);
+        frame(buffer);
+        buffer.get();
+        EventLogFormat.getVarint(buffer);
+        string(buffer);
+        buffer.get();
+        EventLogFormat.getVarint(buffer);
+        string(buffer);
+        assertEquals(EventLogFormat.PUBLISH_RECEIVED, buffer.get());
+        EventLogFormat.getZigzag(buffer);
+        EventLogFormat.getVarint(buffer);
+        EventLogFormat.getVarint(buffer);
+        assertEquals(EventLogFormat.PUBLISH_TRUNCATED, buffer.get() & EventLogFormat.PUBLISH_TRUNCATED);
+        EventLogFormat.getVarint(buffer);
+        final int length = EventLogFormat.getVarint(buffer);
+        assertTrue(length > 0 && length < SegmentWriter.MIN_SEGMENT_SIZE);
+    }
+
+    @Test
+    void test_torn_tail_is_truncated_and_segment_continued() throws IOException {
+        final PublishPacket publishPacket = publish(new byte[100]);
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 4)) {
+            for (int i = 0; i < 3; i++) {
+                eventLog.logPublish("client-" + i, publishPacket, true, false);
+            }
+        }
+        // a frame that was only partially written before a crash
+        final Path segment = directory.resolve(EventLogFormat.segmentFileName(1));
+        final ByteBuffer buffer = segment(1);
+        final int end = endOfFrames(buffer);
+        buffer.putInt(end, 200);
+        buffer.putInt(end + 4, 12345);
+        buffer.put(end + 20, (byte) 7);
+        Files.write(segment, buffer.array());
+
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 4)) {
+            eventLog.logPublish("client-1", publishPacket, false, false);
+            eventLog.logPublish("new", publishPacket, false, false);
+        }
+
+        assertEquals(fileNames(1), segmentNames());
+        final SegmentReader reader = SegmentReader.open(segment);
+        final List<String> clientIds = new ArrayList<>();
+        CapturedEvent event;
+        while ((event = reader.next()) != null) {
+            clientIds.add(event.getClientId());
+        }
+        assertEquals(List.of("client-0", "client-1", "client-2", "client-1", "new"), clientIds);
+        assertEquals(0, reader.getCorruptRecords());
+
+        // the dictionaries of the continued segment are reused
+        final SegmentIndex index = SegmentIndex.open(directory.resolve(EventLogFormat.indexFileName(1)));
+        assertEquals(List.of("client-0", "client-1", "client-2", "new"), index.getClientIds());
+        assertEquals(1, index.getBlockCount());
+    }
+
+    @Test
+    void test_reader_skips_corrupt_records() throws IOException {
+        final PublishPacket publishPacket = publish(new byte[100]);
+        try (final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 4)) {
+            for (int i = 0; i < 3; i++) {
+                eventLog.logPublish("clientId", publishPacket, true, false);
+            }
+        }
+        final Path segment = directory.resolve(EventLogFormat.segmentFileName(1));
+        final ByteBuffer buffer = segment(1);
+        final int second = EventLogFormat.HEADER_SIZE + EventLogFormat.FRAME_HEADER_SIZE +
+                buffer.getInt(EventLogFormat.HEADER_SIZE);
+        buffer.put(second + 50, (byte) 1);
+        Files.write(segment, buffer.array());
+
+        final SegmentReader reader = SegmentReader.open(segment);
+        assertNotNull(reader.next());
+        assertNotNull(reader.next());
+        assertNull(reader.next());
+        assertEquals(1, reader.getCorruptRecords());
+    }
+
+    @Test
+    void test_fsync_policy() {
+        assertFalse(FsyncPolicy.NEVER.shouldSync(1_000_000, 1_000_000));
+        assertFalse(FsyncPolicy.everyRecords(10).shouldSync(9, 1_000_000));
+        assertTrue(FsyncPolicy.everyRecords(10).shouldSync(10, 0));
+        assertFalse(FsyncPolicy.everyMillis(100).shouldSync(1_000_000, 99));
+        assertTrue(FsyncPolicy.everyMillis(100).shouldSync(1, 100));
+        assertThrows(IllegalArgumentException.class, () -> FsyncPolicy.everyRecords(0));
+    }
+
+    @Test
+    void test_closed_log_ignores_packets() throws IOException {
+        final EventLog eventLog = EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE, 4);
+        eventLog.close();
+        eventLog.logPublish("clientId", createFullPublish(), true, false);
+
+        assertEquals(0, segmentNames().size());
+    }
+
+    @Test
+    void test_segment_size_too_small() {
+        assertThrows(IllegalArgumentException.class,
+                () -> EventLog.open(directory, SegmentWriter.MIN_SEGMENT_SIZE - 1, 4));
+    }
+
+    @Test
+    void test_varint_round_trip() {
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        EventLogFormat.putVarint(buffer, 300);
+        EventLogFormat.putVarint(buffer, Integer.MAX_VALUE);
+        EventLogFormat.putZigzag(buffer, -5);
+        EventLogFormat.putVarlong(buffer, Long.MAX_VALUE);
+        buffer.flip();
+
+        assertEquals(300, EventLogFormat.getVarint(buffer));
+        assertEquals(Integer.MAX_VALUE, EventLogFormat.getVarint(buffer));
+        assertEquals(-5, EventLogFormat.getZigzag(buffer));
+        assertEquals(Long.MAX_VALUE, EventLogFormat.getVarlong(buffer));
+    }
+
+    /**
+     * @return the sorted file names of the segments and their indexes, without the spare segment.
+     */
+    private @NotNull List<String> segmentNames() throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> !name.equals(SegmentWriter.SPARE_FILE_NAME))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @return the sorted file names of the segments and their indexes.
+     */
+    private static @NotNull List<String> fileNames(final long @NotNull ... sequences) {
+        return LongStream.of(sequences)
+                .boxed()
+                .flatMap(sequence -> Stream.of(EventLogFormat.segmentFileName(sequence),
+                        EventLogFormat.indexFileName(sequence)))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private int events(final long sequence) throws IOException {
+        final SegmentReader reader = SegmentReader.open(directory.resolve(EventLogFormat.segmentFileName(sequence)));
+        int events = 0;
+        while (reader.next() != null) {
+            events++;
+        }
+        return events;
+    }
+
+    private @NotNull ByteBuffer segment(final long sequence) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(directory.resolve(EventLogFormat.segmentFileName(sequence))));
+    }
+
+    /**
+     * Reads the frame header and checks the CRC of the content.
+     */
+    private static void frame(final @NotNull ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        final int crc = buffer.getInt();
+        assertEquals(crc, EventLogFormat.crc(buffer, buffer.position(), length, new CRC32C()));
+    }
+
+    private static int endOfFrames(final @NotNull ByteBuffer buffer) {
+        int position = EventLogFormat.HEADER_SIZE;
+        int length;
+        while ((length = buffer.getInt(position)) != 0) {
+            position += EventLogFormat.FRAME_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private static @NotNull String string(final @NotNull ByteBuffer buffer) {
+        final byte[] bytes = new byte[EventLogFormat.getVarint(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static @NotNull PublishPacket publish(final byte @NotNull [] payload) {
+        final PublishPacket publishPacket = mock(PublishPacket.class);
+        when(publishPacket.getTopic()).thenReturn("topic");
+        when(publishPacket.getQos()).thenReturn(Qos.AT_MOST_ONCE);
+        when(publishPacket.getPayload()).thenAnswer(invocation -> Optional.of(ByteBuffer.wrap(payload)
+                .asReadOnlyBuffer()));
+        return publishPacket;
+    }
+}
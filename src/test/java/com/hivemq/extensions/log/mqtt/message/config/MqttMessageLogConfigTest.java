@@ -177,6 +177,16 @@ class MqttMessageLogConfigTest {
         assertFalse(mixedConfig.isPingreqReceived());
     }
 
+    @Test
+    void isPingreqReceived_keepAliveHealth() {
+        final Properties properties = new Properties();
+        properties.setProperty(MqttMessageLogConfig.KEEP_ALIVE_HEALTH, "true");
+        assertFalse(new MqttMessageLogConfig(properties).isPingreqReceived());
+
+        properties.setProperty(MqttMessageLogConfig.PING_REQ_RECEIVED, "true");
+        assertTrue(new MqttMessageLogConfig(properties).isPingreqReceived());
+    }
+
     @Test
     void isPingrespSend() {
         assertTrue(emptyConfig.isPingrespSend());
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.filter;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 1.2.0
+ */
+class ChangeFilterTest {
+
+    private final @NotNull Counter unchanged = new Counter();
+
+    @Test
+    void test_disabled_by_default() {
+        assertTrue(ChangeFilter.create(new MqttMessageLogConfig(new Properties()), new MetricRegistry()).isEmpty());
+    }
+
+    @Test
+    void test_created_with_metric() {
+        final Properties properties = new Properties();
+        properties.setProperty("publish-log-on-change", "true");
+        final MetricRegistry metricRegistry = new MetricRegistry();
+
+        assertTrue(ChangeFilter.create(new MqttMessageLogConfig(properties), metricRegistry).isPresent());
+        assertTrue(metricRegistry.getCounters().containsKey(ChangeFilter.UNCHANGED_METRIC));
+    }
+
+    @Test
+    void test_inbound_compared_per_topic() {
+        final ChangeFilter filter = new ChangeFilter(1000, unchanged);
+
+        assertTrue(filter.isChanged("client-1", "sensor/1", payload("21.5"), true));
+        assertFalse(filter.isChanged("client-2", "sensor/1", payload("21.5"), true));
+        assertTrue(filter.isChanged("client-1", "sensor/2", payload("21.5"), true));
+        assertTrue(filter.isChanged("client-1", "sensor/1", payload("21.6"), true));
+        assertTrue(filter.isChanged("client-1", "sensor/1", payload("21.5"), true));
+        assertEquals(1, unchanged.getCount());
+    }
+
+    @Test
+    void test_outbound_compared_per_subscriber() {
+        final ChangeFilter filter = new ChangeFilter(1000, unchanged);
+
+        assertTrue(filter.isChanged("subscriber-1", "sensor/1", payload("21.5"), false));
+        assertTrue(filter.isChanged("subscriber-2", "sensor/1", payload("21.5"), false));
+        assertFalse(filter.isChanged("subscriber-1", "sensor/1", payload("21.5"), false));
+        assertFalse(filter.isChanged("subscriber-2", "sensor/1", payload("21.5"), false));
+        assertEquals(2, unchanged.getCount());
+    }
+
+    @Test
+    void test_empty_payload() {
+        final ChangeFilter filter = new ChangeFilter(1000, unchanged);
+
+        assertTrue(filter.isChanged("client-1", "sensor/1", Optional.empty(), true));
+        assertFalse(filter.isChanged("client-1", "sensor/1", Optional.empty(), true));
+        assertTrue(filter.isChanged("client-1", "sensor/1", payload("on"), true));
+    }
+
+    @Test
+    void test_does_not_change_buffer_position() {
+        final ChangeFilter filter = new ChangeFilter(1000, unchanged);
+        final ByteBuffer buffer = ByteBuffer.wrap("abcdefgh".getBytes(UTF_8)).asReadOnlyBuffer();
+        buffer.position(2);
+
+        filter.isChanged("client-1", "sensor/1", Optional.of(buffer), true);
+
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    void test_least_recently_used_topics_evicted() {
+        final ChangeFilter filter = new ChangeFilter(ChangeFilter.SEGMENTS, unchanged);
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.isChanged("client-1", "sensor/" + i, payload("1"), true));
+        }
+
+        assertTrue(filter.isChanged("client-1", "sensor/0", payload("1"), true));
+        assertEquals(0, unchanged.getCount());
+    }
+
+    private static @NotNull Optional<ByteBuffer> payload(final @NotNull String payload) {
+        return Optional.of(ByteBuffer.wrap(payload.getBytes(UTF_8)).asReadOnlyBuffer());
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.filter;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 1.2.0
+ */
+class JsonPredicatesTest {
+
+    private final @NotNull JsonPredicates levelOrTemp = JsonPredicates.parse("$.level == \"ERROR\" || $.temp > 90");
+
+    @Test
+    void test_string_equals() {
+        assertTrue(matches(levelOrTemp, "{\"level\":\"ERROR\",\"temp\":20}"));
+        assertFalse(matches(levelOrTemp, "{\"level\":\"INFO\",\"temp\":20}"));
+        assertFalse(matches(levelOrTemp, "{\"level\":\"ERRORS\"}"));
+    }
+
+    @Test
+    void test_number_compare() {
+        assertTrue(matches(levelOrTemp, "{ \"level\" : \"INFO\" , \"temp\" : 90.5 }"));
+        assertTrue(matches(levelOrTemp, "{\"temp\":1e3}"));
+        assertFalse(matches(levelOrTemp, "{\"temp\":90}"));
+        assertFalse(matches(levelOrTemp, "{\"temp\":-95}"));
+        assertFalse(matches(levelOrTemp, "{\"temp\":\"95\"}"));
+    }
+
+    @Test
+    void test_decimal_equality() {
+        assertTrue(matches(JsonPredicates.parse("$.x == 0.3"), "{\"x\":0.3}"));
+        assertTrue(matches(JsonPredicates.parse("$.x == 0.1"), "{\"x\":1e-1}"));
+        assertTrue(matches(JsonPredicates.parse("$.x == 1.23456789012345678"), "{\"x\":1.23456789012345678}"));
+        assertTrue(matches(JsonPredicates.parse("$.x == 0.000000000000000000000001"),
+                "{\"x\":0.000000000000000000000001}"));
+        assertTrue(matches(JsonPredicates.parse("$.x == -12.75"), "{\"x\":-12.750}"));
+        assertFalse(matches(JsonPredicates.parse("$.x != 0.3"), "{\"x\":0.3}"));
+    }
+
+    @Test
+    void test_decimal_range_boundary() {
+        assertTrue(matches(JsonPredicates.parse("$.x >= 0.3"), "{\"x\":0.3}"));
+        assertTrue(matches(JsonPredicates.parse("$.x <= 0.3"), "{\"x\":0.3}"));
+        assertFalse(matches(JsonPredicates.parse("$.x > 0.3"), "{\"x\":0.3}"));
+        assertFalse(matches(JsonPredicates.parse("$.x < 2.675"), "{\"x\":2.675}"));
+    }
+
+    @Test
+    void test_string_value_with_separator() {
+        final JsonPredicates predicates = JsonPredicates.parse("$.msg == \"a||b\" || $.level == \"ERROR\"");
+
+        assertTrue(matches(predicates, "{\"msg\":\"a||b\"}"));
+        assertTrue(matches(predicates, "{\"level\":\"ERROR\"}"));
+        assertFalse(matches(predicates, "{\"msg\":\"a\"}"));
+        assertFalse(matches(predicates, "{\"msg\":\"b\"}"));
+    }
+
+    @Test
+    void test_skips_irrelevant_subtrees() {
+        assertTrue(matches(levelOrTemp,
+                "{\"meta\":{\"level\":\"ERROR\",\"list\":[1,{\"temp\":99},\"}\"]}," +
+                        "\"x\":\"a\\\"b\",\"level\":\"ERROR\"}"));
+        assertFalse(matches(levelOrTemp, "{\"meta\":{\"level\":\"ERROR\",\"temp\":99}}"));
+    }
+
+    @Test
+    void test_nested_path() {
+        final JsonPredicates predicates = JsonPredicates.parse("$.device.state.ok == false");
+
+        assertTrue(matches(predicates, "{\"id\":1,\"device\":{\"name\":\"a\",\"state\":{\"ok\":false}}}"));
+        assertFalse(matches(predicates, "{\"id\":1,\"device\":{\"name\":\"a\",\"state\":{\"ok\":true}}}"));
+        assertFalse(matches(predicates, "{\"device\":\"state\"}"));
+    }
+
+    @Test
+    void test_other_operators() {
+        assertTrue(matches(JsonPredicates.parse("$.a != \"x\""), "{\"a\":\"y\"}"));
+        assertTrue(matches(JsonPredicates.parse("$.a <= 3"), "{\"a\":3}"));
+        assertTrue(matches(JsonPredicates.parse("$.a >= 3"), "{\"a\":3}"));
+        assertTrue(matches(JsonPredicates.parse("$.a < 3"), "{\"a\":2.99}"));
+        assertTrue(matches(JsonPredicates.parse("$.a == null"), "{\"a\":null}"));
+        assertTrue(matches(JsonPredicates.parse("$.a != \"==\""), "{\"a\":\"x\"}"));
+    }
+
+    @Test
+    void test_no_match_for_non_json_or_truncated_payload() {
+        assertFalse(matches(levelOrTemp, "ERROR"));
+        assertFalse(matches(levelOrTemp, "[{\"level\":\"ERROR\"}]"));
+        assertFalse(matches(levelOrTemp, "{\"temp\":20,\"level\":\"ERR"));
+        assertFalse(matches(levelOrTemp, ""));
+    }
+
+    @Test
+    void test_stops_after_predicate_is_decided() {
+        // the trailing garbage is never looked at
+        assertTrue(matches(levelOrTemp, "{\"level\":\"ERROR\", garbage"));
+        assertFalse(matches(JsonPredicates.parse("$.level == \"ERROR\""), "{\"level\":\"INFO\", garbage"));
+    }
+
+    @Test
+    void test_whole_literal_compared() {
+        final JsonPredicates okOrNull = JsonPredicates.parse("$.ok == true || $.ok == null");
+        assertTrue(matches(okOrNull, "{\"ok\":true}"));
+        assertTrue(matches(okOrNull, "{\"ok\" : null }"));
+        assertFalse(matches(okOrNull, "{\"ok\":tru"));
+        assertFalse(matches(okOrNull, "{\"ok\":nope}"));
+        assertFalse(matches(okOrNull, "{\"ok\":trueish}"));
+        assertFalse(matches(JsonPredicates.parse("$.ok == false"), "{\"ok\":f}"));
+    }
+
+    @Test
+    void test_no_match_for_value_cut_off_by_scan_limit() {
+        final ByteBuffer buffer = ByteBuffer.wrap("{\"temp\":12345,\"ok\":true}".getBytes(UTF_8));
+        final JsonPredicates temp = JsonPredicates.parse("$.temp < 100");
+        assertFalse(temp.matches(buffer, 0, 10));
+        assertFalse(temp.matches(buffer, 0, 13));
+        assertFalse(JsonPredicates.parse("$.temp > 100").matches(buffer, 0, 13));
+        assertTrue(JsonPredicates.parse("$.temp > 100").matches(buffer, 0, 14));
+        assertFalse(JsonPredicates.parse("$.ok != false").matches(buffer, 0, 22));
+        assertFalse(JsonPredicates.parse("$.ok != false").matches(buffer, 0, 23));
+        assertTrue(JsonPredicates.parse("$.ok != false").matches(buffer, 0, 24));
+    }
+
+    @Test
+    void test_invalid_expressions() {
+        assertThrows(IllegalArgumentException.class, () -> JsonPredicates.parse("level == 1"));
+        assertThrows(IllegalArgumentException.class, () -> JsonPredicates.parse("$.level"));
+        assertThrows(IllegalArgumentException.class, () -> JsonPredicates.parse("$.level > \"a\""));
+        assertThrows(IllegalArgumentException.class, () -> JsonPredicates.parse("$.level == abc"));
+        assertThrows(IllegalArgumentException.class, () -> JsonPredicates.parse("$..level == 1"));
+    }
+
+    private static boolean matches(final @NotNull JsonPredicates predicates, final @NotNull String json) {
+        final ByteBuffer buffer = ByteBuffer.wrap(json.getBytes(UTF_8)).asReadOnlyBuffer();
+        return predicates.matches(buffer, buffer.position(), buffer.limit());
+    }
+}
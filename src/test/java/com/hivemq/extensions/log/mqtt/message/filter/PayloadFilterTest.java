@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.filter;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 1.2.0
+ */
+class PayloadFilterTest {
+
+    @Test
+    void test_no_filter_configured() {
+        assertTrue(PayloadFilter.create(new MqttMessageLogConfig(new Properties())).isEmpty());
+    }
+
+    @Test
+    void test_contains_matches() {
+        final PayloadFilter filter = new PayloadFilter("\"status\":\"error\"", null, null, 1024);
+
+        assertTrue(filter.matches(payload("{\"id\":1,\"status\":\"error\"}")));
+        assertTrue(filter.matches(payload("\"status\":\"error\"")));
+        assertFalse(filter.matches(payload("{\"id\":1,\"status\":\"ok\"}")));
+        assertFalse(filter.matches(payload("")));
+        assertFalse(filter.matches(Optional.empty()));
+    }
+
+    @Test
+    void test_contains_does_not_change_buffer_position() {
+        final PayloadFilter filter = new PayloadFilter("def", null, null, 1024);
+        final ByteBuffer buffer = ByteBuffer.wrap("abcdefgh".getBytes(UTF_8)).asReadOnlyBuffer();
+        buffer.position(1);
+
+        assertTrue(filter.matches(Optional.of(buffer)));
+        assertEquals(1, buffer.position());
+        assertEquals(3, filter.indexOf(buffer, buffer.position(), buffer.limit()));
+    }
+
+    @Test
+    void test_contains_respects_max_scan_bytes() {
+        final PayloadFilter filter = new PayloadFilter("error", null, null, 10);
+
+        assertTrue(filter.matches(payload("12345error")));
+        assertFalse(filter.matches(payload("123456error")));
+    }
+
+    @Test
+    void test_regex_matches() {
+        final PayloadFilter filter = new PayloadFilter(null, Pattern.compile("temp\":\\s*9\\d"), null, 1024);
+
+        assertTrue(filter.matches(payload("{\"temp\": 95}")));
+        assertFalse(filter.matches(payload("{\"temp\": 85}")));
+    }
+
+    @Test
+    void test_contains_and_regex_both_required() {
+        final PayloadFilter filter = new PayloadFilter("error", Pattern.compile("code=\\d+"), null, 1024);
+
+        assertTrue(filter.matches(payload("error code=42")));
+        assertFalse(filter.matches(payload("error code=x")));
+        assertFalse(filter.matches(payload("warn code=42")));
+    }
+
+    @Test
+    void test_create_from_config() {
+        final Properties properties = new Properties();
+        properties.setProperty("payload-contains", "marker");
+        properties.setProperty("payload-max-scan-bytes", "8");
+        final PayloadFilter filter = PayloadFilter.create(new MqttMessageLogConfig(properties)).orElseThrow();
+
+        assertTrue(filter.matches(payload("marker")));
+        assertFalse(filter.matches(payload("123marker")));
+    }
+
+    private static @NotNull Optional<ByteBuffer> payload(final @NotNull String payload) {
+        return Optional.of(ByteBuffer.wrap(payload.getBytes(UTF_8)).asReadOnlyBuffer());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.filter;
+
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 1.2.0
+ */
+class VerboseFilterTest {
+
+    @Test
+    void test_nothing_verbose_by_default() {
+        final Properties properties = new Properties();
+        properties.setProperty("verbose", "false");
+        final VerboseFilter verboseFilter = VerboseFilter.create(new MqttMessageLogConfig(properties));
+
+        assertFalse(verboseFilter.isVerbose("client"));
+        assertFalse(verboseFilter.isVerboseTopic("topic"));
+    }
+
+    @Test
+    void test_global_verbose() {
+        final Properties properties = new Properties();
+        properties.setProperty("verbose", "true");
+        final VerboseFilter verboseFilter = VerboseFilter.create(new MqttMessageLogConfig(properties));
+
+        assertTrue(verboseFilter.isVerbose("client"));
+    }
+
+    @Test
+    void test_verbose_client_regex() {
+        final Properties properties = new Properties();
+        properties.setProperty("verbose", "false");
+        properties.setProperty("verbose-client-regex", "device-4[0-9]");
+        final VerboseFilter verboseFilter = VerboseFilter.create(new MqttMessageLogConfig(properties));
+
+        assertTrue(verboseFilter.isVerbose("device-42"));
+        assertFalse(verboseFilter.isVerbose("device-420"));
+        assertFalse(verboseFilter.isVerbose("device-1"));
+    }
+
+    @Test
+    void test_verbose_topic_filters() {
+        final Properties properties = new Properties();
+        properties.setProperty("verbose", "false");
+        properties.setProperty("verbose-topic-filters", "plant/+/line/1, alarms/#");
+        final VerboseFilter verboseFilter = VerboseFilter.create(new MqttMessageLogConfig(properties));
+
+        assertTrue(verboseFilter.isVerboseTopic("plant/a/line/1"));
+        assertTrue(verboseFilter.isVerboseTopic("alarms"));
+        assertTrue(verboseFilter.isVerboseTopic("alarms/fire/1"));
+        assertFalse(verboseFilter.isVerboseTopic("plant/a/line/2"));
+        assertFalse(verboseFilter.isVerboseTopic("plant/a/line/1/x"));
+        assertFalse(verboseFilter.isVerboseTopic("plant/line/1"));
+        assertFalse(verboseFilter.isVerbose("client"));
+    }
+
+    @Test
+    void test_topic_filter_matching() {
+        assertTrue(new TopicFilter("#").matches("a/b"));
+        assertFalse(new TopicFilter("#").matches("$SYS/broker"));
+        assertFalse(new TopicFilter("+/broker").matches("$SYS/broker"));
+        assertTrue(new TopicFilter("$SYS/#").matches("$SYS/broker"));
+        assertTrue(new TopicFilter("a/+").matches("a/"));
+        assertFalse(new TopicFilter("a/+").matches("a"));
+        assertTrue(new TopicFilter("+/+").matches("/"));
+        assertTrue(new TopicFilter("a/b").matches("a/b"));
+        assertFalse(new TopicFilter("a/b").matches("a/bc"));
+        assertEquals(2, TopicFilter.parseList(" a/b ,, c/# ").size());
+        assertThrows(IllegalArgumentException.class, () -> new TopicFilter("a/#/b"));
+        assertThrows(IllegalArgumentException.class, () -> new TopicFilter("a/b+"));
+    }
+}
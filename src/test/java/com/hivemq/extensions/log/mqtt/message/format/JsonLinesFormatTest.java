@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.general.DisconnectedReasonCode;
+import com.hivemq.extension.sdk.api.packets.general.Qos;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.LoggerFactory;
+import util.LogbackTestAppender;
+import util.PacketUtil.TestDisconnect;
+import util.PacketUtil.TestUserProperties;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static util.PacketUtil.createFullConnect;
+import static util.PacketUtil.createFullPuback;
+import static util.PacketUtil.createFullPublish;
+import static util.PacketUtil.createFullSuback;
+import static util.PacketUtil.createFullSubsribe;
+import static util.PacketUtil.createPingreq;
+
+/**
+ * @since 1.2.0
+ */
+class JsonLinesFormatTest {
+
+    private static final @NotNull String TIMESTAMP =
+            "\"timestamp\":\"\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z\"";
+
+    @RegisterExtension
+    private final @NotNull LogbackTestAppender logbackTestAppender =
+            LogbackTestAppender.createFor(LoggerFactory.getLogger(MessageLogUtil.class));
+
+    @Test
+    void test_publish() {
+        final MessageLogFormat format = new JsonLinesFormat("node-1", MqttMessageLogConfig.PAYLOAD_ENCODING_UTF8);
+
+        format.logPublish("clientId", createFullPublish(), true, false);
+        assertLogged("{\"timestamp\":\"\",\"node\":\"node-1\",\"direction\":\"in\",\"packetType\":\"PUBLISH\"," +
+                "\"clientId\":\"clientId\",\"topic\":\"topic\",\"qos\":1,\"retain\":false,\"packetId\":0," +
+                "\"payload\":\"message\",\"userProperties\":[{\"name\":\"name0\",\"value\":\"value0\"}," +
+                "{\"name\":\"name1\",\"value\":\"value1\"}]}");
+    }
+
+    @Test
+    void test_publish_verbose_base64() {
+        final MessageLogFormat format = new JsonLinesFormat("node-1", MqttMessageLogConfig.PAYLOAD_ENCODING_BASE64);
+
+        format.logPublish("clientId", createFullPublish(), false, true);
+        assertLogged("{\"timestamp\":\"\",\"node\":\"node-1\",\"direction\":\"out\",\"packetType\":\"PUBLISH\"," +
+                "\"clientId\":\"clientId\",\"topic\":\"topic\",\"qos\":1,\"retain\":false,\"packetId\":0," +
+                "\"payload\":\"bWVzc2FnZQ==\",\"dup\":false,\"messageExpiry\":10000,\"correlationData\":\"ZGF0YQ==\"," +
+                "\"responseTopic\":\"response topic\",\"contentType\":\"content type\"," +
+                "\"payloadFormatIndicator\":\"UTF_8\",\"subscriptionIdentifiers\":[1,2,3,4]," +
+                "\"userProperties\":[{\"name\":\"name0\",\"value\":\"value0\"}," +
+                "{\"name\":\"name1\",\"value\":\"value1\"}]}");
+    }
+
+    @Test
+    void test_publish_hex_payload() {
+        final MessageLogFormat format = new JsonLinesFormat("node-1", MqttMessageLogConfig.PAYLOAD_ENCODING_HEX);
+
+        format.logPublish("clientId", publish("topic", new byte[]{0, 1, (byte) 0xAB, (byte) 0xFF}), true, false);
+        assertLogged("{\"timestamp\":\"\",\"node\":\"node-1\",\"direction\":\"in\",\"packetType\":\"PUBLISH\"," +
+                "\"clientId\":\"clientId\",\"topic\":\"topic\",\"qos\":2,\"retain\":true,\"packetId\":7," +
+                "\"payload\":\"0001abff\"}");
+    }
+
+    @Test
+    void test_escaping() {
+        final MessageLogFormat format = new JsonLinesFormat("node \"1\"", MqttMessageLogConfig.PAYLOAD_ENCODING_UTF8);
+        final String text = "quote \" backslash \\ newline \n tab \t nul \0 umlaut \u00fc euro \u20ac " +
+                "smile \uD83D\uDE00 separator \u2028";
+
+        format.logPublish("client\n1", publish("a/\"b\"", text.getBytes(UTF_8)), true, false);
+        assertLogged("{\"timestamp\":\"\",\"node\":\"node \\\"1\\\"\",\"direction\":\"in\"," +
+                "\"packetType\":\"PUBLISH\"," +
+                "\"clientId\":\"client\\n1\",\"topic\":\"a/\\\"b\\\"\",\"qos\":2,\"retain\":true,\"packetId\":7," +
+                "\"payload\":\"quote \\\" backslash \\\\ newline \\n tab \\t nul \\u0000 umlaut \u00fc euro \u20ac " +
+                "smile \uD83D\uDE00 separator \\u2028\"}");
+    }
+
+    @Test
+    void test_malformed_utf8_is_replaced() {
+        final MessageLogFormat format = new JsonLinesFormat("node-1", MqttMessageLogConfig.PAYLOAD_ENCODING_UTF8);
+
+        // stray continuation byte, overlong encoding, encoded surrogate, truncated sequence
+        format.logPublish("clientId",
+                publish("topic",
+                        new byte[]{'a', (byte) 0x80, 'b', (byte) 0xC0, (byte) 0x80, (byte) 0xED, (byte) 0xA0,
+                                (byte) 0x80, 'c', (byte) 0xE2, (byte) 0x82}),
+                true,
+                false);
+        assertTrue(lastLine().contains("\"payload\":\"a\uFFFDb\uFFFD\uFFFD\uFFFDc\uFFFD\""), lastLine());
+    }
+
+    @Test
+    void test_other_packets() {
+        final MessageLogFormat format = new JsonLinesFormat("node-1", MqttMessageLogConfig.PAYLOAD_ENCODING_UTF8);
+
+        format.logSubscribe(createFullSubsribe(), true);
+        assertLogged("{\"timestamp\":\"\",\"node\":\"node-1\",\"direction\":\"in\",\"packetType\":\"SUBSCRIBE\"," +
+                "\"clientId\":\"clientId\",\"packetId\":1,\"subscriptions\":[{\"topic\":\"topic1\",\"qos\":2," +
+                "\"retainAsPublished\":false,\"noLocal\":false,\"retainHandling\":\"DO_NOT_SEND\"}," +
+                "{\"topic\":\"topic2\",\"qos\":0,\"retainAsPublished\":true,\"noLocal\":true," +
+                "\"retainHandling\":\"SEND_IF_NEW_SUBSCRIPTION\"}],\"subscriptionIdentifier\":10," +
+                "\"userProperties\":[{\"name\":\"name0\",\"value\":\"value0\"}," +
+                "{\"name\":\"name1\",\"value\":\"value1\"}]}");
+
+        format.logSuback(createFullSuback(), false);
+        assertLogged("{\"timestamp\":\"\",\"node\":\"node-1\",\"direction\":\"out\",\"packetType\":\"SUBACK\"," +
+                "\"clientId\":\"clientId\",\"packetId\":1,\"reasonCodes\":[\"GRANTED_QOS_1\",\"GRANTED_QOS_0\"]," +
+                "\"userProperties\":[{\"name\":\"name0\",\"value\":\"value0\"}," +
+                "{\"name\":\"name1\",\"value\":\"value1\"}]}");
+
+        format.logPuback(createFullPuback(), "clientId", true, false);
+        assertTrue(lastLine().contains("\"packetType\":\"PUBACK\",\"clientId\":\"clientId\",\"packetId\":10," +
+                "\"reasonCode\":\"NO_MATCHING_SUBSCRIBERS\""), lastLine());
+
+        format.logPingreq(createPingreq());
+        assertLogged("{\"timestamp\":\"\",\"node\":\"node-1\",\"direction\":\"in\",\"packetType\":\"PINGREQ\"," +
+                "\"clientId\":\"clientId\"}");
+
+        format.logConnect(createFullConnect(), true);
+        assertTrue(lastLine().contains("\"packetType\":\"CONNECT\",\"clientId\":\"clientId\"," +
+                "\"protocolVersion\":\"V_5\",\"cleanStart\":false"), lastLine());
+        assertTrue(lastLine().contains("\"will\":{\"topic\":\"willtopic\""), lastLine());
+        assertFalse(lastLine().contains("password"), lastLine());
+    }
+
+    @Test
+    void test_disconnect_event() {
+        final MessageLogFormat format = new JsonLinesFormat("node-1", MqttMessageLogConfig.PAYLOAD_ENCODING_UTF8);
+
+        format.logDisconnectEvent(new TestDisconnect(DisconnectedReasonCode.NOT_AUTHORIZED,
+                "denied",
+                new TestUserProperties(1)), "clientId", false, true, true);
+        assertLogged("{\"timestamp\":\"\",\"node\":\"node-1\",\"direction\":\"out\",\"packetType\":\"DISCONNECT\"," +
+                "\"clientId\":\"clientId\",\"reasonCode\":\"NOT_AUTHORIZED\",\"authenticationFailed\":true," +
+                "\"reasonString\":\"denied\",\"userProperties\":[{\"name\":\"name0\",\"value\":\"value0\"}]}");
+
+        format.logDisconnectEvent(new TestDisconnect(null, "ignored", null), "clientId", true, false, false);
+        assertLogged("{\"timestamp\":\"\",\"node\":\"node-1\",\"direction\":\"in\",\"packetType\":\"DISCONNECT\"," +
+                "\"clientId\":\"clientId\"}");
+    }
+
+    @Test
+    void test_created_from_config() {
+        final Properties properties = new Properties();
+        properties.setProperty("format", "jsonl");
+        properties.setProperty("node", "broker-2");
+        properties.setProperty("payload-encoding", "hex");
+
+        MessageLogFormat.create(new MqttMessageLogConfig(properties)).logPingreq(createPingreq());
+        assertTrue(lastLine().contains("\"node\":\"broker-2\""), lastLine());
+        MessageLogFormat.create(new MqttMessageLogConfig(properties))
+                .logPublish("clientId", createFullPublish(), true, false);
+        assertTrue(lastLine().contains("\"payload\":\"6d657373616765\""), lastLine());
+    }
+
+    @Test
+    void test_writer_encodings_match_jdk() {
+        final Random random = new Random(42);
+        for (int length = 0; length < 64; length++) {
+            final byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            final StringBuilder builder = new StringBuilder();
+            new JsonWriter(builder).base64Value(ByteBuffer.wrap(bytes));
+            assertEquals('"' + Base64.getEncoder().encodeToString(bytes) + '"', builder.toString());
+
+            final StringBuilder text = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                text.appendCodePoint(0x20 + random.nextInt(0x10000 - 0x20));
+            }
+            final String string = text.toString().replaceAll("[\\uD800-\\uDFFF]", "x");
+            final StringBuilder utf8 = new StringBuilder();
+            new JsonWriter(utf8).utf8Value(ByteBuffer.wrap(string.getBytes(UTF_8)));
+            final StringBuilder expected = new StringBuilder();
+            JsonWriter.appendString(expected, string);
+            assertEquals(expected.toString(), utf8.toString());
+        }
+    }
+
+    private static @NotNull PublishPacket publish(final @NotNull String topic, final byte @NotNull [] payload) {
+        final PublishPacket publishPacket = mock(PublishPacket.class);
+        when(publishPacket.getTopic()).thenReturn(topic);
+        when(publishPacket.getQos()).thenReturn(Qos.EXACTLY_ONCE);
+        when(publishPacket.getRetain()).thenReturn(true);
+        when(publishPacket.getPacketId()).thenReturn(7);
+        when(publishPacket.getPayload()).thenReturn(Optional.of(ByteBuffer.wrap(payload).asReadOnlyBuffer()));
+        return publishPacket;
+    }
+
+    private @NotNull String lastLine() {
+        return logbackTestAppender.getEvents().get(logbackTestAppender.getEvents().size() - 1).getFormattedMessage();
+    }
+
+    /**
+     * Compares the last line with an empty timestamp, the timestamp is only checked for its format.
+     */
+    private void assertLogged(final @NotNull String expected) {
+        final String line = lastLine();
+        assertTrue(line.matches("\\{" + TIMESTAMP + ",.*"), line);
+        assertEquals(expected, line.replaceFirst(TIMESTAMP, "\"timestamp\":\"\""));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.format;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.general.Qos;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extensions.log.mqtt.message.config.MqttMessageLogConfig;
+import com.hivemq.extensions.log.mqtt.message.util.MessageLogUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.LoggerFactory;
+import util.LogbackTestAppender;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static util.PacketUtil.createFullConnect;
+import static util.PacketUtil.createFullPuback;
+import static util.PacketUtil.createFullPublish;
+import static util.PacketUtil.createFullSubsribe;
+import static util.PacketUtil.createPingreq;
+
+/**
+ * @since 1.2.0
+ */
+class TextLogFormatTest {
+
+    @RegisterExtension
+    private final @NotNull LogbackTestAppender logbackTestAppender =
+            LogbackTestAppender.createFor(LoggerFactory.getLogger(MessageLogUtil.class));
+
+    @Test
+    void test_publish_projection() {
+        final MessageLogFormat format = create("publish-fields", "topic, qos,retain,payloadSize,userProperties");
+
+        format.logPublish("clientId", createFullPublish(), true, false);
+        assertLogged("Received PUBLISH from client 'clientId': Topic: 'topic', QoS: '1', Retained: 'false', " +
+                "Payload Size: '7', User Properties: [Name: 'name0', Value: 'value0'], " +
+                "[Name: 'name1', Value: 'value1']");
+    }
+
+    @Test
+    void test_fields_not_selected_are_not_read() {
+        final PublishPacket publishPacket = mock(PublishPacket.class);
+        when(publishPacket.getTopic()).thenReturn("topic");
+        when(publishPacket.getQos()).thenReturn(Qos.EXACTLY_ONCE);
+        final MessageLogFormat format = create("publish-fields", "topic,qos");
+
+        format.logPublish("clientId", publishPacket, false, true);
+        assertLogged("Sent PUBLISH to client 'clientId': Topic: 'topic', QoS: '2'");
+        verify(publishPacket, never()).getPayload();
+        verify(publishPacket, never()).getUserProperties();
+        verify(publishPacket, never()).getCorrelationData();
+    }
+
+    @Test
+    void test_other_packet_projections() {
+        final MessageLogFormat format = create("subscribe-fields",
+                "topics,subscriptionIdentifier",
+                "connect-fields",
+                "protocolVersion,keepAlive,username",
+                "puback-fields",
+                "reasonCode");
+
+        format.logSubscribe(createFullSubsribe(), false);
+        assertLogged("Received SUBSCRIBE from client 'clientId': Topics: { [Topic: 'topic1', QoS: '2'], " +
+                "[Topic: 'topic2', QoS: '0'] }, Subscription Identifier: '10'");
+
+        format.logConnect(createFullConnect(), false);
+        assertLogged("Received CONNECT from client 'clientId': Protocol version: 'V_5', Keep Alive: '20000', " +
+                "Username: 'the username'");
+
+        format.logPuback(createFullPuback(), "clientId", false, false);
+        assertLogged("Sent PUBACK to client 'clientId': Reason Code: 'NO_MATCHING_SUBSCRIBERS'");
+    }
+
+    @Test
+    void test_blank_field_list_uses_built_in_line() {
+        assertNull(FieldProjection.compile(PacketFields.PUBLISH, ""));
+        assertNull(FieldProjection.compile(PacketFields.PUBLISH, " , "));
+
+        create("publish-fields", " , ").logPublish("clientId", createFullPublish(), true, false);
+        assertLogged("Received PUBLISH from client 'clientId' for topic 'topic': Payload: 'message', QoS: '1', " +
+                "Retained: 'false'");
+    }
+
+    @Test
+    void test_unknown_field() {
+        final IllegalArgumentException exception =
+                assertThrows(IllegalArgumentException.class, () -> create("publish-fields", "topic,qos,colour"));
+        assertTrue(exception.getMessage().startsWith("Unknown publish field 'colour'"));
+    }
+
+    @Test
+    void test_publish_template() {
+        final MessageLogFormat format =
+                create("template.publish-received", "IN PUB ${clientId} ${topic} q${qos} ${payload} $5");
+
+        format.logPublish("clientId", createFullPublish(), true, true);
+        assertLogged("IN PUB clientId topic q1 message $5");
+    }
+
+    @Test
+    void test_template_takes_precedence_over_fields() {
+        final MessageLogFormat format = create("publish-fields",
+                "topic",
+                "template.publish-send",
+                "OUT ${clientId} ${topic} ${payloadSize}");
+
+        format.logPublish("clientId", createFullPublish(), false, false);
+        assertLogged("OUT clientId topic 7");
+        format.logPublish("clientId", createFullPublish(), true, false);
+        assertLogged("Received PUBLISH from client 'clientId': Topic: 'topic'");
+    }
+
+    @Test
+    void test_template_with_timestamp_and_ping() {
+        final MessageLogFormat format = create("template.ping-request-received", "${ts} PINGREQ ${clientId}");
+
+        format.logPingreq(createPingreq());
+        final String line = logbackTestAppender.getEvents().get(0).getFormattedMessage();
+        assertTrue(line.matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z PINGREQ clientId"), line);
+    }
+
+    @Test
+    void test_template_unknown_variable() {
+        final IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> create("template.connect-received", "${clientId} ${colour}"));
+        assertTrue(exception.getMessage().startsWith("Unknown connect field 'colour'"));
+    }
+
+    @Test
+    void test_template_unterminated_variable() {
+        assertThrows(IllegalArgumentException.class,
+                () -> create("template.puback-send", "${clientId} ${reasonCode"));
+    }
+
+    private static @NotNull MessageLogFormat create(final @NotNull String @NotNull ... keysAndValues) {
+        final Properties properties = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return MessageLogFormat.create(new MqttMessageLogConfig(properties));
+    }
+
+    private void assertLogged(final @NotNull String expected) {
+        assertEquals(expected, logbackTestAppender.getEvents().get(logbackTestAppender.getEvents().size() - 1)
+                .getFormattedMessage());
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.jfr;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.interceptor.pingreq.parameter.PingReqInboundInput;
+import com.hivemq.extension.sdk.api.packets.general.Qos;
+import com.hivemq.extension.sdk.api.packets.puback.PubackPacket;
+import com.hivemq.extension.sdk.api.packets.publish.AckReasonCode;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extensions.log.mqtt.message.format.MessageLogFormat;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static util.PacketUtil.createPingreq;
+
+/**
+ * @since 1.2.0
+ */
+class JfrMessageLogFormatTest {
+
+    @TempDir
+    @NotNull Path directory;
+
+    private final @NotNull MessageLogFormat delegate = mock(MessageLogFormat.class);
+    private final @NotNull JfrMessageLogFormat format = new JfrMessageLogFormat(delegate);
+
+    @Test
+    void test_without_recording_packets_are_passed_on() {
+        final PublishPacket publishPacket = publish();
+        format.logPublish("clientId", publishPacket, true, false);
+
+        verify(delegate).logPublish("clientId", publishPacket, true, false);
+        assertEquals(0, format.getPendingFlows());
+    }
+
+    @Test
+    void test_recorded_events() throws IOException {
+        final Path file = directory.resolve("recording.jfr");
+        final PingReqInboundInput pingReqInboundInput = createPingreq();
+        try (final Recording recording = new Recording()) {
+            recording.enable(MqttPacketEvent.NAME);
+            recording.start();
+            format.logPublish("clientId", publish(), true, false);
+            format.logPuback(puback(), "clientId", false, false);
+            format.logPingreq(pingReqInboundInput);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file)
+                .stream()
+                .filter(event -> MqttPacketEvent.NAME.equals(event.getEventType().getName()))
+                .collect(Collectors.toList());
+        assertEquals(3, events.size());
+
+        final RecordedEvent publish = events.get(0);
+        assertEquals("PUBLISH", publish.getString("packetType"));
+        assertTrue(publish.getBoolean("inbound"));
+        assertEquals("clientId", publish.getString("clientId"));
+        assertEquals("topic", publish.getString("topic"));
+        assertEquals(1, publish.getInt("qos"));
+        assertEquals(7, publish.getInt("payloadSize"));
+
+        final RecordedEvent puback = events.get(1);
+        assertEquals("PUBACK", puback.getString("packetType"));
+        assertFalse(puback.getBoolean("inbound"));
+        assertEquals("SUCCESS", puback.getString("reasonCode"));
+        assertTrue(puback.getLong("ackLatency") > 0);
+        assertEquals(0, format.getPendingFlows());
+
+        assertEquals("PINGREQ", events.get(2).getString("packetType"));
+        verify(delegate).logPingreq(pingReqInboundInput);
+    }
+
+    @Test
+    void test_flow_events_filtered_by_threshold() throws IOException, InterruptedException {
+        final Path file = directory.resolve("flows.jfr");
+        final PublishPacket publishPacket = publish();
+        final PubackPacket pubackPacket = puback();
+        final JfrMessageLogFormat recordingOnly = new JfrMessageLogFormat(null);
+        try (final Recording recording = new Recording()) {
+            recording.enable(MqttFlowEvent.NAME).withThreshold(Duration.ofMillis(50));
+            recording.start();
+            recordingOnly.logPublish("clientId", publishPacket, true, false);
+            recordingOnly.logPuback(pubackPacket, "clientId", false, false);
+            recordingOnly.logPublish("slow", publishPacket, false, false);
+            Thread.sleep(100);
+            recordingOnly.logPuback(pubackPacket, "slow", true, false);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file)
+                .stream()
+                .filter(event -> MqttFlowEvent.NAME.equals(event.getEventType().getName()))
+                .collect(Collectors.toList());
+        assertEquals(1, events.size());
+        final RecordedEvent flow = events.get(0);
+        assertEquals("PUBACK", flow.getString("packetType"));
+        assertFalse(flow.getBoolean("inbound"));
+        assertEquals("slow", flow.getString("clientId"));
+        assertEquals(10, flow.getInt("packetId"));
+        assertTrue(flow.getDuration().toMillis() >= 100);
+        assertFalse(flow.hasField("startNanos"));
+        assertEquals(0, recordingOnly.getPendingFlows());
+    }
+
+    private static @NotNull PublishPacket publish() {
+        final PublishPacket publishPacket = mock(PublishPacket.class);
+        when(publishPacket.getTopic()).thenReturn("topic");
+        when(publishPacket.getQos()).thenReturn(Qos.AT_LEAST_ONCE);
+        when(publishPacket.getPacketId()).thenReturn(10);
+        when(publishPacket.getPayload()).thenAnswer(invocation -> Optional.of(ByteBuffer.wrap("message".getBytes())));
+        return publishPacket;
+    }
+
+    private static @NotNull PubackPacket puback() {
+        final PubackPacket pubackPacket = mock(PubackPacket.class);
+        when(pubackPacket.getPacketIdentifier()).thenReturn(10);
+        when(pubackPacket.getReasonCode()).thenReturn(AckReasonCode.SUCCESS);
+        return pubackPacket;
+    }
+}
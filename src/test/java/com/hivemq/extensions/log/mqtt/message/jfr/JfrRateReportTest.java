@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.jfr;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @since 1.2.0
+ */
+class JfrRateReportTest {
+
+    @Test
+    void test_rates_per_interval() {
+        final JfrRateReport report = new JfrRateReport(2000);
+        report.add(1_000, "PUBLISH", true, 100, 0);
+        report.add(1_500, "PUBLISH", true, 300, 0);
+        report.add(1_600, "PUBACK", false, 0, 2_000_000);
+        report.add(2_100, "PUBACK", false, 0, 4_000_000);
+
+        assertEquals("1970-01-01T00:00:00Z  PUBACK out 0.5/s ack avg 2.000 ms max 2.000 ms" +
+                "  PUBLISH in 1.0/s 200.0 B/s\n" +
+                "1970-01-01T00:00:02Z  PUBACK out 0.5/s ack avg 4.000 ms max 4.000 ms\n", report.render());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.pcap;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectReasonCode;
+import com.hivemq.extension.sdk.api.packets.general.MqttVersion;
+import com.hivemq.extension.sdk.api.packets.publish.AckReasonCode;
+import com.hivemq.extension.sdk.api.packets.subscribe.SubackReasonCode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static util.PacketUtil.createEmptyPublish;
+import static util.PacketUtil.createFullConnect;
+import static util.PacketUtil.createFullPublish;
+import static util.PacketUtil.createFullSuback;
+
+/**
+ * @since 1.2.0
+ */
+class MqttWireEncoderTest {
+
+    private final @NotNull MqttWireEncoder encoder = new MqttWireEncoder();
+
+    @Test
+    void test_publish_mqtt3() {
+        final byte[] packet = encoder.publish(createEmptyPublish(), MqttVersion.V_3_1_1);
+
+        assertArrayEquals(concat(new byte[]{0x32, 16, 0, 5}, "topic", new byte[]{0, 0}, "message"), packet);
+    }
+
+    @Test
+    void test_publish_mqtt5_without_properties() {
+        final byte[] packet = encoder.publish(createEmptyPublish(), MqttVersion.V_5);
+
+        assertArrayEquals(concat(new byte[]{0x32, 17, 0, 5}, "topic", new byte[]{0, 0, 0}, "message"), packet);
+    }
+
+    @Test
+    void test_publish_mqtt5_with_properties() {
+        final ByteBuffer packet = ByteBuffer.wrap(encoder.publish(createFullPublish(), MqttVersion.V_5));
+
+        assertEquals(0x32, packet.get());
+        assertEquals(packet.capacity() - 2, packet.get());
+        assertEquals("topic", string(packet));
+        assertEquals(0, packet.getShort());
+        final int propertiesLength = packet.get();
+        packet.position(packet.position() + propertiesLength);
+        assertEquals("message", UTF_8.decode(packet).toString());
+    }
+
+    @Test
+    void test_connect_mqtt5_without_password() {
+        final ByteBuffer packet = ByteBuffer.wrap(encoder.connect(createFullConnect()));
+
+        assertEquals(0x10, packet.get());
+        int remainingLength = 0;
+        int shift = 0;
+        byte digit;
+        do {
+            digit = packet.get();
+            remainingLength |= (digit & 0x7F) << shift;
+            shift += 7;
+        } while (digit < 0);
+        assertEquals(packet.remaining(), remainingLength);
+        assertEquals("MQTT", string(packet));
+        assertEquals(5, packet.get());
+        final int flags = packet.get() & 0xFF;
+        assertEquals(0x04 | 0x08 | 0x80, flags & ~0x40);
+        assertEquals(0, flags & 0x40);
+        assertEquals(20000, packet.getShort() & 0xFFFF);
+    }
+
+    @Test
+    void test_suback_mqtt3() {
+        final byte[] packet = encoder.suback(createFullSuback().getSubackPacket(), MqttVersion.V_3_1_1);
+
+        assertArrayEquals(new byte[]{(byte) 0x90, 4, 0, 1, 1, 0}, packet);
+    }
+
+    @Test
+    void test_reason_codes() {
+        assertEquals(0x10, MqttWireEncoder.reasonCode(AckReasonCode.NO_MATCHING_SUBSCRIBERS));
+        assertEquals(0x8B, MqttWireEncoder.reasonCode(DisconnectReasonCode.SERVER_SHUTTING_DOWN));
+        assertEquals(0x02, MqttWireEncoder.reasonCode(SubackReasonCode.GRANTED_QOS_2));
+    }
+
+    static byte @NotNull [] concat(final @NotNull Object @NotNull ... parts) {
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        for (final Object part : parts) {
+            buffer.put(part instanceof String ? ((String) part).getBytes(UTF_8) : (byte[]) part);
+        }
+        final byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    private static @NotNull String string(final @NotNull ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
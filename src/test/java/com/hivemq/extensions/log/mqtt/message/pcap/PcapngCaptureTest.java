@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.pcap;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.packets.general.MqttVersion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static util.PacketUtil.createEmptyConnect;
+import static util.PacketUtil.createEmptyDisconnect;
+import static util.PacketUtil.createEmptyPublish;
+
+/**
+ * @since 1.2.0
+ */
+class PcapngCaptureTest {
+
+    @TempDir
+    @NotNull Path directory;
+
+    @Test
+    void test_publish_in_synthetic_tcp_connection() throws IOException {
+        final Path file = directory.resolve("capture").resolve(PcapngCapture.FILE_NAME);
+        try (final PcapngCapture capture = PcapngCapture.open(file, 16)) {
+            capture.logPublish("clientId", createEmptyPublish(), true, false);
+        }
+
+        final List<ByteBuffer> blocks = blocks(file);
+        assertEquals(6, blocks.size());
+        assertEquals(PcapngWriter.SECTION_HEADER_BLOCK, blocks.get(0).getInt(0));
+        assertEquals(PcapngWriter.BYTE_ORDER_MAGIC, blocks.get(0).getInt(8));
+        assertEquals(PcapngWriter.INTERFACE_DESCRIPTION_BLOCK, blocks.get(1).getInt(0));
+        assertEquals(PcapngWriter.LINKTYPE_RAW, blocks.get(1).getShort(8));
+
+        assertEquals(PcapngWriter.SYN, tcpFlags(blocks.get(2)));
+        assertEquals(PcapngWriter.SYN | PcapngWriter.ACK, tcpFlags(blocks.get(3)));
+        assertEquals(PcapngWriter.ACK, tcpFlags(blocks.get(4)));
+
+        final ByteBuffer block = blocks.get(5);
+        assertEquals(PcapngWriter.ENHANCED_PACKET_BLOCK, block.getInt(0));
+        assertEquals(PcapngWriter.PSH | PcapngWriter.ACK, tcpFlags(block));
+        final ByteBuffer ip = packet(block);
+        assertEquals(0, ipChecksum(ip));
+        assertEquals(PcapngWriter.SERVER_ADDRESS, ip.getInt(16));
+        assertEquals(PcapngWriter.SERVER_PORT, ip.getShort(22));
+        assertEquals(1, ip.getInt(24));
+        assertEquals(1, ip.getInt(28));
+        final byte[] mqtt = new byte[ip.remaining() - PcapngWriter.HEADERS_SIZE];
+        ip.position(PcapngWriter.HEADERS_SIZE).get(mqtt);
+        assertArrayEquals(new MqttWireEncoder().publish(createEmptyPublish(), MqttVersion.V_3_1_1), mqtt);
+
+        final int optionStart = 28 + ((block.getInt(20) + 3) & ~3);
+        assertEquals(1, block.getShort(optionStart));
+        final byte[] comment = new byte[block.getShort(optionStart + 2)];
+        block.position(optionStart + 4);
+        block.get(comment);
+        assertEquals("client: clientId", new String(comment, UTF_8));
+    }
+
+    @Test
+    void test_disconnect_closes_connection() throws IOException {
+        final Path file = directory.resolve(PcapngCapture.FILE_NAME);
+        try (final PcapngCapture capture = PcapngCapture.open(file, 16)) {
+            capture.logConnect(createEmptyConnect(), false);
+            capture.logDisconnect(createEmptyDisconnect(), "clientId", true, false);
+            capture.clientDisconnected("clientId");
+        }
+
+        final List<ByteBuffer> blocks = blocks(file);
+        // header blocks, handshake, CONNECT, DISCONNECT and FIN exchange
+        assertEquals(2 + 3 + 2 + 3, blocks.size());
+        final ByteBuffer disconnect = packet(blocks.get(6));
+        assertEquals((byte) 0xE0, disconnect.get(PcapngWriter.HEADERS_SIZE));
+        assertEquals(PcapngWriter.FIN | PcapngWriter.ACK, tcpFlags(blocks.get(7)));
+        assertEquals(PcapngWriter.FIN | PcapngWriter.ACK, tcpFlags(blocks.get(8)));
+        assertEquals(PcapngWriter.ACK, tcpFlags(blocks.get(9)));
+        // the client sent SYN, CONNECT, DISCONNECT and FIN
+        final int clientSequence = packet(blocks.get(9)).getInt(24);
+        assertEquals(1 + mqttLength(blocks.get(5)) + mqttLength(blocks.get(6)) + 1, clientSequence);
+    }
+
+    @Test
+    void test_reopen_appends_section() throws IOException {
+        final Path file = directory.resolve(PcapngCapture.FILE_NAME);
+        PcapngCapture.open(file, 16).close();
+        PcapngCapture.open(file, 16).close();
+
+        final List<ByteBuffer> blocks = blocks(file);
+        assertEquals(4, blocks.size());
+        assertEquals(PcapngWriter.SECTION_HEADER_BLOCK, blocks.get(2).getInt(0));
+    }
+
+    private static @NotNull List<ByteBuffer> blocks(final @NotNull Path file) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        final List<ByteBuffer> blocks = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            final int length = buffer.getInt(buffer.position() + 4);
+            assertEquals(length, buffer.getInt(buffer.position() + length - 4));
+            final ByteBuffer block = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            block.limit(length);
+            blocks.add(block);
+            buffer.position(buffer.position() + length);
+        }
+        return blocks;
+    }
+
+    private static @NotNull ByteBuffer packet(final @NotNull ByteBuffer block) {
+        final ByteBuffer packet = block.duplicate();
+        packet.position(28).limit(28 + block.getInt(20));
+        return packet.slice().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private static int mqttLength(final @NotNull ByteBuffer block) {
+        return packet(block).remaining() - PcapngWriter.HEADERS_SIZE;
+    }
+
+    private static int tcpFlags(final @NotNull ByteBuffer block) {
+        return packet(block).get(33);
+    }
+
+    private static int ipChecksum(final @NotNull ByteBuffer ip) {
+        int sum = 0;
+        for (int i = 0; i < 20; i += 2) {
+            sum += ip.getShort(i) & 0xFFFF;
+        }
+        while ((sum >>> 16) != 0) {
+            sum = (sum & 0xFFFF) + (sum >>> 16);
+        }
+        return ~sum & 0xFFFF;
+    }
+}
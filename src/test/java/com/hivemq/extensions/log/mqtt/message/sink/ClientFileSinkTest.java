@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.sink;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 1.2.0
+ */
+class ClientFileSinkTest {
+
+    @TempDir
+    @NotNull Path directory;
+
+    private final @NotNull AtomicLong clock = new AtomicLong(0);
+
+    @Test
+    void test_lines_per_client() throws IOException {
+        final ClientFileSink sink = open(16, 60_000);
+        sink.writeLine("client-1", "first");
+        sink.writeLine("client-2", "second");
+        sink.writeLine("client-1", "third");
+        sink.close();
+        sink.writeLine("client-1", "dropped");
+
+        assertEquals("first\nthird\n", read("client-1"));
+        assertEquals("second\n", read("client-2"));
+    }
+
+    @Test
+    void test_buffered_until_flush() throws IOException {
+        try (final ClientFileSink sink = open(16, 60_000)) {
+            sink.writeLine("client", "line");
+            assertEquals("", read("client"));
+            sink.flush();
+            assertEquals("line\n", read("client"));
+        }
+    }
+
+    @Test
+    void test_full_buffer_written() throws IOException {
+        final String line = "x".repeat(ClientFileSink.BUFFER_SIZE / 2);
+        try (final ClientFileSink sink = open(16, 60_000)) {
+            sink.writeLine("client", line);
+            sink.writeLine("client", line);
+            sink.writeLine("client", "y".repeat(ClientFileSink.BUFFER_SIZE * 2));
+            assertEquals(line + "\n" + line + "\n" + "y".repeat(ClientFileSink.BUFFER_SIZE * 2) + "\n",
+                    read("client"));
+        }
+    }
+
+    @Test
+    void test_least_recently_used_file_closed() throws IOException {
+        try (final ClientFileSink sink = open(2, 60_000)) {
+            sink.writeLine("client-1", "a");
+            sink.writeLine("client-2", "b");
+            sink.writeLine("client-1", "c");
+            sink.writeLine("client-3", "d");
+            assertEquals(2, sink.getOpenFiles());
+            assertEquals("b\n", read("client-2"));
+            assertEquals("", read("client-1"));
+
+            sink.writeLine("client-2", "e");
+            assertEquals("a\nc\n", read("client-1"));
+            sink.flush();
+            assertEquals("b\ne\n", read("client-2"));
+        }
+    }
+
+    @Test
+    void test_file_closed_on_disconnect() throws IOException {
+        try (final ClientFileSink sink = open(16, 60_000)) {
+            sink.writeLine("client", "before");
+            sink.clientDisconnected("client");
+            assertEquals(0, sink.getOpenFiles());
+            assertEquals("before\n", read("client"));
+
+            sink.writeLine("client", "after");
+            sink.flush();
+            assertEquals("before\nafter\n", read("client"));
+        }
+    }
+
+    @Test
+    void test_idle_file_closed_on_flush() throws IOException {
+        try (final ClientFileSink sink = open(16, 10_000)) {
+            sink.writeLine("idle", "a");
+            clock.set(5_000);
+            sink.writeLine("active", "b");
+            sink.flush();
+            assertEquals(2, sink.getOpenFiles());
+
+            clock.set(10_000);
+            sink.flush();
+            assertEquals(1, sink.getOpenFiles());
+            assertEquals("a\n", read("idle"));
+        }
+    }
+
+    @Test
+    void test_timestamps() throws IOException {
+        final ClientFileSink sink = new ClientFileSink(directory, true, 16, 60_000, 60_000, clock::get);
+        sink.writeLine("client", "line");
+        sink.close();
+
+        assertEquals("1970-01-01T00:00:00.000Z line\n", read("client"));
+    }
+
+    @Test
+    void test_file_name() {
+        assertEquals("client-1_a.b.log", ClientFileSink.fileName("client-1_a.b"));
+        assertEquals("%2E.%2Fetc%2Fpasswd.log", ClientFileSink.fileName("../etc/passwd"));
+        assertEquals("%2Ehidden.log", ClientFileSink.fileName(".hidden"));
+        assertEquals("a%20b%C3%A4%25.log", ClientFileSink.fileName("a bä%"));
+
+        final String longName = ClientFileSink.fileName("c".repeat(1000));
+        assertEquals(200 + ClientFileSink.SUFFIX.length(), longName.length());
+        assertTrue(longName.startsWith("c".repeat(191) + "~"));
+        assertFalse(longName.equals(ClientFileSink.fileName("c".repeat(1001))));
+    }
+
+    private @NotNull ClientFileSink open(final int maxOpenFiles, final long idleTimeoutMillis) throws IOException {
+        return new ClientFileSink(directory, false, maxOpenFiles, 60_000, idleTimeoutMillis, clock::get);
+    }
+
+    private @NotNull String read(final @NotNull String clientId) throws IOException {
+        final Path path = directory.resolve(ClientFileSink.fileName(clientId));
+        return Files.exists(path) ? Files.readString(path, UTF_8) : "";
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.sink;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @since 1.2.0
+ */
+class FileSinkTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @TempDir
+    @NotNull Path directory;
+
+    private final @NotNull AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+
+    @Test
+    void test_lines_written_on_close() throws IOException {
+        final FileSink sink = open(policy(1024 * 1024, DAY, 1024 * 1024, DAY, false), false);
+        sink.writeLine("first");
+        sink.writeLine("ä € 😀");
+        sink.close();
+        sink.writeLine("dropped");
+
+        assertEquals("first\nä € 😀\n", Files.readString(sink.getFile(), UTF_8));
+    }
+
+    @Test
+    void test_timestamps() throws IOException {
+        clock.set(0);
+        try (final FileSink sink = open(policy(1024 * 1024, DAY, 1024 * 1024, DAY, false), true)) {
+            sink.writeLine("line");
+            sink.flush();
+            assertEquals("1970-01-01T00:00:00.000Z line\n", Files.readString(sink.getFile(), UTF_8));
+        }
+    }
+
+    @Test
+    void test_existing_file_is_continued() throws IOException {
+        Files.writeString(directory.resolve("messages.log"), "existing\n");
+        try (final FileSink sink = open(policy(1024 * 1024, DAY, 1024 * 1024, DAY, false), false)) {
+            sink.writeLine("appended");
+            sink.flush();
+            assertEquals("existing\nappended\n", Files.readString(sink.getFile(), UTF_8));
+        }
+    }
+
+    @Test
+    void test_line_larger_than_all_buffers() throws IOException {
+        final String line = "x".repeat(FileSink.BUFFER_SIZE * FileSink.BUFFER_COUNT * 2);
+        try (final FileSink sink = open(policy(Long.MAX_VALUE, DAY, Long.MAX_VALUE, DAY, false), false)) {
+            sink.writeLine("before");
+            sink.writeLine(line);
+            sink.writeLine("after");
+            sink.flush();
+            assertEquals("before\n" + line + "\nafter\n", Files.readString(sink.getFile(), UTF_8));
+        }
+    }
+
+    @Test
+    void test_concurrent_lines_are_not_interleaved() throws Exception {
+        final int threadCount = 4;
+        final int lineCount = 20_000;
+        final FileSink sink = open(policy(Long.MAX_VALUE, DAY, Long.MAX_VALUE, DAY, false), false);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final String prefix = "thread-" + t + "-" + "y".repeat(100 * t) + "-";
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < lineCount; i++) {
+                    sink.writeLine(prefix + i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        sink.close();
+
+        final List<String> lines = Files.readAllLines(sink.getFile(), UTF_8);
+        assertEquals(threadCount * lineCount, lines.size());
+        final Set<String> distinct = new HashSet<>(lines);
+        for (int t = 0; t < threadCount; t++) {
+            final String prefix = "thread-" + t + "-" + "y".repeat(100 * t) + "-";
+            for (int i = 0; i < lineCount; i++) {
+                assertTrue(distinct.contains(prefix + i));
+            }
+        }
+    }
+
+    @Test
+    void test_roll_by_size() throws IOException {
+        try (final FileSink sink = open(policy(20, DAY, 1024 * 1024, DAY, false), false)) {
+            for (int i = 0; i < 5; i++) {
+                sink.writeLine("line-" + i + "-abcdefgh");
+                sink.flush();
+                clock.addAndGet(1000);
+            }
+            assertEquals("line-4-abcdefgh\n", Files.readString(sink.getFile(), UTF_8));
+            final List<Path> rolled = sink.listRolled();
+            assertEquals(4, rolled.size());
+            assertEquals("messages.20231114-221321-000.log", rolled.get(0).getFileName().toString());
+            for (int i = 0; i < rolled.size(); i++) {
+                assertEquals("line-" + i + "-abcdefgh\n", Files.readString(rolled.get(i), UTF_8));
+            }
+        }
+    }
+
+    @Test
+    void test_roll_by_interval() throws IOException {
+        try (final FileSink sink = open(policy(1024 * 1024, 60_000, 1024 * 1024, DAY, false), false)) {
+            sink.writeLine("first");
+            sink.flush();
+            clock.addAndGet(30_000);
+            sink.writeLine("second");
+            sink.flush();
+            assertEquals(0, sink.listRolled().size());
+            clock.addAndGet(30_000);
+            sink.writeLine("third");
+            sink.flush();
+            final List<Path> rolled = sink.listRolled();
+            assertEquals(1, rolled.size());
+            assertEquals("first\nsecond\n", Files.readString(rolled.get(0), UTF_8));
+            assertEquals("third\n", Files.readString(sink.getFile(), UTF_8));
+        }
+    }
+
+    @Test
+    void test_rolled_files_compressed() throws IOException {
+        final FileSink sink = open(policy(10, DAY, 1024 * 1024, DAY, true), false);
+        for (int i = 0; i < 3; i++) {
+            sink.writeLine("line-" + i + "-abcdefgh");
+            sink.flush();
+            clock.addAndGet(1000);
+        }
+        sink.close();
+
+        final List<Path> rolled = sink.listRolled();
+        assertEquals(2, rolled.size());
+        for (int i = 0; i < rolled.size(); i++) {
+            assertTrue(rolled.get(i).getFileName().toString().endsWith(".log.gz"));
+            try (final InputStream in = new GZIPInputStream(Files.newInputStream(rolled.get(i)))) {
+                assertEquals("line-" + i + "-abcdefgh\n", new String(in.readAllBytes(), UTF_8));
+            }
+        }
+    }
+
+    @Test
+    void test_retention_by_total_size() throws IOException {
+        final FileSink sink = open(policy(10, DAY, 40, DAY, false), false);
+        for (int i = 0; i < 6; i++) {
+            sink.writeLine("line-" + i + "-abcdefgh");
+            sink.flush();
+            clock.addAndGet(1000);
+        }
+        sink.close();
+
+        final List<Path> rolled = sink.listRolled();
+        assertEquals(2, rolled.size());
+        assertEquals("line-3-abcdefgh\n", Files.readString(rolled.get(0), UTF_8));
+        assertEquals("line-4-abcdefgh\n", Files.readString(rolled.get(1), UTF_8));
+    }
+
+    @Test
+    void test_retention_by_age_on_open() throws IOException {
+        final Path old = directory.resolve("messages.20231101-000000-000.log.gz");
+        final Path recent = directory.resolve("messages.20231114-000000-000.log.gz");
+        final Path other = directory.resolve("other.20231101-000000-000.log");
+        for (final Path path : List.of(old, recent, other)) {
+            Files.writeString(path, "rolled\n");
+        }
+        Files.setLastModifiedTime(old, FileTime.fromMillis(clock.get() - 2 * DAY));
+        Files.setLastModifiedTime(recent, FileTime.fromMillis(clock.get() - DAY / 2));
+        Files.setLastModifiedTime(other, FileTime.fromMillis(clock.get() - 2 * DAY));
+
+        final FileSink sink = open(policy(1024 * 1024, DAY, 1024 * 1024, DAY, false), false);
+        sink.close();
+
+        assertEquals(List.of(recent), sink.listRolled());
+        assertTrue(Files.exists(other));
+    }
+
+    private @NotNull FileSink open(final @NotNull RollingPolicy policy, final boolean timestamps)
+            throws IOException {
+        return new FileSink(directory, "messages", policy, timestamps, 60_000, clock::get);
+    }
+
+    private static @NotNull RollingPolicy policy(
+            final long rotateSize,
+            final long rotateIntervalMillis,
+            final long maxTotalSize,
+            final long maxAgeMillis,
+            final boolean compress) {
+        return new RollingPolicy(rotateSize, rotateIntervalMillis, maxTotalSize, maxAgeMillis, compress);
+    }
+}
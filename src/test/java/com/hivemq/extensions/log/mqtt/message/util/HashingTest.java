@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.extensions.log.mqtt.message.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * @since 1.2.0
+ */
+class HashingTest {
+
+    @Test
+    void test_hash_of_buffer_depends_only_on_remaining_bytes() {
+        final byte[] bytes = "{\"temperature\":21.5,\"unit\":\"C\"}".getBytes(UTF_8);
+        final ByteBuffer heap = ByteBuffer.wrap(bytes);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 3);
+        direct.put(new byte[]{1, 2, 3}).put(bytes).flip().position(3);
+
+        assertEquals(Hashing.hash64(heap), Hashing.hash64(direct));
+        assertEquals(Hashing.hash64(heap.asReadOnlyBuffer()), Hashing.hash64(heap));
+        assertEquals(3, direct.position());
+        assertEquals(0, heap.position());
+    }
+
+    @Test
+    void test_hash_of_buffer_differs_for_different_bytes() {
+        for (int length = 0; length < 20; length++) {
+            final byte[] bytes = new byte[length + 1];
+            final long hash = Hashing.hash64(ByteBuffer.wrap(bytes));
+            bytes[length] = 1;
+            assertNotEquals(hash, Hashing.hash64(ByteBuffer.wrap(bytes)));
+            assertNotEquals(hash, Hashing.hash64(ByteBuffer.wrap(bytes, 0, length)));
+        }
+    }
+
+    @Test
+    void test_hash_of_chars() {
+        assertEquals(Hashing.hash64("topic"), Hashing.hash64(new StringBuilder("topic")));
+        assertNotEquals(Hashing.hash64("topic/1"), Hashing.hash64("topic/2"));
+    }
+}
@@ -217,7 +217,7 @@ class MessageLogUtilTest {
         MessageLogUtil.logConnack(createFullConnack(), true);
 
         assertEquals("Sent CONNACK to client 'clientId': Reason Code: 'SUCCESS', Session Present: 'false'," +
-                        " Session Expiry Interval: '100', Assigned clientId 'overwriteclientId', Maximum QoS: 'AT_MOST_ONCE'," +
+                        " Session Expiry Interval: '100', Assigned clientId 'overwriteClientId', Maximum QoS: 'AT_MOST_ONCE'," +
                         " Maximum Packet Size: '5', Receive Maximum: '10', Topic Alias Maximum: '5', Reason String: 'Okay'," +
                         " Response Information: 'Everything fine', Server Keep Alive: '100'," +
                         " Server Reference: 'Server2', Shared Subscription Available: 'false'," +